@@ -2215,12 +2215,8 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
                     result.put(currentScriptClassName.getAsmType(), v);
                 }
                 else {
-                    JvmClassName className =
-                            classNameForScriptDescriptor(bindingContext,
-                                                                        receiver.getDeclarationDescriptor());
-                    String fieldName = state.getScriptCodegen().getScriptFieldName(receiver.getDeclarationDescriptor());
                     result.put(currentScriptClassName.getAsmType(), v);
-                    StackValue.field(className.getAsmType(), currentScriptClassName, fieldName, false).put(className.getAsmType(), v);
+                    state.getScriptCodegen().putEarlierScriptInstance(receiver.getDeclarationDescriptor(), currentScriptClassName, v);
                 }
                 return;
             }
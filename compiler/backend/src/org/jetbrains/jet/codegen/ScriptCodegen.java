@@ -47,10 +47,18 @@ import static org.jetbrains.jet.lang.resolve.java.AsmTypeConstants.OBJECT_TYPE;
 
 public class ScriptCodegen extends MemberCodegen {
 
+    /**
+     * A REPL line references the instances of earlier lines through a single list, indexed by script priorities,
+     * so that the cost of compiling and instantiating a line does not depend on the number of lines before it
+     */
+    public static final String REPL_STATE_FIELD_NAME = "$replState";
+    public static final Type REPL_STATE_TYPE = Type.getObjectType("java/util/List");
+
     @NotNull
     private ClassFileFactory classFileFactory;
 
     private List<ScriptDescriptor> earlierScripts;
+    private boolean compilingReplLine;
     private Method scriptConstructorMethod;
 
     public ScriptCodegen(@NotNull GenerationState state) {
@@ -91,7 +99,7 @@ public class ScriptCodegen extends MemberCodegen {
         genFieldsForParameters(scriptDescriptor, classBuilder);
         genConstructor(scriptDeclaration, scriptDescriptor, classDescriptorForScript, classBuilder,
                        context.intoFunction(scriptDescriptor.getScriptCodeDescriptor()),
-                       earlierScripts);
+                       compilingReplLine ? Collections.<ScriptDescriptor>emptyList() : earlierScripts);
 
         classBuilder.done();
     }
@@ -110,7 +118,9 @@ public class ScriptCodegen extends MemberCodegen {
         classBuilder.newField(null, ACC_PUBLIC | ACC_FINAL, ScriptNameUtil.LAST_EXPRESSION_VALUE_FIELD_NAME,
                               blockType.getDescriptor(), null, null);
 
-        JvmMethodSignature jvmSignature = typeMapper.mapScriptSignature(scriptDescriptor, importedScripts);
+        JvmMethodSignature jvmSignature = compilingReplLine
+                                          ? typeMapper.mapReplLineSignature(scriptDescriptor, REPL_STATE_TYPE)
+                                          : typeMapper.mapScriptSignature(scriptDescriptor, importedScripts);
 
         state.getScriptCodegen().setScriptConstructorMethod(jvmSignature.getAsmMethod());
 
@@ -132,6 +142,10 @@ public class ScriptCodegen extends MemberCodegen {
 
         FrameMap frameMap = context.prepareFrame(typeMapper);
 
+        if (compilingReplLine) {
+            frameMap.enterTemp(REPL_STATE_TYPE);
+        }
+
         for (ScriptDescriptor importedScript : importedScripts) {
             frameMap.enter(importedScript, OBJECT_TYPE);
         }
@@ -144,14 +158,22 @@ public class ScriptCodegen extends MemberCodegen {
             frameMap.enter(parameter, argTypes[i + add]);
         }
 
+        int offset = 1;
+
+        // Initializers may use declarations of the earlier lines
+        if (compilingReplLine) {
+            instructionAdapter.load(0, className.getAsmType());
+            instructionAdapter.load(offset, REPL_STATE_TYPE);
+            offset += REPL_STATE_TYPE.getSize();
+            instructionAdapter.putfield(className.getInternalName(), REPL_STATE_FIELD_NAME, REPL_STATE_TYPE.getDescriptor());
+        }
+
         ImplementationBodyCodegen.generateInitializers(
                 new ExpressionCodegen(instructionAdapter, frameMap, Type.VOID_TYPE, context, state),
                 scriptDeclaration.getDeclarations(),
                 bindingContext,
                 state);
 
-        int offset = 1;
-
         for (ScriptDescriptor earlierScript : importedScripts) {
             JvmClassName earlierClassName = classNameForScriptDescriptor(bindingContext, earlierScript);
             instructionAdapter.load(0, className.getAsmType());
@@ -183,6 +205,10 @@ public class ScriptCodegen extends MemberCodegen {
     }
 
     private void genFieldsForParameters(@NotNull ScriptDescriptor script, @NotNull ClassBuilder classBuilder) {
+        if (compilingReplLine) {
+            classBuilder.newField(null, ACC_PRIVATE | ACC_FINAL, REPL_STATE_FIELD_NAME, REPL_STATE_TYPE.getDescriptor(), null, null);
+        }
+
         for (ScriptDescriptor earlierScript : earlierScripts) {
             JvmClassName earlierClassName;
             earlierClassName = classNameForScriptDescriptor(bindingContext, earlierScript);
@@ -217,6 +243,7 @@ public class ScriptCodegen extends MemberCodegen {
             earlierScriptDescriptors.add(earlierDescriptor);
         }
         this.earlierScripts = earlierScriptDescriptors;
+        this.compilingReplLine = false;
     }
 
     protected int getScriptIndex(@NotNull ScriptDescriptor scriptDescriptor) {
@@ -231,6 +258,27 @@ public class ScriptCodegen extends MemberCodegen {
         return "script$" + getScriptIndex(scriptDescriptor);
     }
 
+    /**
+     * Puts the instance of an earlier script on the stack, given the instance of the current script on top of it
+     */
+    public void putEarlierScriptInstance(
+            @NotNull ScriptDescriptor earlierScript,
+            @NotNull JvmClassName currentScriptClassName,
+            @NotNull InstructionAdapter v
+    ) {
+        JvmClassName className = classNameForScriptDescriptor(bindingContext, earlierScript);
+        if (compilingReplLine) {
+            v.getfield(currentScriptClassName.getInternalName(), REPL_STATE_FIELD_NAME, REPL_STATE_TYPE.getDescriptor());
+            v.iconst(earlierScript.getPriority());
+            v.invokeinterface(REPL_STATE_TYPE.getInternalName(), "get", "(I)Ljava/lang/Object;");
+            v.checkcast(className.getAsmType());
+        }
+        else {
+            StackValue.field(className.getAsmType(), currentScriptClassName, getScriptFieldName(earlierScript), false)
+                    .put(className.getAsmType(), v);
+        }
+    }
+
     public void setScriptConstructorMethod(Method scriptConstructorMethod) {
         this.scriptConstructorMethod = scriptConstructorMethod;
     }
@@ -248,6 +296,26 @@ public class ScriptCodegen extends MemberCodegen {
         registerEarlierScripts(earlierScripts);
         registerClassNameForScript(state.getBindingTrace(), script, className);
 
+        generateScriptFile(script, errorHandler);
+    }
+
+    /**
+     * Compiles a line of REPL. The class names of all the earlier lines must be already registered in the binding context,
+     * and the constructor of the line takes the list of their instances, indexed by script priorities
+     */
+    public void compileReplLine(
+            @NotNull JetScript script,
+            @NotNull JvmClassName className,
+            @NotNull CompilationErrorHandler errorHandler
+    ) {
+        this.earlierScripts = Collections.emptyList();
+        this.compilingReplLine = true;
+        registerClassNameForScript(state.getBindingTrace(), script, className);
+
+        generateScriptFile(script, errorHandler);
+    }
+
+    private void generateScriptFile(@NotNull JetScript script, @NotNull CompilationErrorHandler errorHandler) {
         state.beforeCompile();
         KotlinCodegenFacade.generateNamespace(
                 state,
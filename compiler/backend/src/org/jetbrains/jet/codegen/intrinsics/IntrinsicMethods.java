@@ -35,6 +35,9 @@ import javax.annotation.PostConstruct;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.jetbrains.asm4.Opcodes.*;
 import static org.jetbrains.jet.lang.resolve.DescriptorUtils.*;
@@ -70,6 +73,12 @@ public class IntrinsicMethods {
     private static final IntrinsicMethod ARRAY_ITERATOR = new ArrayIterator();
     private final IntrinsicsMap intrinsicsMap = new IntrinsicsMap();
 
+    // Resolved intrinsics of original descriptors, NO_INTRINSIC for ordinary members. Descriptors are compared by identity
+    private static final Object NO_INTRINSIC = new Object();
+    private final ConcurrentMap<CallableMemberDescriptor, Object> resolvedIntrinsics = new ConcurrentHashMap<CallableMemberDescriptor, Object>();
+    private final AtomicInteger cacheHits = new AtomicInteger();
+    private final AtomicInteger cacheMisses = new AtomicInteger();
+
 
     @PostConstruct
     public void init() {
@@ -217,6 +226,31 @@ public class IntrinsicMethods {
 
     @Nullable
     public IntrinsicMethod getIntrinsic(@NotNull CallableMemberDescriptor descriptor) {
+        // Substituted members are intrinsic iff their originals are: the lookup depends only on the owner, name, arity and annotations
+        CallableMemberDescriptor original = descriptor.getOriginal();
+        Object resolved = resolvedIntrinsics.get(original);
+        if (resolved != null) {
+            cacheHits.incrementAndGet();
+        }
+        else {
+            cacheMisses.incrementAndGet();
+            IntrinsicMethod intrinsicMethod = findIntrinsic(original);
+            resolved = intrinsicMethod != null ? intrinsicMethod : NO_INTRINSIC;
+            resolvedIntrinsics.put(original, resolved);
+        }
+        return resolved != NO_INTRINSIC ? (IntrinsicMethod) resolved : null;
+    }
+
+    public int getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public int getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    @Nullable
+    private IntrinsicMethod findIntrinsic(@NotNull CallableMemberDescriptor descriptor) {
         IntrinsicMethod intrinsicMethod = intrinsicsMap.getIntrinsic(descriptor);
         if (intrinsicMethod != null) {
             return intrinsicMethod;
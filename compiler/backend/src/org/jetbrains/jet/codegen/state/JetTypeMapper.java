@@ -16,6 +16,9 @@
 
 package org.jetbrains.jet.codegen.state;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.intellij.psi.PsiElement;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -41,6 +44,7 @@ import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
@@ -52,14 +56,42 @@ import static org.jetbrains.jet.codegen.FunctionTypesUtil.getFunctionTraitClassN
 import static org.jetbrains.jet.codegen.binding.CodegenBinding.*;
 
 public class JetTypeMapper extends BindingTraceAware {
+    // Maximum number of entries in each of the caches below, 0 disables caching
+    private static final int CACHE_SIZE = Integer.getInteger("kotlin.codegen.type.mapper.cache.size", 20000);
 
     private final boolean mapBuiltinsToJava;
     private final ClassBuilderMode classBuilderMode;
 
+    // Mapping results depend only on the (immutable) descriptors and types, and on class names which are recorded
+    // in the trace on first use, so they are cached by identity of the descriptor or type
+    private final Map<JetTypeMapperMode, Cache<JetType, Type>> typeCaches =
+            new EnumMap<JetTypeMapperMode, Cache<JetType, Type>>(JetTypeMapperMode.class);
+    private final Cache<SignatureKey, JvmMethodSignature> signatureCache = newCache(CACHE_SIZE);
+    private final Cache<CallableMethodKey, CallableMethod> callableMethodCache = newCache(CACHE_SIZE);
+
     public JetTypeMapper(BindingTrace bindingTrace, boolean mapBuiltinsToJava, ClassBuilderMode mode) {
         super(bindingTrace);
         this.mapBuiltinsToJava = mapBuiltinsToJava;
         classBuilderMode = mode;
+        for (JetTypeMapperMode typeMapperMode : JetTypeMapperMode.values()) {
+            // weak keys are compared by identity
+            Cache<JetType, Type> typeCache = CacheBuilder.newBuilder().weakKeys().maximumSize(CACHE_SIZE).recordStats().build();
+            typeCaches.put(typeMapperMode, typeCache);
+        }
+    }
+
+    @NotNull
+    private static <K, V> Cache<K, V> newCache(int maximumSize) {
+        return CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+    }
+
+    @NotNull
+    public CacheStats getCacheStats() {
+        CacheStats result = signatureCache.stats().plus(callableMethodCache.stats());
+        for (Cache<JetType, Type> typeCache : typeCaches.values()) {
+            result = result.plus(typeCache.stats());
+        }
+        return result;
     }
 
     @NotNull
@@ -199,17 +231,23 @@ public class JetTypeMapper extends BindingTraceAware {
 
     @NotNull
     public Type mapType(@NotNull JetType jetType, @NotNull JetTypeMapperMode kind) {
-        return mapType(jetType, null, kind);
+        Cache<JetType, Type> cache = typeCaches.get(kind);
+        Type type = cache.getIfPresent(jetType);
+        if (type == null) {
+            type = mapType(jetType, null, kind);
+            cache.put(jetType, type);
+        }
+        return type;
     }
 
     @NotNull
     public Type mapType(@NotNull JetType jetType) {
-        return mapType(jetType, null, JetTypeMapperMode.VALUE);
+        return mapType(jetType, JetTypeMapperMode.VALUE);
     }
 
     @NotNull
     public Type mapType(@NotNull VariableDescriptor variableDescriptor) {
-        return mapType(variableDescriptor.getType(), null, JetTypeMapperMode.VALUE);
+        return mapType(variableDescriptor.getType(), JetTypeMapperMode.VALUE);
     }
 
     @NotNull
@@ -483,6 +521,23 @@ public class JetTypeMapper extends BindingTraceAware {
             boolean isInsideClass,
             boolean isInsideModule,
             OwnerKind kind
+    ) {
+        CallableMethodKey key = new CallableMethodKey(functionDescriptor, superCall, isInsideClass, isInsideModule, kind);
+        CallableMethod callableMethod = callableMethodCache.getIfPresent(key);
+        if (callableMethod == null) {
+            callableMethod = doMapToCallableMethod(functionDescriptor, superCall, isInsideClass, isInsideModule, kind);
+            callableMethodCache.put(key, callableMethod);
+        }
+        return callableMethod;
+    }
+
+    @NotNull
+    private CallableMethod doMapToCallableMethod(
+            @NotNull FunctionDescriptor functionDescriptor,
+            boolean superCall,
+            boolean isInsideClass,
+            boolean isInsideModule,
+            OwnerKind kind
     ) {
         DeclarationDescriptor functionParent = functionDescriptor.getOriginal().getContainingDeclaration();
 
@@ -638,6 +693,22 @@ public class JetTypeMapper extends BindingTraceAware {
             needGenericSignature = false;
         }
 
+        SignatureKey key = new SignatureKey(methodName, f, needGenericSignature, kind);
+        JvmMethodSignature signature = signatureCache.getIfPresent(key);
+        if (signature == null) {
+            signature = doMapSignature(methodName, f, needGenericSignature, kind);
+            signatureCache.put(key, signature);
+        }
+        return signature;
+    }
+
+    @NotNull
+    private JvmMethodSignature doMapSignature(
+            @NotNull String methodName,
+            @NotNull FunctionDescriptor f,
+            boolean needGenericSignature,
+            @NotNull OwnerKind kind
+    ) {
         BothSignatureWriter signatureVisitor = new BothSignatureWriter(BothSignatureWriter.Mode.METHOD, needGenericSignature);
 
         writeFormalTypeParameters(f.getTypeParameters(), signatureVisitor);
@@ -920,12 +991,32 @@ public class JetTypeMapper extends BindingTraceAware {
 
     @NotNull
     public JvmMethodSignature mapScriptSignature(@NotNull ScriptDescriptor script, @NotNull List<ScriptDescriptor> importedScripts) {
+        return mapScriptSignature(script, importedScripts, null);
+    }
+
+    @NotNull
+    public JvmMethodSignature mapReplLineSignature(@NotNull ScriptDescriptor script, @NotNull Type replStateType) {
+        return mapScriptSignature(script, Collections.<ScriptDescriptor>emptyList(), replStateType);
+    }
+
+    @NotNull
+    private JvmMethodSignature mapScriptSignature(
+            @NotNull ScriptDescriptor script,
+            @NotNull List<ScriptDescriptor> importedScripts,
+            @Nullable Type replStateType
+    ) {
         BothSignatureWriter signatureWriter = new BothSignatureWriter(BothSignatureWriter.Mode.METHOD, false);
 
         writeFormalTypeParameters(Collections.<TypeParameterDescriptor>emptyList(), signatureWriter);
 
         signatureWriter.writeParametersStart();
 
+        if (replStateType != null) {
+            signatureWriter.writeParameterType(JvmMethodParameterKind.VALUE);
+            signatureWriter.writeAsmType(replStateType, false);
+            signatureWriter.writeParameterTypeEnd();
+        }
+
         for (ScriptDescriptor importedScript : importedScripts) {
             signatureWriter.writeParameterType(JvmMethodParameterKind.VALUE);
             ClassDescriptor descriptor = bindingContext.get(CLASS_FOR_SCRIPT, importedScript);
@@ -1012,4 +1103,89 @@ public class JetTypeMapper extends BindingTraceAware {
     private Type asmTypeOrVoid(@Nullable JetType type) {
         return type == null ? Type.VOID_TYPE : mapType(type);
     }
+
+    private static final class SignatureKey {
+        private final String methodName;
+        private final FunctionDescriptor descriptor;
+        private final boolean needGenericSignature;
+        private final OwnerKind kind;
+
+        private SignatureKey(
+                @NotNull String methodName,
+                @NotNull FunctionDescriptor descriptor,
+                boolean needGenericSignature,
+                @NotNull OwnerKind kind
+        ) {
+            this.methodName = methodName;
+            this.descriptor = descriptor;
+            this.needGenericSignature = needGenericSignature;
+            this.kind = kind;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SignatureKey)) return false;
+
+            SignatureKey other = (SignatureKey) o;
+            return descriptor == other.descriptor &&
+                   kind == other.kind &&
+                   needGenericSignature == other.needGenericSignature &&
+                   methodName.equals(other.methodName);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(descriptor);
+            result = 31 * result + methodName.hashCode();
+            result = 31 * result + System.identityHashCode(kind);
+            result = 31 * result + (needGenericSignature ? 1 : 0);
+            return result;
+        }
+    }
+
+    private static final class CallableMethodKey {
+        private final FunctionDescriptor descriptor;
+        private final boolean superCall;
+        private final boolean isInsideClass;
+        private final boolean isInsideModule;
+        private final OwnerKind kind;
+
+        private CallableMethodKey(
+                @NotNull FunctionDescriptor descriptor,
+                boolean superCall,
+                boolean isInsideClass,
+                boolean isInsideModule,
+                OwnerKind kind
+        ) {
+            this.descriptor = descriptor;
+            this.superCall = superCall;
+            this.isInsideClass = isInsideClass;
+            this.isInsideModule = isInsideModule;
+            this.kind = kind;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CallableMethodKey)) return false;
+
+            CallableMethodKey other = (CallableMethodKey) o;
+            return descriptor == other.descriptor &&
+                   kind == other.kind &&
+                   superCall == other.superCall &&
+                   isInsideClass == other.isInsideClass &&
+                   isInsideModule == other.isInsideModule;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(descriptor);
+            result = 31 * result + System.identityHashCode(kind);
+            result = 31 * result + (superCall ? 1 : 0);
+            result = 31 * result + (isInsideClass ? 1 : 0);
+            result = 31 * result + (isInsideModule ? 1 : 0);
+            return result;
+        }
+    }
 }
@@ -99,7 +99,7 @@ public class K2JSCompiler extends CLICompiler<K2JSCompilerArguments> {
         }
 
         MainCallParameters mainCallParameters = arguments.createMainCallParameters();
-        return translateAndGenerateOutputFile(mainCallParameters, environmentForJS, config, outputFile);
+        return translateAndGenerateOutputFile(mainCallParameters, environmentForJS, config, outputFile, arguments.sourcemap);
     }
 
     private static void reportCompiledSourcesList(@NotNull MessageCollector messageCollector,
@@ -125,10 +125,12 @@ public class K2JSCompiler extends CLICompiler<K2JSCompilerArguments> {
             @NotNull MainCallParameters mainCall,
             @NotNull JetCoreEnvironment environmentForJS,
             @NotNull Config config,
-            @NotNull String outputFile
+            @NotNull String outputFile,
+            boolean generateSourceMap
     ) {
         try {
-            K2JSTranslator.translateWithMainCallParametersAndSaveToFile(mainCall, environmentForJS.getSourceFiles(), outputFile, config);
+            K2JSTranslator.translateWithMainCallParametersAndSaveToFile(mainCall, environmentForJS.getSourceFiles(), outputFile, config,
+                                                                        generateSourceMap);
         }
         catch (Exception e) {
             throw new RuntimeException(e);
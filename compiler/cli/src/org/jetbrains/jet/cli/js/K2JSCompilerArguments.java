@@ -40,6 +40,9 @@ public class K2JSCompilerArguments extends CompilerArguments {
     @Argument(value = "target", description = "Generate js files for specific ECMA version (3 or 5, default ECMA 3)")
     public String target;
 
+    @Argument(value = "sourcemap", description = "Generate a source map next to the output file")
+    public boolean sourcemap;
+
     @Argument(value = "tags", description = "Demarcate each compilation message (error, warning, etc) with an open and close tag")
     public boolean tags;
 
@@ -109,6 +109,11 @@ public class K2JVMCompiler extends CLICompiler<K2JVMCompilerArguments> {
                     configuration.add(CommonConfigurationKeys.SOURCE_ROOTS_KEY, freeArg);
                 }
             }
+            if (arguments.headerSrc != null) {
+                List<String> headerPathsSplitByPathSeparator
+                        = Arrays.asList(arguments.headerSrc.split(StringUtil.escapeToRegexp(File.pathSeparator)));
+                configuration.addAll(CommonConfigurationKeys.HEADER_SOURCE_ROOTS_KEY, headerPathsSplitByPathSeparator);
+            }
         }
 
         boolean builtins = arguments.builtins;
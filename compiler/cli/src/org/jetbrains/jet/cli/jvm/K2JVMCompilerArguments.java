@@ -46,6 +46,9 @@ public class K2JVMCompilerArguments extends CompilerArguments {
     @Argument(value = "src", description = "source file or directory")
     public String src;
 
+    @Argument(value = "headerSrc", description = "source files or directories used only for their declarations, not compiled")
+    public String headerSrc;
+
     @Argument(value = "classpath", description = "classpath to use when compiling")
     public String classpath;
 
@@ -105,6 +108,14 @@ public class K2JVMCompilerArguments extends CompilerArguments {
         this.kotlinHome = kotlinHome;
     }
 
+    public String getHeaderSrc() {
+        return headerSrc;
+    }
+
+    public void setHeaderSrc(String headerSrc) {
+        this.headerSrc = headerSrc;
+    }
+
     public String getClasspath() {
         return classpath;
     }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.lang.resolve.java.JavaClassPathIndex;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.Name;
+
+import java.util.*;
+
+/**
+ * Maps packages of the class path roots to the names of their class and java files, the same way CoreJavaFileManager looks classes up.
+ */
+public class CliJavaClassPathIndex extends JavaClassPathIndex {
+    private final List<VirtualFile> roots = new ArrayList<VirtualFile>();
+
+    private volatile Map<String, Set<String>> fileNamesByPackage = null;
+
+    /* package */ void addRoot(@NotNull VirtualFile root) {
+        assert fileNamesByPackage == null : "Class path can't be changed after the index is built: " + root;
+        roots.add(root);
+    }
+
+    @Override
+    protected boolean mayContainClass(@NotNull FqName qualifiedName) {
+        if (qualifiedName.isRoot()) return true;
+
+        Map<String, Set<String>> index = getIndex();
+        StringBuilder packageName = new StringBuilder();
+        for (Name segment : qualifiedName.pathSegments()) {
+            Set<String> fileNames = index.get(packageName.toString());
+            if (fileNames == null) {
+                return false;
+            }
+            if (fileNames.contains(segment.asString())) {
+                return true;
+            }
+
+            if (packageName.length() > 0) {
+                packageName.append('.');
+            }
+            packageName.append(segment.asString());
+        }
+        return false;
+    }
+
+    @NotNull
+    private Map<String, Set<String>> getIndex() {
+        Map<String, Set<String>> index = fileNamesByPackage;
+        if (index == null) {
+            synchronized (this) {
+                index = fileNamesByPackage;
+                if (index == null) {
+                    index = new HashMap<String, Set<String>>();
+                    for (VirtualFile root : roots) {
+                        indexPackage(root, "", index);
+                    }
+                    fileNamesByPackage = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private static void indexPackage(@NotNull VirtualFile dir, @NotNull String packageName, @NotNull Map<String, Set<String>> index) {
+        Set<String> fileNames = index.get(packageName);
+        if (fileNames == null) {
+            fileNames = new HashSet<String>();
+            index.put(packageName, fileNames);
+        }
+
+        for (VirtualFile child : dir.getChildren()) {
+            if (child.isDirectory()) {
+                String childPackageName = packageName.isEmpty() ? child.getName() : packageName + "." + child.getName();
+                indexPackage(child, childPackageName, index);
+            }
+            else {
+                String extension = child.getExtension();
+                if ("class".equals(extension) || "java".equals(extension)) {
+                    fileNames.add(child.getNameWithoutExtension());
+                }
+            }
+        }
+    }
+}
@@ -30,7 +30,7 @@ public class CliJetFilesProvider extends JetFilesProvider {
     private Function<JetFile,Collection<JetFile>> all_files = new Function<JetFile, Collection<JetFile>>() {
         @Override
         public Collection<JetFile> fun(JetFile file) {
-            return environment.getSourceFiles();
+            return environment.getAllSourceFiles();
         }
 
     };
@@ -47,7 +47,7 @@ public class CliJetFilesProvider extends JetFilesProvider {
     @Override
     public List<JetFile> allInScope(GlobalSearchScope scope) {
         List<JetFile> answer = new ArrayList<JetFile>();
-        for (JetFile file : environment.getSourceFiles()) {
+        for (JetFile file : environment.getAllSourceFiles()) {
             if (scope.contains(file.getVirtualFile())) {
                 answer.add(file);
             }
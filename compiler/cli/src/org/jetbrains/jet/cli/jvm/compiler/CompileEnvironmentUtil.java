@@ -43,22 +43,46 @@ import org.jetbrains.jet.utils.KotlinPaths;
 import org.jetbrains.jet.utils.PathUtil;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.ref.SoftReference;
 import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.jar.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import static org.jetbrains.jet.cli.common.messages.CompilerMessageLocation.NO_LOCATION;
 import static org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity.ERROR;
 
 public class CompileEnvironmentUtil {
+    private static final int OUTPUT_WRITER_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    // Bounds the memory held by class files which are produced but not written yet
+    private static final int MAX_PENDING_WRITES = 4 * OUTPUT_WRITER_THREADS;
+
+    private static final ThreadFactory OUTPUT_THREAD_FACTORY = new ThreadFactory() {
+        @Override
+        public Thread newThread(@NotNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "Kotlin class file writer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    // Shared by all compilations, the threads exit when there is nothing to write
+    private static final ExecutorService OUTPUT_WRITER = createOutputWriter();
+
+    // The runtime is the same for all the jars built by this process, but it's dropped when memory is needed
+    private static SoftReference<RuntimeJarEntries> cachedRuntimeJarEntries = new SoftReference<RuntimeJarEntries>(null);
+
     public static Disposable createMockDisposable() {
         return new Disposable() {
             @Override
@@ -206,44 +230,119 @@ public class CompileEnvironmentUtil {
         }
     }
 
-    private static void writeRuntimeToJar(final JarOutputStream stream) throws IOException {
+    private static void writeRuntimeToJar(JarOutputStream stream) throws IOException {
         File runtimeJarPath = getRuntimeJarPath();
-        if (runtimeJarPath != null) {
-            JarInputStream jis = new JarInputStream(new FileInputStream(runtimeJarPath));
+        if (runtimeJarPath == null) {
+            throw new CompileEnvironmentException("Couldn't find runtime library");
+        }
+
+        // Entries are compressed again, but the runtime jar is read and inflated only once per process
+        RuntimeJarEntries runtimeEntries = loadRuntimeJarEntries(runtimeJarPath);
+        for (Map.Entry<String, byte[]> runtimeEntry : runtimeEntries.entries.entrySet()) {
+            stream.putNextEntry(new JarEntry(runtimeEntry.getKey()));
+            stream.write(runtimeEntry.getValue());
+        }
+    }
+
+    @NotNull
+    private static RuntimeJarEntries loadRuntimeJarEntries(@NotNull File runtimeJarPath) throws IOException {
+        synchronized (RuntimeJarEntries.class) {
+            RuntimeJarEntries cached = cachedRuntimeJarEntries.get();
+            if (cached != null && cached.path.equals(runtimeJarPath) && cached.timestamp == runtimeJarPath.lastModified()) {
+                return cached;
+            }
+
+            long timestamp = runtimeJarPath.lastModified();
+            Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+            ZipFile zipFile = new ZipFile(runtimeJarPath);
             try {
-                while (true) {
-                    JarEntry e = jis.getNextJarEntry();
-                    if (e == null) {
-                        break;
+                Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+                while (zipEntries.hasMoreElements()) {
+                    ZipEntry entry = zipEntries.nextElement();
+                    if (entry.isDirectory() || !FileUtilRt.extensionEquals(entry.getName(), "class")) {
+                        continue;
+                    }
+                    InputStream inputStream = zipFile.getInputStream(entry);
+                    try {
+                        entries.put(entry.getName(), entry.getSize() >= 0
+                                                     ? FileUtil.loadBytes(inputStream, (int) entry.getSize())
+                                                     : FileUtil.loadBytes(inputStream));
                     }
-                    if (FileUtilRt.extensionEquals(e.getName(), "class")) {
-                        stream.putNextEntry(e);
-                        FileUtil.copy(jis, stream);
+                    finally {
+                        inputStream.close();
                     }
                 }
             }
             finally {
-                jis.close();
+                zipFile.close();
             }
-        }
-        else {
-            throw new CompileEnvironmentException("Couldn't find runtime library");
+
+            RuntimeJarEntries result = new RuntimeJarEntries(runtimeJarPath, timestamp, entries);
+            cachedRuntimeJarEntries = new SoftReference<RuntimeJarEntries>(result);
+            return result;
         }
     }
 
+    @NotNull
+    private static ExecutorService createOutputWriter() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                OUTPUT_WRITER_THREADS, OUTPUT_WRITER_THREADS, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), OUTPUT_THREAD_FACTORY);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     public static void writeToOutputDirectory(ClassFileFactory factory, @NotNull File outputDir) {
         List<String> files = factory.files();
-        for (String file : files) {
-            File target = new File(outputDir, file);
-            try {
-                FileUtil.writeToFile(target, factory.asBytes(file));
+        if (files.isEmpty()) {
+            return;
+        }
+
+        // Class files are materialized on this thread (class builders are not thread-safe) and written to disk
+        // on the I/O pool, so that writing a file overlaps with producing the bytes of the next one.
+        // Only a few writes are allowed to be pending, the bytes of a file are released as soon as it's written
+        Deque<Future<?>> pendingWrites = new ArrayDeque<Future<?>>();
+        try {
+            for (String file : files) {
+                final File target = new File(outputDir, file);
+                final byte[] bytes = factory.asBytes(file);
+                pendingWrites.addLast(OUTPUT_WRITER.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        writeIfChanged(target, bytes);
+                        return null;
+                    }
+                }));
+                if (pendingWrites.size() > MAX_PENDING_WRITES) {
+                    pendingWrites.removeFirst().get();
+                }
             }
-            catch (IOException e) {
-                throw new CompileEnvironmentException(e);
+            while (!pendingWrites.isEmpty()) {
+                pendingWrites.removeFirst().get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompileEnvironmentException(e);
+        }
+        catch (ExecutionException e) {
+            throw new CompileEnvironmentException(e.getCause());
+        }
+        finally {
+            for (Future<?> pendingWrite : pendingWrites) {
+                pendingWrite.cancel(false);
             }
         }
     }
 
+    // Leaves up-to-date class files untouched, so that tools relying on timestamps don't consider them changed
+    private static void writeIfChanged(@NotNull File target, @NotNull byte[] bytes) throws IOException {
+        if (target.isFile() && target.length() == bytes.length && Arrays.equals(FileUtil.loadFileBytes(target), bytes)) {
+            return;
+        }
+        FileUtil.writeToFile(target, bytes);
+    }
+
     // Used for debug output only
     private static String loadModuleScriptText(String moduleScriptFile) {
         String moduleScriptText;
@@ -256,6 +355,18 @@ public class CompileEnvironmentUtil {
         return moduleScriptText;
     }
 
+    private static class RuntimeJarEntries {
+        private final File path;
+        private final long timestamp;
+        private final Map<String, byte[]> entries;
+
+        private RuntimeJarEntries(@NotNull File path, long timestamp, @NotNull Map<String, byte[]> entries) {
+            this.path = path;
+            this.timestamp = timestamp;
+            this.entries = entries;
+        }
+    }
+
     private static class DescriptionToModuleAdapter implements Module {
         private final ModuleDescription description;
 
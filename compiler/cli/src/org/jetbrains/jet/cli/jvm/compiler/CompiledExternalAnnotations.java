@@ -0,0 +1,242 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.codeInsight.ExternalAnnotationsManager;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * Precompiled form of an external annotations root: all the items of its annotations.xml files,
+ * sorted by external name, so that a member is looked up with a binary search instead of parsing XML.
+ * The index also lists the annotations.xml files it was built from, an index which doesn't match them is not used.
+ *
+ * Layout: magic, version, item count, offset of the file list, offsets of the items, then the items themselves:
+ * external name, annotation count and, for each annotation, its qualified name and its full text.
+ * The file list is a count followed by the paths relative to the root.
+ * Strings are UTF-8 prefixed with their length in bytes.
+ */
+public class CompiledExternalAnnotations {
+    public static final String FILE_NAME = "annotations.index";
+
+    private static final int MAGIC = 0x4B414E58;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    public static class Annotation {
+        private final String qualifiedName;
+        private final String text;
+
+        public Annotation(@NotNull String qualifiedName, @NotNull String text) {
+            this.qualifiedName = qualifiedName;
+            this.text = text;
+        }
+
+        @NotNull
+        public String getQualifiedName() {
+            return qualifiedName;
+        }
+
+        @NotNull
+        public String getText() {
+            return text;
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final int itemCount;
+
+    private CompiledExternalAnnotations(@NotNull ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.itemCount = buffer.getInt(8);
+    }
+
+    /**
+     * @return compiled annotations stored in the given root, or null if the root has no (readable) index,
+     * or the index doesn't cover all the annotations.xml files of the root, or some of them are newer than it
+     */
+    @Nullable
+    public static CompiledExternalAnnotations load(@NotNull VirtualFile annotationsRoot) throws IOException {
+        VirtualFile indexFile = annotationsRoot.findChild(FILE_NAME);
+        if (indexFile == null) {
+            return null;
+        }
+
+        ByteBuffer buffer;
+        File ioFile = VfsUtilCore.virtualToIoFile(indexFile);
+        if (indexFile.isInLocalFileSystem() && ioFile.isFile()) {
+            FileInputStream stream = new FileInputStream(ioFile);
+            try {
+                FileChannel channel = stream.getChannel();
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            finally {
+                stream.close();
+            }
+        }
+        else {
+            // Roots in jars can't be mapped, their index is small enough to be read as a whole
+            buffer = ByteBuffer.wrap(indexFile.contentsToByteArray());
+        }
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            return null;
+        }
+        if (!isUpToDate(buffer, annotationsRoot, indexFile.getTimeStamp())) {
+            return null;
+        }
+        return new CompiledExternalAnnotations(buffer);
+    }
+
+    private static boolean isUpToDate(@NotNull ByteBuffer buffer, @NotNull VirtualFile annotationsRoot, long indexTimeStamp) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(buffer.getInt(12));
+        int fileCount = view.getInt();
+        Set<String> indexedFiles = new HashSet<String>();
+        for (int i = 0; i < fileCount; i++) {
+            indexedFiles.add(readString(view));
+        }
+
+        Map<String, VirtualFile> annotationFiles = new HashMap<String, VirtualFile>();
+        collectAnnotationFiles(annotationsRoot, "", annotationFiles);
+        if (!indexedFiles.equals(annotationFiles.keySet())) {
+            return false;
+        }
+        for (VirtualFile annotationFile : annotationFiles.values()) {
+            if (annotationFile.getTimeStamp() > indexTimeStamp) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void collectAnnotationFiles(@NotNull VirtualFile dir, @NotNull String path, @NotNull Map<String, VirtualFile> result) {
+        for (VirtualFile child : dir.getChildren()) {
+            String childPath = path + child.getName();
+            if (child.isDirectory()) {
+                collectAnnotationFiles(child, childPath + "/", result);
+            }
+            else if (ExternalAnnotationsManager.ANNOTATIONS_XML.equals(child.getName())) {
+                result.put(childPath, child);
+            }
+        }
+    }
+
+    /**
+     * @param externalName name of the annotated member as it is written in annotations.xml
+     * @return annotations of the member, or null if there are none
+     */
+    @Nullable
+    public List<Annotation> findAnnotations(@NotNull String externalName) {
+        // Every reader works on its own view of the buffer, so the lookup is thread-safe
+        ByteBuffer view = buffer.duplicate();
+        int low = 0;
+        int high = itemCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            view.position(view.getInt(HEADER_SIZE + 4 * middle));
+            int comparison = readString(view).compareTo(externalName);
+            if (comparison < 0) {
+                low = middle + 1;
+            }
+            else if (comparison > 0) {
+                high = middle - 1;
+            }
+            else {
+                int annotationCount = view.getInt();
+                List<Annotation> result = new ArrayList<Annotation>(annotationCount);
+                for (int i = 0; i < annotationCount; i++) {
+                    String qualifiedName = readString(view);
+                    result.add(new Annotation(qualifiedName, readString(view)));
+                }
+                return result;
+            }
+        }
+        return null;
+    }
+
+    @NotNull
+    private static String readString(@NotNull ByteBuffer view) {
+        byte[] bytes = new byte[view.getInt()];
+        view.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * @param annotationFiles paths of the annotations.xml files the items are read from, relative to the annotations root
+     */
+    public static void write(
+            @NotNull SortedMap<String, List<Annotation>> items,
+            @NotNull Collection<String> annotationFiles,
+            @NotNull File indexFile
+    ) throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream recordsOut = new DataOutputStream(records);
+        int[] offsets = new int[items.size()];
+        int headerSize = HEADER_SIZE + 4 * items.size();
+
+        int index = 0;
+        for (Map.Entry<String, List<Annotation>> item : items.entrySet()) {
+            offsets[index++] = headerSize + recordsOut.size();
+            writeString(recordsOut, item.getKey());
+            recordsOut.writeInt(item.getValue().size());
+            for (Annotation annotation : item.getValue()) {
+                writeString(recordsOut, annotation.getQualifiedName());
+                writeString(recordsOut, annotation.getText());
+            }
+        }
+        int filesOffset = headerSize + recordsOut.size();
+        recordsOut.writeInt(annotationFiles.size());
+        for (String annotationFile : annotationFiles) {
+            writeString(recordsOut, annotationFile);
+        }
+        recordsOut.close();
+
+        FileUtil.createParentDirs(indexFile);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(items.size());
+            out.writeInt(filesOffset);
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            records.writeTo(out);
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    private static void writeString(@NotNull DataOutputStream out, @NotNull String string) throws IOException {
+        byte[] bytes = string.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
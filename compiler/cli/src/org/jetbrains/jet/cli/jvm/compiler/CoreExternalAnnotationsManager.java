@@ -17,13 +17,19 @@
 package org.jetbrains.jet.cli.jvm.compiler;
 
 import com.intellij.codeInsight.BaseExternalAnnotationsManager;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
+import com.intellij.psi.util.PsiFormatUtil;
+import com.intellij.util.ArrayUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class CoreExternalAnnotationsManager extends BaseExternalAnnotationsManager {
     static {
@@ -31,19 +37,92 @@ public class CoreExternalAnnotationsManager extends BaseExternalAnnotationsManag
         System.setProperty("javax.xml.parsers.SAXParserFactory", "com.sun.org.apache.xerces.internal.jaxp.SAXParserFactoryImpl");
     }
 
+    private static final Logger LOG = Logger.getInstance(CoreExternalAnnotationsManager.class);
+
+    // Roots without a precompiled index, their annotations.xml files are parsed by the base class
     private final List<VirtualFile> externalAnnotationsRoots = new ArrayList<VirtualFile>();
+    // Roots with a precompiled index, which are looked up before the parsed ones
+    private final List<CompiledExternalAnnotations> compiledAnnotationsRoots = new ArrayList<CompiledExternalAnnotations>();
+    private final ConcurrentMap<String, PsiAnnotation[]> compiledAnnotationsCache = new ConcurrentHashMap<String, PsiAnnotation[]>();
 
     public CoreExternalAnnotationsManager(@NotNull PsiManager psiManager) {
         super(psiManager);
     }
 
     public void addExternalAnnotationsRoot(VirtualFile externalAnnotationsRoot) {
-        externalAnnotationsRoots.add(externalAnnotationsRoot);
+        CompiledExternalAnnotations compiledAnnotations = null;
+        try {
+            compiledAnnotations = CompiledExternalAnnotations.load(externalAnnotationsRoot);
+        }
+        catch (IOException e) {
+            LOG.warn("Couldn't read compiled annotations from " + externalAnnotationsRoot + ", falling back to annotations.xml", e);
+        }
+
+        if (compiledAnnotations != null) {
+            compiledAnnotationsRoots.add(compiledAnnotations);
+        }
+        else {
+            externalAnnotationsRoots.add(externalAnnotationsRoot);
+        }
     }
 
     @Override
     protected boolean hasAnyAnnotationsRoots() {
-        return true;
+        return !externalAnnotationsRoots.isEmpty();
+    }
+
+    @Nullable
+    @Override
+    public PsiAnnotation findExternalAnnotation(@NotNull PsiModifierListOwner listOwner, @NotNull String annotationFQN) {
+        for (PsiAnnotation annotation : findCompiledAnnotations(listOwner)) {
+            if (annotationFQN.equals(annotation.getQualifiedName())) {
+                return annotation;
+            }
+        }
+        return super.findExternalAnnotation(listOwner, annotationFQN);
+    }
+
+    @Nullable
+    @Override
+    public PsiAnnotation[] findExternalAnnotations(@NotNull PsiModifierListOwner listOwner) {
+        PsiAnnotation[] compiled = findCompiledAnnotations(listOwner);
+        PsiAnnotation[] parsed = super.findExternalAnnotations(listOwner);
+        if (parsed == null || parsed.length == 0) {
+            return compiled.length == 0 ? parsed : compiled;
+        }
+        return compiled.length == 0 ? parsed : ArrayUtil.mergeArrays(compiled, parsed);
+    }
+
+    @NotNull
+    private PsiAnnotation[] findCompiledAnnotations(@NotNull PsiModifierListOwner listOwner) {
+        if (compiledAnnotationsRoots.isEmpty()) {
+            return PsiAnnotation.EMPTY_ARRAY;
+        }
+
+        String externalName = PsiFormatUtil.getExternalName(listOwner, false, Integer.MAX_VALUE);
+        if (externalName == null) {
+            return PsiAnnotation.EMPTY_ARRAY;
+        }
+
+        PsiAnnotation[] cached = compiledAnnotationsCache.get(externalName);
+        if (cached != null) {
+            return cached;
+        }
+
+        PsiElementFactory factory = JavaPsiFacade.getInstance(listOwner.getProject()).getElementFactory();
+        List<PsiAnnotation> result = new ArrayList<PsiAnnotation>();
+        for (CompiledExternalAnnotations compiledAnnotations : compiledAnnotationsRoots) {
+            List<CompiledExternalAnnotations.Annotation> annotations = compiledAnnotations.findAnnotations(externalName);
+            if (annotations != null) {
+                for (CompiledExternalAnnotations.Annotation annotation : annotations) {
+                    result.add(factory.createAnnotationFromText(annotation.getText(), null));
+                }
+            }
+        }
+
+        PsiAnnotation[] annotations = result.isEmpty() ? PsiAnnotation.EMPTY_ARRAY : result.toArray(new PsiAnnotation[result.size()]);
+        PsiAnnotation[] previous = compiledAnnotationsCache.putIfAbsent(externalName, annotations);
+        return previous != null ? previous : annotations;
     }
 
     @NotNull
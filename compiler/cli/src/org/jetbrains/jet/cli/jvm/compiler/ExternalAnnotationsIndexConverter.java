@@ -0,0 +1,135 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.codeInsight.ExternalAnnotationsManager;
+import com.intellij.openapi.util.JDOMUtil;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.Processor;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Converts a directory of annotations.xml files to the {@link CompiledExternalAnnotations} format.
+ *
+ * Usage: ExternalAnnotationsIndexConverter &lt;annotations root&gt; &lt;index file&gt;
+ */
+public class ExternalAnnotationsIndexConverter {
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: " + ExternalAnnotationsIndexConverter.class.getSimpleName() + " <annotations root> <index file>");
+            System.exit(1);
+        }
+        File annotationsRoot = new File(args[0]);
+        File indexFile = new File(args[1]);
+        CompiledExternalAnnotations.write(collectItems(annotationsRoot), collectAnnotationFiles(annotationsRoot), indexFile);
+        System.out.println("File written: " + indexFile);
+    }
+
+    /**
+     * @return paths of all the annotations.xml files under the root relative to it, in the form stored in the index
+     */
+    @NotNull
+    public static List<String> collectAnnotationFiles(@NotNull final File annotationsRoot) {
+        final List<String> result = new ArrayList<String>();
+        FileUtil.processFilesRecursively(annotationsRoot, new Processor<File>() {
+            @Override
+            public boolean process(File file) {
+                if (ExternalAnnotationsManager.ANNOTATIONS_XML.equals(file.getName()) && file.isFile()) {
+                    String relativePath = FileUtil.getRelativePath(annotationsRoot, file);
+                    assert relativePath != null : file + " is not under " + annotationsRoot;
+                    result.add(FileUtil.toSystemIndependentName(relativePath));
+                }
+                return true;
+            }
+        });
+        Collections.sort(result);
+        return result;
+    }
+
+    @NotNull
+    public static SortedMap<String, List<CompiledExternalAnnotations.Annotation>> collectItems(@NotNull File annotationsRoot) throws IOException {
+        SortedMap<String, List<CompiledExternalAnnotations.Annotation>> items = new TreeMap<String, List<CompiledExternalAnnotations.Annotation>>();
+        for (String annotationFile : collectAnnotationFiles(annotationsRoot)) {
+            collectItems(new File(annotationsRoot, annotationFile), items);
+        }
+        return items;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void collectItems(
+            @NotNull File annotationsXml,
+            @NotNull SortedMap<String, List<CompiledExternalAnnotations.Annotation>> items
+    ) throws IOException {
+        Element root;
+        try {
+            root = JDOMUtil.loadDocument(annotationsXml).getRootElement();
+        }
+        catch (JDOMException e) {
+            throw new IOException("Malformed annotations file " + annotationsXml + ": " + e.getMessage());
+        }
+
+        for (Element item : (List<Element>) root.getChildren("item")) {
+            String externalName = item.getAttributeValue("name");
+            if (externalName == null) {
+                continue;
+            }
+            List<CompiledExternalAnnotations.Annotation> annotations = items.get(externalName);
+            if (annotations == null) {
+                annotations = new ArrayList<CompiledExternalAnnotations.Annotation>();
+                items.put(externalName, annotations);
+            }
+            for (Element annotation : (List<Element>) item.getChildren("annotation")) {
+                String qualifiedName = annotation.getAttributeValue("name");
+                if (qualifiedName != null) {
+                    annotations.add(new CompiledExternalAnnotations.Annotation(qualifiedName, getAnnotationText(qualifiedName, annotation)));
+                }
+            }
+        }
+    }
+
+    // Same text BaseExternalAnnotationsManager creates annotations from
+    @SuppressWarnings("unchecked")
+    @NotNull
+    private static String getAnnotationText(@NotNull String qualifiedName, @NotNull Element annotation) {
+        StringBuilder arguments = new StringBuilder();
+        for (Element parameter : (List<Element>) annotation.getChildren("val")) {
+            if (arguments.length() > 0) {
+                arguments.append(",");
+            }
+            String name = parameter.getAttributeValue("name");
+            if (name != null) {
+                arguments.append(name).append("=");
+            }
+            arguments.append(parameter.getAttributeValue("val"));
+        }
+        return "@" + qualifiedName + (arguments.length() > 0 ? "(" + arguments + ")" : "");
+    }
+
+    private ExternalAnnotationsIndexConverter() {
+    }
+}
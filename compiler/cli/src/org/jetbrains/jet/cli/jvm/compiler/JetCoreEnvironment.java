@@ -35,6 +35,7 @@ import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
 import com.intellij.psi.impl.compiled.ClsCustomNavigationPolicy;
 import com.intellij.psi.impl.file.impl.JavaFileManager;
+import com.intellij.psi.impl.source.tree.TreeUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jet.CompilerModeProvider;
 import org.jetbrains.jet.OperationModeProvider;
@@ -50,6 +51,7 @@ import org.jetbrains.jet.config.CompilerConfiguration;
 import org.jetbrains.jet.lang.parsing.JetParserDefinition;
 import org.jetbrains.jet.lang.parsing.JetScriptDefinitionProvider;
 import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.resolve.java.JavaClassPathIndex;
 import org.jetbrains.jet.lang.resolve.java.JetFilesProvider;
 import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
 import org.jetbrains.jet.plugin.JetFileType;
@@ -58,17 +60,33 @@ import org.jetbrains.jet.utils.PathUtil;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.*;
 
 import static org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity.ERROR;
 import static org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity.WARNING;
 
 public class JetCoreEnvironment {
+    // Source files are parsed on a pool of threads when this property is set to true
+    public static final String PARALLEL_PARSING_PROPERTY = "kotlin.parallel.parsing";
+
+    private static final int PARSER_THREADS = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+    private static final ThreadFactory PARSER_THREAD_FACTORY = new ThreadFactory() {
+        @Override
+        public Thread newThread(@NotNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "Kotlin parser");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
 
     private final JavaCoreApplicationEnvironment applicationEnvironment;
     private final JavaCoreProjectEnvironment projectEnvironment;
     private final List<JetFile> sourceFiles = new ArrayList<JetFile>();
+    private final List<JetFile> headerSourceFiles = new ArrayList<JetFile>();
 
     private final CoreExternalAnnotationsManager annotationsManager;
+    private final CliJavaClassPathIndex classPathIndex = new CliJavaClassPathIndex();
 
     private final CompilerConfiguration configuration;
 
@@ -97,6 +115,7 @@ public class JetCoreEnvironment {
         project.registerService(JetScriptDefinitionProvider.class, new JetScriptDefinitionProvider());
         project.registerService(JetFilesProvider.class, new CliJetFilesProvider(this));
         project.registerService(CoreJavaFileManager.class, (CoreJavaFileManager) ServiceManager.getService(project, JavaFileManager.class));
+        project.registerService(JavaClassPathIndex.class, classPathIndex);
 
         CliLightClassGenerationSupport cliLightClassGenerationSupport = new CliLightClassGenerationSupport();
         project.registerService(LightClassGenerationSupport.class, cliLightClassGenerationSupport);
@@ -120,7 +139,13 @@ public class JetCoreEnvironment {
             addExternalAnnotationsRoot(path);
         }
         for (String path : configuration.getList(CommonConfigurationKeys.SOURCE_ROOTS_KEY)) {
-            addSources(path);
+            addSources(path, sourceFiles);
+        }
+        for (String path : configuration.getList(CommonConfigurationKeys.HEADER_SOURCE_ROOTS_KEY)) {
+            addSources(path, headerSourceFiles);
+        }
+        if (Boolean.getBoolean(PARALLEL_PARSING_PROPERTY)) {
+            parseInParallel(getAllSourceFiles());
         }
 
         JetScriptDefinitionProvider.getInstance(project).addScriptDefinitions(configuration.getList(CommonConfigurationKeys.SCRIPT_DEFINITIONS_KEY));
@@ -150,12 +175,12 @@ public class JetCoreEnvironment {
         annotationsManager.addExternalAnnotationsRoot(PathUtil.jarFileOrDirectoryToVirtualFile(path));
     }
 
-    private void addSources(File file) {
+    private void addSources(File file, List<JetFile> result) {
         if (file.isDirectory()) {
             File[] files = file.listFiles();
             if (files != null) {
                 for (File child : files) {
-                    addSources(child);
+                    addSources(child, result);
                 }
             }
         }
@@ -164,13 +189,13 @@ public class JetCoreEnvironment {
             if (fileByPath != null) {
                 PsiFile psiFile = PsiManager.getInstance(getProject()).findFile(fileByPath);
                 if (psiFile instanceof JetFile) {
-                    sourceFiles.add((JetFile) psiFile);
+                    result.add((JetFile) psiFile);
                 }
             }
         }
     }
 
-    private void addSources(String path) {
+    private void addSources(String path, List<JetFile> result) {
         if (path == null) {
             return;
         }
@@ -185,7 +210,41 @@ public class JetCoreEnvironment {
             return;
         }
 
-        addSources(new File(path));
+        addSources(new File(path), result);
+    }
+
+    // Files are lexed and parsed independently of each other, so their ASTs are built on a pool before the analysis starts.
+    // Binding a loaded tree to its file is synchronized by the platform, and nothing else touches these files until we return
+    private static void parseInParallel(@NotNull List<JetFile> files) {
+        if (files.size() < 2 || PARSER_THREADS == 1) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(files.size(), PARSER_THREADS), PARSER_THREAD_FACTORY);
+        try {
+            List<Future<?>> parsedFiles = new ArrayList<Future<?>>(files.size());
+            for (final JetFile file : files) {
+                parsedFiles.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        TreeUtil.ensureParsed(file.getNode());
+                    }
+                }));
+            }
+            for (Future<?> parsedFile : parsedFiles) {
+                parsedFile.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompileEnvironmentException(e);
+        }
+        catch (ExecutionException e) {
+            throw new CompileEnvironmentException(e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
     }
 
     private void addToClasspath(File path) {
@@ -196,6 +255,7 @@ public class JetCoreEnvironment {
                 return;
             }
             projectEnvironment.addJarToClassPath(path);
+            classPathIndex.addRoot(jarFile);
         }
         else {
             VirtualFile root = applicationEnvironment.getLocalFileSystem().findFileByPath(path.getAbsolutePath());
@@ -204,6 +264,7 @@ public class JetCoreEnvironment {
                 return;
             }
             projectEnvironment.addSourcesToClasspath(root);
+            classPathIndex.addRoot(root);
         }
     }
 
@@ -211,6 +272,26 @@ public class JetCoreEnvironment {
         return sourceFiles;
     }
 
+    /**
+     * Files which are needed only for their declarations: they take part in header analysis,
+     * but their bodies are neither resolved nor compiled
+     */
+    @NotNull
+    public List<JetFile> getHeaderSourceFiles() {
+        return headerSourceFiles;
+    }
+
+    @NotNull
+    public List<JetFile> getAllSourceFiles() {
+        if (headerSourceFiles.isEmpty()) {
+            return sourceFiles;
+        }
+        List<JetFile> result = new ArrayList<JetFile>(sourceFiles.size() + headerSourceFiles.size());
+        result.addAll(sourceFiles);
+        result.addAll(headerSourceFiles);
+        return result;
+    }
+
     private void report(@NotNull CompilerMessageSeverity severity, @NotNull String message) {
         MessageCollector messageCollector = configuration.get(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY);
         if (messageCollector != null) {
@@ -18,6 +18,7 @@ package org.jetbrains.jet.cli.jvm.compiler;
 
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.cache.CacheStats;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Disposer;
@@ -34,6 +35,7 @@ import org.jetbrains.jet.cli.common.CompilerPluginContext;
 import org.jetbrains.jet.cli.common.messages.*;
 import org.jetbrains.jet.cli.jvm.JVMConfigurationKeys;
 import org.jetbrains.jet.codegen.*;
+import org.jetbrains.jet.codegen.intrinsics.IntrinsicMethods;
 import org.jetbrains.jet.codegen.state.GenerationState;
 import org.jetbrains.jet.codegen.state.Progress;
 import org.jetbrains.jet.config.CommonConfigurationKeys;
@@ -62,6 +64,7 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -307,8 +310,7 @@ public class KotlinToJVMBytecodeCompiler {
             boolean stubs) {
         AnalyzerWithCompilerReport analyzerWithCompilerReport = new AnalyzerWithCompilerReport(
                 environment.getConfiguration().get(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY));
-        final Predicate<PsiFile> filesToAnalyzeCompletely =
-                stubs ? Predicates.<PsiFile>alwaysFalse() : Predicates.<PsiFile>alwaysTrue();
+        final Predicate<PsiFile> filesToAnalyzeCompletely = getFilesToAnalyzeCompletely(environment, stubs);
         analyzerWithCompilerReport.analyzeAndReport(
                 new Function0<AnalyzeExhaust>() {
                     @NotNull
@@ -317,7 +319,7 @@ public class KotlinToJVMBytecodeCompiler {
                         BindingTrace sharedTrace = CliLightClassGenerationSupport.getInstanceForCli(environment.getProject()).getTrace();
                         return AnalyzerFacadeForJVM.analyzeFilesWithJavaIntegration(
                                 environment.getProject(),
-                                environment.getSourceFiles(),
+                                environment.getAllSourceFiles(),
                                 sharedTrace,
                                 scriptParameters,
                                 filesToAnalyzeCompletely,
@@ -330,6 +332,18 @@ public class KotlinToJVMBytecodeCompiler {
         return analyzerWithCompilerReport.hasErrors() ? null : analyzerWithCompilerReport.getAnalyzeExhaust();
     }
 
+    @NotNull
+    private static Predicate<PsiFile> getFilesToAnalyzeCompletely(@NotNull JetCoreEnvironment environment, boolean stubs) {
+        if (stubs) {
+            return Predicates.<PsiFile>alwaysFalse();
+        }
+        if (environment.getHeaderSourceFiles().isEmpty()) {
+            return Predicates.<PsiFile>alwaysTrue();
+        }
+        // Header sources are needed only for their declarations, so their bodies are not resolved
+        return Predicates.<PsiFile>in(new HashSet<PsiFile>(environment.getSourceFiles()));
+    }
+
     @NotNull
     private static GenerationState generate(
             JetCoreEnvironment environment,
@@ -359,6 +373,7 @@ public class KotlinToJVMBytecodeCompiler {
                 /*generateDeclaredClasses = */true
         );
         KotlinCodegenFacade.compileCorrectFiles(generationState, CompilationErrorHandler.THROW_EXCEPTION);
+        reportCodegenStatistics(configuration, generationState);
 
         CompilerPluginContext context = new CompilerPluginContext(project, exhaust.getBindingContext(), environment.getSourceFiles());
         for (CompilerPlugin plugin : configuration.getList(CLIConfigurationKeys.COMPILER_PLUGINS)) {
@@ -367,6 +382,25 @@ public class KotlinToJVMBytecodeCompiler {
         return generationState;
     }
 
+    private static void reportCodegenStatistics(@NotNull CompilerConfiguration configuration, @NotNull GenerationState generationState) {
+        MessageCollector messageCollector = configuration.get(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY);
+        if (messageCollector == null) return;
+
+        IntrinsicMethods intrinsics = generationState.getIntrinsics();
+        messageCollector.report(
+                CompilerMessageSeverity.LOGGING,
+                "Intrinsic lookups: " + (intrinsics.getCacheHits() + intrinsics.getCacheMisses()) +
+                ", answered from cache: " + intrinsics.getCacheHits(),
+                CompilerMessageLocation.NO_LOCATION);
+
+        CacheStats typeMapperStats = generationState.getTypeMapper().getCacheStats();
+        messageCollector.report(
+                CompilerMessageSeverity.LOGGING,
+                "Type mapper lookups: " + typeMapperStats.requestCount() + ", answered from cache: " + typeMapperStats.hitCount() +
+                ", evicted: " + typeMapperStats.evictionCount(),
+                CompilerMessageLocation.NO_LOCATION);
+    }
+
     public static Class compileScript(
             @NotNull ClassLoader parentLoader,
             @NotNull KotlinPaths paths,
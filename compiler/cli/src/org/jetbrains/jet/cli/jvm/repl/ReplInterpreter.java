@@ -18,17 +18,19 @@ package org.jetbrains.jet.cli.jvm.repl;
 
 import com.google.common.base.Predicates;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.vfs.CharsetToolkit;
+import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiFileFactory;
 import com.intellij.psi.impl.PsiFileFactoryImpl;
 import com.intellij.testFramework.LightVirtualFile;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
 import org.jetbrains.jet.analyzer.AnalyzeExhaust;
 import org.jetbrains.jet.cli.common.messages.AnalyzerWithCompilerReport;
 import org.jetbrains.jet.cli.common.messages.MessageCollector;
@@ -37,6 +39,7 @@ import org.jetbrains.jet.cli.jvm.JVMConfigurationKeys;
 import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
 import org.jetbrains.jet.codegen.ClassBuilderFactories;
 import org.jetbrains.jet.codegen.CompilationErrorHandler;
+import org.jetbrains.jet.codegen.binding.CodegenBinding;
 import org.jetbrains.jet.codegen.state.GenerationState;
 import org.jetbrains.jet.config.CompilerConfiguration;
 import org.jetbrains.jet.di.InjectorForTopDownAnalyzerForJvm;
@@ -44,6 +47,9 @@ import org.jetbrains.jet.lang.descriptors.ModuleDescriptorImpl;
 import org.jetbrains.jet.lang.descriptors.ScriptDescriptor;
 import org.jetbrains.jet.lang.descriptors.impl.NamespaceDescriptorImpl;
 import org.jetbrains.jet.lang.descriptors.impl.NamespaceLikeBuilderDummy;
+import org.jetbrains.jet.lang.diagnostics.Diagnostic;
+import org.jetbrains.jet.lang.psi.JetDeclaration;
+import org.jetbrains.jet.lang.psi.JetExpression;
 import org.jetbrains.jet.lang.psi.JetFile;
 import org.jetbrains.jet.lang.resolve.*;
 import org.jetbrains.jet.lang.resolve.java.AnalyzerFacadeForJVM;
@@ -54,6 +60,8 @@ import org.jetbrains.jet.lang.resolve.scopes.WritableScope;
 import org.jetbrains.jet.lang.resolve.scopes.WritableScopeImpl;
 import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
 import org.jetbrains.jet.plugin.JetLanguage;
+import org.jetbrains.jet.util.slicedmap.ReadOnlySlice;
+import org.jetbrains.jet.util.slicedmap.WritableSlice;
 import org.jetbrains.jet.utils.ExceptionUtils;
 
 import java.io.File;
@@ -63,6 +71,7 @@ import java.lang.reflect.Field;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -71,7 +80,8 @@ public class ReplInterpreter {
     private int lineNumber = 0;
     @Nullable
     private JetScope lastLineScope;
-    private List<EarlierLine> earlierLines = Lists.newArrayList();
+    // instances of the successfully evaluated lines, indexed by line numbers; every line is given this list
+    private final List<Object> lineInstances = Lists.newArrayList();
     private List<String> previousIncompleteLines = Lists.newArrayList();
     private final ReplClassLoader classLoader;
 
@@ -79,22 +89,26 @@ public class ReplInterpreter {
     private final InjectorForTopDownAnalyzerForJvm injector;
     @NotNull
     private final JetCoreEnvironment jetCoreEnvironment;
+    // data of the successfully evaluated lines
     @NotNull
     private final BindingTraceContext trace;
     @NotNull
+    private final LineTrace lineTrace;
+    @NotNull
     private final ModuleDescriptorImpl module;
 
     public ReplInterpreter(@NotNull Disposable disposable, @NotNull CompilerConfiguration configuration) {
         jetCoreEnvironment = new JetCoreEnvironment(disposable, configuration);
         Project project = jetCoreEnvironment.getProject();
         trace = new BindingTraceContext();
+        lineTrace = new LineTrace(trace.getBindingContext());
         module = AnalyzerFacadeForJVM.createJavaModule("<repl>");
         TopDownAnalysisParameters topDownAnalysisParameters = new TopDownAnalysisParameters(
                 Predicates.<PsiFile>alwaysTrue(),
                 false,
                 true,
                 Collections.<AnalyzerScriptParameter>emptyList());
-        injector = new InjectorForTopDownAnalyzerForJvm(project, topDownAnalysisParameters, trace, module);
+        injector = new InjectorForTopDownAnalyzerForJvm(project, topDownAnalysisParameters, lineTrace, module);
         module.setModuleConfiguration(injector.getJavaBridgeConfiguration());
 
         List<URL> classpath = Lists.newArrayList();
@@ -210,26 +224,20 @@ public class ReplInterpreter {
         }
 
         injector.getTopDownAnalyzer().prepareForTheNextReplLine();
-        trace.clearDiagnostics();
+        lineTrace.startLine("trace for REPL line " + lineNumber);
 
         psiFile.getScript().putUserData(ScriptHeaderResolver.PRIORITY_KEY, lineNumber);
 
         ScriptDescriptor scriptDescriptor = doAnalyze(psiFile, errorCollector);
         if (scriptDescriptor == null) {
+            commitLine(psiFile, false);
             return LineResult.error(errorCollector.getString());
         }
 
-        List<Pair<ScriptDescriptor, JvmClassName>> earierScripts = Lists.newArrayList();
-
-        for (EarlierLine earlierLine : earlierLines) {
-            earierScripts.add(Pair.create(earlierLine.getScriptDescriptor(), earlierLine.getClassName()));
-        }
-
-        BindingContext bindingContext = AnalyzeExhaust.success(trace.getBindingContext(), module).getBindingContext();
+        BindingContext bindingContext = AnalyzeExhaust.success(lineTrace.getBindingContext(), module).getBindingContext();
         GenerationState generationState = new GenerationState(psiFile.getProject(), ClassBuilderFactories.binaries(false),
                                                               bindingContext, Collections.singletonList(psiFile));
-        generationState.getScriptCodegen().compileScript(psiFile.getScript(), scriptClassName, earierScripts,
-                                                         CompilationErrorHandler.THROW_EXCEPTION);
+        generationState.getScriptCodegen().compileReplLine(psiFile.getScript(), scriptClassName, CompilationErrorHandler.THROW_EXCEPTION);
 
         for (String file : generationState.getFactory().files()) {
             classLoader.addClass(JvmClassName.byInternalName(file.replaceFirst("\\.class$", "")), generationState.getFactory().asBytes(file));
@@ -238,26 +246,30 @@ public class ReplInterpreter {
         try {
             Class<?> scriptClass = classLoader.loadClass(scriptClassName.getFqName().asString());
 
-            Class<?>[] constructorParams = new Class<?>[earlierLines.size()];
-            Object[] constructorArgs = new Object[earlierLines.size()];
-
-            for (int i = 0; i < earlierLines.size(); ++i) {
-                constructorParams[i] = earlierLines.get(i).getScriptClass();
-                constructorArgs[i] = earlierLines.get(i).getScriptInstance();
-            }
-
-            Constructor<?> scriptInstanceConstructor = scriptClass.getConstructor(constructorParams);
+            Constructor<?> scriptInstanceConstructor = scriptClass.getConstructor(List.class);
             Object scriptInstance;
             try {
-                scriptInstance = scriptInstanceConstructor.newInstance(constructorArgs);
+                scriptInstance = scriptInstanceConstructor.newInstance(lineInstances);
             } catch (Throwable e) {
+                // later lines must not see the declarations of a line which has no instance
+                commitLine(psiFile, false);
                 return LineResult.error(Throwables.getStackTraceAsString(e));
             }
             Field rvField = scriptClass.getDeclaredField("rv");
             rvField.setAccessible(true);
             Object rv = rvField.get(scriptInstance);
 
-            earlierLines.add(new EarlierLine(line, scriptDescriptor, scriptClass, scriptInstance, scriptClassName));
+            while (lineInstances.size() <= lineNumber) {
+                lineInstances.add(null);
+            }
+            lineInstances.set(lineNumber, scriptInstance);
+            CodegenBinding.registerClassNameForScript(lineTrace, scriptDescriptor, scriptClassName);
+            commitLine(psiFile, true);
+
+            lastLineScope = trace.get(BindingContext.SCRIPT_SCOPE, scriptDescriptor);
+            if (lastLineScope == null) {
+                throw new IllegalStateException("last line scope is not initialized");
+            }
 
             return LineResult.successful(rv, scriptDescriptor.getReturnType().equals(KotlinBuiltIns.getInstance().getUnitType()));
         } catch (Throwable e) {
@@ -268,11 +280,28 @@ public class ReplInterpreter {
         }
     }
 
+    /**
+     * Copies the data of the current line to the REPL trace, the rest of the line trace is dropped with it.
+     * Later lines only see the declarations of an evaluated line, so its expressions are not kept.
+     * Nothing recorded for the PSI of a failed line is kept, but data not bound to the line (e.g. resolved Java classes) is.
+     */
+    private void commitLine(@NotNull final JetFile file, final boolean evaluated) {
+        lineTrace.getCurrentLine().addAllMyDataTo(trace, new TraceEntryFilter() {
+            @Override
+            public boolean accept(@NotNull WritableSlice<?, ?> slice, Object key) {
+                if (!(key instanceof PsiElement) || ((PsiElement) key).getContainingFile() != file) {
+                    return true;
+                }
+                return evaluated && (!(key instanceof JetExpression) || key instanceof JetDeclaration);
+            }
+        }, false);
+    }
+
     @Nullable
     private ScriptDescriptor doAnalyze(@NotNull JetFile psiFile, @NotNull MessageCollector messageCollector) {
         WritableScope scope = new WritableScopeImpl(
                 JetScope.EMPTY, module,
-                new TraceBasedRedeclarationHandler(trace), "Root scope in analyzeNamespace");
+                new TraceBasedRedeclarationHandler(lineTrace), "Root scope in analyzeNamespace");
 
         scope.changeLockLevel(WritableScope.LockLevel.BOTH);
 
@@ -296,21 +325,96 @@ public class ReplInterpreter {
         // namespaces added to module explicitly in
         injector.getTopDownAnalyzer().doProcess(scope, new NamespaceLikeBuilderDummy(), Collections.singletonList(psiFile));
 
-        boolean hasErrors = AnalyzerWithCompilerReport.reportDiagnostics(trace.getBindingContext(), messageCollector);
+        boolean hasErrors = AnalyzerWithCompilerReport.reportDiagnostics(lineTrace.getBindingContext(), messageCollector);
         if (hasErrors) {
             return null;
         }
 
-        ScriptDescriptor scriptDescriptor = injector.getTopDownAnalysisContext().getScripts().get(psiFile.getScript());
-        lastLineScope = trace.get(BindingContext.SCRIPT_SCOPE, scriptDescriptor);
-        if (lastLineScope == null) {
-            throw new IllegalStateException("last line scope is not initialized");
-        }
-
-        return scriptDescriptor;
+        return injector.getTopDownAnalysisContext().getScripts().get(psiFile.getScript());
     }
 
     public void dumpClasses(@NotNull PrintWriter out) {
         classLoader.dumpClasses(out);
     }
+
+    /**
+     * The trace the analyzer is created with. It records to a child of the REPL trace which is replaced for every line,
+     * so that the data of a line can be committed or dropped as a whole.
+     */
+    private static class LineTrace implements BindingTrace {
+        @NotNull
+        private final BindingContext parentContext;
+        @NotNull
+        private DelegatingBindingTrace currentLine;
+
+        private final BindingContext bindingContext = new BindingContext() {
+            @Override
+            public Collection<Diagnostic> getDiagnostics() {
+                return currentLine.getBindingContext().getDiagnostics();
+            }
+
+            @Override
+            public <K, V> V get(ReadOnlySlice<K, V> slice, K key) {
+                return currentLine.get(slice, key);
+            }
+
+            @NotNull
+            @Override
+            public <K, V> Collection<K> getKeys(WritableSlice<K, V> slice) {
+                return currentLine.getKeys(slice);
+            }
+
+            @NotNull
+            @TestOnly
+            @Override
+            public <K, V> ImmutableMap<K, V> getSliceContents(@NotNull ReadOnlySlice<K, V> slice) {
+                return currentLine.getBindingContext().getSliceContents(slice);
+            }
+        };
+
+        private LineTrace(@NotNull BindingContext parentContext) {
+            this.parentContext = parentContext;
+            this.currentLine = new DelegatingBindingTrace(parentContext, "trace for REPL line 0");
+        }
+
+        private void startLine(@NotNull String debugName) {
+            currentLine = new DelegatingBindingTrace(parentContext, debugName);
+        }
+
+        @NotNull
+        private DelegatingBindingTrace getCurrentLine() {
+            return currentLine;
+        }
+
+        @Override
+        public BindingContext getBindingContext() {
+            return bindingContext;
+        }
+
+        @Override
+        public <K, V> void record(WritableSlice<K, V> slice, K key, V value) {
+            currentLine.record(slice, key, value);
+        }
+
+        @Override
+        public <K> void record(WritableSlice<K, Boolean> slice, K key) {
+            currentLine.record(slice, key);
+        }
+
+        @Override
+        public <K, V> V get(ReadOnlySlice<K, V> slice, K key) {
+            return currentLine.get(slice, key);
+        }
+
+        @NotNull
+        @Override
+        public <K, V> Collection<K> getKeys(WritableSlice<K, V> slice) {
+            return currentLine.getKeys(slice);
+        }
+
+        @Override
+        public void report(@NotNull Diagnostic diagnostic) {
+            currentLine.report(diagnostic);
+        }
+    }
 }
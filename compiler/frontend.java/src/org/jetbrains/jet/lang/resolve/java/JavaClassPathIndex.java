@@ -0,0 +1,56 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.lang.resolve.java;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers lookups of classes which are not on the class path without touching the file system.
+ *
+ * Should be registered only in environments where the class path doesn't change, e.g. in the command-line compiler:
+ * both the index and the remembered misses are never invalidated.
+ */
+public abstract class JavaClassPathIndex {
+    @Nullable
+    public static JavaClassPathIndex getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, JavaClassPathIndex.class);
+    }
+
+    private final Set<FqName> missingClasses = Collections.newSetFromMap(new ConcurrentHashMap<FqName, Boolean>());
+
+    public final boolean isKnownToBeMissing(@NotNull FqName qualifiedName) {
+        return missingClasses.contains(qualifiedName) || !mayContainClass(qualifiedName);
+    }
+
+    public final void classNotFound(@NotNull FqName qualifiedName) {
+        missingClasses.add(qualifiedName);
+    }
+
+    /**
+     * @return false if there definitely is no class with this name (top-level or nested) on the class path
+     */
+    protected abstract boolean mayContainClass(@NotNull FqName qualifiedName);
+}
@@ -48,6 +48,8 @@ public class PsiClassFinderImpl implements PsiClassFinder {
 
     private GlobalSearchScope javaSearchScope;
     private JavaPsiFacadeKotlinHacks javaFacade;
+    @Nullable
+    private JavaClassPathIndex classPathIndex;
 
     @Inject
     public void setProject(@NotNull Project project) {
@@ -80,12 +82,17 @@ public class PsiClassFinderImpl implements PsiClassFinder {
             }
         };
         javaFacade = new JavaPsiFacadeKotlinHacks(project);
+        classPathIndex = JavaClassPathIndex.getInstance(project);
     }
 
 
     @Override
     @Nullable
     public PsiClass findPsiClass(@NotNull FqName qualifiedName, @NotNull RuntimeClassesHandleMode runtimeClassesHandleMode) {
+        if (classPathIndex != null && classPathIndex.isKnownToBeMissing(qualifiedName)) {
+            return null;
+        }
+
         PsiClass original = javaFacade.findClass(qualifiedName.asString(), javaSearchScope);
 
         if (original != null) {
@@ -101,6 +108,9 @@ public class PsiClassFinderImpl implements PsiClassFinder {
         }
 
         if (original == null) {
+            if (classPathIndex != null) {
+                classPathIndex.classNotFound(qualifiedName);
+            }
             return null;
         }
 
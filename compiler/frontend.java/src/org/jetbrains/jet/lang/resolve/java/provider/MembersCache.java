@@ -16,15 +16,14 @@
 
 package org.jetbrains.jet.lang.resolve.java.provider;
 
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Multimap;
-import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.*;
 import com.intellij.psi.util.MethodSignature;
 import com.intellij.psi.util.MethodSignatureBackedByPsiMethod;
 import com.intellij.psi.util.PsiFormatUtil;
 import com.intellij.util.ArrayUtil;
+import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.lang.resolve.java.*;
@@ -35,68 +34,90 @@ import org.jetbrains.jet.lang.resolve.java.wrapper.*;
 import org.jetbrains.jet.lang.resolve.name.Name;
 import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static com.intellij.psi.util.MethodSignatureUtil.areSignaturesErasureEqual;
 import static com.intellij.psi.util.PsiFormatUtilBase.*;
 
+/**
+ * Members of a Java class or package grouped by name.
+ *
+ * Members of each name are computed on the first request for that name only, looking up the PSI by this name. The cache is thread-safe,
+ * so it can be shared between scopes and threads; concurrent requests for different names rarely wait for each other.
+ */
 public final class MembersCache {
     private static final ImmutableSet<String> OBJECT_METHODS = ImmutableSet.of("hashCode()", "equals(java.lang.Object)", "toString()");
 
-    private final Multimap<Name, Runnable> memberProcessingTasks = HashMultimap.create();
-    private final Map<Name, NamedMembers> namedMembersMap = new HashMap<Name, NamedMembers>();
+    private static final NamedMembers NO_MEMBERS = new NamedMembers(Name.special("<no members>"));
+    private static final int LOCK_COUNT = 16;
+
+    // All sources are added before the cache is published
+    private final List<MemberSource> sources = new ArrayList<MemberSource>();
+    private final ConcurrentMap<Name, NamedMembers> namedMembersMap = new ConcurrentHashMap<Name, NamedMembers>();
+    private final Object[] locks = new Object[LOCK_COUNT];
 
     @Nullable
-    public NamedMembers get(@NotNull Name name) {
-        runTasksByName(name);
-        return namedMembersMap.get(name);
-    }
+    private volatile Collection<NamedMembers> allMembers = null;
 
-    @NotNull
-    public Collection<NamedMembers> allMembers() {
-        runAllTasks();
-        memberProcessingTasks.clear();
-        return namedMembersMap.values();
+    public MembersCache() {
+        for (int i = 0; i < LOCK_COUNT; i++) {
+            locks[i] = new Object();
+        }
     }
 
-    @NotNull
-    private NamedMembers getOrCreateEmpty(@NotNull Name name) {
-        NamedMembers r = namedMembersMap.get(name);
-        if (r == null) {
-            r = new NamedMembers(name);
-            namedMembersMap.put(name, r);
+    @Nullable
+    public NamedMembers get(@NotNull Name name) {
+        NamedMembers members = namedMembersMap.get(name);
+        if (members == null) {
+            synchronized (locks[(name.hashCode() & Integer.MAX_VALUE) % LOCK_COUNT]) {
+                members = namedMembersMap.get(name);
+                if (members == null) {
+                    members = computeMembers(name);
+                    namedMembersMap.put(name, members);
+                }
+            }
         }
-        return r;
+        return members != NO_MEMBERS ? members : null;
     }
 
-    private void addTask(@NotNull PsiMember member, @NotNull RunOnce task) {
-        addTask(member.getName(), task);
-    }
+    @NotNull
+    public Collection<NamedMembers> allMembers() {
+        Collection<NamedMembers> result = allMembers;
+        if (result == null) {
+            Set<String> names = new LinkedHashSet<String>();
+            for (MemberSource source : sources) {
+                source.collectNames(names);
+            }
 
-    private void addTask(@Nullable String name, @NotNull RunOnce task) {
-        if (name == null) {
-            return;
+            List<NamedMembers> members = new ArrayList<NamedMembers>(names.size());
+            for (String name : names) {
+                NamedMembers namedMembers = get(Name.identifier(name));
+                if (namedMembers != null) {
+                    members.add(namedMembers);
+                }
+            }
+            result = Collections.unmodifiableList(members);
+            allMembers = result;
         }
-        memberProcessingTasks.put(Name.identifier(name), task);
+        return result;
     }
 
-    private void runTasksByName(Name name) {
-        if (!memberProcessingTasks.containsKey(name)) return;
-        Collection<Runnable> tasks = memberProcessingTasks.get(name);
-        for (Runnable task : tasks) {
-            task.run();
+    @NotNull
+    private NamedMembers computeMembers(@NotNull Name name) {
+        if (name.isSpecial()) {
+            return NO_MEMBERS;
         }
-        // Delete tasks
-        tasks.clear();
-    }
 
-    private void runAllTasks() {
-        for (Runnable task : memberProcessingTasks.values()) {
-            task.run();
+        NamedMembers members = new NamedMembers(name);
+        boolean exists = false;
+        for (MemberSource source : sources) {
+            if (source.contribute(name.asString(), members)) {
+                exists = true;
+            }
         }
+        return exists ? members : NO_MEMBERS;
     }
 
     @NotNull
@@ -109,130 +130,220 @@ public final class MembersCache {
             boolean isKotlin
     ) {
         if (psiClass != null) {
-            membersCache.new ClassMemberProcessor(new PsiClassWrapper(psiClass), staticMembers, isKotlin).process();
+            membersCache.sources.add(new ClassMemberSource(new PsiClassWrapper(psiClass), staticMembers, isKotlin));
         }
 
-        //TODO:
-        List<PsiClass> classes = psiPackage != null ? finder.findPsiClasses(psiPackage) : finder.findInnerPsiClasses(psiClass);
-        membersCache.new ExtraPackageMembersProcessor(classes).process();
+        membersCache.sources.add(new ExtraPackageMemberSource(finder, psiClass, psiPackage));
         return membersCache;
     }
 
-    private class ExtraPackageMembersProcessor { // 'extra' means that PSI elements for these members are not just top-level classes
+    private interface MemberSource {
+        /**
+         * Adds members with the given name to the group.
+         *
+         * @return true if the group should exist, even if nothing was added to it
+         */
+        boolean contribute(@NotNull String name, @NotNull NamedMembers members);
+
+        void collectNames(@NotNull Collection<String> names);
+    }
+
+    // 'extra' means that PSI elements for these members are not just top-level classes
+    private static class ExtraPackageMemberSource implements MemberSource {
         @NotNull
-        private final List<PsiClass> psiClasses;
+        private final PsiClassFinder finder;
+        @Nullable
+        private final PsiClass psiClass;
+        @Nullable
+        private final PsiPackage psiPackage;
 
-        private ExtraPackageMembersProcessor(@NotNull List<PsiClass> classes) {
-            psiClasses = classes;
+        @Nullable
+        private Map<String, List<PsiClass>> classesByName = null;
+
+        private ExtraPackageMemberSource(@NotNull PsiClassFinder finder, @Nullable PsiClass psiClass, @Nullable PsiPackage psiPackage) {
+            this.finder = finder;
+            this.psiClass = psiClass;
+            this.psiPackage = psiPackage;
         }
 
-        private void process() {
-            for (PsiClass psiClass : psiClasses) {
-                if (!(psiClass instanceof JetJavaMirrorMarker)) { // to filter out JetLightClasses
-                    if (JetClassAnnotation.get(psiClass).kind() == JvmStdlibNames.FLAG_CLASS_KIND_OBJECT) {
-                        processObjectClass(psiClass);
-                    }
-                    if (isSamInterface(psiClass)) {
-                        processSamInterface(psiClass);
+        @NotNull
+        private synchronized Map<String, List<PsiClass>> getClassesByName() {
+            if (classesByName == null) {
+                //TODO:
+                List<PsiClass> classes = psiPackage != null ? finder.findPsiClasses(psiPackage) : finder.findInnerPsiClasses(psiClass);
+
+                Map<String, List<PsiClass>> result = new HashMap<String, List<PsiClass>>();
+                for (PsiClass aClass : classes) {
+                    if (aClass instanceof JetJavaMirrorMarker) continue; // to filter out JetLightClasses
+                    String name = aClass.getName();
+                    if (name == null) continue;
+
+                    List<PsiClass> classesWithName = result.get(name);
+                    if (classesWithName == null) {
+                        classesWithName = new ArrayList<PsiClass>(1);
+                        result.put(name, classesWithName);
                     }
+                    classesWithName.add(aClass);
+                }
+                classesByName = result;
+            }
+            return classesByName;
+        }
+
+        @Override
+        public boolean contribute(@NotNull String name, @NotNull NamedMembers members) {
+            List<PsiClass> classes = getClassesByName().get(name);
+            if (classes == null) return false;
+
+            boolean exists = false;
+            for (PsiClass aClass : classes) {
+                if (JetClassAnnotation.get(aClass).kind() == JvmStdlibNames.FLAG_CLASS_KIND_OBJECT) {
+                    exists |= processObjectClass(aClass, members);
+                }
+                if (isSamInterface(aClass)) {
+                    members.setSamInterface(aClass);
+                    exists = true;
                 }
             }
+            return exists;
         }
 
-        private void processObjectClass(@NotNull PsiClass psiClass) {
+        private static boolean processObjectClass(@NotNull PsiClass psiClass, @NotNull NamedMembers members) {
             PsiField instanceField = psiClass.findFieldByName(JvmAbi.INSTANCE_FIELD, false);
-            if (instanceField != null) {
-                NamedMembers namedMembers = getOrCreateEmpty(Name.identifier(psiClass.getName()));
+            if (instanceField == null) return false;
 
-                TypeSource type = new TypeSource("", instanceField.getType(), instanceField);
-                namedMembers.addPropertyAccessor(new PropertyPsiDataElement(new PsiFieldWrapper(instanceField), type, null));
-            }
+            TypeSource type = new TypeSource("", instanceField.getType(), instanceField);
+            members.addPropertyAccessor(new PropertyPsiDataElement(new PsiFieldWrapper(instanceField), type, null));
+            return true;
         }
 
-        private void processSamInterface(@NotNull PsiClass psiClass) {
-            NamedMembers namedMembers = getOrCreateEmpty(Name.identifier(psiClass.getName()));
-            namedMembers.setSamInterface(psiClass);
+        @Override
+        public void collectNames(@NotNull Collection<String> names) {
+            names.addAll(getClassesByName().keySet());
         }
     }
 
-    private class ClassMemberProcessor {
+    private static class ClassMemberSource implements MemberSource {
         @NotNull
         private final PsiClassWrapper psiClass;
         private final boolean staticMembers;
         private final boolean kotlin;
 
-        private ClassMemberProcessor(@NotNull PsiClassWrapper psiClass, boolean staticMembers, boolean kotlin) {
+        private ClassMemberSource(@NotNull PsiClassWrapper psiClass, boolean staticMembers, boolean kotlin) {
             this.psiClass = psiClass;
             this.staticMembers = staticMembers;
             this.kotlin = kotlin;
         }
 
-        public void process() {
-            processFields();
-            processMethods();
-            processNestedClasses();
+        @Override
+        public boolean contribute(@NotNull String name, @NotNull NamedMembers members) {
+            boolean exists = false;
+            if (processFields()) {
+                exists |= contributeFields(name, members);
+            }
+            exists |= contributeMethods(name, members);
+            if (staticMembers) {
+                exists |= contributeNestedClass(name, members);
+            }
+            return exists;
         }
 
-        private void processFields() {
-            // Hack to load static members for enum class loaded from class file
-            if (kotlin && !psiClass.getPsiClass().isEnum()) {
-                return;
+        @Override
+        public void collectNames(@NotNull Collection<String> names) {
+            PsiClass aClass = psiClass.getPsiClass();
+            if (processFields()) {
+                for (PsiField field : aClass.getAllFields()) {
+                    names.add(field.getName());
+                }
             }
-            for (final PsiField field : psiClass.getPsiClass().getAllFields()) {
-                addTask(field, new RunOnce() {
-                    @Override
-                    public void doRun() {
-                        processField(field);
-                    }
-                });
+            for (PsiMethod method : aClass.getAllMethods()) {
+                names.add(method.getName());
+
+                PropertyParseResult propertyParseResult = PropertyNameUtils.parseMethodToProperty(method.getName());
+                if (propertyParseResult != null) {
+                    names.add(propertyParseResult.getPropertyName());
+                }
+            }
+            if (staticMembers) {
+                for (PsiClass nested : aClass.getInnerClasses()) {
+                    ContainerUtil.addIfNotNull(nested.getName(), names);
+                }
             }
         }
 
-        private void processMethods() {
-            parseAllMethodsAsProperties();
-            processOwnMethods();
+        private boolean processFields() {
+            // Hack to load static members for enum class loaded from class file
+            return !kotlin || psiClass.getPsiClass().isEnum();
         }
 
-        private void processOwnMethods() {
-            for (final PsiMethod method : psiClass.getPsiClass().getMethods()) {
-                RunOnce task = new RunOnce() {
-                    @Override
-                    public void doRun() {
-                        processOwnMethod(method);
-                    }
-                };
-                addTask(method, task);
+        private boolean contributeFields(@NotNull String name, @NotNull NamedMembers members) {
+            PsiClass aClass = psiClass.getPsiClass();
+            // group must be created even for excluded field
+            if (aClass.findFieldByName(name, true) == null) return false;
 
-                PropertyParseResult propertyParseResult = PropertyNameUtils.parseMethodToProperty(method.getName());
-                if (propertyParseResult != null) {
-                    addTask(propertyParseResult.getPropertyName(), task);
+            if (aClass.isEnum() && staticMembers) {
+                // static members of supertypes are included too, see includeMember()
+                for (PsiField field : aClass.getAllFields()) {
+                    if (name.equals(field.getName())) {
+                        processField(field, members);
+                    }
                 }
             }
+            else {
+                PsiField field = aClass.findFieldByName(name, false);
+                if (field != null) {
+                    processField(field, members);
+                }
+            }
+            return true;
         }
 
-        private void parseAllMethodsAsProperties() {
-            for (PsiMethod method : psiClass.getPsiClass().getAllMethods()) {
-                createEmptyEntry(Name.identifier(method.getName()));
+        private boolean contributeMethods(@NotNull String name, @NotNull NamedMembers members) {
+            PsiClass aClass = psiClass.getPsiClass();
+            List<String> accessorNames = getAccessorNames(name);
 
-                PropertyParseResult propertyParseResult = PropertyNameUtils.parseMethodToProperty(method.getName());
-                if (propertyParseResult != null) {
-                    createEmptyEntry(Name.identifier(propertyParseResult.getPropertyName()));
+            boolean exists = aClass.findMethodsByName(name, true).length > 0;
+            for (String accessorName : accessorNames) {
+                if (aClass.findMethodsByName(accessorName, true).length > 0) {
+                    exists = true;
                 }
             }
+
+            for (PsiMethod method : aClass.findMethodsByName(name, false)) {
+                processOwnMethod(method, members);
+            }
+            for (String accessorName : accessorNames) {
+                for (PsiMethod method : aClass.findMethodsByName(accessorName, false)) {
+                    processOwnAccessor(method, members);
+                }
+            }
+            return exists;
         }
 
-        private void processNestedClasses() {
-            if (!staticMembers) {
-                return;
+        private boolean contributeNestedClass(@NotNull String name, @NotNull NamedMembers members) {
+            PsiClass nested = psiClass.getPsiClass().findInnerClassByName(name, false);
+            if (nested != null && isSamInterface(nested)) {
+                members.setSamInterface(nested);
+                return true;
             }
-            for (final PsiClass nested : psiClass.getPsiClass().getInnerClasses()) {
-                addTask(nested, new RunOnce() {
-                    @Override
-                    public void doRun() {
-                        processNestedClass(nested);
+            return false;
+        }
+
+        // Names of the methods parsed by PropertyNameUtils as accessors of the given property
+        @NotNull
+        private static List<String> getAccessorNames(@NotNull String propertyName) {
+            List<String> result = new ArrayList<String>(4);
+            Set<String> suffixes = ImmutableSet.of(propertyName, StringUtil.capitalize(propertyName));
+            for (String prefix : new String[] {JvmAbi.GETTER_PREFIX, JvmAbi.SETTER_PREFIX}) {
+                for (String suffix : suffixes) {
+                    String methodName = prefix + suffix;
+                    PropertyParseResult propertyParseResult = PropertyNameUtils.parseMethodToProperty(methodName);
+                    if (propertyParseResult != null && propertyName.equals(propertyParseResult.getPropertyName())) {
+                        result.add(methodName);
                     }
-                });
+                }
             }
+            return result;
         }
 
         private boolean includeMember(PsiMemberWrapper member) {
@@ -261,12 +372,9 @@ public final class MembersCache {
             return true;
         }
 
-        private void processField(PsiField field) {
+        private void processField(PsiField field, NamedMembers namedMembers) {
             PsiFieldWrapper fieldWrapper = new PsiFieldWrapper(field);
 
-            // group must be created even for excluded field
-            NamedMembers namedMembers = getOrCreateEmpty(Name.identifier(fieldWrapper.getName()));
-
             if (!includeMember(fieldWrapper)) {
                 return;
             }
@@ -275,7 +383,19 @@ public final class MembersCache {
             namedMembers.addPropertyAccessor(new PropertyPsiDataElement(fieldWrapper, type, null));
         }
 
-        private void processOwnMethod(PsiMethod ownMethod) {
+        private void processOwnMethod(PsiMethod ownMethod, NamedMembers namedMembers) {
+            PsiMethodWrapper method = new PsiMethodWrapper(ownMethod);
+
+            if (!includeMember(method)) {
+                return;
+            }
+
+            if (!method.getJetMethodAnnotation().hasPropertyFlag()) {
+                namedMembers.addMethod(method);
+            }
+        }
+
+        private void processOwnAccessor(PsiMethod ownMethod, NamedMembers propertyMembers) {
             PsiMethodWrapper method = new PsiMethodWrapper(ownMethod);
 
             if (!includeMember(method)) {
@@ -283,25 +403,18 @@ public final class MembersCache {
             }
 
             PropertyParseResult propertyParseResult = PropertyNameUtils.parseMethodToProperty(method.getName());
+            assert propertyParseResult != null : "Not an accessor: " + method.getName();
 
             // TODO: remove getJavaClass
-            if (propertyParseResult != null && propertyParseResult.isGetter()) {
-                processGetter(ownMethod, method, propertyParseResult);
-            }
-            else if (propertyParseResult != null && !propertyParseResult.isGetter()) {
-                processSetter(method, propertyParseResult);
+            if (propertyParseResult.isGetter()) {
+                processGetter(ownMethod, method, propertyMembers);
             }
-
-            if (!method.getJetMethodAnnotation().hasPropertyFlag()) {
-                NamedMembers namedMembers = getOrCreateEmpty(Name.identifier(method.getName()));
-                namedMembers.addMethod(method);
+            else {
+                processSetter(method, propertyMembers);
             }
         }
 
-        private void processSetter(PsiMethodWrapper method, PropertyParseResult propertyParseResult) {
-            String propertyName = propertyParseResult.getPropertyName();
-            NamedMembers members = getOrCreateEmpty(Name.identifier(propertyName));
-
+        private static void processSetter(PsiMethodWrapper method, NamedMembers members) {
             if (method.getJetMethodAnnotation().hasPropertyFlag()) {
                 if (method.getParameters().size() == 0) {
                     // TODO: report error properly
@@ -334,10 +447,7 @@ public final class MembersCache {
             }
         }
 
-        private void processGetter(PsiMethod ownMethod, PsiMethodWrapper method, PropertyParseResult propertyParseResult) {
-            String propertyName = propertyParseResult.getPropertyName();
-            NamedMembers members = getOrCreateEmpty(Name.identifier(propertyName));
-
+        private static void processGetter(PsiMethod ownMethod, PsiMethodWrapper method, NamedMembers members) {
             // TODO: some java properties too
             if (method.getJetMethodAnnotation().hasPropertyFlag()) {
 
@@ -373,17 +483,6 @@ public final class MembersCache {
                 members.addPropertyAccessor(new PropertyPsiDataElement(method, true, propertyType, receiverType));
             }
         }
-
-        private void createEmptyEntry(@NotNull Name identifier) {
-            getOrCreateEmpty(identifier);
-        }
-
-        private void processNestedClass(PsiClass nested) {
-            if (isSamInterface(nested)) {
-                NamedMembers namedMembers = getOrCreateEmpty(Name.identifier(nested.getName()));
-                namedMembers.setSamInterface(nested);
-            }
-        }
     }
 
     public static boolean isObjectMethodInInterface(@NotNull PsiMember member) {
@@ -443,19 +542,6 @@ public final class MembersCache {
         return lastParameter != null && lastParameter.getType() instanceof PsiEllipsisType;
     }
 
-    private static abstract class RunOnce implements Runnable {
-        private boolean hasRun = false;
-
-        @Override
-        public final void run() {
-            if (hasRun) return;
-            hasRun = true;
-            doRun();
-        }
-
-        protected abstract void doRun();
-    }
-
     private static class OnlyAbstractMethodFinder {
         private MethodSignatureBackedByPsiMethod found;
 
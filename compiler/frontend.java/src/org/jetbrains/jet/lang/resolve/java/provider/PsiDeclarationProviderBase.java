@@ -19,15 +19,22 @@ package org.jetbrains.jet.lang.resolve.java.provider;
 import org.jetbrains.annotations.NotNull;
 
 public abstract class PsiDeclarationProviderBase implements PsiDeclarationProvider {
-    private MembersCache membersCache = null;
+    private volatile MembersCache membersCache = null;
 
     @Override
     @NotNull
     public MembersCache getMembersCache() {
-        if (membersCache == null) {
-            membersCache = buildMembersCache();
+        MembersCache cache = membersCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = membersCache;
+                if (cache == null) {
+                    cache = buildMembersCache();
+                    membersCache = cache;
+                }
+            }
         }
-        return membersCache;
+        return cache;
     }
 
     @NotNull
@@ -21,9 +21,18 @@ import com.intellij.psi.PsiPackage;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jet.lang.resolve.java.PsiClassFinder;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 public final class PsiDeclarationProviderFactory {
     @NotNull private final PsiClassFinder psiClassFinder;
 
+    // Providers are shared so that members of a class are collected once for all scopes
+    private final ConcurrentMap<PsiClass, ClassPsiDeclarationProvider> classProviders =
+            new ConcurrentHashMap<PsiClass, ClassPsiDeclarationProvider>();
+    private final ConcurrentMap<PsiClass, ClassPsiDeclarationProvider> staticMembersProviders =
+            new ConcurrentHashMap<PsiClass, ClassPsiDeclarationProvider>();
+
     public PsiDeclarationProviderFactory(@NotNull PsiClassFinder psiClassFinder) {
         this.psiClassFinder = psiClassFinder;
     }
@@ -35,7 +44,7 @@ public final class PsiDeclarationProviderFactory {
 
     @NotNull
     public ClassPsiDeclarationProvider createBinaryClassData(@NotNull PsiClass psiClass) {
-        return new ClassPsiDeclarationProviderImpl(psiClass, false, psiClassFinder);
+        return getOrCreateClassProvider(classProviders, psiClass, false);
     }
 
     @NotNull
@@ -51,6 +60,23 @@ public final class PsiDeclarationProviderFactory {
 
     @NotNull
     public ClassPsiDeclarationProvider createDeclarationProviderForClassStaticMembers(@NotNull PsiClass psiClass) {
-        return new ClassPsiDeclarationProviderImpl(psiClass, true, psiClassFinder);
+        return getOrCreateClassProvider(staticMembersProviders, psiClass, true);
+    }
+
+    @NotNull
+    private ClassPsiDeclarationProvider getOrCreateClassProvider(
+            @NotNull ConcurrentMap<PsiClass, ClassPsiDeclarationProvider> providers,
+            @NotNull PsiClass psiClass,
+            boolean staticMembers
+    ) {
+        ClassPsiDeclarationProvider provider = providers.get(psiClass);
+        if (provider == null) {
+            provider = new ClassPsiDeclarationProviderImpl(psiClass, staticMembers, psiClassFinder);
+            ClassPsiDeclarationProvider existing = providers.putIfAbsent(psiClass, provider);
+            if (existing != null) {
+                provider = existing;
+            }
+        }
+        return provider;
     }
 }
@@ -25,6 +25,7 @@ public class CommonConfigurationKeys {
     }
 
     public static final CompilerConfigurationKey<List<String>> SOURCE_ROOTS_KEY = CompilerConfigurationKey.create("source roots");
+    public static final CompilerConfigurationKey<List<String>> HEADER_SOURCE_ROOTS_KEY = CompilerConfigurationKey.create("header source roots");
 
     public static final CompilerConfigurationKey<List<JetScriptDefinition>> SCRIPT_DEFINITIONS_KEY = CompilerConfigurationKey.create("script definitions");
 }
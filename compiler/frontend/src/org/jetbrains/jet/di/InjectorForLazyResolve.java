@@ -52,6 +52,8 @@ public class InjectorForLazyResolve {
     private CallResolver callResolver;
     private ArgumentTypeResolver argumentTypeResolver;
     private CandidateResolver candidateResolver;
+    private volatile boolean descriptorResolverInitialized;
+    private volatile boolean jetImportsFactoryInitialized;
     
     public InjectorForLazyResolve(
         @NotNull Project project,
@@ -61,14 +63,19 @@ public class InjectorForLazyResolve {
         this.project = project;
         this.resolveSession = resolveSession;
         this.moduleDescriptor = moduleDescriptor;
+        this.scopeProvider = new ScopeProvider(resolveSession);
+        this.needSyntheticCallResolverExtension = new NeedSyntheticCallResolverExtension();
+
+    }
+    
+    private synchronized void initializeDescriptorResolver() {
+        if (descriptorResolverInitialized) return;
+        
         this.descriptorResolver = new DescriptorResolver();
         this.expressionTypingServices = new ExpressionTypingServices();
         this.typeResolver = new TypeResolver();
-        this.scopeProvider = new ScopeProvider(resolveSession);
         this.annotationResolver = new AnnotationResolver();
         this.qualifiedExpressionResolver = new QualifiedExpressionResolver();
-        this.jetImportsFactory = new JetImportsFactory();
-        this.needSyntheticCallResolverExtension = new NeedSyntheticCallResolverExtension();
         this.callExpressionResolver = new CallExpressionResolver();
         this.callResolver = new CallResolver();
         this.argumentTypeResolver = new ArgumentTypeResolver();
@@ -92,8 +99,6 @@ public class InjectorForLazyResolve {
         this.annotationResolver.setCallResolver(callResolver);
         this.annotationResolver.setExpressionTypingServices(expressionTypingServices);
 
-        this.jetImportsFactory.setProject(project);
-
         callExpressionResolver.setExpressionTypingServices(expressionTypingServices);
 
         callResolver.setArgumentTypeResolver(argumentTypeResolver);
@@ -107,6 +112,17 @@ public class InjectorForLazyResolve {
 
         candidateResolver.setArgumentTypeResolver(argumentTypeResolver);
 
+        descriptorResolverInitialized = true;
+    }
+    
+    private synchronized void initializeJetImportsFactory() {
+        if (jetImportsFactoryInitialized) return;
+        
+        this.jetImportsFactory = new JetImportsFactory();
+
+        this.jetImportsFactory.setProject(project);
+
+        jetImportsFactoryInitialized = true;
     }
     
     @PreDestroy
@@ -114,14 +130,23 @@ public class InjectorForLazyResolve {
     }
     
     public DescriptorResolver getDescriptorResolver() {
+        if (!descriptorResolverInitialized) {
+            initializeDescriptorResolver();
+        }
         return this.descriptorResolver;
     }
     
     public ExpressionTypingServices getExpressionTypingServices() {
+        if (!descriptorResolverInitialized) {
+            initializeDescriptorResolver();
+        }
         return this.expressionTypingServices;
     }
     
     public TypeResolver getTypeResolver() {
+        if (!descriptorResolverInitialized) {
+            initializeDescriptorResolver();
+        }
         return this.typeResolver;
     }
     
@@ -130,14 +155,23 @@ public class InjectorForLazyResolve {
     }
     
     public AnnotationResolver getAnnotationResolver() {
+        if (!descriptorResolverInitialized) {
+            initializeDescriptorResolver();
+        }
         return this.annotationResolver;
     }
     
     public QualifiedExpressionResolver getQualifiedExpressionResolver() {
+        if (!descriptorResolverInitialized) {
+            initializeDescriptorResolver();
+        }
         return this.qualifiedExpressionResolver;
     }
     
     public JetImportsFactory getJetImportsFactory() {
+        if (!jetImportsFactoryInitialized) {
+            initializeJetImportsFactory();
+        }
         return this.jetImportsFactory;
     }
     
@@ -16,17 +16,13 @@
 
 package org.jetbrains.jet.lang.cfg;
 
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
+import com.google.common.collect.*;
+import com.intellij.openapi.util.Pair;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.lang.cfg.pseudocode.*;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 import static org.jetbrains.jet.lang.cfg.PseudocodeTraverser.TraversalOrder.FORWARD;
 
@@ -78,15 +74,12 @@ public class PseudocodeTraverser {
 
         Map<Instruction, Edges<D>> edgesMap = Maps.newLinkedHashMap();
         initializeEdgesMap(pseudocode, lookInside, edgesMap, initialDataValue);
-        edgesMap.put(getStartInstruction(pseudocode, traversalOrder), Edges.create(initialDataValueForEnterInstruction, initialDataValueForEnterInstruction));
-
-        boolean[] changed = new boolean[1];
-        changed[0] = true;
-        while (changed[0]) {
-            changed[0] = false;
-            collectDataFromSubgraph(pseudocode, traversalOrder, lookInside, edgesMap, instructionDataMergeStrategy,
-                                    Collections.<Instruction>emptyList(), changed, false);
-        }
+        Instruction startInstruction = getStartInstruction(pseudocode, traversalOrder);
+        edgesMap.put(startInstruction, Edges.create(initialDataValueForEnterInstruction, initialDataValueForEnterInstruction));
+
+        DataFlowGraph graph = new DataFlowGraph(traversalOrder, lookInside);
+        graph.addSubgraph(pseudocode, Collections.<Instruction>emptyList(), false);
+        graph.solve(startInstruction, edgesMap, instructionDataMergeStrategy);
         return edgesMap;
     }
 
@@ -104,61 +97,141 @@ public class PseudocodeTraverser {
         }
     }
 
-    private static <D> void collectDataFromSubgraph(
-            @NotNull Pseudocode pseudocode, TraversalOrder traversalOrder,
-            LookInsideStrategy lookInside,
-            @NotNull Map<Instruction, Edges<D>> edgesMap,
-            @NotNull InstructionDataMergeStrategy<D> instructionDataMergeStrategy,
-            @NotNull Collection<Instruction> previousSubGraphInstructions,
-            boolean[] changed, boolean isLocal) {
-
-        List<Instruction> instructions = getInstructions(pseudocode, traversalOrder);
-        Instruction startInstruction = getStartInstruction(pseudocode, traversalOrder);
+    /**
+     * Dependencies between the data of instructions, with bodies of local declarations spliced in when they are looked inside:
+     * the start instruction of a body gets data from the instructions preceding the declaration,
+     * and the declaration instruction itself takes the data of the last instruction of the body.
+     */
+    private static class DataFlowGraph {
+        private final TraversalOrder traversalOrder;
+        private final LookInsideStrategy lookInside;
+
+        private final List<Instruction> nodes = Lists.newArrayList();
+        private final Map<Instruction, Collection<Instruction>> incoming = Maps.newHashMap();
+        private final Map<Instruction, Instruction> copiedFrom = Maps.newHashMap();
+        private final Multimap<Instruction, Instruction> dependents = ArrayListMultimap.create();
+
+        private DataFlowGraph(@NotNull TraversalOrder traversalOrder, @NotNull LookInsideStrategy lookInside) {
+            this.traversalOrder = traversalOrder;
+            this.lookInside = lookInside;
+        }
 
-        for (Instruction instruction : instructions) {
-            boolean isStart = isStartInstruction(instruction, traversalOrder);
-            if (!isLocal && isStart) continue;
+        private void addSubgraph(
+                @NotNull Pseudocode pseudocode,
+                @NotNull Collection<Instruction> previousSubGraphInstructions,
+                boolean isLocal
+        ) {
+            Instruction startInstruction = getStartInstruction(pseudocode, traversalOrder);
+            for (Instruction instruction : getInstructions(pseudocode, traversalOrder)) {
+                if (!isLocal && isStartInstruction(instruction, traversalOrder)) continue;
+
+                Collection<Instruction> previousInstructions = getPreviousInstruction(instruction, traversalOrder);
+                if (shouldLookInside(instruction, lookInside)) {
+                    Pseudocode subroutinePseudocode = ((LocalDeclarationInstruction) instruction).getBody();
+                    addSubgraph(subroutinePseudocode, previousInstructions, true);
+                    Instruction lastInstruction = getLastInstruction(subroutinePseudocode, traversalOrder);
+                    nodes.add(instruction);
+                    copiedFrom.put(instruction, lastInstruction);
+                    dependents.put(lastInstruction, instruction);
+                    continue;
+                }
 
-            Collection<Instruction> allPreviousInstructions;
-            Collection<Instruction> previousInstructions = getPreviousInstruction(instruction, traversalOrder);
+                Collection<Instruction> allPreviousInstructions = Lists.newArrayList(previousInstructions);
+                if (instruction == startInstruction) {
+                    allPreviousInstructions.addAll(previousSubGraphInstructions);
+                }
+                nodes.add(instruction);
+                incoming.put(instruction, allPreviousInstructions);
+                for (Instruction previousInstruction : allPreviousInstructions) {
+                    dependents.put(previousInstruction, instruction);
+                }
+            }
+        }
 
-            if (instruction == startInstruction && !previousSubGraphInstructions.isEmpty()) {
-                allPreviousInstructions = Lists.newArrayList(previousInstructions);
-                allPreviousInstructions.addAll(previousSubGraphInstructions);
+        /**
+         * Worklist solver: instructions are processed in reverse postorder of the flow graph,
+         * and an instruction is processed again only when data of one of its predecessors has changed.
+         */
+        private <D> void solve(
+                @NotNull Instruction startInstruction,
+                @NotNull Map<Instruction, Edges<D>> edgesMap,
+                @NotNull InstructionDataMergeStrategy<D> instructionDataMergeStrategy
+        ) {
+            List<Instruction> order = computeReversePostorder(startInstruction);
+            Map<Instruction, Integer> positions = Maps.newHashMap();
+            for (Instruction instruction : order) {
+                positions.put(instruction, positions.size());
             }
-            else {
-                allPreviousInstructions = previousInstructions;
+            // Unreachable instructions are processed after all the reachable ones, in the order of the pseudocode
+            for (Instruction instruction : nodes) {
+                if (!positions.containsKey(instruction)) {
+                    positions.put(instruction, order.size());
+                    order.add(instruction);
+                }
             }
 
-            if (shouldLookInside(instruction, lookInside)) {
-                Pseudocode subroutinePseudocode = ((LocalDeclarationInstruction) instruction).getBody();
-                collectDataFromSubgraph(subroutinePseudocode, traversalOrder, lookInside, edgesMap, instructionDataMergeStrategy,
-                                        previousInstructions,
-                                        changed, true);
-                Instruction lastInstruction = getLastInstruction(subroutinePseudocode, traversalOrder);
-                Edges<D> previousValue = edgesMap.get(instruction);
-                Edges<D> newValue = edgesMap.get(lastInstruction);
-                if (!previousValue.equals(newValue)) {
-                    changed[0] = true;
-                    edgesMap.put(instruction, newValue);
-                }
-                continue;
+            BitSet worklist = new BitSet(order.size());
+            for (Instruction node : nodes) {
+                worklist.set(positions.get(node));
             }
-            Edges<D> previousDataValue = edgesMap.get(instruction);
 
-            Collection<D> incomingEdgesData = Sets.newHashSet();
+            for (int position = worklist.nextSetBit(0); position >= 0; position = worklist.nextSetBit(0)) {
+                worklist.clear(position);
+                Instruction instruction = order.get(position);
 
-            for (Instruction previousInstruction : allPreviousInstructions) {
-                Edges<D> previousData = edgesMap.get(previousInstruction);
-                if (previousData != null) {
-                    incomingEdgesData.add(previousData.out);
+                Edges<D> newValue;
+                Instruction lastInstruction = copiedFrom.get(instruction);
+                if (lastInstruction != null) {
+                    newValue = edgesMap.get(lastInstruction);
+                }
+                else {
+                    Collection<D> incomingEdgesData = Lists.newArrayList();
+                    for (Instruction previousInstruction : incoming.get(instruction)) {
+                        Edges<D> previousData = edgesMap.get(previousInstruction);
+                        if (previousData != null) {
+                            incomingEdgesData.add(previousData.out);
+                        }
+                    }
+                    newValue = instructionDataMergeStrategy.execute(instruction, incomingEdgesData);
+                }
+
+                if (!newValue.equals(edgesMap.get(instruction))) {
+                    edgesMap.put(instruction, newValue);
+                    for (Instruction dependent : dependents.get(instruction)) {
+                        Integer dependentPosition = positions.get(dependent);
+                        if (dependentPosition != null) {
+                            worklist.set(dependentPosition);
+                        }
+                    }
                 }
             }
-            Edges<D> mergedData = instructionDataMergeStrategy.execute(instruction, incomingEdgesData);
-            if (!mergedData.equals(previousDataValue)) {
-                changed[0] = true;
-                edgesMap.put(instruction, mergedData);
+        }
+
+        @NotNull
+        private List<Instruction> computeReversePostorder(@NotNull Instruction startInstruction) {
+            // Iterative depth-first search, long functions would overflow the stack otherwise
+            List<Instruction> postorder = Lists.newArrayList();
+            Set<Instruction> visited = Sets.newHashSet();
+            Deque<Pair<Instruction, Iterator<Instruction>>> stack = new ArrayDeque<Pair<Instruction, Iterator<Instruction>>>();
+
+            visited.add(startInstruction);
+            stack.push(Pair.create(startInstruction, dependents.get(startInstruction).iterator()));
+            while (!stack.isEmpty()) {
+                Pair<Instruction, Iterator<Instruction>> top = stack.peek();
+                if (top.second.hasNext()) {
+                    Instruction next = top.second.next();
+                    if (visited.add(next)) {
+                        stack.push(Pair.create(next, dependents.get(next).iterator()));
+                    }
+                }
+                else {
+                    stack.pop();
+                    if (top.first != startInstruction) {
+                        postorder.add(top.first);
+                    }
+                }
             }
+            return Lists.newArrayList(Lists.reverse(postorder));
         }
     }
 
@@ -45,6 +45,7 @@ public class PseudocodeVariablesData {
     private final Map<Pseudocode, Set<VariableDescriptor>> declaredVariablesForDeclaration = Maps.newHashMap();
     private final Map<Pseudocode, Set<VariableDescriptor>> usedVariablesForDeclaration = Maps.newHashMap();
 
+    private VariableIndex variableIndex;
     private Map<Instruction, Edges<Map<VariableDescriptor, VariableInitState>>> variableInitializers;
 
     public PseudocodeVariablesData(@NotNull Pseudocode pseudocode, @NotNull BindingContext bindingContext) {
@@ -57,6 +58,28 @@ public class PseudocodeVariablesData {
         return pseudocode;
     }
 
+    @NotNull
+    private VariableIndex getVariableIndex() {
+        if (variableIndex == null) {
+            final VariableIndex index = new VariableIndex();
+            PseudocodeTraverser.traverse(pseudocode, FORWARD, new InstructionAnalyzeStrategy() {
+                @Override
+                public void execute(@NotNull Instruction instruction) {
+                    VariableDescriptor variable = PseudocodeUtil.extractVariableDescriptorIfAny(instruction, false, bindingContext);
+                    if (variable != null) {
+                        index.add(variable);
+                    }
+                    VariableDescriptor referencedVariable = PseudocodeUtil.extractVariableDescriptorIfAny(instruction, true, bindingContext);
+                    if (referencedVariable != null) {
+                        index.add(referencedVariable);
+                    }
+                }
+            });
+            variableIndex = index;
+        }
+        return variableIndex;
+    }
+
     @NotNull
     public Set<VariableDescriptor> getUsedVariables(@NotNull Pseudocode pseudocode) {
         Set<VariableDescriptor> usedVariables = usedVariablesForDeclaration.get(pseudocode);
@@ -124,31 +147,31 @@ public class PseudocodeVariablesData {
     @NotNull
     public Map<Instruction, Edges<Map<VariableDescriptor, VariableInitState>>> getVariableInitializers() {
         if (variableInitializers == null) {
-            variableInitializers = getVariableInitializers(pseudocode);
+            variableInitializers = asMapEdges(getVariableInitializers(pseudocode));
         }
 
         return variableInitializers;
     }
 
     @NotNull
-    private Map<Instruction, Edges<Map<VariableDescriptor, VariableInitState>>> getVariableInitializers(@NotNull Pseudocode pseudocode) {
+    private Map<Instruction, Edges<VariableInitStates>> getVariableInitializers(@NotNull Pseudocode pseudocode) {
 
         Set<VariableDescriptor> usedVariables = getUsedVariables(pseudocode);
         Set<VariableDescriptor> declaredVariables = getDeclaredVariables(pseudocode, false);
-        Map<VariableDescriptor, VariableInitState> initialMap = Collections.emptyMap();
-        Map<VariableDescriptor, VariableInitState> initialMapForStartInstruction = prepareInitializersMapForStartInstruction(
-                usedVariables, declaredVariables);
+        final VariableIndex index = getVariableIndex();
+        VariableInitStates initialMap = VariableInitStates.empty(index);
+        VariableInitStates initialMapForStartInstruction = VariableInitStates.create(
+                index, prepareInitializersMapForStartInstruction(usedVariables, declaredVariables));
 
-        Map<Instruction, Edges<Map<VariableDescriptor, VariableInitState>>> variableInitializersMap = PseudocodeTraverser.collectData(
+        Map<Instruction, Edges<VariableInitStates>> variableInitializersMap = PseudocodeTraverser.collectData(
                 pseudocode, FORWARD, SKIP_LOCAL_DECLARATIONS,
-                initialMap, initialMapForStartInstruction, new PseudocodeTraverser.InstructionDataMergeStrategy<Map<VariableDescriptor, VariableInitState>>() {
+                initialMap, initialMapForStartInstruction, new PseudocodeTraverser.InstructionDataMergeStrategy<VariableInitStates>() {
             @Override
-            public Edges<Map<VariableDescriptor, VariableInitState>> execute(
-                    @NotNull Instruction instruction, @NotNull Collection<Map<VariableDescriptor, VariableInitState>> incomingEdgesData) {
+            public Edges<VariableInitStates> execute(
+                    @NotNull Instruction instruction, @NotNull Collection<VariableInitStates> incomingEdgesData) {
 
-                Map<VariableDescriptor, VariableInitState> enterInstructionData = mergeIncomingEdgesDataForInitializers(incomingEdgesData);
-                Map<VariableDescriptor, VariableInitState> exitInstructionData =
-                        addVariableInitStateFromCurrentInstructionIfAny(instruction, enterInstructionData);
+                VariableInitStates enterInstructionData = VariableInitStates.merge(index, incomingEdgesData);
+                VariableInitStates exitInstructionData = addVariableInitStateFromCurrentInstructionIfAny(instruction, enterInstructionData);
                 return Edges.create(enterInstructionData, exitInstructionData);
             }
         });
@@ -156,7 +179,7 @@ public class PseudocodeVariablesData {
 
         for (LocalDeclarationInstruction localDeclarationInstruction : pseudocode.getLocalDeclarations()) {
             Pseudocode localPseudocode = localDeclarationInstruction.getBody();
-            Map<Instruction, Edges<Map<VariableDescriptor, VariableInitState>>> initializersForLocalDeclaration = getVariableInitializers(localPseudocode);
+            Map<Instruction, Edges<VariableInitStates>> initializersForLocalDeclaration = getVariableInitializers(localPseudocode);
 
             for (Instruction instruction : initializersForLocalDeclaration.keySet()) {
                 //todo
@@ -190,37 +213,8 @@ public class PseudocodeVariablesData {
     }
 
     @NotNull
-    private static Map<VariableDescriptor, VariableInitState> mergeIncomingEdgesDataForInitializers(
-            @NotNull Collection<Map<VariableDescriptor, VariableInitState>> incomingEdgesData) {
-
-        Set<VariableDescriptor> variablesInScope = Sets.newHashSet();
-        for (Map<VariableDescriptor, VariableInitState> edgeData : incomingEdgesData) {
-            variablesInScope.addAll(edgeData.keySet());
-        }
-
-        Map<VariableDescriptor, VariableInitState> enterInstructionData = Maps.newHashMap();
-        for (VariableDescriptor variable : variablesInScope) {
-            boolean isInitialized = true;
-            boolean isDeclared = true;
-            for (Map<VariableDescriptor, VariableInitState> edgeData : incomingEdgesData) {
-                VariableInitState initState = edgeData.get(variable);
-                if (initState != null) {
-                    if (!initState.isInitialized) {
-                        isInitialized = false;
-                    }
-                    if (!initState.isDeclared) {
-                        isDeclared = false;
-                    }
-                }
-            }
-            enterInstructionData.put(variable, VariableInitState.create(isInitialized, isDeclared));
-        }
-        return enterInstructionData;
-    }
-
-    @NotNull
-    private Map<VariableDescriptor, VariableInitState> addVariableInitStateFromCurrentInstructionIfAny(
-            @NotNull Instruction instruction, @NotNull Map<VariableDescriptor, VariableInitState> enterInstructionData) {
+    private VariableInitStates addVariableInitStateFromCurrentInstructionIfAny(
+            @NotNull Instruction instruction, @NotNull VariableInitStates enterInstructionData) {
 
         if (!(instruction instanceof WriteValueInstruction) && !(instruction instanceof VariableDeclarationInstruction)) {
             return enterInstructionData;
@@ -229,57 +223,45 @@ public class PseudocodeVariablesData {
         if (variable == null) {
             return enterInstructionData;
         }
-        Map<VariableDescriptor, VariableInitState> exitInstructionData = Maps.newHashMap(enterInstructionData);
+        VariableInitState enterInitState = enterInstructionData.get(variable);
         if (instruction instanceof WriteValueInstruction) {
-            VariableInitState enterInitState = enterInstructionData.get(variable);
             VariableInitState initializationAtThisElement =
                     VariableInitState.create(((WriteValueInstruction) instruction).getElement() instanceof JetProperty, enterInitState);
-            exitInstructionData.put(variable, initializationAtThisElement);
+            return enterInstructionData.with(variable, initializationAtThisElement.isInitialized, initializationAtThisElement.isDeclared);
         }
         else { // instruction instanceof VariableDeclarationInstruction
-            VariableInitState enterInitState = enterInstructionData.get(variable);
             if (enterInitState == null || !enterInitState.isInitialized || !enterInitState.isDeclared) {
                 boolean isInitialized = enterInitState != null && enterInitState.isInitialized;
-                VariableInitState variableDeclarationInfo = VariableInitState.create(isInitialized, true);
-                exitInstructionData.put(variable, variableDeclarationInfo);
+                return enterInstructionData.with(variable, isInitialized, true);
             }
+            return enterInstructionData;
         }
-        return exitInstructionData;
     }
 
 // variable use
 
     @NotNull
     public Map<Instruction, Edges<Map<VariableDescriptor, VariableUseState>>> getVariableUseStatusData() {
-        Map<VariableDescriptor, VariableUseState> sinkInstructionData = Maps.newHashMap();
-        for (VariableDescriptor usedVariable : getUsedVariables(pseudocode)) {
-            sinkInstructionData.put(usedVariable, VariableUseState.UNUSED);
-        }
-        InstructionDataMergeStrategy<Map<VariableDescriptor, VariableUseState>> collectVariableUseStatusStrategy =
-                new InstructionDataMergeStrategy<Map<VariableDescriptor, VariableUseState>>() {
+        final VariableIndex index = getVariableIndex();
+        VariableUseStates sinkInstructionData = VariableUseStates.unused(index);
+        InstructionDataMergeStrategy<VariableUseStates> collectVariableUseStatusStrategy =
+                new InstructionDataMergeStrategy<VariableUseStates>() {
                     @Override
-                    public Edges<Map<VariableDescriptor, VariableUseState>> execute(
+                    public Edges<VariableUseStates> execute(
                             @NotNull Instruction instruction,
-                            @NotNull Collection<Map<VariableDescriptor, VariableUseState>> incomingEdgesData
+                            @NotNull Collection<VariableUseStates> incomingEdgesData
                     ) {
 
-                        Map<VariableDescriptor, VariableUseState> enterResult = Maps.newHashMap();
-                        for (Map<VariableDescriptor, VariableUseState> edgeData : incomingEdgesData) {
-                            for (Map.Entry<VariableDescriptor, VariableUseState> entry : edgeData.entrySet()) {
-                                VariableDescriptor variableDescriptor = entry.getKey();
-                                VariableUseState variableUseState = entry.getValue();
-                                enterResult.put(variableDescriptor, variableUseState.merge(enterResult.get(variableDescriptor)));
-                            }
-                        }
+                        VariableUseStates enterResult = VariableUseStates.merge(index, incomingEdgesData);
                         VariableDescriptor variableDescriptor = PseudocodeUtil.extractVariableDescriptorIfAny(instruction, true,
                                                                                                               bindingContext);
                         if (variableDescriptor == null ||
                             (!(instruction instanceof ReadValueInstruction) && !(instruction instanceof WriteValueInstruction))) {
                             return Edges.create(enterResult, enterResult);
                         }
-                        Map<VariableDescriptor, VariableUseState> exitResult = Maps.newHashMap(enterResult);
+                        VariableUseStates exitResult;
                         if (instruction instanceof ReadValueInstruction) {
-                            exitResult.put(variableDescriptor, VariableUseState.LAST_READ);
+                            exitResult = enterResult.with(variableDescriptor, VariableUseState.LAST_READ);
                         }
                         else { //instruction instanceof WriteValueInstruction
                             VariableUseState variableUseState = enterResult.get(variableDescriptor);
@@ -289,19 +271,31 @@ public class PseudocodeVariablesData {
                             switch (variableUseState) {
                                 case UNUSED:
                                 case ONLY_WRITTEN_NEVER_READ:
-                                    exitResult.put(variableDescriptor, VariableUseState.ONLY_WRITTEN_NEVER_READ);
+                                    exitResult = enterResult.with(variableDescriptor, VariableUseState.ONLY_WRITTEN_NEVER_READ);
                                     break;
-                                case LAST_WRITTEN:
-                                case LAST_READ:
-                                    exitResult.put(variableDescriptor, VariableUseState.LAST_WRITTEN);
+                                default: // LAST_WRITTEN, LAST_READ
+                                    exitResult = enterResult.with(variableDescriptor, VariableUseState.LAST_WRITTEN);
                             }
                         }
                         return Edges.create(enterResult, exitResult);
                     }
                 };
-        return PseudocodeTraverser.collectData(pseudocode, BACKWARD, ANALYSE_LOCAL_DECLARATIONS,
-                                               Collections.<VariableDescriptor, VariableUseState>emptyMap(),
-                                               sinkInstructionData, collectVariableUseStatusStrategy);
+        return asMapEdges(PseudocodeTraverser.collectData(pseudocode, BACKWARD, ANALYSE_LOCAL_DECLARATIONS,
+                                                          VariableUseStates.unused(index),
+                                                          sinkInstructionData, collectVariableUseStatusStrategy));
+    }
+
+    // The analysis works on the bit vector states, callers see them as plain maps
+    @NotNull
+    private static <S> Map<Instruction, Edges<Map<VariableDescriptor, S>>> asMapEdges(
+            @NotNull Map<Instruction, ? extends Edges<? extends Map<VariableDescriptor, S>>> data
+    ) {
+        Map<Instruction, Edges<Map<VariableDescriptor, S>>> result = Maps.newLinkedHashMap();
+        for (Map.Entry<Instruction, ? extends Edges<? extends Map<VariableDescriptor, S>>> entry : data.entrySet()) {
+            Edges<? extends Map<VariableDescriptor, S>> edges = entry.getValue();
+            result.put(entry.getKey(), Edges.<Map<VariableDescriptor, S>>create(edges.in, edges.out));
+        }
+        return result;
     }
 
     public static class VariableInitState {
@@ -319,7 +313,7 @@ public class PseudocodeVariablesData {
         private static final VariableInitState VS_FF = new VariableInitState(false, false);
 
 
-        private static VariableInitState create(boolean isInitialized, boolean isDeclared) {
+        /*package*/ static VariableInitState create(boolean isInitialized, boolean isDeclared) {
             if (isInitialized) {
                 if (isDeclared) return VS_TT;
                 return VS_TF;
@@ -338,21 +332,10 @@ public class PseudocodeVariablesData {
     }
 
     public static enum VariableUseState {
-        LAST_READ(3),
-        LAST_WRITTEN(2),
-        ONLY_WRITTEN_NEVER_READ(1),
-        UNUSED(0);
-
-        private final int importance;
-
-        VariableUseState(int importance) {
-            this.importance = importance;
-        }
-
-        private VariableUseState merge(@Nullable VariableUseState variableUseState) {
-            if (variableUseState == null || importance > variableUseState.importance) return this;
-            return variableUseState;
-        }
+        LAST_READ,
+        LAST_WRITTEN,
+        ONLY_WRITTEN_NEVER_READ,
+        UNUSED;
 
         public static boolean isUsed(@Nullable VariableUseState variableUseState) {
             return variableUseState != null && variableUseState != UNUSED;
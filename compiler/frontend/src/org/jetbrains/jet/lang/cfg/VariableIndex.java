@@ -0,0 +1,55 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.lang.cfg;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.lang.descriptors.VariableDescriptor;
+
+import java.util.*;
+
+/**
+ * Numbers the variables of a pseudocode, so that dataflow states can be stored as bit sets indexed by these numbers.
+ */
+/*package*/ final class VariableIndex {
+    private final Map<VariableDescriptor, Integer> indices = new HashMap<VariableDescriptor, Integer>();
+    private final List<VariableDescriptor> variables = new ArrayList<VariableDescriptor>();
+
+    /*package*/ void add(@NotNull VariableDescriptor variable) {
+        if (!indices.containsKey(variable)) {
+            indices.put(variable, variables.size());
+            variables.add(variable);
+        }
+    }
+
+    /**
+     * @return number of the variable, or -1 if it does not occur in the pseudocode
+     */
+    /*package*/ int indexOf(@NotNull Object variable) {
+        Integer index = indices.get(variable);
+        return index != null ? index : -1;
+    }
+
+    @NotNull
+    /*package*/ VariableDescriptor get(int index) {
+        return variables.get(index);
+    }
+
+    /*package*/ int size() {
+        return variables.size();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.lang.cfg;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.cfg.PseudocodeVariablesData.VariableInitState;
+import org.jetbrains.jet.lang.descriptors.VariableDescriptor;
+
+import java.util.*;
+
+/**
+ * Immutable initialization states of all the variables of a pseudocode at some point of control flow.
+ *
+ * A variable absent from the map has all its bits cleared. For present variables the negated flags are stored,
+ * so that merging states of several incoming edges is a plain union of the bit sets.
+ */
+/*package*/ final class VariableInitStates extends AbstractMap<VariableDescriptor, VariableInitState> {
+    private final VariableIndex index;
+    private final BitSet present;
+    private final BitSet notInitialized;
+    private final BitSet notDeclared;
+
+    private VariableInitStates(@NotNull VariableIndex index, @NotNull BitSet present, @NotNull BitSet notInitialized, @NotNull BitSet notDeclared) {
+        this.index = index;
+        this.present = present;
+        this.notInitialized = notInitialized;
+        this.notDeclared = notDeclared;
+    }
+
+    @NotNull
+    /*package*/ static VariableInitStates empty(@NotNull VariableIndex index) {
+        return new VariableInitStates(index, new BitSet(), new BitSet(), new BitSet());
+    }
+
+    @NotNull
+    /*package*/ static VariableInitStates create(@NotNull VariableIndex index, @NotNull Map<VariableDescriptor, VariableInitState> states) {
+        BitSet present = new BitSet();
+        BitSet notInitialized = new BitSet();
+        BitSet notDeclared = new BitSet();
+        for (Map.Entry<VariableDescriptor, VariableInitState> entry : states.entrySet()) {
+            int i = indexOf(index, entry.getKey());
+            present.set(i);
+            notInitialized.set(i, !entry.getValue().isInitialized);
+            notDeclared.set(i, !entry.getValue().isDeclared);
+        }
+        return new VariableInitStates(index, present, notInitialized, notDeclared);
+    }
+
+    @NotNull
+    /*package*/ static VariableInitStates merge(
+            @NotNull VariableIndex index,
+            @NotNull Collection<VariableInitStates> incomingEdgesData
+    ) {
+        if (incomingEdgesData.size() == 1) {
+            return incomingEdgesData.iterator().next();
+        }
+        BitSet present = new BitSet();
+        BitSet notInitialized = new BitSet();
+        BitSet notDeclared = new BitSet();
+        for (VariableInitStates states : incomingEdgesData) {
+            present.or(states.present);
+            notInitialized.or(states.notInitialized);
+            notDeclared.or(states.notDeclared);
+        }
+        return new VariableInitStates(index, present, notInitialized, notDeclared);
+    }
+
+    @NotNull
+    /*package*/ VariableInitStates with(@NotNull VariableDescriptor variable, boolean isInitialized, boolean isDeclared) {
+        int i = indexOf(index, variable);
+        if (present.get(i) && notInitialized.get(i) != isInitialized && notDeclared.get(i) != isDeclared) {
+            return this;
+        }
+        BitSet newPresent = (BitSet) present.clone();
+        BitSet newNotInitialized = (BitSet) notInitialized.clone();
+        BitSet newNotDeclared = (BitSet) notDeclared.clone();
+        newPresent.set(i);
+        newNotInitialized.set(i, !isInitialized);
+        newNotDeclared.set(i, !isDeclared);
+        return new VariableInitStates(index, newPresent, newNotInitialized, newNotDeclared);
+    }
+
+    private static int indexOf(@NotNull VariableIndex index, @NotNull VariableDescriptor variable) {
+        int i = index.indexOf(variable);
+        assert i >= 0 : "Variable is not indexed: " + variable;
+        return i;
+    }
+
+    @Nullable
+    @Override
+    public VariableInitState get(Object key) {
+        int i = index.indexOf(key);
+        if (i < 0 || !present.get(i)) return null;
+        return VariableInitState.create(!notInitialized.get(i), !notDeclared.get(i));
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int i = index.indexOf(key);
+        return i >= 0 && present.get(i);
+    }
+
+    @Override
+    public int size() {
+        return present.cardinality();
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<VariableDescriptor, VariableInitState>> entrySet() {
+        Set<Entry<VariableDescriptor, VariableInitState>> entries = new LinkedHashSet<Entry<VariableDescriptor, VariableInitState>>();
+        for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+            VariableInitState state = VariableInitState.create(!notInitialized.get(i), !notDeclared.get(i));
+            entries.add(new SimpleImmutableEntry<VariableDescriptor, VariableInitState>(index.get(i), state));
+        }
+        return Collections.unmodifiableSet(entries);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof VariableInitStates)) return super.equals(o);
+
+        VariableInitStates other = (VariableInitStates) o;
+        return present.equals(other.present) && notInitialized.equals(other.notInitialized) && notDeclared.equals(other.notDeclared);
+    }
+
+    @Override
+    public int hashCode() {
+        // Same value as AbstractMap computes, but without creating the entries
+        int result = 0;
+        for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+            result += index.get(i).hashCode() ^ VariableInitState.create(!notInitialized.get(i), !notDeclared.get(i)).hashCode();
+        }
+        return result;
+    }
+}
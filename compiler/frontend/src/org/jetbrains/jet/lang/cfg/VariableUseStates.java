@@ -0,0 +1,140 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.lang.cfg;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.cfg.PseudocodeVariablesData.VariableUseState;
+import org.jetbrains.jet.lang.descriptors.VariableDescriptor;
+
+import java.util.*;
+
+/**
+ * Immutable use states of all the variables of a pseudocode at some point of control flow.
+ *
+ * States are ordered as UNUSED < ONLY_WRITTEN_NEVER_READ < LAST_WRITTEN < LAST_READ, and merging several incoming edges
+ * takes the greatest one. A state is stored as a thermometer code (one bit per level above UNUSED),
+ * so that merging is a plain union of the bit sets.
+ */
+/*package*/ final class VariableUseStates extends AbstractMap<VariableDescriptor, VariableUseState> {
+    private final VariableIndex index;
+    private final BitSet writtenOrRead;
+    private final BitSet lastWrittenOrRead;
+    private final BitSet lastRead;
+
+    private VariableUseStates(@NotNull VariableIndex index, @NotNull BitSet writtenOrRead, @NotNull BitSet lastWrittenOrRead, @NotNull BitSet lastRead) {
+        this.index = index;
+        this.writtenOrRead = writtenOrRead;
+        this.lastWrittenOrRead = lastWrittenOrRead;
+        this.lastRead = lastRead;
+    }
+
+    @NotNull
+    /*package*/ static VariableUseStates unused(@NotNull VariableIndex index) {
+        return new VariableUseStates(index, new BitSet(), new BitSet(), new BitSet());
+    }
+
+    @NotNull
+    /*package*/ static VariableUseStates merge(
+            @NotNull VariableIndex index,
+            @NotNull Collection<VariableUseStates> incomingEdgesData
+    ) {
+        if (incomingEdgesData.size() == 1) {
+            return incomingEdgesData.iterator().next();
+        }
+        BitSet writtenOrRead = new BitSet();
+        BitSet lastWrittenOrRead = new BitSet();
+        BitSet lastRead = new BitSet();
+        for (VariableUseStates states : incomingEdgesData) {
+            writtenOrRead.or(states.writtenOrRead);
+            lastWrittenOrRead.or(states.lastWrittenOrRead);
+            lastRead.or(states.lastRead);
+        }
+        return new VariableUseStates(index, writtenOrRead, lastWrittenOrRead, lastRead);
+    }
+
+    @NotNull
+    /*package*/ VariableUseStates with(@NotNull VariableDescriptor variable, @NotNull VariableUseState state) {
+        int i = index.indexOf(variable);
+        assert i >= 0 : "Variable is not indexed: " + variable;
+        if (getState(i) == state) {
+            return this;
+        }
+        BitSet newWrittenOrRead = (BitSet) writtenOrRead.clone();
+        BitSet newLastWrittenOrRead = (BitSet) lastWrittenOrRead.clone();
+        BitSet newLastRead = (BitSet) lastRead.clone();
+        newWrittenOrRead.set(i, state != VariableUseState.UNUSED);
+        newLastWrittenOrRead.set(i, state == VariableUseState.LAST_WRITTEN || state == VariableUseState.LAST_READ);
+        newLastRead.set(i, state == VariableUseState.LAST_READ);
+        return new VariableUseStates(index, newWrittenOrRead, newLastWrittenOrRead, newLastRead);
+    }
+
+    @NotNull
+    private VariableUseState getState(int i) {
+        if (lastRead.get(i)) return VariableUseState.LAST_READ;
+        if (lastWrittenOrRead.get(i)) return VariableUseState.LAST_WRITTEN;
+        if (writtenOrRead.get(i)) return VariableUseState.ONLY_WRITTEN_NEVER_READ;
+        return VariableUseState.UNUSED;
+    }
+
+    @Nullable
+    @Override
+    public VariableUseState get(Object key) {
+        int i = index.indexOf(key);
+        return i >= 0 ? getState(i) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return index.indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<VariableDescriptor, VariableUseState>> entrySet() {
+        Set<Entry<VariableDescriptor, VariableUseState>> entries = new LinkedHashSet<Entry<VariableDescriptor, VariableUseState>>();
+        for (int i = 0; i < index.size(); i++) {
+            entries.add(new SimpleImmutableEntry<VariableDescriptor, VariableUseState>(index.get(i), getState(i)));
+        }
+        return Collections.unmodifiableSet(entries);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof VariableUseStates)) return super.equals(o);
+
+        VariableUseStates other = (VariableUseStates) o;
+        return writtenOrRead.equals(other.writtenOrRead) && lastWrittenOrRead.equals(other.lastWrittenOrRead) && lastRead.equals(other.lastRead);
+    }
+
+    @Override
+    public int hashCode() {
+        // Same value as AbstractMap computes, but without creating the entries
+        int result = 0;
+        for (int i = 0; i < index.size(); i++) {
+            result += index.get(i).hashCode() ^ getState(i).hashCode();
+        }
+        return result;
+    }
+}
@@ -207,6 +207,9 @@ public class ResolveSessionUtils {
                     NamespaceDescriptor packageDescriptor = resolveSession.getPackageDescriptorByFqName(fqName);
                     assert packageDescriptor != null: "Package descriptor should be present in session for " + fqName;
                     trace.record(BindingContext.REFERENCE_TARGET, packageNameExpression, packageDescriptor);
+                    if (packageDescriptor instanceof LazyPackageDescriptor) {
+                        ((LazyPackageDescriptor) packageDescriptor).recordDeclaration();
+                    }
                 }
             }
         }
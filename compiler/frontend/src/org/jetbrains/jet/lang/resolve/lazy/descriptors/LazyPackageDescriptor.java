@@ -17,7 +17,9 @@
 package org.jetbrains.jet.lang.resolve.lazy.descriptors;
 
 import com.google.common.collect.Iterables;
+import com.intellij.openapi.util.Computable;
 import com.intellij.psi.NavigatablePsiElement;
+import com.intellij.util.Consumer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jet.lang.descriptors.NamespaceDescriptor;
 import org.jetbrains.jet.lang.descriptors.annotations.AnnotationDescriptor;
@@ -29,6 +31,7 @@ import org.jetbrains.jet.lang.resolve.lazy.ForceResolveUtil;
 import org.jetbrains.jet.lang.resolve.lazy.LazyDescriptor;
 import org.jetbrains.jet.lang.resolve.lazy.ResolveSession;
 import org.jetbrains.jet.lang.resolve.lazy.declarations.PackageMemberDeclarationProvider;
+import org.jetbrains.jet.lang.resolve.lazy.storage.NullableLazyValue;
 import org.jetbrains.jet.lang.resolve.name.FqName;
 import org.jetbrains.jet.lang.resolve.name.Name;
 import org.jetbrains.jet.lang.resolve.scopes.*;
@@ -38,12 +41,13 @@ import java.util.Collections;
 public class LazyPackageDescriptor extends AbstractNamespaceDescriptorImpl implements LazyDescriptor, NamespaceDescriptor {
     private final JetScope memberScope;
     private final JetScope lazyScope;
+    private final NullableLazyValue<NavigatablePsiElement> declaration;
 
     public LazyPackageDescriptor(
             @NotNull NamespaceDescriptorParent containingDeclaration,
             @NotNull Name name,
-            @NotNull ResolveSession resolveSession,
-            @NotNull PackageMemberDeclarationProvider declarationProvider
+            @NotNull final ResolveSession resolveSession,
+            @NotNull final PackageMemberDeclarationProvider declarationProvider
     ) {
         super(containingDeclaration, Collections.<AnnotationDescriptor>emptyList(), name);
 
@@ -55,10 +59,29 @@ public class LazyPackageDescriptor extends AbstractNamespaceDescriptorImpl imple
 
         this.memberScope = new ChainedScope(this, "Lazy package members scope: " + name, lazyScope, scope);
 
-        NavigatablePsiElement declaration = Iterables.getFirst(declarationProvider.getPackageDeclarations(getFqName()), null);
-        if (declaration != null) {
-            resolveSession.getTrace().record(BindingContext.NAMESPACE, declaration, this);
-        }
+        // Finding the declarations of a package may require parsing files, so it's done only when they are asked for
+        this.declaration = resolveSession.getStorageManager().createNullableLazyValueWithPostCompute(
+                new Computable<NavigatablePsiElement>() {
+                    @Override
+                    public NavigatablePsiElement compute() {
+                        return Iterables.getFirst(declarationProvider.getPackageDeclarations(getFqName()), null);
+                    }
+                },
+                new Consumer<NavigatablePsiElement>() {
+                    @Override
+                    public void consume(NavigatablePsiElement declaration) {
+                        if (declaration != null) {
+                            resolveSession.getTrace().record(BindingContext.NAMESPACE, declaration, LazyPackageDescriptor.this);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Writes the declaration of this package to the trace, if it has one
+     */
+    public void recordDeclaration() {
+        declaration.compute();
     }
 
     @NotNull
@@ -80,6 +103,7 @@ public class LazyPackageDescriptor extends AbstractNamespaceDescriptorImpl imple
 
     @Override
     public void forceResolveAllContents() {
+        recordDeclaration();
         ForceResolveUtil.forceResolveAllContents(lazyScope);
     }
 }
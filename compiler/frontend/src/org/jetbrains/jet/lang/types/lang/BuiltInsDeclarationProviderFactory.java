@@ -0,0 +1,237 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.lang.types.lang;
+
+import com.intellij.openapi.util.Computable;
+import com.intellij.psi.NavigatablePsiElement;
+import com.intellij.util.Function;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.psi.*;
+import org.jetbrains.jet.lang.resolve.lazy.data.JetClassLikeInfo;
+import org.jetbrains.jet.lang.resolve.lazy.declarations.*;
+import org.jetbrains.jet.lang.resolve.lazy.storage.MemoizedFunctionToNotNull;
+import org.jetbrains.jet.lang.resolve.lazy.storage.NotNullLazyValue;
+import org.jetbrains.jet.lang.resolve.lazy.storage.StorageManager;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.Name;
+
+import java.util.*;
+
+/**
+ * Provides declarations of the built-ins package parsing a source file only when the index says
+ * it declares something that has been asked for.
+ */
+/*package*/ class BuiltInsDeclarationProviderFactory implements DeclarationProviderFactory {
+    private final StorageManager storageManager;
+    private final BuiltInsIndex index;
+    private final MemoizedFunctionToNotNull<String, FileDeclarationProvider> fileProviders;
+
+    private final PackageMemberDeclarationProvider rootPackageProvider = new RootPackageDeclarationProvider();
+    private final PackageMemberDeclarationProvider builtInsPackageProvider;
+
+    public BuiltInsDeclarationProviderFactory(
+            @NotNull StorageManager storageManager,
+            @NotNull BuiltInsIndex index,
+            @NotNull Function<String, JetFile> fileLoader
+    ) {
+        this.storageManager = storageManager;
+        this.index = index;
+        this.fileProviders = storageManager.createMemoizedFunction(new Function<String, FileDeclarationProvider>() {
+            @Override
+            public FileDeclarationProvider fun(String path) {
+                return new FileDeclarationProvider(BuiltInsDeclarationProviderFactory.this.storageManager, fileLoader.fun(path));
+            }
+        }, StorageManager.ReferenceKind.STRONG);
+        this.builtInsPackageProvider = new BuiltInsPackageDeclarationProvider();
+    }
+
+    @NotNull
+    @Override
+    public ClassMemberDeclarationProvider getClassMemberDeclarationProvider(@NotNull JetClassLikeInfo classLikeInfo) {
+        if (!KotlinBuiltIns.BUILT_INS_PACKAGE_FQ_NAME.equals(classLikeInfo.getContainingPackageFqName())) {
+            throw new IllegalStateException("This factory doesn't know about this class: " + classLikeInfo);
+        }
+        return new PsiBasedClassMemberDeclarationProvider(storageManager, classLikeInfo);
+    }
+
+    @Nullable
+    @Override
+    public PackageMemberDeclarationProvider getPackageMemberDeclarationProvider(@NotNull FqName packageFqName) {
+        if (packageFqName.isRoot()) {
+            return rootPackageProvider;
+        }
+        if (KotlinBuiltIns.BUILT_INS_PACKAGE_FQ_NAME.equals(packageFqName)) {
+            return builtInsPackageProvider;
+        }
+        return null;
+    }
+
+    @NotNull
+    private List<JetFile> getAllFiles() {
+        List<JetFile> files = new ArrayList<JetFile>();
+        for (String path : index.getFiles()) {
+            files.add(fileProviders.fun(path).file);
+        }
+        return files;
+    }
+
+    @NotNull
+    private Collection<NavigatablePsiElement> getPackageDeclarations(@NotNull FqName fqName) {
+        if (!KotlinBuiltIns.BUILT_INS_PACKAGE_FQ_NAME.equals(fqName)) {
+            return Collections.emptyList();
+        }
+        Collection<NavigatablePsiElement> result = new ArrayList<NavigatablePsiElement>();
+        for (JetFile file : getAllFiles()) {
+            result.add(JetPsiUtil.getPackageReference(file, 0));
+        }
+        return result;
+    }
+
+    private static class FileDeclarationProvider extends AbstractPsiBasedDeclarationProvider {
+        private final JetFile file;
+
+        public FileDeclarationProvider(@NotNull StorageManager storageManager, @NotNull JetFile file) {
+            super(storageManager);
+            this.file = file;
+        }
+
+        @Override
+        protected void doCreateIndex(@NotNull Index index) {
+            for (JetDeclaration declaration : file.getDeclarations()) {
+                index.putToIndex(declaration);
+            }
+        }
+    }
+
+    private class BuiltInsPackageDeclarationProvider implements PackageMemberDeclarationProvider {
+        private final NotNullLazyValue<List<JetDeclaration>> allDeclarations = storageManager.createLazyValue(
+                new Computable<List<JetDeclaration>>() {
+                    @Override
+                    public List<JetDeclaration> compute() {
+                        List<JetDeclaration> result = new ArrayList<JetDeclaration>();
+                        for (String path : index.getFiles()) {
+                            result.addAll(fileProviders.fun(path).getAllDeclarations());
+                        }
+                        return result;
+                    }
+                });
+
+        @Override
+        public boolean isPackageDeclared(@NotNull Name name) {
+            return false;
+        }
+
+        @Override
+        public Collection<FqName> getAllDeclaredPackages() {
+            return Collections.emptyList();
+        }
+
+        @NotNull
+        @Override
+        public Collection<NavigatablePsiElement> getPackageDeclarations(FqName fqName) {
+            return BuiltInsDeclarationProviderFactory.this.getPackageDeclarations(fqName);
+        }
+
+        @Override
+        public List<JetDeclaration> getAllDeclarations() {
+            return allDeclarations.compute();
+        }
+
+        @NotNull
+        @Override
+        public Collection<JetNamedFunction> getFunctionDeclarations(@NotNull Name name) {
+            List<JetNamedFunction> result = new ArrayList<JetNamedFunction>();
+            for (String path : index.getFilesDeclaringFunction(name)) {
+                result.addAll(fileProviders.fun(path).getFunctionDeclarations(name));
+            }
+            return result;
+        }
+
+        @NotNull
+        @Override
+        public Collection<JetProperty> getPropertyDeclarations(@NotNull Name name) {
+            List<JetProperty> result = new ArrayList<JetProperty>();
+            for (String path : index.getFilesDeclaringProperty(name)) {
+                result.addAll(fileProviders.fun(path).getPropertyDeclarations(name));
+            }
+            return result;
+        }
+
+        @NotNull
+        @Override
+        public Collection<JetClassOrObject> getClassOrObjectDeclarations(@NotNull Name name) {
+            List<JetClassOrObject> result = new ArrayList<JetClassOrObject>();
+            for (String path : index.getFilesDeclaringClass(name)) {
+                result.addAll(fileProviders.fun(path).getClassOrObjectDeclarations(name));
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "Indexed declarations for package " + KotlinBuiltIns.BUILT_INS_PACKAGE_FQ_NAME;
+        }
+    }
+
+    private class RootPackageDeclarationProvider implements PackageMemberDeclarationProvider {
+        @Override
+        public boolean isPackageDeclared(@NotNull Name name) {
+            return KotlinBuiltIns.BUILT_INS_PACKAGE_FQ_NAME.shortName().equals(name);
+        }
+
+        @Override
+        public Collection<FqName> getAllDeclaredPackages() {
+            return Collections.singletonList(KotlinBuiltIns.BUILT_INS_PACKAGE_FQ_NAME);
+        }
+
+        @NotNull
+        @Override
+        public Collection<NavigatablePsiElement> getPackageDeclarations(FqName fqName) {
+            return BuiltInsDeclarationProviderFactory.this.getPackageDeclarations(fqName);
+        }
+
+        @Override
+        public List<JetDeclaration> getAllDeclarations() {
+            return Collections.emptyList();
+        }
+
+        @NotNull
+        @Override
+        public Collection<JetNamedFunction> getFunctionDeclarations(@NotNull Name name) {
+            return Collections.emptyList();
+        }
+
+        @NotNull
+        @Override
+        public Collection<JetProperty> getPropertyDeclarations(@NotNull Name name) {
+            return Collections.emptyList();
+        }
+
+        @NotNull
+        @Override
+        public Collection<JetClassOrObject> getClassOrObjectDeclarations(@NotNull Name name) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public String toString() {
+            return "Declarations for root package of built-ins";
+        }
+    }
+}
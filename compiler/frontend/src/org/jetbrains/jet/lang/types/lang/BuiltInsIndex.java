@@ -0,0 +1,184 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.lang.types.lang;
+
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Multimap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.psi.JetClassOrObject;
+import org.jetbrains.jet.lang.psi.JetDeclaration;
+import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.psi.JetNamedFunction;
+import org.jetbrains.jet.lang.psi.JetProperty;
+import org.jetbrains.jet.lang.resolve.name.Name;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.zip.CRC32;
+
+import static org.jetbrains.jet.lang.resolve.lazy.ResolveSessionUtils.safeNameForLazyResolve;
+
+/**
+ * Names of the top-level declarations of every built-ins source file, precomputed at build time
+ * (see GenerateBuiltInsIndex) so that only the files actually needed by resolve are parsed.
+ * Checksums of the file texts are stored only to make the index change together with the sources;
+ * they are never computed at run time.
+ */
+public final class BuiltInsIndex {
+    public static final String RESOURCE_PATH = KotlinBuiltIns.BUILT_INS_DIR + "/builtins.index";
+
+    private static final int VERSION = 1;
+
+    private final List<String> files = new ArrayList<String>();
+    private final Map<String, Long> checksums = new HashMap<String, Long>();
+    private final Multimap<Name, String> classes = LinkedHashMultimap.create();
+    private final Multimap<Name, String> functions = LinkedHashMultimap.create();
+    private final Multimap<Name, String> properties = LinkedHashMultimap.create();
+
+    private BuiltInsIndex() {
+    }
+
+    @NotNull
+    public static BuiltInsIndex compute(@NotNull List<String> paths, @NotNull List<JetFile> files) {
+        assert paths.size() == files.size() : "Every file should have a path: " + paths + ", " + files;
+        BuiltInsIndex index = new BuiltInsIndex();
+        for (int i = 0; i < paths.size(); i++) {
+            String path = paths.get(i);
+            JetFile file = files.get(i);
+            index.files.add(path);
+            index.checksums.put(path, checksum(file.getText()));
+            for (JetDeclaration declaration : file.getDeclarations()) {
+                if (declaration instanceof JetClassOrObject) {
+                    index.classes.put(safeNameForLazyResolve(((JetClassOrObject) declaration).getNameAsName()), path);
+                }
+                else if (declaration instanceof JetNamedFunction) {
+                    index.functions.put(safeNameForLazyResolve((JetNamedFunction) declaration), path);
+                }
+                else if (declaration instanceof JetProperty) {
+                    index.properties.put(safeNameForLazyResolve((JetProperty) declaration), path);
+                }
+            }
+        }
+        return index;
+    }
+
+    @Nullable
+    public static BuiltInsIndex loadFromResources() throws IOException {
+        InputStream stream = KotlinBuiltIns.class.getClassLoader().getResourceAsStream(RESOURCE_PATH);
+        if (stream == null) {
+            return null;
+        }
+        try {
+            return read(new DataInputStream(new BufferedInputStream(stream)));
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    @Nullable
+    private static BuiltInsIndex read(@NotNull DataInputStream in) throws IOException {
+        if (in.readInt() != VERSION) {
+            return null;
+        }
+        BuiltInsIndex index = new BuiltInsIndex();
+        int fileCount = in.readInt();
+        for (int i = 0; i < fileCount; i++) {
+            String path = in.readUTF();
+            index.files.add(path);
+            index.checksums.put(path, in.readLong());
+            readNames(in, path, index.classes);
+            readNames(in, path, index.functions);
+            readNames(in, path, index.properties);
+        }
+        return index;
+    }
+
+    private static void readNames(@NotNull DataInputStream in, @NotNull String path, @NotNull Multimap<Name, String> names)
+            throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            names.put(Name.guess(in.readUTF()), path);
+        }
+    }
+
+    @NotNull
+    public byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(VERSION);
+            out.writeInt(files.size());
+            for (String path : files) {
+                out.writeUTF(path);
+                out.writeLong(checksums.get(path));
+                writeNames(out, path, classes);
+                writeNames(out, path, functions);
+                writeNames(out, path, properties);
+            }
+            out.close();
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeNames(@NotNull DataOutputStream out, @NotNull String path, @NotNull Multimap<Name, String> names)
+            throws IOException {
+        List<Name> declaredInFile = new ArrayList<Name>();
+        for (Map.Entry<Name, String> entry : names.entries()) {
+            if (entry.getValue().equals(path)) {
+                declaredInFile.add(entry.getKey());
+            }
+        }
+        out.writeInt(declaredInFile.size());
+        for (Name name : declaredInFile) {
+            out.writeUTF(name.asString());
+        }
+    }
+
+    private static long checksum(@NotNull String text) {
+        CRC32 crc = new CRC32();
+        byte[] bytes = text.getBytes(Charset.forName("UTF-8"));
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    @NotNull
+    public List<String> getFiles() {
+        return files;
+    }
+
+    @NotNull
+    public Collection<String> getFilesDeclaringClass(@NotNull Name name) {
+        return classes.get(name);
+    }
+
+    @NotNull
+    public Collection<String> getFilesDeclaringFunction(@NotNull Name name) {
+        return functions.get(name);
+    }
+
+    @NotNull
+    public Collection<String> getFilesDeclaringProperty(@NotNull Name name) {
+        return properties.get(name);
+    }
+}
@@ -25,6 +25,7 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.PsiFileFactory;
+import com.intellij.util.Function;
 import com.intellij.util.LocalTimeCounter;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -40,6 +41,7 @@ import org.jetbrains.jet.lang.resolve.BindingTraceContext;
 import org.jetbrains.jet.lang.resolve.DescriptorUtils;
 import org.jetbrains.jet.lang.resolve.lazy.KotlinCodeAnalyzer;
 import org.jetbrains.jet.lang.resolve.lazy.ResolveSession;
+import org.jetbrains.jet.lang.resolve.lazy.declarations.DeclarationProviderFactory;
 import org.jetbrains.jet.lang.resolve.lazy.declarations.FileBasedDeclarationProviderFactory;
 import org.jetbrains.jet.lang.resolve.lazy.storage.LockBasedStorageManager;
 import org.jetbrains.jet.lang.resolve.name.FqName;
@@ -64,7 +66,7 @@ public class KotlinBuiltIns {
     private static final Name BUILT_INS_PACKAGE_NAME = Name.identifier(BUILT_INS_PACKAGE_NAME_STRING);
     public static final FqName BUILT_INS_PACKAGE_FQ_NAME = FqName.topLevel(BUILT_INS_PACKAGE_NAME);
 
-    private static final List<String> LIBRARY_FILES = Arrays.asList(
+    public static final List<String> LIBRARY_FILES = Arrays.asList(
             BUILT_INS_DIR + "/Library.jet",
             BUILT_INS_DIR + "/Numbers.jet",
             BUILT_INS_DIR + "/Ranges.jet",
@@ -229,37 +231,64 @@ public class KotlinBuiltIns {
 
     @NotNull
     private KotlinCodeAnalyzer createLazyResolveSession(@NotNull Project project) throws IOException {
-        List<JetFile> files = loadResourcesAsJetFiles(project, LIBRARY_FILES);
         LockBasedStorageManager storageManager = new LockBasedStorageManager();
         return new ResolveSession(
                 project,
                 storageManager,
                 builtInsModule,
-                new FileBasedDeclarationProviderFactory(storageManager, files),
+                createDeclarationProviderFactory(project, storageManager),
                 ResolveSession.NO_ALIASES,
                 Predicates.in(Sets.newHashSet(new FqNameUnsafe("jet.Any"), new FqNameUnsafe("jet.Nothing"))),
                 new BindingTraceContext());
     }
 
     @NotNull
-    private static List<JetFile> loadResourcesAsJetFiles(@NotNull Project project, @NotNull List<String> libraryFiles)
+    private static DeclarationProviderFactory createDeclarationProviderFactory(
+            @NotNull final Project project,
+            @NotNull LockBasedStorageManager storageManager
+    ) throws IOException {
+        // The index is generated at build time and checked by BuiltInsIndexTest, so the sources aren't even read here.
+        // Without an index for these files all the sources are parsed eagerly
+        BuiltInsIndex index = BuiltInsIndex.loadFromResources();
+        if (index != null && index.getFiles().equals(LIBRARY_FILES)) {
+            return new BuiltInsDeclarationProviderFactory(storageManager, index, new Function<String, JetFile>() {
+                @Override
+                public JetFile fun(String path) {
+                    try {
+                        return loadResourceAsJetFile(project, path);
+                    }
+                    catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+        }
+        return new FileBasedDeclarationProviderFactory(storageManager, loadResourcesAsJetFiles(project, LIBRARY_FILES));
+    }
+
+    @NotNull
+    public static List<JetFile> loadResourcesAsJetFiles(@NotNull Project project, @NotNull List<String> libraryFiles)
             throws IOException, ProcessCanceledException
     {
         List<JetFile> files = new LinkedList<JetFile>();
-        for(String path : libraryFiles) {
-            InputStream stream = KotlinBuiltIns.class.getClassLoader().getResourceAsStream(path);
+        for (String path : libraryFiles) {
+            files.add(loadResourceAsJetFile(project, path));
+        }
+        return files;
+    }
 
-            if (stream == null) {
-                throw new IllegalStateException("Resource not found in classpath: " + path);
-            }
+    @NotNull
+    /*package*/ static JetFile loadResourceAsJetFile(@NotNull Project project, @NotNull String path) throws IOException {
+        InputStream stream = KotlinBuiltIns.class.getClassLoader().getResourceAsStream(path);
 
-            //noinspection IOResourceOpenedButNotSafelyClosed
-            String text = FileUtil.loadTextAndClose(new InputStreamReader(stream));
-            JetFile file = (JetFile) PsiFileFactory.getInstance(project).createFileFromText(path,
-                    JetFileType.INSTANCE, StringUtil.convertLineSeparators(text), LocalTimeCounter.currentTime(), true, false);
-            files.add(file);
+        if (stream == null) {
+            throw new IllegalStateException("Resource not found in classpath: " + path);
         }
-        return files;
+
+        //noinspection IOResourceOpenedButNotSafelyClosed
+        String text = FileUtil.loadTextAndClose(new InputStreamReader(stream));
+        return (JetFile) PsiFileFactory.getInstance(project).createFileFromText(path,
+                JetFileType.INSTANCE, StringUtil.convertLineSeparators(text), LocalTimeCounter.currentTime(), true, false);
     }
 
     private void makePrimitive(PrimitiveType primitiveType) {
@@ -17,27 +17,63 @@
 package org.jetbrains.jet.asJava;
 
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.ModificationTracker;
 import com.intellij.psi.*;
 import com.intellij.psi.impl.PsiModificationTrackerImpl;
 import com.intellij.psi.impl.PsiTreeChangeEventImpl;
 import com.intellij.psi.impl.PsiTreeChangePreprocessor;
 import com.intellij.psi.util.PsiModificationTracker;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.lang.psi.JetBlockExpression;
 import org.jetbrains.jet.lang.psi.JetClass;
 import org.jetbrains.jet.lang.psi.JetFile;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class JetCodeBlockModificationListener implements PsiTreeChangePreprocessor {
     private static final Logger LOG = Logger.getInstance("#org.jetbrains.jet.asJava.JetCodeBlockModificationListener");
     
+    private static final Key<Long> FILE_OUT_OF_CODE_BLOCK_MODIFICATION_COUNT = Key.create("FILE_OUT_OF_CODE_BLOCK_MODIFICATION_COUNT");
+    private static final Key<ModificationTracker> NON_KOTLIN_OUT_OF_CODE_BLOCK_TRACKER = Key.create("NON_KOTLIN_OUT_OF_CODE_BLOCK_TRACKER");
+
     private final PsiModificationTrackerImpl myModificationTracker;
+    // The part of the tracker's out of code block modification count caused by changes in Kotlin files
+    private final AtomicLong myKotlinModificationCount = new AtomicLong();
 
-    public JetCodeBlockModificationListener(PsiModificationTracker modificationTracker) {
+    public JetCodeBlockModificationListener(Project project, PsiModificationTracker modificationTracker) {
         myModificationTracker = (PsiModificationTrackerImpl) modificationTracker;
+        project.putUserData(NON_KOTLIN_OUT_OF_CODE_BLOCK_TRACKER, new ModificationTracker() {
+            @Override
+            public long getModificationCount() {
+                return myModificationTracker.getOutOfCodeBlockModificationCount() - myKotlinModificationCount.get();
+            }
+        });
+    }
+
+    /**
+     * Number of out of code block modifications made inside the given file.
+     */
+    public static long getOutOfCodeBlockModificationCount(@NotNull JetFile file) {
+        Long count = file.getUserData(FILE_OUT_OF_CODE_BLOCK_MODIFICATION_COUNT);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Tracks out of code block modifications made outside Kotlin files: in other languages and in the project structure.
+     * It doesn't change when only Kotlin files are modified.
+     */
+    @Nullable
+    public static ModificationTracker getNonKotlinOutOfCodeBlockModificationTracker(@NotNull Project project) {
+        return project.getUserData(NON_KOTLIN_OUT_OF_CODE_BLOCK_TRACKER);
     }
 
     @Override
     public void treeChanged(PsiTreeChangeEventImpl event) {
         if (!(event.getFile() instanceof JetFile)) return;
+        JetFile file = (JetFile) event.getFile();
         switch (event.getCode()) {
             case BEFORE_CHILDREN_CHANGE:
             case BEFORE_PROPERTY_CHANGE:
@@ -50,19 +86,19 @@ public class JetCodeBlockModificationListener implements PsiTreeChangePreprocess
             case CHILD_ADDED:
             case CHILD_REMOVED:
             case CHILD_REPLACED:
-                processChange(event.getParent(), event.getOldChild(), event.getChild());
+                processChange(file, event.getParent(), event.getOldChild(), event.getChild());
                 break;
 
             case CHILDREN_CHANGED:
                 // general childrenChanged() event after each change
                 if (!event.isGenericChildrenChange()) {
-                    processChange(event.getParent(), event.getParent(), null);
+                    processChange(file, event.getParent(), event.getParent(), null);
                 }
                 break;
 
             case CHILD_MOVED:
             case PROPERTY_CHANGED:
-                myModificationTracker.incCounter();
+                incCounter(file);
                 break;
 
             default:
@@ -71,11 +107,11 @@ public class JetCodeBlockModificationListener implements PsiTreeChangePreprocess
         }
     }
 
-    private void processChange(PsiElement parent, PsiElement child1, PsiElement child2) {
+    private void processChange(JetFile file, PsiElement parent, PsiElement child1, PsiElement child2) {
         try {
             if (!isInsideCodeBlock(parent)) {
                 if (parent != null && parent.getContainingFile() instanceof JetFile) {
-                    myModificationTracker.incCounter();
+                    incCounter(file);
                 }
                 else {
                     myModificationTracker.incOutOfCodeBlockModificationCounter();
@@ -84,13 +120,21 @@ public class JetCodeBlockModificationListener implements PsiTreeChangePreprocess
             }
 
             if (containsClassesInside(child1) || child2 != child1 && containsClassesInside(child2)) {
-                myModificationTracker.incCounter();
+                incCounter(file);
             }
         } catch (PsiInvalidElementAccessException e) {
-            myModificationTracker.incCounter(); // Shall not happen actually, just a pre-release paranoia
+            incCounter(file); // Shall not happen actually, just a pre-release paranoia
         }
     }
 
+    private void incCounter(JetFile file) {
+        file.putUserData(FILE_OUT_OF_CODE_BLOCK_MODIFICATION_COUNT, getOutOfCodeBlockModificationCount(file) + 1);
+        // PSI is modified under the write lock only, so nothing else can change the tracker in between
+        long before = myModificationTracker.getOutOfCodeBlockModificationCount();
+        myModificationTracker.incCounter();
+        myKotlinModificationCount.addAndGet(myModificationTracker.getOutOfCodeBlockModificationCount() - before);
+    }
+
     private static boolean containsClassesInside(PsiElement element) {
         if (element == null) return false;
         if (element instanceof PsiClass) return true;
@@ -108,6 +108,11 @@ public class KotlinJavaFileStubProvider implements CachedValueProvider<PsiJavaFi
                 return JetPsiUtil.getFQName(getFile());
             }
 
+            @Override
+            public boolean generateWithoutResolve(@NotNull Stack<StubElement> stubStack) {
+                return SyntacticLightClassGenerator.generate(classOrObject, stubStack);
+            }
+
             @Override
             public void generate(@NotNull GenerationState state, @NotNull Collection<JetFile> files) {
                 FqName packageFqName = getPackageFqName();
@@ -143,6 +148,16 @@ public class KotlinJavaFileStubProvider implements CachedValueProvider<PsiJavaFi
 
         checkForBuiltIns(packageFqName, files);
 
+        PsiJavaFileStub javaFileStub = createJavaFileStub(packageFqName, getRepresentativeVirtualFile(files));
+        Stack<StubElement> stubStack = new Stack<StubElement>();
+        stubStack.push(javaFileStub);
+
+        // Simple declarations don't need the analysis of everything they mention
+        if (stubGenerationStrategy.generateWithoutResolve(stubStack)) {
+            popFileStub(stubStack, javaFileStub);
+            return Result.create(javaFileStub, PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT);
+        }
+
         LightClassConstructionContext context = LightClassGenerationSupport.getInstance(project).analyzeRelevantCode(files);
 
         Throwable error = context.getError();
@@ -150,11 +165,7 @@ public class KotlinJavaFileStubProvider implements CachedValueProvider<PsiJavaFi
             throw new IllegalStateException("failed to analyze: " + error, error);
         }
 
-        PsiJavaFileStub javaFileStub = createJavaFileStub(packageFqName, getRepresentativeVirtualFile(files));
         try {
-            Stack<StubElement> stubStack = new Stack<StubElement>();
-            stubStack.push(javaFileStub);
-
             GenerationState state = new GenerationState(
                     project,
                     new KotlinLightClassBuilderFactory(stubStack),
@@ -168,11 +179,7 @@ public class KotlinJavaFileStubProvider implements CachedValueProvider<PsiJavaFi
 
             stubGenerationStrategy.generate(state, files);
 
-            StubElement pop = stubStack.pop();
-            if (pop != javaFileStub) {
-                LOG.error("Unbalanced stack operations: " + pop);
-            }
-
+            popFileStub(stubStack, javaFileStub);
         }
         catch (ProcessCanceledException e) {
             throw e;
@@ -185,6 +192,13 @@ public class KotlinJavaFileStubProvider implements CachedValueProvider<PsiJavaFi
         return Result.create(javaFileStub, PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT);
     }
 
+    private static void popFileStub(@NotNull Stack<StubElement> stubStack, @NotNull PsiJavaFileStub javaFileStub) {
+        StubElement pop = stubStack.pop();
+        if (pop != javaFileStub) {
+            LOG.error("Unbalanced stack operations: " + pop);
+        }
+    }
+
     @NotNull
     private PsiJavaFileStub createJavaFileStub(@NotNull final FqName packageFqName, @NotNull VirtualFile virtualFile) {
         PsiManager manager = PsiManager.getInstance(project);
@@ -243,6 +257,7 @@ public class KotlinJavaFileStubProvider implements CachedValueProvider<PsiJavaFi
         @NotNull Collection<JetFile> getFiles();
         @NotNull FqName getPackageFqName();
         boolean generateDeclaredClasses();
+        boolean generateWithoutResolve(@NotNull Stack<StubElement> stubStack);
         void generate(@NotNull GenerationState state, @NotNull Collection<JetFile> files);
 
         abstract class NoDeclaredClasses implements StubGenerationStrategy {
@@ -251,6 +266,11 @@ public class KotlinJavaFileStubProvider implements CachedValueProvider<PsiJavaFi
                 return false;
             }
 
+            @Override
+            public boolean generateWithoutResolve(@NotNull Stack<StubElement> stubStack) {
+                return false;
+            }
+
             @Override
             public String toString() {
                 // For subclasses to be identifiable in the debugger
@@ -0,0 +1,512 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.asJava;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.util.containers.Stack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.AnnotationVisitor;
+import org.jetbrains.asm4.FieldVisitor;
+import org.jetbrains.asm4.MethodVisitor;
+import org.jetbrains.jet.codegen.signature.BothSignatureWriter;
+import org.jetbrains.jet.lang.descriptors.Modality;
+import org.jetbrains.jet.lang.descriptors.Visibilities;
+import org.jetbrains.jet.lang.descriptors.Visibility;
+import org.jetbrains.jet.lang.psi.*;
+import org.jetbrains.jet.lang.resolve.ImportPath;
+import org.jetbrains.jet.lang.resolve.ModifiersChecker;
+import org.jetbrains.jet.lang.resolve.java.JvmAbi;
+import org.jetbrains.jet.lang.resolve.java.JvmStdlibNames;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.lexer.JetTokens;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.jetbrains.asm4.Opcodes.*;
+import static org.jetbrains.jet.codegen.CodegenUtil.getFlagsForVisibility;
+import static org.jetbrains.jet.lang.resolve.java.AsmTypeConstants.OBJECT_TYPE;
+
+/**
+ * Builds Java stubs for simple top-level classes right from their PSI, the way the backend would generate them in
+ * SIGNATURES mode, but without resolving anything.
+ *
+ * Only classes whose Java signatures are fully determined by the source are handled: no supertypes, type parameters, annotations,
+ * nested declarations or inferred types, and every type mentioned is either a built-in type or a non-generic top-level Kotlin class
+ * that can be found by name and isn't shadowed by a Java class. Properties whose backing fields depend on the bodies of their accessors
+ * or get compile-time constant values are not handled either. For anything else nothing is generated and the light class has to be
+ * generated by the backend.
+ *
+ * What is generated has to match the backend output: the JetObject interface, the JetClass annotation and private backing fields.
+ * Other Kotlin annotations are not written by the backend in SIGNATURES mode.
+ */
+/*package*/ class SyntacticLightClassGenerator {
+    private static final Map<String, String> PRIMITIVE_TYPES = ImmutableMap.<String, String>builder()
+            .put("Int", "I")
+            .put("Long", "J")
+            .put("Short", "S")
+            .put("Byte", "B")
+            .put("Char", "C")
+            .put("Boolean", "Z")
+            .put("Float", "F")
+            .put("Double", "D")
+            .build();
+
+    private static final Map<String, String> BOXED_PRIMITIVE_TYPES = ImmutableMap.<String, String>builder()
+            .put("Int", "Ljava/lang/Integer;")
+            .put("Long", "Ljava/lang/Long;")
+            .put("Short", "Ljava/lang/Short;")
+            .put("Byte", "Ljava/lang/Byte;")
+            .put("Char", "Ljava/lang/Character;")
+            .put("Boolean", "Ljava/lang/Boolean;")
+            .put("Float", "Ljava/lang/Float;")
+            .put("Double", "Ljava/lang/Double;")
+            .build();
+
+    private static final Map<String, String> BUILT_IN_REFERENCE_TYPES = ImmutableMap.<String, String>builder()
+            .put("Any", "Ljava/lang/Object;")
+            .put("String", "Ljava/lang/String;")
+            .put("CharSequence", "Ljava/lang/CharSequence;")
+            .put("Number", "Ljava/lang/Number;")
+            .put("Throwable", "Ljava/lang/Throwable;")
+            .build();
+
+    private static final List<FqName> DEFAULT_ALL_UNDER_IMPORTS = Lists.newArrayList(new FqName("jet"), new FqName("java.lang"));
+
+    private final JetClass jetClass;
+    private final FqName packageFqName;
+    private final Map<String, FqName> explicitImports;
+    private final GlobalSearchScope searchScope;
+
+    private SyntacticLightClassGenerator(
+            @NotNull JetClass jetClass,
+            @NotNull FqName packageFqName,
+            @NotNull Map<String, FqName> explicitImports
+    ) {
+        this.jetClass = jetClass;
+        this.packageFqName = packageFqName;
+        this.explicitImports = explicitImports;
+        this.searchScope = GlobalSearchScope.allScope(jetClass.getProject());
+    }
+
+    /**
+     * @return false if nothing was generated, because the class can't be translated to Java without resolving it
+     */
+    public static boolean generate(@NotNull JetClassOrObject classOrObject, @NotNull Stack<StubElement> stubStack) {
+        if (!(classOrObject instanceof JetClass)) return false;
+        JetFile file = (JetFile) classOrObject.getContainingFile();
+
+        Map<String, FqName> explicitImports = Maps.newHashMap();
+        for (JetImportDirective importDirective : file.getImportDirectives()) {
+            ImportPath importPath = JetPsiUtil.getImportPath(importDirective);
+            if (importPath == null) return false;
+            if (importPath.isAllUnder()) {
+                // Names imported from another package could shadow built-ins or classes of this package
+                if (!DEFAULT_ALL_UNDER_IMPORTS.contains(importPath.fqnPart())) return false;
+            }
+            else {
+                //noinspection ConstantConditions
+                explicitImports.put(importPath.getImportedName().asString(), importPath.fqnPart());
+            }
+        }
+
+        SyntacticLightClassGenerator generator = new SyntacticLightClassGenerator((JetClass) classOrObject, JetPsiUtil.getFQName(file), explicitImports);
+        ClassSignature signature = generator.computeClassSignature();
+        if (signature == null) return false;
+
+        signature.generate(stubStack, file.getName());
+        return true;
+    }
+
+    @Nullable
+    private ClassSignature computeClassSignature() {
+        if (jetClass.isTrait() || jetClass.isEnum() || jetClass.isAnnotation() || jetClass.isInner()) return null;
+        if (!jetClass.getTypeParameters().isEmpty() || !jetClass.getDelegationSpecifiers().isEmpty()) return null;
+        if (hasAnnotations(jetClass) || jetClass.getClassObject() != null) return null;
+
+        String name = jetClass.getName();
+        if (name == null) return null;
+
+        Modality modality = ModifiersChecker.resolveModalityFromModifiers(jetClass, Modality.FINAL);
+        // Top-level classes are public in the bytecode, their Kotlin visibility is written to the JetClass annotation
+        int access = ACC_PUBLIC | ACC_SUPER | modalityAccessFlag(modality);
+        Visibility visibility = ModifiersChecker.resolveVisibilityFromModifiers(jetClass, Visibilities.INTERNAL);
+        String internalName = internalName(packageFqName.child(jetClass.getNameAsName()));
+
+        ClassSignature signature = new ClassSignature(jetClass, access, internalName, getFlagsForVisibility(visibility));
+
+        if (!addPrimaryConstructor(signature)) return null;
+
+        for (JetDeclaration declaration : jetClass.getDeclarations()) {
+            if (declaration instanceof JetNamedFunction) {
+                if (!addFunction(signature, (JetNamedFunction) declaration)) return null;
+            }
+            else if (declaration instanceof JetProperty) {
+                if (!addProperty(signature, (JetProperty) declaration)) return null;
+            }
+            else if (!(declaration instanceof JetClassInitializer)) {
+                // nested classes and objects
+                return null;
+            }
+        }
+
+        return signature;
+    }
+
+    private boolean addPrimaryConstructor(@NotNull ClassSignature signature) {
+        JetModifierList constructorModifiers = jetClass.getPrimaryConstructorModifierList();
+        if (constructorModifiers != null && !constructorModifiers.getAnnotationEntries().isEmpty()) return false;
+
+        StringBuilder descriptor = new StringBuilder("(");
+        for (JetParameter parameter : jetClass.getPrimaryConstructorParameters()) {
+            // Default values make the backend generate additional constructors
+            if (parameter.getDefaultValue() != null || parameter.isVarArg() || hasAnnotations(parameter)) return false;
+
+            String type = mapType(parameter.getTypeReference());
+            if (type == null) return false;
+            descriptor.append(type);
+
+            if (parameter.getValOrVarNode() != null) {
+                if (!addAccessors(signature, parameter, type, parameter.isMutable(), null, null, true)) return false;
+            }
+        }
+        descriptor.append(")V");
+
+        int access = visibilityAccessFlag(constructorModifiers, Visibilities.PUBLIC);
+        signature.addMethod(jetClass, access, "<init>", descriptor.toString());
+        return true;
+    }
+
+    private boolean addFunction(@NotNull ClassSignature signature, @NotNull JetNamedFunction function) {
+        String name = function.getName();
+        if (name == null || hasAnnotations(function) || !function.getTypeParameters().isEmpty()) return false;
+        // Overrides take the visibility of the overridden declaration
+        if (function.hasModifier(JetTokens.OVERRIDE_KEYWORD)) return false;
+
+        StringBuilder descriptor = new StringBuilder("(");
+        JetTypeReference receiverTypeRef = function.getReceiverTypeRef();
+        if (receiverTypeRef != null) {
+            String receiverType = mapType(receiverTypeRef);
+            if (receiverType == null) return false;
+            descriptor.append(receiverType);
+        }
+        for (JetParameter parameter : function.getValueParameters()) {
+            if (parameter.isVarArg() || hasAnnotations(parameter)) return false;
+            String type = mapType(parameter.getTypeReference());
+            if (type == null) return false;
+            descriptor.append(type);
+        }
+        descriptor.append(")");
+
+        boolean hasBody = function.getBodyExpression() != null;
+        String returnType;
+        if (function.getReturnTypeRef() != null) {
+            returnType = mapReturnType(function.getReturnTypeRef());
+        }
+        else {
+            // The return type of an expression body has to be inferred
+            returnType = !hasBody || function.hasBlockBody() ? "V" : null;
+        }
+        if (returnType == null) return false;
+        descriptor.append(returnType);
+
+        Modality modality = ModifiersChecker.resolveModalityFromModifiers(function, Modality.FINAL);
+        if (modality == Modality.ABSTRACT ? hasBody : !hasBody) return false;
+
+        int access = visibilityAccessFlag(function.getModifierList(), Visibilities.INTERNAL) | modalityAccessFlag(modality);
+        signature.addMethod(function, access, name, descriptor.toString());
+        return true;
+    }
+
+    private boolean addProperty(@NotNull ClassSignature signature, @NotNull JetProperty property) {
+        if (hasAnnotations(property) || property.getReceiverTypeRef() != null) return false;
+        if (!property.getTypeParameters().isEmpty() || property.hasModifier(JetTokens.OVERRIDE_KEYWORD)) return false;
+        if (property.getDelegateExpression() != null) return false;
+
+        String type = mapType(property.getTypeRef());
+        if (type == null) return false;
+
+        for (JetPropertyAccessor accessor : property.getAccessors()) {
+            // Accessors may have their own visibility
+            if (accessor.getModifierList() != null) return false;
+            // Whether there is a backing field depends on the accessor bodies
+            if (accessor.getBodyExpression() != null) return false;
+        }
+
+        // The backend writes compile-time constant initializers of such fields, they can't be computed without resolve
+        boolean constantField = !property.isVar() && (type.length() == 1 || type.equals("Ljava/lang/String;"));
+        if (constantField && property.getInitializer() != null) return false;
+
+        boolean isAbstract = ModifiersChecker.resolveModalityFromModifiers(property, Modality.FINAL) == Modality.ABSTRACT;
+        return addAccessors(signature, property, type, property.isVar(), property.getGetter(), property.getSetter(), !isAbstract);
+    }
+
+    private boolean addAccessors(
+            @NotNull ClassSignature signature,
+            @NotNull JetNamedDeclaration property,
+            @NotNull String type,
+            boolean isVar,
+            @Nullable JetPropertyAccessor getter,
+            @Nullable JetPropertyAccessor setter,
+            boolean hasBackingField
+    ) {
+        Name name = property.getNameAsName();
+        if (name == null) return false;
+
+        if (hasBackingField) {
+            int fieldAccess = ACC_PRIVATE | (isVar ? 0 : ACC_FINAL);
+            signature.addField(property, fieldAccess, JvmAbi.getDefaultPropertyName(name, false, false), type);
+        }
+
+        Modality modality = ModifiersChecker.resolveModalityFromModifiers(property, Modality.FINAL);
+        int access = visibilityAccessFlag(property.getModifierList(), Visibilities.INTERNAL) | modalityAccessFlag(modality);
+
+        String capitalizedName = StringUtil.capitalizeWithJavaBeanConvention(name.asString());
+        signature.addMethod(getter != null ? getter : property, access, JvmAbi.GETTER_PREFIX + capitalizedName, "()" + type);
+        if (isVar) {
+            signature.addMethod(setter != null ? setter : property, access, JvmAbi.SETTER_PREFIX + capitalizedName, "(" + type + ")V");
+        }
+        return true;
+    }
+
+    @Nullable
+    private String mapReturnType(@NotNull JetTypeReference typeReference) {
+        JetTypeElement typeElement = typeReference.getTypeElement();
+        if (typeElement instanceof JetUserType && isUnqualifiedSimpleName((JetUserType) typeElement, "Unit")) {
+            return isShadowed("Unit") ? null : "V";
+        }
+        return mapType(typeReference);
+    }
+
+    @Nullable
+    private String mapType(@Nullable JetTypeReference typeReference) {
+        if (typeReference == null || !typeReference.getAnnotations().isEmpty()) return null;
+
+        JetTypeElement typeElement = typeReference.getTypeElement();
+        boolean nullable = false;
+        if (typeElement instanceof JetNullableType) {
+            nullable = true;
+            typeElement = ((JetNullableType) typeElement).getInnerType();
+        }
+        if (!(typeElement instanceof JetUserType)) return null;
+
+        JetUserType userType = (JetUserType) typeElement;
+        if (!userType.getTypeArguments().isEmpty()) return null;
+
+        String name = userType.getReferencedName();
+        if (name == null) return null;
+
+        if (userType.getQualifier() != null) {
+            FqName fqName = getQualifiedName(userType);
+            return fqName != null ? mapKotlinClass(fqName) : null;
+        }
+
+        FqName importedFqName = explicitImports.get(name);
+        if (importedFqName != null) {
+            return mapKotlinClass(importedFqName);
+        }
+
+        String builtInType = nullable ? BOXED_PRIMITIVE_TYPES.get(name) : PRIMITIVE_TYPES.get(name);
+        if (builtInType == null) {
+            builtInType = BUILT_IN_REFERENCE_TYPES.get(name);
+        }
+        if (builtInType != null) {
+            return isShadowed(name) ? null : builtInType;
+        }
+
+        return mapKotlinClass(packageFqName.child(Name.identifier(name)));
+    }
+
+    private boolean isShadowed(@NotNull String name) {
+        if (explicitImports.containsKey(name)) return true;
+        FqName samePackageFqName = packageFqName.child(Name.identifier(name));
+        return !findTopLevelClasses(samePackageFqName).isEmpty() || hasJavaClass(samePackageFqName);
+    }
+
+    @Nullable
+    private String mapKotlinClass(@NotNull FqName fqName) {
+        Collection<JetClassOrObject> classes = findTopLevelClasses(fqName);
+        if (classes.size() != 1 || hasJavaClass(fqName)) return null;
+
+        JetClassOrObject classOrObject = classes.iterator().next();
+        if (classOrObject instanceof JetClass && !((JetClass) classOrObject).getTypeParameters().isEmpty()) return null;
+
+        return "L" + internalName(fqName) + ";";
+    }
+
+    @NotNull
+    private Collection<JetClassOrObject> findTopLevelClasses(@NotNull FqName fqName) {
+        Collection<JetClassOrObject> result = Lists.newArrayList();
+        for (JetClassOrObject classOrObject : LightClassGenerationSupport.getInstance(jetClass.getProject())
+                .findClassOrObjectDeclarations(fqName, searchScope)) {
+            if (classOrObject.getParent() instanceof JetFile) {
+                result.add(classOrObject);
+            }
+        }
+        return result;
+    }
+
+    private boolean hasJavaClass(@NotNull FqName fqName) {
+        for (PsiClass psiClass : JavaPsiFacade.getInstance(jetClass.getProject()).findClasses(fqName.asString(), searchScope)) {
+            if (!(psiClass instanceof KotlinLightClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Nullable
+    private static FqName getQualifiedName(@NotNull JetUserType userType) {
+        List<String> segments = Lists.newArrayList();
+        for (JetUserType type = userType; type != null; type = type.getQualifier()) {
+            if (!type.getTypeArguments().isEmpty()) return null;
+            String name = type.getReferencedName();
+            if (name == null) return null;
+            segments.add(0, name);
+        }
+        return new FqName(StringUtil.join(segments, "."));
+    }
+
+    private static boolean isUnqualifiedSimpleName(@NotNull JetUserType userType, @NotNull String name) {
+        return userType.getQualifier() == null && userType.getTypeArguments().isEmpty() && name.equals(userType.getReferencedName());
+    }
+
+    private static boolean hasAnnotations(@NotNull JetModifierListOwner owner) {
+        JetModifierList modifierList = owner.getModifierList();
+        return modifierList != null && !modifierList.getAnnotationEntries().isEmpty();
+    }
+
+    private static int visibilityAccessFlag(@Nullable JetModifierList modifierList, @NotNull Visibility defaultVisibility) {
+        Visibility visibility = ModifiersChecker.resolveVisibilityFromModifiers(modifierList, defaultVisibility);
+        if (visibility == Visibilities.PRIVATE) return ACC_PRIVATE;
+        if (visibility == Visibilities.PROTECTED) return ACC_PROTECTED;
+        // Internal members are public in the bytecode, see AsmUtil.getVisibilityAccessFlag()
+        return ACC_PUBLIC;
+    }
+
+    private static int modalityAccessFlag(@NotNull Modality modality) {
+        switch (modality) {
+            case FINAL:
+                return ACC_FINAL;
+            case ABSTRACT:
+                return ACC_ABSTRACT;
+            default:
+                return 0;
+        }
+    }
+
+    @NotNull
+    private static String internalName(@NotNull FqName fqName) {
+        return fqName.asString().replace('.', '/');
+    }
+
+    private static class ClassSignature {
+        private final JetClass origin;
+        private final int access;
+        private final String internalName;
+        private final int kotlinFlags;
+        private final List<MemberSignature> fields = Lists.newArrayList();
+        private final List<MemberSignature> methods = Lists.newArrayList();
+
+        private ClassSignature(@NotNull JetClass origin, int access, @NotNull String internalName, int kotlinFlags) {
+            this.origin = origin;
+            this.access = access;
+            this.internalName = internalName;
+            this.kotlinFlags = kotlinFlags;
+        }
+
+        private void addField(@NotNull PsiElement origin, int access, @NotNull String name, @NotNull String descriptor) {
+            fields.add(new MemberSignature(origin, access, name, descriptor));
+        }
+
+        private void addMethod(@NotNull PsiElement origin, int access, @NotNull String name, @NotNull String descriptor) {
+            methods.add(new MemberSignature(origin, access, name, descriptor));
+        }
+
+        private void generate(@NotNull Stack<StubElement> stubStack, @NotNull String sourceFileName) {
+            StubClassBuilder builder = new StubClassBuilder(stubStack);
+            builder.defineClass(origin, V1_6, access, internalName, null, OBJECT_TYPE.getInternalName(),
+                                new String[] {JvmStdlibNames.JET_OBJECT.getInternalName()});
+            builder.visitSource(sourceFileName, null);
+            writeClassAnnotation(builder);
+            for (MemberSignature field : fields) {
+                FieldVisitor visitor = builder.newField(field.origin, field.access, field.name, field.descriptor, null, null);
+                if (visitor != null) {
+                    visitor.visitEnd();
+                }
+            }
+            for (MemberSignature method : methods) {
+                MethodVisitor visitor = builder.newMethod(method.origin, method.access, method.name, method.descriptor, null, null);
+                if (visitor != null) {
+                    visitor.visitEnd();
+                }
+            }
+            builder.done();
+        }
+
+        // See ImplementationBodyCodegen.writeClassSignatureIfNeeded()
+        private void writeClassAnnotation(@NotNull StubClassBuilder builder) {
+            AnnotationVisitor annotationVisitor = builder.newAnnotation(JvmStdlibNames.JET_CLASS.getDescriptor(), true);
+            annotationVisitor.visit(JvmStdlibNames.JET_CLASS_SIGNATURE, kotlinClassSignature());
+            if (kotlinFlags != JvmStdlibNames.FLAGS_DEFAULT_VALUE) {
+                annotationVisitor.visit(JvmStdlibNames.JET_FLAGS_FIELD, kotlinFlags);
+            }
+            annotationVisitor.visit(JvmStdlibNames.ABI_VERSION_NAME, JvmAbi.VERSION);
+            annotationVisitor.visitEnd();
+        }
+
+        @NotNull
+        private static String kotlinClassSignature() {
+            // A class without type parameters and supertypes, with Any as its superclass
+            BothSignatureWriter signatureWriter = new BothSignatureWriter(BothSignatureWriter.Mode.CLASS, true);
+            signatureWriter.writeFormalTypeParametersStart();
+            signatureWriter.writeFormalTypeParametersEnd();
+            signatureWriter.writeSupersStart();
+            signatureWriter.writeSuperclass();
+            signatureWriter.writeClassBegin(OBJECT_TYPE.getInternalName(), false, false);
+            signatureWriter.writeClassEnd();
+            signatureWriter.writeSuperclassEnd();
+            signatureWriter.writeSupersEnd();
+            return signatureWriter.makeKotlinClassSignature();
+        }
+    }
+
+    private static class MemberSignature {
+        private final PsiElement origin;
+        private final int access;
+        private final String name;
+        private final String descriptor;
+
+        private MemberSignature(@NotNull PsiElement origin, int access, @NotNull String name, @NotNull String descriptor) {
+            this.origin = origin;
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package test
+
+class SimpleClass(val a: Int, var b: String?, c: Long) {
+    fun foo(x: Long, y: Any?): Boolean = x > 0
+    fun bar() {}
+    private fun baz(other: SimpleClass): SimpleClass = other
+    protected var d: Int? = null
+}
+
+abstract class SimpleAbstract {
+    abstract fun foo(): String
+    open var bar: Char = 'c'
+    abstract val baz: Int
+}
+
+private class PrivateClass(private val a: String)
+
+class ComplexConstant {
+    val a: Int = 1
+}
+
+class ComplexAccessorBody {
+    val a: Int
+        get() = 1
+}
+
+class ComplexInferredType {
+    fun foo() = 1
+}
+
+class ComplexGeneric<T>
+
+class ComplexSupertype : SimpleAbstract() {
+    override fun foo(): String = ""
+}
+
+class ComplexDefaultValue(val a: Int = 1)
+
+class ComplexNested {
+    class Nested
+}
+
+class ComplexUnknownType {
+    fun foo(l: List<String>) {}
+}
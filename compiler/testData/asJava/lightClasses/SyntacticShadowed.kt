@@ -0,0 +1,9 @@
+package shadowed
+
+class ShadowedBuiltIn {
+    fun foo(n: Number) {}
+}
+
+class ShadowedByJava {
+    fun foo(j: JavaClass) {}
+}
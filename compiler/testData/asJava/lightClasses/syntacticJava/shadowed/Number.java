@@ -0,0 +1,4 @@
+package shadowed;
+
+public class Number {
+}
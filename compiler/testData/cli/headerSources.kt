@@ -0,0 +1 @@
+fun main(args: Array<String>) = println(Greeter("world").greet())
@@ -0,0 +1,7 @@
+class Greeter(val name: String) {
+    fun greet(): String {
+        // Bodies of header sources are not analyzed, so this error is not reported
+        val x: Int = "not an int"
+        return "hello " + name
+    }
+}
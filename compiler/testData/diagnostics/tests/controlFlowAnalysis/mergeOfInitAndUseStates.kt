@@ -0,0 +1,38 @@
+package mergeOfInitAndUseStates
+
+fun initializedInOneBranch(b: Boolean) {
+    val x: Int
+    if (b) {
+        x = 1
+    }
+    doSmth(<!UNINITIALIZED_VARIABLE!>x<!>)
+}
+
+fun initializedInBothBranches(b: Boolean) {
+    val x: Int
+    if (b) {
+        x = 1
+    }
+    else {
+        x = 2
+    }
+    doSmth(x)
+}
+
+fun readInOneBranch(b: Boolean) {
+    var x = 1
+    if (b) {
+        doSmth(x)
+    }
+    x = <!UNUSED_VALUE!>2<!>
+}
+
+fun writtenInLoop(b: Boolean) {
+    var x = 0
+    while (b) {
+        doSmth(x)
+        x = 1
+    }
+}
+
+fun doSmth(<!UNUSED_PARAMETER!>i<!>: Int) {}
@@ -17,12 +17,14 @@
 package org.jetbrains.jet.asJava;
 
 import org.jetbrains.jet.JetTestUtils;
+import org.jetbrains.jet.cli.jvm.JVMConfigurationKeys;
 import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
 import org.jetbrains.jet.config.CommonConfigurationKeys;
 import org.jetbrains.jet.config.CompilerConfiguration;
 import org.jetbrains.jet.lang.resolve.lazy.KotlinTestWithEnvironment;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.List;
 
 public abstract class KotlinAsJavaTestBase extends KotlinTestWithEnvironment {
@@ -35,12 +37,19 @@ public abstract class KotlinAsJavaTestBase extends KotlinTestWithEnvironment {
         for (File root : getKotlinSourceRoots()) {
             configuration.add(CommonConfigurationKeys.SOURCE_ROOTS_KEY, root.getPath());
         }
+        for (File root : getJavaSourceRoots()) {
+            configuration.add(JVMConfigurationKeys.CLASSPATH_KEY, root);
+        }
 
         return new JetCoreEnvironment(getTestRootDisposable(), configuration);
     }
 
     protected abstract List<File> getKotlinSourceRoots();
 
+    protected List<File> getJavaSourceRoots() {
+        return Collections.emptyList();
+    }
+
     @Override
     protected void setUp() throws Exception {
         super.setUp();
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.asJava;
+
+import com.google.common.collect.Lists;
+import com.intellij.psi.*;
+import com.intellij.psi.impl.java.stubs.impl.PsiJavaFileStubImpl;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.util.containers.Stack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.psi.JetClassOrObject;
+import org.jetbrains.jet.lang.resolve.java.JvmStdlibNames;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+public class SyntacticLightClassGeneratorTest extends KotlinAsJavaTestBase {
+    @Override
+    protected List<File> getKotlinSourceRoots() {
+        return Arrays.asList(new File("compiler/testData/asJava/lightClasses/Syntactic.kt"),
+                             new File("compiler/testData/asJava/lightClasses/SyntacticShadowed.kt"));
+    }
+
+    @Override
+    protected List<File> getJavaSourceRoots() {
+        return Collections.singletonList(new File("compiler/testData/asJava/lightClasses/syntacticJava"));
+    }
+
+    public void testSimpleClass() {
+        doTest("test.SimpleClass",
+               "private final int a",
+               "private java.lang.String b",
+               "private java.lang.Integer d",
+               "public SimpleClass(int, java.lang.String, long)",
+               "public final int getA()",
+               "public final java.lang.String getB()",
+               "public final void setB(java.lang.String)",
+               "public final boolean foo(long, java.lang.Object)",
+               "public final void bar()",
+               "private final test.SimpleClass baz(test.SimpleClass)",
+               "protected final java.lang.Integer getD()",
+               "protected final void setD(java.lang.Integer)");
+    }
+
+    public void testSimpleAbstract() {
+        doTest("test.SimpleAbstract",
+               "private char bar",
+               "public SimpleAbstract()",
+               "public abstract java.lang.String foo()",
+               "public char getBar()",
+               "public void setBar(char)",
+               "public abstract int getBaz()");
+    }
+
+    public void testPrivateClass() {
+        doTest("test.PrivateClass",
+               "private final java.lang.String a",
+               "public PrivateClass(java.lang.String)",
+               "private final java.lang.String getA()");
+        assertEquals(String.valueOf(JvmStdlibNames.FLAG_PRIVATE_BIT),
+                     getJetClassAttribute("test.PrivateClass", JvmStdlibNames.JET_FLAGS_FIELD));
+    }
+
+    public void testJetClassAnnotation() {
+        assertTrue(generate("test.SimpleClass"));
+        assertEquals("\"Ljava/lang/Object;\"", getJetClassAttribute("test.SimpleClass", JvmStdlibNames.JET_CLASS_SIGNATURE));
+        // Internal is the default visibility, so it is written to the flags
+        assertEquals(String.valueOf(JvmStdlibNames.FLAG_INTERNAL_BIT),
+                     getJetClassAttribute("test.SimpleClass", JvmStdlibNames.JET_FLAGS_FIELD));
+
+        List<String> interfaces = Lists.newArrayList();
+        for (PsiClassType type : findClass("test.SimpleClass").getImplementsListTypes()) {
+            interfaces.add(type.getCanonicalText());
+        }
+        assertOrderedEquals(interfaces, JvmStdlibNames.JET_OBJECT.getFqName().asString());
+    }
+
+    public void testComplexConstant() {
+        doTestNotGenerated("test.ComplexConstant");
+    }
+
+    public void testComplexAccessorBody() {
+        doTestNotGenerated("test.ComplexAccessorBody");
+    }
+
+    public void testShadowedBuiltIn() {
+        doTestNotGenerated("shadowed.ShadowedBuiltIn");
+    }
+
+    public void testShadowedByJava() {
+        doTestNotGenerated("shadowed.ShadowedByJava");
+    }
+
+    public void testComplexInferredType() {
+        doTestNotGenerated("test.ComplexInferredType");
+    }
+
+    public void testComplexGeneric() {
+        doTestNotGenerated("test.ComplexGeneric");
+    }
+
+    public void testComplexSupertype() {
+        doTestNotGenerated("test.ComplexSupertype");
+    }
+
+    public void testComplexDefaultValue() {
+        doTestNotGenerated("test.ComplexDefaultValue");
+    }
+
+    public void testComplexNested() {
+        doTestNotGenerated("test.ComplexNested");
+    }
+
+    public void testComplexUnknownType() {
+        doTestNotGenerated("test.ComplexUnknownType");
+    }
+
+    private void doTest(@NotNull String qualifiedName, @NotNull String... expectedMembers) {
+        assertTrue("Class should be generated without resolve: " + qualifiedName, generate(qualifiedName));
+
+        PsiClass psiClass = findClass(qualifiedName);
+        List<String> actualMembers = Lists.newArrayList();
+        for (PsiField field : psiClass.getFields()) {
+            actualMembers.add(renderModifiers(field) + field.getType().getCanonicalText() + " " + field.getName());
+        }
+        for (PsiMethod method : psiClass.getMethods()) {
+            actualMembers.add(render(method));
+        }
+        assertOrderedEquals(actualMembers, expectedMembers);
+    }
+
+    @Nullable
+    private String getJetClassAttribute(@NotNull String qualifiedName, @NotNull String attributeName) {
+        PsiModifierList modifierList = findClass(qualifiedName).getModifierList();
+        assertNotNull(modifierList);
+        PsiAnnotation annotation = modifierList.findAnnotation(JvmStdlibNames.JET_CLASS.getFqName().asString());
+        assertNotNull("No JetClass annotation on " + qualifiedName, annotation);
+        PsiAnnotationMemberValue value = annotation.findDeclaredAttributeValue(attributeName);
+        return value != null ? value.getText() : null;
+    }
+
+    @NotNull
+    private PsiClass findClass(@NotNull String qualifiedName) {
+        PsiClass psiClass = finder.findClass(qualifiedName, GlobalSearchScope.allScope(getProject()));
+        assertNotNull("Class not found: " + qualifiedName, psiClass);
+        return psiClass;
+    }
+
+    private void doTestNotGenerated(@NotNull String qualifiedName) {
+        assertFalse("Class shouldn't be generated without resolve: " + qualifiedName, generate(qualifiedName));
+    }
+
+    private boolean generate(@NotNull String qualifiedName) {
+        Collection<JetClassOrObject> declarations = LightClassGenerationSupport.getInstance(getProject())
+                .findClassOrObjectDeclarations(new FqName(qualifiedName), GlobalSearchScope.allScope(getProject()));
+        assertEquals("Exactly one declaration expected for " + qualifiedName, 1, declarations.size());
+
+        Stack<StubElement> stubStack = new Stack<StubElement>();
+        stubStack.push(new PsiJavaFileStubImpl("test", true));
+        return SyntacticLightClassGenerator.generate(declarations.iterator().next(), stubStack);
+    }
+
+    @NotNull
+    private static String renderModifiers(@NotNull PsiModifierListOwner owner) {
+        StringBuilder builder = new StringBuilder();
+        for (String modifier : new String[] {PsiModifier.PUBLIC, PsiModifier.PROTECTED, PsiModifier.PRIVATE,
+                PsiModifier.ABSTRACT, PsiModifier.FINAL}) {
+            if (owner.hasModifierProperty(modifier)) {
+                builder.append(modifier).append(" ");
+            }
+        }
+        return builder.toString();
+    }
+
+    @NotNull
+    private static String render(@NotNull PsiMethod method) {
+        StringBuilder builder = new StringBuilder(renderModifiers(method));
+        PsiType returnType = method.getReturnType();
+        if (returnType != null) {
+            builder.append(returnType.getCanonicalText()).append(" ");
+        }
+        builder.append(method.getName()).append("(");
+        PsiParameter[] parameters = method.getParameterList().getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            if (i > 0) builder.append(", ");
+            builder.append(parameters[i].getType().getCanonicalText());
+        }
+        return builder.append(")").toString();
+    }
+}
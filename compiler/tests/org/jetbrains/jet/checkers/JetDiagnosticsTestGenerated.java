@@ -1240,6 +1240,11 @@ public class JetDiagnosticsTestGenerated extends AbstractDiagnosticsTestWithEage
                 doTest("compiler/testData/diagnostics/tests/controlFlowAnalysis/kt897.kt");
             }
             
+            @TestMetadata("mergeOfInitAndUseStates.kt")
+            public void testMergeOfInitAndUseStates() throws Exception {
+                doTest("compiler/testData/diagnostics/tests/controlFlowAnalysis/mergeOfInitAndUseStates.kt");
+            }
+            
             @TestMetadata("propertiesOrderInPackage.kt")
             public void testPropertiesOrderInPackage() throws Exception {
                 doTest("compiler/testData/diagnostics/tests/controlFlowAnalysis/propertiesOrderInPackage.kt");
@@ -106,6 +106,18 @@ public class CliTest {
         Assert.assertTrue(new File(tmpdir.getTmpDir(), PackageClassUtils.getPackageClassName(FqName.ROOT) + ".class").isFile());
     }
 
+    @Test
+    public void headerSources() throws Exception {
+        String[] args = {
+                "-src", "compiler/testData/cli/headerSources.kt",
+                "-headerSrc", "compiler/testData/cli/headerSourcesLib.kt",
+                "-output", tmpdir.getTmpDir().getPath()};
+        executeCompilerCompareOutput(args);
+
+        Assert.assertTrue(new File(tmpdir.getTmpDir(), PackageClassUtils.getPackageClassName(FqName.ROOT) + ".class").isFile());
+        Assert.assertFalse(new File(tmpdir.getTmpDir(), "Greeter.class").exists());
+    }
+
     @Test
     public void diagnosticsOrder() throws Exception {
         String[] args = {
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.psi.impl.DebugUtil;
+import com.intellij.testFramework.UsefulTestCase;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.JetTestCaseBuilder;
+import org.jetbrains.jet.config.CommonConfigurationKeys;
+import org.jetbrains.jet.config.CompilerConfiguration;
+import org.jetbrains.jet.lang.psi.JetFile;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ParallelParsingTest extends UsefulTestCase {
+    public void testSameTreesAsSequentialParsing() {
+        Map<String, String> sequential = parseAll(false);
+        Map<String, String> parallel = parseAll(true);
+
+        assertTrue(sequential.size() > 100);
+        assertEquals(sequential.keySet(), parallel.keySet());
+        for (Map.Entry<String, String> entry : sequential.entrySet()) {
+            assertEquals(entry.getKey(), entry.getValue(), parallel.get(entry.getKey()));
+        }
+    }
+
+    @NotNull
+    private Map<String, String> parseAll(boolean parallel) {
+        CompilerConfiguration configuration = new CompilerConfiguration();
+        configuration.add(CommonConfigurationKeys.SOURCE_ROOTS_KEY, JetTestCaseBuilder.getHomeDirectory() + "/libraries/stdlib/src");
+        configuration.add(CommonConfigurationKeys.SOURCE_ROOTS_KEY, JetTestCaseBuilder.getTestDataPathBase() + "/psi");
+
+        String oldValue = System.getProperty(JetCoreEnvironment.PARALLEL_PARSING_PROPERTY);
+        System.setProperty(JetCoreEnvironment.PARALLEL_PARSING_PROPERTY, String.valueOf(parallel));
+        JetCoreEnvironment environment;
+        try {
+            environment = new JetCoreEnvironment(getTestRootDisposable(), configuration);
+        }
+        finally {
+            if (oldValue == null) {
+                System.clearProperty(JetCoreEnvironment.PARALLEL_PARSING_PROPERTY);
+            }
+            else {
+                System.setProperty(JetCoreEnvironment.PARALLEL_PARSING_PROPERTY, oldValue);
+            }
+        }
+
+        Map<String, String> trees = new LinkedHashMap<String, String>();
+        for (JetFile file : environment.getSourceFiles()) {
+            trees.put(file.getVirtualFile().getPath(), DebugUtil.psiToString(file, false));
+        }
+        return trees;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.jvm.compiler;
+
+import com.intellij.codeInsight.ExternalAnnotationsManager;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.JetTestUtils;
+import org.jetbrains.jet.cli.jvm.compiler.CompiledExternalAnnotations;
+import org.jetbrains.jet.cli.jvm.compiler.ExternalAnnotationsIndexConverter;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.lang.resolve.lazy.KotlinTestWithEnvironment;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+public class CompiledExternalAnnotationsTest extends KotlinTestWithEnvironment {
+    @Override
+    protected JetCoreEnvironment createEnvironment() {
+        return createEnvironmentWithMockJdk(ConfigurationKind.JDK_ONLY);
+    }
+
+    public void testJdkAnnotationsIndexMatchesXml() throws Exception {
+        SortedMap<String, List<CompiledExternalAnnotations.Annotation>> items =
+                ExternalAnnotationsIndexConverter.collectItems(new File("jdk-annotations"));
+        assertFalse(items.isEmpty());
+
+        // The index is stored apart from the XML, so it doesn't list any annotations.xml files
+        File indexDir = JetTestUtils.tmpDirForTest(this);
+        CompiledExternalAnnotations.write(items, Collections.<String>emptyList(), new File(indexDir, CompiledExternalAnnotations.FILE_NAME));
+
+        VirtualFile indexRoot = VirtualFileManager.getInstance().findFileByUrl("file://" + indexDir.getAbsolutePath());
+        assertNotNull(indexRoot);
+        CompiledExternalAnnotations compiled = CompiledExternalAnnotations.load(indexRoot);
+        assertNotNull(compiled);
+
+        for (Map.Entry<String, List<CompiledExternalAnnotations.Annotation>> item : items.entrySet()) {
+            List<CompiledExternalAnnotations.Annotation> expected = item.getValue();
+            List<CompiledExternalAnnotations.Annotation> actual = compiled.findAnnotations(item.getKey());
+            assertNotNull("Item is missing: " + item.getKey(), actual);
+            assertEquals(item.getKey(), expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(item.getKey(), expected.get(i).getQualifiedName(), actual.get(i).getQualifiedName());
+                assertEquals(item.getKey(), expected.get(i).getText(), actual.get(i).getText());
+            }
+        }
+
+        assertNull(compiled.findAnnotations("java.lang.Object java.lang.String nonExistentMethod()"));
+    }
+
+    public void testIndexIsNotUsedWhenAnnotationsXmlChanged() throws Exception {
+        File root = JetTestUtils.tmpDirForTest(this);
+        File annotationsXml = new File(root, "a/" + ExternalAnnotationsManager.ANNOTATIONS_XML);
+        FileUtil.writeToFile(annotationsXml, "<root><item name=\"a.A void foo()\"><annotation name=\"org.jetbrains.annotations.NotNull\"/></item></root>");
+        File indexFile = new File(root, CompiledExternalAnnotations.FILE_NAME);
+        CompiledExternalAnnotations.write(ExternalAnnotationsIndexConverter.collectItems(root),
+                                          ExternalAnnotationsIndexConverter.collectAnnotationFiles(root), indexFile);
+
+        VirtualFile rootFile = VirtualFileManager.getInstance().findFileByUrl("file://" + root.getAbsolutePath());
+        assertNotNull(rootFile);
+        CompiledExternalAnnotations compiled = CompiledExternalAnnotations.load(rootFile);
+        assertNotNull(compiled);
+        assertEquals(1, compiled.findAnnotations("a.A void foo()").size());
+
+        File newAnnotationsXml = new File(root, "b/" + ExternalAnnotationsManager.ANNOTATIONS_XML);
+        FileUtil.writeToFile(newAnnotationsXml, "<root/>");
+        assertNull("Index is used while an annotations.xml file is missing from it", CompiledExternalAnnotations.load(rootFile));
+
+        assertTrue(newAnnotationsXml.delete());
+        assertNotNull(CompiledExternalAnnotations.load(rootFile));
+
+        assertTrue(annotationsXml.setLastModified(indexFile.lastModified() + 10000));
+        assertNull("Index is used while an annotations.xml file is newer than it", CompiledExternalAnnotations.load(rootFile));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.jvm.compiler;
+
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.lang.resolve.java.JavaClassPathIndex;
+import org.jetbrains.jet.lang.resolve.lazy.KotlinTestWithEnvironment;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+
+public class JavaClassPathIndexTest extends KotlinTestWithEnvironment {
+    @Override
+    protected JetCoreEnvironment createEnvironment() {
+        return createEnvironmentWithMockJdk(ConfigurationKind.JDK_ONLY);
+    }
+
+    public void testClassesOnClassPath() throws Exception {
+        JavaClassPathIndex index = getIndex();
+        assertFalse(index.isKnownToBeMissing(new FqName("java.lang.String")));
+        assertFalse(index.isKnownToBeMissing(new FqName("java.util.Map")));
+        assertFalse(index.isKnownToBeMissing(new FqName("java.util.Map.Entry")));
+    }
+
+    public void testMissingClasses() throws Exception {
+        JavaClassPathIndex index = getIndex();
+        assertTrue(index.isKnownToBeMissing(new FqName("java.lang.NoSuchClass")));
+        assertTrue(index.isKnownToBeMissing(new FqName("no.such.pkg.String")));
+        assertTrue(index.isKnownToBeMissing(new FqName("java")));
+    }
+
+    public void testRememberedMiss() throws Exception {
+        JavaClassPathIndex index = getIndex();
+        FqName nested = new FqName("java.lang.String.NoSuchNestedClass");
+        assertFalse(index.isKnownToBeMissing(nested));
+        index.classNotFound(nested);
+        assertTrue(index.isKnownToBeMissing(nested));
+    }
+
+    private JavaClassPathIndex getIndex() {
+        JavaClassPathIndex index = JavaClassPathIndex.getInstance(getProject());
+        assertNotNull(index);
+        return index;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.lang.resolve.lazy;
+
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.lang.types.lang.BuiltInsIndex;
+import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
+
+import java.io.File;
+import java.util.Arrays;
+
+public class BuiltInsIndexTest extends KotlinTestWithEnvironment {
+    @Override
+    protected JetCoreEnvironment createEnvironment() {
+        return createEnvironmentWithMockJdk(ConfigurationKind.JDK_ONLY);
+    }
+
+    public void testIndexIsUpToDate() throws Exception {
+        byte[] expected = BuiltInsIndex.compute(
+                KotlinBuiltIns.LIBRARY_FILES,
+                KotlinBuiltIns.loadResourcesAsJetFiles(getProject(), KotlinBuiltIns.LIBRARY_FILES)
+        ).toByteArray();
+        byte[] actual = FileUtil.loadFileBytes(new File("compiler/frontend/src/" + BuiltInsIndex.RESOURCE_PATH));
+        assertTrue("Built-ins index is out of date, run GenerateBuiltInsIndex", Arrays.equals(expected, actual));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.types.lang;
+
+import com.intellij.util.Function;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.lang.DefaultModuleConfiguration;
+import org.jetbrains.jet.lang.ModuleConfiguration;
+import org.jetbrains.jet.lang.PlatformToKotlinClassMap;
+import org.jetbrains.jet.lang.descriptors.ClassifierDescriptor;
+import org.jetbrains.jet.lang.descriptors.ModuleDescriptorImpl;
+import org.jetbrains.jet.lang.descriptors.NamespaceDescriptor;
+import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.resolve.lazy.KotlinTestWithEnvironment;
+import org.jetbrains.jet.lang.resolve.lazy.ResolveSession;
+import org.jetbrains.jet.lang.resolve.lazy.storage.LockBasedStorageManager;
+import org.jetbrains.jet.lang.resolve.name.Name;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class BuiltInsDeclarationProviderFactoryTest extends KotlinTestWithEnvironment {
+    @Override
+    protected JetCoreEnvironment createEnvironment() {
+        return createEnvironmentWithMockJdk(ConfigurationKind.JDK_ONLY);
+    }
+
+    public void testResolvingClassParsesOnlyItsFile() throws Exception {
+        BuiltInsIndex index = BuiltInsIndex.loadFromResources();
+        assertNotNull("Built-ins index is missing", index);
+
+        final List<String> parsedFiles = new ArrayList<String>();
+        LockBasedStorageManager storageManager = new LockBasedStorageManager();
+        BuiltInsDeclarationProviderFactory factory = new BuiltInsDeclarationProviderFactory(storageManager, index, new Function<String, JetFile>() {
+            @Override
+            public JetFile fun(String path) {
+                parsedFiles.add(path);
+                try {
+                    return KotlinBuiltIns.loadResourceAsJetFile(getProject(), path);
+                }
+                catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+
+        ModuleDescriptorImpl module = new ModuleDescriptorImpl(Name.special("<built-ins test module>"),
+                                                               DefaultModuleConfiguration.DEFAULT_JET_IMPORTS,
+                                                               PlatformToKotlinClassMap.EMPTY);
+        module.setModuleConfiguration(ModuleConfiguration.EMPTY);
+        ResolveSession session = new ResolveSession(getProject(), storageManager, module, factory);
+
+        NamespaceDescriptor builtInsPackage = session.getPackageDescriptorByFqName(KotlinBuiltIns.BUILT_INS_PACKAGE_FQ_NAME);
+        assertNotNull(builtInsPackage);
+        assertEquals(Collections.<String>emptyList(), parsedFiles);
+
+        ClassifierDescriptor enumClass = builtInsPackage.getMemberScope().getClassifier(Name.identifier("Enum"));
+        assertNotNull(enumClass);
+        assertEquals(Collections.singletonList(KotlinBuiltIns.BUILT_INS_DIR + "/Enum.jet"), parsedFiles);
+    }
+}
@@ -156,4 +156,14 @@ public class ReplInterpreterTest {
         testFile("multiline3.repl");
     }
 
+    @Test
+    public void earlierLinesState() {
+        testFile("earlierLinesState.repl");
+    }
+
+    @Test
+    public void failedLineIsForgotten() {
+        testFile("failedLineIsForgotten.repl");
+    }
+
 }
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.runtime;
+
+import jet.runtime.persistent.PersistentHashMap;
+import jet.runtime.persistent.PersistentHashSet;
+import jet.runtime.persistent.PersistentVector;
+import org.junit.Test;
+
+import java.util.*;
+
+import static junit.framework.Assert.*;
+
+public class PersistentCollectionsTest {
+    private static final int ITERATIONS = 20000;
+
+    // Only a few distinct hash codes, to exercise collision nodes
+    private static final class CollidingKey {
+        private final int value;
+
+        CollidingKey(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value % 7;
+        }
+
+        @Override
+        public String toString() {
+            return "CollidingKey(" + value + ")";
+        }
+    }
+
+    @Test
+    public void testVectorPlusAndRemoveLast() {
+        List<Integer> expected = new ArrayList<Integer>();
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        // Crosses the boundaries where the tail is pushed into the tree and the tree grows a level
+        for (int i = 0; i < 33 * 32 + 5; i++) {
+            PersistentVector<Integer> previous = vector;
+            vector = vector.plus(i);
+            expected.add(i);
+            assertEquals(i, previous.size());
+            assertEquals(expected, vector);
+        }
+        while (!expected.isEmpty()) {
+            vector = vector.removeLast();
+            expected.remove(expected.size() - 1);
+            assertEquals(expected, vector);
+        }
+        assertTrue(vector.isEmpty());
+    }
+
+    @Test
+    public void testVectorRandomUpdates() {
+        Random random = new Random(42);
+        List<Integer> expected = new ArrayList<Integer>();
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        for (int i = 0; i < ITERATIONS; i++) {
+            int operation = random.nextInt(10);
+            if (operation < 6 || expected.isEmpty()) {
+                vector = vector.plus(i);
+                expected.add(i);
+            }
+            else if (operation < 9) {
+                int index = random.nextInt(expected.size());
+                vector = vector.update(index, -i);
+                expected.set(index, -i);
+            }
+            else {
+                vector = vector.removeLast();
+                expected.remove(expected.size() - 1);
+            }
+            assertEquals(expected.size(), vector.size());
+        }
+        assertEquals(expected, vector);
+    }
+
+    @Test
+    public void testVectorIsNotModifiedByUpdates() {
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        for (int i = 0; i < 1000; i++) {
+            vector = vector.plus(i);
+        }
+        List<Integer> snapshot = new ArrayList<Integer>(vector);
+
+        vector.update(500, -1);
+        vector.removeLast();
+        vector.plus(1000);
+        PersistentVector.Builder<Integer> builder = vector.builder();
+        builder.set(0, -1);
+        builder.add(1000);
+
+        assertEquals(snapshot, vector);
+    }
+
+    @Test
+    public void testVectorBuilderReuse() {
+        PersistentVector.Builder<Integer> builder = PersistentVector.<Integer>empty().builder();
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int i = 0; i < 100; i++) {
+            builder.add(i);
+            expected.add(i);
+        }
+        PersistentVector<Integer> first = builder.build();
+        List<Integer> firstSnapshot = new ArrayList<Integer>(expected);
+
+        for (int i = 0; i < 100; i++) {
+            builder.set(i, -i);
+            expected.set(i, -i);
+        }
+        builder.add(100);
+        expected.add(100);
+        PersistentVector<Integer> second = builder.build();
+
+        assertEquals(firstSnapshot, first);
+        assertEquals(expected, second);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testVectorIndexOutOfBounds() {
+        PersistentVector.<Integer>empty().plus(1).get(1);
+    }
+
+    @Test
+    public void testMapRandomUpdates() {
+        doTestMapRandomUpdates(false);
+    }
+
+    @Test
+    public void testMapRandomUpdatesWithCollisions() {
+        doTestMapRandomUpdates(true);
+    }
+
+    private static void doTestMapRandomUpdates(boolean colliding) {
+        Random random = new Random(42);
+        Map<Object, Integer> expected = new HashMap<Object, Integer>();
+        PersistentHashMap<Object, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < ITERATIONS; i++) {
+            int value = random.nextInt(1000);
+            Object key = value == 0 ? null : colliding ? new CollidingKey(value) : value;
+            if (random.nextInt(3) == 0) {
+                map = map.minus(key);
+                expected.remove(key);
+            }
+            else {
+                map = map.plus(key, i);
+                expected.put(key, i);
+            }
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected.get(key), map.get(key));
+        }
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+    }
+
+    @Test
+    public void testMapIsNotModifiedByUpdates() {
+        PersistentHashMap<Object, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 100; i++) {
+            map = map.plus(i, i).plus(new CollidingKey(i), i);
+        }
+        Map<Object, Integer> snapshot = new HashMap<Object, Integer>(map);
+
+        map.plus(0, -1);
+        map.minus(1);
+        map.minus(new CollidingKey(2));
+        map.plus(new CollidingKey(1000), 1000);
+        PersistentHashMap.Builder<Object, Integer> builder = map.builder();
+        for (int i = 0; i < 50; i++) {
+            builder.remove(i);
+            builder.put(new CollidingKey(i), -i);
+        }
+
+        assertEquals(snapshot, map);
+    }
+
+    @Test
+    public void testMapBuilderReuse() {
+        PersistentHashMap.Builder<Object, Integer> builder = PersistentHashMap.<Object, Integer>empty().builder();
+        for (int i = 0; i < 200; i++) {
+            builder.put(i, i);
+            builder.put(new CollidingKey(i), i);
+        }
+        PersistentHashMap<Object, Integer> first = builder.build();
+        Map<Object, Integer> firstSnapshot = new HashMap<Object, Integer>(first);
+
+        for (int i = 0; i < 200; i += 2) {
+            builder.remove(i);
+            builder.put(new CollidingKey(i), -i);
+        }
+        PersistentHashMap<Object, Integer> second = builder.build();
+
+        assertEquals(firstSnapshot, first);
+        assertEquals(300, second.size());
+        assertFalse(second.containsKey(0));
+        assertEquals(Integer.valueOf(-2), second.get(new CollidingKey(2)));
+    }
+
+    @Test
+    public void testMapSameValueReturnsSameMap() {
+        PersistentHashMap<String, Integer> map = PersistentHashMap.<String, Integer>empty().plus("a", 1);
+        assertSame(map, map.plus("a", 1));
+        assertSame(map, map.minus("b"));
+    }
+
+    @Test
+    public void testSet() {
+        Random random = new Random(42);
+        Set<Integer> expected = new HashSet<Integer>();
+        PersistentHashSet<Integer> set = PersistentHashSet.empty();
+        for (int i = 0; i < ITERATIONS; i++) {
+            Integer element = random.nextInt(1000);
+            if (random.nextBoolean()) {
+                set = set.plus(element);
+                expected.add(element);
+            }
+            else {
+                set = set.minus(element);
+                expected.remove(element);
+            }
+        }
+        assertEquals(expected, set);
+
+        PersistentHashSet<Integer> built = PersistentHashSet.<Integer>empty().builder().addAll(expected).build();
+        assertEquals(expected, built);
+    }
+}
@@ -66,13 +66,14 @@ public class GenerateInjectors {
         generator.addParameter(Project.class);
         generator.addParameter(ResolveSession.class);
         generator.addParameter(ModuleDescriptor.class);
-        generator.addPublicField(DescriptorResolver.class);
-        generator.addPublicField(ExpressionTypingServices.class);
-        generator.addPublicField(TypeResolver.class);
+        // Many lazy resolve sessions only ever need scopes, the resolvers are created on first use
+        generator.addLazyPublicField(DescriptorResolver.class);
+        generator.addLazyPublicField(ExpressionTypingServices.class);
+        generator.addLazyPublicField(TypeResolver.class);
         generator.addPublicField(ScopeProvider.class);
-        generator.addPublicField(AnnotationResolver.class);
-        generator.addPublicField(QualifiedExpressionResolver.class);
-        generator.addPublicField(JetImportsFactory.class);
+        generator.addLazyPublicField(AnnotationResolver.class);
+        generator.addLazyPublicField(QualifiedExpressionResolver.class);
+        generator.addLazyPublicField(JetImportsFactory.class);
         generator.addField(NeedSyntheticCallResolverExtension.class);
         generator.generate("compiler/frontend/src", "org.jetbrains.jet.di", "InjectorForLazyResolve", GenerateInjectors.class);
     }
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.generators.injectors;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.di.DependencyInjectorGenerator;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+
+public class InjectorGeneratorTest extends TestCase {
+    private File tmpDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        tmpDir = FileUtil.createTempDirectory("injectors", null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtil.delete(tmpDir);
+        super.tearDown();
+    }
+
+    public void testLazyComponentsAreCreatedOnFirstAccess() throws IOException {
+        DependencyInjectorGenerator generator = new DependencyInjectorGenerator();
+        generator.addPublicField(Eager.class);
+        generator.addLazyPublicField(Lazy.class);
+        generator.addLazyPublicField(OtherLazy.class);
+        String text = generate(generator);
+
+        String constructor = text.substring(text.indexOf("public TestInjector("), text.indexOf("private synchronized"));
+        assertTrue(text, constructor.contains("new Eager()"));
+        assertTrue(text, constructor.contains("new Shared()"));
+        assertFalse(text, constructor.contains("new Lazy()"));
+        assertFalse(text, constructor.contains("new OtherLazy()"));
+        assertFalse(text, constructor.contains("new Helper()"));
+
+        // Helper is needed by both lazy components, so they are created together
+        assertTrue(text, text.contains("private synchronized void initializeLazy() {"));
+        assertFalse(text, text.contains("initializeOtherLazy"));
+        assertTrue(text, text.contains("this.otherLazy.setHelper(helper);"));
+
+        String getter = text.substring(text.indexOf("public OtherLazy getOtherLazy()"));
+        assertTrue(text, getter.contains("if (!lazyInitialized) {"));
+        assertTrue(text, text.contains("lazyInitialized = true;"));
+    }
+
+    public void testLazyComponentNeededByEagerOne() throws IOException {
+        DependencyInjectorGenerator generator = new DependencyInjectorGenerator();
+        generator.addPublicField(NeedsLazy.class);
+        generator.addLazyPublicField(Lazy.class);
+        try {
+            generate(generator);
+            fail("Lazy component needed by an eager one is not reported");
+        }
+        catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Lazy component"));
+        }
+    }
+
+    @NotNull
+    private String generate(@NotNull DependencyInjectorGenerator generator) throws IOException {
+        generator.generate(tmpDir.getPath(), "test", "TestInjector", InjectorGeneratorTest.class);
+        return FileUtil.loadFile(new File(tmpDir, "test/TestInjector.java"), true);
+    }
+
+    public static class Shared {
+    }
+
+    public static class Helper {
+    }
+
+    public static class Eager {
+        @Inject
+        public void setShared(Shared shared) {
+        }
+    }
+
+    public static class Lazy {
+        @Inject
+        public void setHelper(Helper helper) {
+        }
+
+        @Inject
+        public void setShared(Shared shared) {
+        }
+    }
+
+    public static class OtherLazy {
+        @Inject
+        public void setHelper(Helper helper) {
+        }
+    }
+
+    public static class NeedsLazy {
+        @Inject
+        public void setLazy(Lazy lazy) {
+        }
+    }
+}
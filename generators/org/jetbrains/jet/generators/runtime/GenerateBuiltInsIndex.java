@@ -0,0 +1,51 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.generators.runtime;
+
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.jet.cli.jvm.compiler.CompileEnvironmentUtil;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.config.CompilerConfiguration;
+import org.jetbrains.jet.lang.types.lang.BuiltInsIndex;
+import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class GenerateBuiltInsIndex {
+    public static final File INDEX_FILE = new File("compiler/frontend/src/" + BuiltInsIndex.RESOURCE_PATH);
+
+    public static void main(String[] args) throws IOException {
+        JetCoreEnvironment environment = new JetCoreEnvironment(CompileEnvironmentUtil.createMockDisposable(), new CompilerConfiguration());
+        byte[] bytes = BuiltInsIndex.compute(
+                KotlinBuiltIns.LIBRARY_FILES,
+                KotlinBuiltIns.loadResourcesAsJetFiles(environment.getProject(), KotlinBuiltIns.LIBRARY_FILES)
+        ).toByteArray();
+
+        if (INDEX_FILE.exists() && Arrays.equals(FileUtil.loadFileBytes(INDEX_FILE), bytes)) {
+            System.out.println("Not changed: " + INDEX_FILE);
+            return;
+        }
+        FileUtil.writeToFile(INDEX_FILE, bytes);
+        System.out.println("File written: " + INDEX_FILE);
+    }
+
+    private GenerateBuiltInsIndex() {
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.plugin.caches;
+
+import com.google.common.collect.Sets;
+import com.intellij.util.containers.MultiMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Names of declarations prepared for completion: finds the names which may match a prefix by camel humps or contain it,
+ * without checking all the names. The same keys are recorded in the stub indices for the names of source declarations.
+ */
+public class CompletionNameIndex {
+    private static final String WORD_START_KEY_PREFIX = "^";
+
+    private final Collection<String> names;
+
+    // Key, see getIndexKeys() -> names
+    private final MultiMap<String, String> namesByKey = new MultiMap<String, String>();
+
+    public CompletionNameIndex(@NotNull Collection<String> names) {
+        this.names = Collections.unmodifiableCollection(Sets.newLinkedHashSet(names));
+
+        for (String name : this.names) {
+            for (String key : getIndexKeys(name)) {
+                namesByKey.putValue(key, name);
+            }
+        }
+    }
+
+    /**
+     * @return lower case characters of the name and pairs of adjacent characters, and also lower case first letters of its words
+     * marked with {@link #WORD_START_KEY_PREFIX}
+     */
+    @NotNull
+    public static Set<String> getIndexKeys(@NotNull String name) {
+        String lowerCaseName = name.toLowerCase(Locale.ENGLISH);
+
+        Set<String> keys = Sets.newHashSet();
+        for (int i = 0; i < name.length(); i++) {
+            if (isWordStart(name, i)) {
+                keys.add(WORD_START_KEY_PREFIX + lowerCaseName.charAt(i));
+            }
+            keys.add(lowerCaseName.substring(i, i + 1));
+            if (i + 1 < name.length()) {
+                keys.add(lowerCaseName.substring(i, i + 2));
+            }
+        }
+        return keys;
+    }
+
+    private static boolean isWordStart(@NotNull String name, int index) {
+        if (index == 0) return true;
+
+        char previous = name.charAt(index - 1);
+        char current = name.charAt(index);
+        return !Character.isLetterOrDigit(previous)
+               || Character.isUpperCase(current) && !Character.isUpperCase(previous)
+               || Character.isDigit(current) != Character.isDigit(previous);
+    }
+
+    /**
+     * Wildcards and other special characters in patterns are not indexed, every name is a candidate for such a prefix.
+     */
+    public static boolean isIndexedPrefix(@NotNull String prefix) {
+        return !prefix.isEmpty() && Character.isLetterOrDigit(prefix.charAt(0));
+    }
+
+    /**
+     * @return key of the names having a word which starts with the first letter of the prefix
+     */
+    @NotNull
+    public static String getWordStartKey(@NotNull String prefix) {
+        assert isIndexedPrefix(prefix) : "Prefix is not indexed: " + prefix;
+        return WORD_START_KEY_PREFIX + Character.toLowerCase(prefix.charAt(0));
+    }
+
+    /**
+     * @return keys which all the names containing the prefix ignoring case have
+     */
+    @NotNull
+    public static List<String> getContainedKeys(@NotNull String prefix) {
+        assert isIndexedPrefix(prefix) : "Prefix is not indexed: " + prefix;
+
+        String lowerCasePrefix = prefix.toLowerCase(Locale.ENGLISH);
+        if (lowerCasePrefix.length() == 1) {
+            return Collections.singletonList(lowerCasePrefix);
+        }
+
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i + 1 < lowerCasePrefix.length(); i++) {
+            keys.add(lowerCasePrefix.substring(i, i + 2));
+        }
+        return keys;
+    }
+
+    public static boolean containsIgnoringCase(@NotNull String name, @NotNull String prefix) {
+        return name.toLowerCase(Locale.ENGLISH).contains(prefix.toLowerCase(Locale.ENGLISH));
+    }
+
+    @NotNull
+    public Collection<String> getAllNames() {
+        return names;
+    }
+
+    /**
+     * @return names which contain the prefix ignoring case or have a word starting with its first letter. The result is a superset
+     * of the names matched by completion prefix matchers, so they still have to be checked by the caller.
+     */
+    @NotNull
+    public Collection<String> getCandidates(@NotNull String prefix) {
+        if (!isIndexedPrefix(prefix)) {
+            return names;
+        }
+
+        Set<String> result = Sets.newLinkedHashSet(namesByKey.get(getWordStartKey(prefix)));
+
+        Collection<String> containing = null;
+        for (String key : getContainedKeys(prefix)) {
+            Collection<String> withKey = namesByKey.get(key);
+            if (containing == null || withKey.size() < containing.size()) {
+                containing = withKey;
+            }
+        }
+        assert containing != null;
+
+        for (String name : containing) {
+            if (containsIgnoringCase(name, prefix)) {
+                result.add(name);
+            }
+        }
+
+        return result;
+    }
+}
@@ -21,12 +21,20 @@ import com.google.common.collect.Collections2;
 import com.google.common.collect.Sets;
 import com.intellij.openapi.extensions.Extensions;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.util.Condition;
+import com.intellij.openapi.util.Key;
 import com.intellij.psi.*;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.ProjectScope;
 import com.intellij.psi.search.PsiShortNamesCache;
+import com.intellij.psi.stubs.StringStubIndexExtension;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.util.ArrayUtil;
 import com.intellij.util.Processor;
+import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.containers.HashSet;
 import com.intellij.util.containers.MultiMap;
 import org.jetbrains.annotations.NonNls;
@@ -69,6 +77,11 @@ public class JetShortNamesCache extends PsiShortNamesCache {
         throw new IllegalStateException(JetShortNamesCache.class.getSimpleName() + " is not found for project " + project);
     }
 
+    private static final Key<CachedValue<CompletionNameIndex>> LIBRARY_TOP_LEVEL_FUNCTION_NAMES_KEY =
+            Key.create("KOTLIN_LIBRARY_TOP_LEVEL_FUNCTION_NAMES_INDEX");
+    private static final Key<CachedValue<CompletionNameIndex>> LIBRARY_TOP_LEVEL_OBJECT_NAMES_KEY =
+            Key.create("KOTLIN_LIBRARY_TOP_LEVEL_OBJECT_NAMES_INDEX");
+
     private static final PsiMethod[] NO_METHODS = new PsiMethod[0];
     private static final PsiField[] NO_FIELDS = new PsiField[0];
     private final Project project;
@@ -161,16 +174,104 @@ public class JetShortNamesCache extends PsiShortNamesCache {
         Set<String> topObjectNames = new HashSet<String>();
         topObjectNames.addAll(JetTopLevelShortObjectNameIndex.getInstance().getAllKeys(project));
 
-        Collection<PsiClass> classObjects = JetFromJavaDescriptorHelper.getCompiledClassesForTopLevelObjects(project, GlobalSearchScope.allScope(project));
-        topObjectNames.addAll(Collections2.transform(classObjects, new Function<PsiClass, String>() {
+        topObjectNames.addAll(getCompiledTopLevelObjectNames(GlobalSearchScope.allScope(project)));
+        return topObjectNames;
+    }
+
+    @NotNull
+    private Collection<String> getCompiledTopLevelObjectNames(@NotNull GlobalSearchScope scope) {
+        Collection<PsiClass> classObjects = JetFromJavaDescriptorHelper.getCompiledClassesForTopLevelObjects(project, scope);
+        return Collections2.transform(classObjects, new Function<PsiClass, String>() {
             @Override
             public String apply(@Nullable PsiClass aClass) {
                 assert aClass != null;
                 return aClass.getName();
             }
-        }));
+        });
+    }
 
-        return topObjectNames;
+    /**
+     * Names of top level functions which may match the completion prefix, see {@link CompletionNameIndex#getCandidates(String)}.
+     */
+    @NotNull
+    public Collection<String> getTopLevelFunctionNamesCandidates(@NotNull String prefix) {
+        CompletionNameIndex libraryNames = getLibraryNameIndex(LIBRARY_TOP_LEVEL_FUNCTION_NAMES_KEY, new CachedValueProvider<CompletionNameIndex>() {
+            @Nullable
+            @Override
+            public Result<CompletionNameIndex> compute() {
+                return createLibraryNameIndexResult(
+                        JetFromJavaDescriptorHelper.getPossiblePackageDeclarationsNames(project, ProjectScope.getLibrariesScope(project)));
+            }
+        });
+
+        Set<String> result = Sets.newLinkedHashSet(libraryNames.getCandidates(prefix));
+        result.addAll(getSourceNamesCandidates(JetTopLevelFunctionNameKeyIndex.getInstance(), JetShortFunctionNameIndex.getInstance(), prefix));
+        return result;
+    }
+
+    /**
+     * Names of top level objects which may match the completion prefix, see {@link CompletionNameIndex#getCandidates(String)}.
+     */
+    @NotNull
+    public Collection<String> getTopLevelObjectNamesCandidates(@NotNull String prefix) {
+        CompletionNameIndex libraryNames = getLibraryNameIndex(LIBRARY_TOP_LEVEL_OBJECT_NAMES_KEY, new CachedValueProvider<CompletionNameIndex>() {
+            @Nullable
+            @Override
+            public Result<CompletionNameIndex> compute() {
+                return createLibraryNameIndexResult(getCompiledTopLevelObjectNames(ProjectScope.getLibrariesScope(project)));
+            }
+        });
+
+        Set<String> result = Sets.newLinkedHashSet(libraryNames.getCandidates(prefix));
+        result.addAll(getSourceNamesCandidates(JetTopLevelObjectNameKeyIndex.getInstance(), JetTopLevelShortObjectNameIndex.getInstance(), prefix));
+        return result;
+    }
+
+    /**
+     * The same candidates as {@link CompletionNameIndex#getCandidates(String)} gives, found by the keys of source declaration names
+     * which are kept in the stub index.
+     */
+    @NotNull
+    private <T extends JetNamedDeclaration> Collection<String> getSourceNamesCandidates(
+            @NotNull StringStubIndexExtension<T> nameKeyIndex,
+            @NotNull StringStubIndexExtension<T> nameIndex,
+            @NotNull String prefix
+    ) {
+        if (!CompletionNameIndex.isIndexedPrefix(prefix)) {
+            return nameIndex.getAllKeys(project);
+        }
+
+        GlobalSearchScope scope = GlobalSearchScope.allScope(project);
+        Set<String> result = Sets.newLinkedHashSet();
+
+        for (T declaration : nameKeyIndex.get(CompletionNameIndex.getWordStartKey(prefix), project, scope)) {
+            ContainerUtil.addIfNotNull(declaration.getName(), result);
+        }
+
+        // Every name containing the prefix has all of these keys, so any of them finds such names
+        String containedKey = CompletionNameIndex.getContainedKeys(prefix).get(0);
+        for (T declaration : nameKeyIndex.get(containedKey, project, scope)) {
+            String name = declaration.getName();
+            if (name != null && CompletionNameIndex.containsIgnoringCase(name, prefix)) {
+                result.add(name);
+            }
+        }
+
+        return result;
+    }
+
+    @NotNull
+    private CompletionNameIndex getLibraryNameIndex(
+            @NotNull Key<CachedValue<CompletionNameIndex>> key,
+            @NotNull CachedValueProvider<CompletionNameIndex> provider
+    ) {
+        return CachedValuesManager.getManager(project).getCachedValue(project, key, provider, false);
+    }
+
+    @NotNull
+    private CachedValueProvider.Result<CompletionNameIndex> createLibraryNameIndexResult(@NotNull Collection<String> names) {
+        // Compiled libraries change only together with project roots, so editing sources doesn't rebuild the index
+        return CachedValueProvider.Result.create(new CompletionNameIndex(names), ProjectRootManager.getInstance(project));
     }
 
     @NotNull
@@ -16,7 +16,9 @@
 
 package org.jetbrains.jet.plugin.caches.resolve;
 
+import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.plugin.project.TargetPlatform;
 
 public abstract class DeclarationsCacheProvider {
@@ -28,5 +30,8 @@ public abstract class DeclarationsCacheProvider {
         this.project = project;
     }
 
-    public abstract KotlinDeclarationsCache getDeclarations(boolean allowIncomplete);
+    /**
+     * @param module module to get declarations for, or null for declarations of the whole project
+     */
+    public abstract KotlinDeclarationsCache getDeclarations(@Nullable Module module, boolean allowIncomplete);
 }
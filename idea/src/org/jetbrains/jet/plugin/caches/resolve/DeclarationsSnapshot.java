@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.plugin.caches.resolve;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.psi.PsiManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.asJava.JetCodeBlockModificationListener;
+import org.jetbrains.jet.lang.psi.JetFile;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * State of the sources a declarations cache was computed from: the analyzed files with their out of code block modification counts,
+ * and the count of out of code block modifications made outside Kotlin files (Java sources, project structure).
+ *
+ * Analysis results can be reused for as long as the snapshot stays the same, whatever happens in other module groups.
+ * The counts are kept per file, but a snapshot is only compared as a whole: it doesn't tell which files have to be resolved again.
+ */
+class DeclarationsSnapshot {
+    private final Map<JetFile, Long> fileModificationCounts;
+    private final long otherModificationCount;
+
+    private DeclarationsSnapshot(@NotNull Map<JetFile, Long> fileModificationCounts, long otherModificationCount) {
+        this.fileModificationCounts = fileModificationCounts;
+        this.otherModificationCount = otherModificationCount;
+    }
+
+    @NotNull
+    public static DeclarationsSnapshot create(@NotNull Project project, @NotNull Collection<JetFile> files) {
+        ModificationTracker otherTracker = JetCodeBlockModificationListener.getNonKotlinOutOfCodeBlockModificationTracker(project);
+        // Without the listener changes of Kotlin files can't be told apart, so any change invalidates the snapshot
+        long otherModificationCount = otherTracker != null
+                                      ? otherTracker.getModificationCount()
+                                      : PsiManager.getInstance(project).getModificationTracker().getOutOfCodeBlockModificationCount();
+
+        Map<JetFile, Long> fileModificationCounts = new HashMap<JetFile, Long>(files.size());
+        for (JetFile file : files) {
+            fileModificationCounts.put(file, JetCodeBlockModificationListener.getOutOfCodeBlockModificationCount(file));
+        }
+        return new DeclarationsSnapshot(fileModificationCounts, otherModificationCount);
+    }
+
+    public boolean isValid() {
+        for (JetFile file : fileModificationCounts.keySet()) {
+            if (!file.isValid()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        DeclarationsSnapshot snapshot = (DeclarationsSnapshot) o;
+        return otherModificationCount == snapshot.otherModificationCount && fileModificationCounts.equals(snapshot.fileModificationCounts);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * fileModificationCounts.hashCode() + (int) (otherModificationCount ^ (otherModificationCount >>> 32));
+    }
+}
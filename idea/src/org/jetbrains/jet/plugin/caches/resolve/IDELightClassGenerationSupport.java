@@ -18,6 +18,8 @@ package org.jetbrains.jet.plugin.caches.resolve;
 
 import com.google.common.collect.Sets;
 import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.libraries.LibraryUtil;
 import com.intellij.openapi.util.Condition;
@@ -63,7 +65,8 @@ public class IDELightClassGenerationSupport extends LightClassGenerationSupport
     @Override
     public LightClassConstructionContext analyzeRelevantCode(@NotNull Collection<JetFile> files) {
         KotlinCacheManager cacheManager = KotlinCacheManager.getInstance(project);
-        KotlinDeclarationsCache declarationsCache = cacheManager.getPossiblyIncompleteDeclarationsForLightClassGeneration();
+        Module module = files.isEmpty() ? null : ModuleUtilCore.findModuleForPsiElement(files.iterator().next());
+        KotlinDeclarationsCache declarationsCache = cacheManager.getPossiblyIncompleteDeclarationsForLightClassGeneration(module);
         return new LightClassConstructionContext(declarationsCache.getBindingContext(), null);
     }
 
@@ -17,6 +17,7 @@
 package org.jetbrains.jet.plugin.caches.resolve;
 
 import com.google.common.base.Predicates;
+import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Key;
 import com.intellij.psi.PsiFile;
@@ -70,7 +71,7 @@ class JSDeclarationsCacheProvider extends DeclarationsCacheProvider {
     }
 
     @Override
-    public KotlinDeclarationsCache getDeclarations(boolean allowIncomplete) {
+    public KotlinDeclarationsCache getDeclarations(@Nullable Module module, boolean allowIncomplete) {
         synchronized (declarationAnalysisLock) {
             return CachedValuesManager.getManager(project).getCachedValue(
                     project,
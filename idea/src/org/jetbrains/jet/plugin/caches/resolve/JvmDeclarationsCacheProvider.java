@@ -17,8 +17,14 @@
 package org.jetbrains.jet.plugin.caches.resolve;
 
 import com.google.common.base.Predicates;
+import com.google.common.collect.Maps;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.roots.ProjectRootModificationTracker;
 import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.UserDataHolder;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.util.CachedValue;
@@ -28,6 +34,7 @@ import com.intellij.psi.util.PsiModificationTracker;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.analyzer.AnalyzeExhaust;
+import org.jetbrains.jet.lang.psi.JetFile;
 import org.jetbrains.jet.lang.resolve.AnalyzerScriptParameter;
 import org.jetbrains.jet.lang.resolve.BindingContext;
 import org.jetbrains.jet.lang.resolve.BindingTrace;
@@ -36,58 +43,38 @@ import org.jetbrains.jet.lang.resolve.java.AnalyzerFacadeForJVM;
 import org.jetbrains.jet.lang.resolve.java.JetFilesProvider;
 import org.jetbrains.jet.plugin.project.TargetPlatform;
 
-import java.util.Collections;
+import java.util.*;
 
+/**
+ * Modules connected by dependencies (in either direction) form a group which is analyzed together,
+ * so every Kotlin file of a group gets exactly one set of descriptors, shared by all the modules of the group.
+ * Groups don't see each other's sources, so the analysis of one group is reused while only other groups change.
+ *
+ * Within a group nothing is reused: an out of code block change of any of its Kotlin files, or of a non-Kotlin source,
+ * makes all the files of the group analyzed again. The files are resolved together, and descriptors of unchanged files
+ * refer to the descriptors of the changed ones, so they can't be kept from the previous analysis.
+ */
 class JvmDeclarationsCacheProvider extends DeclarationsCacheProvider {
-    private final CachedValueProvider<KotlinDeclarationsCache> declarationsProvider;
-    private final Key<CachedValue<KotlinDeclarationsCache>> cachedKey;
+    private static final Key<CachedValue<KotlinDeclarationsCache>> CACHED_KEY = Key.create("KOTLIN_JVM_DECLARATIONS_CACHE");
+    private static final Key<AnalyzedDeclarations> ANALYZED_DECLARATIONS_KEY = Key.create("KOTLIN_JVM_ANALYZED_DECLARATIONS");
+    private static final Key<CachedValue<Map<Module, Module>>> MODULE_GROUPS_KEY = Key.create("KOTLIN_JVM_MODULE_GROUPS");
+
     private final Object declarationAnalysisLock = new Object();
 
-    private BindingTrace incompleteTrace;
+    // By the owner of the group being analyzed: light classes of its files are built from the incomplete results
+    private final Map<UserDataHolder, BindingTrace> incompleteTraces = Maps.newHashMap();
 
-    JvmDeclarationsCacheProvider(final Project project) {
+    JvmDeclarationsCacheProvider(Project project) {
         super(project, TargetPlatform.JVM);
-
-        cachedKey = Key.create("KOTLIN_JVM_DECLARATIONS_CACHE");
-
-        declarationsProvider = new CachedValueProvider<KotlinDeclarationsCache>() {
-            @Nullable
-            @Override
-            public Result<KotlinDeclarationsCache> compute() {
-                // This lock is already acquired by the calling method,
-                // but we put it here to guard for the case of further modifications
-                synchronized (declarationAnalysisLock) {
-                    BindingTraceContext trace = new BindingTraceContext();
-
-                    incompleteTrace = trace;
-                    AnalyzeExhaust analyzeExhaust;
-                    try {
-                        analyzeExhaust = AnalyzerFacadeForJVM.analyzeFilesWithJavaIntegration(
-                                project,
-                                JetFilesProvider.getInstance(project).allInScope(GlobalSearchScope.allScope(project)),
-                                trace,
-                                Collections.<AnalyzerScriptParameter>emptyList(),
-                                Predicates.<PsiFile>alwaysFalse(),
-                                true);
-                    }
-                    finally {
-                        incompleteTrace = null;
-                    }
-
-                    return Result.<KotlinDeclarationsCache>create(
-                            new KotlinDeclarationsCacheImpl(analyzeExhaust),
-                            PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT
-                    );
-                }
-            }
-        };
     }
 
     @Override
     @NotNull
-    public KotlinDeclarationsCache getDeclarations(boolean allowIncomplete) {
+    public KotlinDeclarationsCache getDeclarations(@Nullable Module module, boolean allowIncomplete) {
         synchronized (declarationAnalysisLock) {
+            UserDataHolder groupOwner = module != null ? getGroupOwner(module) : project;
             if (allowIncomplete) {
+                final BindingTrace incompleteTrace = incompleteTraces.get(groupOwner);
                 if (incompleteTrace != null) {
                     return new KotlinDeclarationsCache() {
                         @NotNull
@@ -100,11 +87,144 @@ class JvmDeclarationsCacheProvider extends DeclarationsCacheProvider {
             }
 
             return CachedValuesManager.getManager(project).getCachedValue(
-                    project,
-                    cachedKey,
-                    declarationsProvider,
+                    groupOwner,
+                    CACHED_KEY,
+                    new DeclarationsProvider(groupOwner),
                     false
             );
         }
     }
+
+    @NotNull
+    private Module getGroupOwner(@NotNull Module module) {
+        Module owner = getModuleGroups().get(module);
+        // A module added after the groups were computed is on its own until the roots change
+        return owner != null ? owner : module;
+    }
+
+    @NotNull
+    private Map<Module, Module> getModuleGroups() {
+        return CachedValuesManager.getManager(project).getCachedValue(
+                project,
+                MODULE_GROUPS_KEY,
+                new CachedValueProvider<Map<Module, Module>>() {
+                    @Nullable
+                    @Override
+                    public Result<Map<Module, Module>> compute() {
+                        return Result.create(computeModuleGroups(project), ProjectRootModificationTracker.getInstance(project));
+                    }
+                },
+                false
+        );
+    }
+
+    /**
+     * @return the owner of the group for every module of the project
+     */
+    @NotNull
+    private static Map<Module, Module> computeModuleGroups(@NotNull Project project) {
+        Module[] modules = ModuleManager.getInstance(project).getModules();
+
+        Map<Module, Module> parents = new HashMap<Module, Module>();
+        for (Module module : modules) {
+            for (Module dependency : ModuleRootManager.getInstance(module).getDependencies()) {
+                Module moduleRoot = findRoot(parents, module);
+                Module dependencyRoot = findRoot(parents, dependency);
+                if (moduleRoot != dependencyRoot) {
+                    parents.put(moduleRoot, dependencyRoot);
+                }
+            }
+        }
+
+        Map<Module, Module> owners = new HashMap<Module, Module>();
+        for (Module module : modules) {
+            owners.put(module, findRoot(parents, module));
+        }
+        return owners;
+    }
+
+    @NotNull
+    private static Module findRoot(@NotNull Map<Module, Module> parents, @NotNull Module module) {
+        Module current = module;
+        Module parent;
+        while ((parent = parents.get(current)) != null) {
+            current = parent;
+        }
+        return current;
+    }
+
+    @NotNull
+    private GlobalSearchScope getGroupScope(@NotNull UserDataHolder groupOwner) {
+        if (!(groupOwner instanceof Module)) {
+            return GlobalSearchScope.allScope(project);
+        }
+        GlobalSearchScope scope = ((Module) groupOwner).getModuleWithDependenciesScope();
+        for (Map.Entry<Module, Module> entry : getModuleGroups().entrySet()) {
+            if (entry.getValue() == groupOwner && entry.getKey() != groupOwner) {
+                scope = scope.uniteWith(entry.getKey().getModuleWithDependenciesScope());
+            }
+        }
+        return scope;
+    }
+
+    private class DeclarationsProvider implements CachedValueProvider<KotlinDeclarationsCache> {
+        private final UserDataHolder groupOwner;
+
+        private DeclarationsProvider(@NotNull UserDataHolder groupOwner) {
+            this.groupOwner = groupOwner;
+        }
+
+        @Nullable
+        @Override
+        public Result<KotlinDeclarationsCache> compute() {
+            // This lock is already acquired by the calling method,
+            // but we put it here to guard for the case of further modifications
+            synchronized (declarationAnalysisLock) {
+                Collection<JetFile> files = JetFilesProvider.getInstance(project).allInScope(getGroupScope(groupOwner));
+                DeclarationsSnapshot snapshot = DeclarationsSnapshot.create(project, files);
+
+                AnalyzedDeclarations previous = groupOwner.getUserData(ANALYZED_DECLARATIONS_KEY);
+                if (previous != null && previous.snapshot.equals(snapshot) && previous.snapshot.isValid()) {
+                    return Result.<KotlinDeclarationsCache>create(previous.cache, PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT);
+                }
+
+                // Free the previous results before the analysis starts
+                groupOwner.putUserData(ANALYZED_DECLARATIONS_KEY, null);
+
+                KotlinDeclarationsCache cache = new KotlinDeclarationsCacheImpl(analyze(files));
+                groupOwner.putUserData(ANALYZED_DECLARATIONS_KEY, new AnalyzedDeclarations(snapshot, cache));
+
+                return Result.create(cache, PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT);
+            }
+        }
+
+        @NotNull
+        private AnalyzeExhaust analyze(@NotNull Collection<JetFile> files) {
+            BindingTraceContext trace = new BindingTraceContext();
+
+            incompleteTraces.put(groupOwner, trace);
+            try {
+                return AnalyzerFacadeForJVM.analyzeFilesWithJavaIntegration(
+                        project,
+                        files,
+                        trace,
+                        Collections.<AnalyzerScriptParameter>emptyList(),
+                        Predicates.<PsiFile>alwaysFalse(),
+                        true);
+            }
+            finally {
+                incompleteTraces.remove(groupOwner);
+            }
+        }
+    }
+
+    private static class AnalyzedDeclarations {
+        private final DeclarationsSnapshot snapshot;
+        private final KotlinDeclarationsCache cache;
+
+        private AnalyzedDeclarations(@NotNull DeclarationsSnapshot snapshot, @NotNull KotlinDeclarationsCache cache) {
+            this.snapshot = snapshot;
+            this.cache = cache;
+        }
+    }
 }
@@ -19,8 +19,10 @@ package org.jetbrains.jet.plugin.caches.resolve;
 import com.google.common.collect.Maps;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.plugin.project.TargetPlatform;
 
 import java.util.Map;
@@ -38,17 +40,18 @@ public class KotlinCacheManager {
     }
 
     /**
+     * Declarations of the given module and the modules it depends on, or of the whole project if the module is null.
      * Should be called under read lock.
      */
     @NotNull
-    public KotlinDeclarationsCache getDeclarationsFromProject(@NotNull TargetPlatform platform) {
+    public KotlinDeclarationsCache getDeclarationsFromModule(@NotNull TargetPlatform platform, @Nullable Module module) {
         // Computing declarations should be performed under read lock
         ApplicationManager.getApplication().assertReadAccessAllowed();
-        return getRegisteredProvider(platform).getDeclarations(false);
+        return getRegisteredProvider(platform).getDeclarations(module, false);
     }
 
     @NotNull
-    public KotlinDeclarationsCache getPossiblyIncompleteDeclarationsForLightClassGeneration() {
+    public KotlinDeclarationsCache getPossiblyIncompleteDeclarationsForLightClassGeneration(@Nullable Module module) {
         // Computing declarations should be performed under read lock
         ApplicationManager.getApplication().assertReadAccessAllowed();
 
@@ -62,12 +65,12 @@ public class KotlinCacheManager {
          *  The analysis runs into infinite recursion, because
          *      C needs all members of B (to compute overrides),
          *      and B needs all members of A,
-         *      and A is not available from KotlinCacheManager.getDeclarationsFromProject() -- it is being computed right now,
+         *      and A is not available from KotlinCacheManager.getDeclarationsFromModule() -- it is being computed right now,
          *      so the analysis runs again...
          *
          *  Our workaround is to return partially complete results when we generate light classes
          */
-        return getRegisteredProvider(TargetPlatform.JVM).getDeclarations(true);
+        return getRegisteredProvider(TargetPlatform.JVM).getDeclarations(module, true);
     }
 
     @NotNull
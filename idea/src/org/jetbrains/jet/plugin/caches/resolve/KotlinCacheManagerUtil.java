@@ -16,6 +16,7 @@
 
 package org.jetbrains.jet.plugin.caches.resolve;
 
+import com.intellij.openapi.module.ModuleUtilCore;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jet.lang.psi.JetElement;
 import org.jetbrains.jet.lang.psi.JetFile;
@@ -29,14 +30,12 @@ public class KotlinCacheManagerUtil {
     @NotNull
     public static KotlinDeclarationsCache getDeclarationsFromProject(@NotNull JetElement element) {
         JetFile jetFile = (JetFile) element.getContainingFile();
-        return KotlinCacheManager.getInstance(jetFile.getProject()).getDeclarationsFromProject(TargetPlatformDetector.getPlatform(jetFile));
+        return KotlinCacheManager.getInstance(jetFile.getProject()).getDeclarationsFromModule(
+                TargetPlatformDetector.getPlatform(jetFile), ModuleUtilCore.findModuleForPsiElement(jetFile));
     }
 
     @NotNull
     public static BindingContext getDeclarationsBindingContext(@NotNull JetElement element) {
-        JetFile jetFile = (JetFile) element.getContainingFile();
-        KotlinDeclarationsCache declarationsCache = KotlinCacheManager.getInstance(jetFile.getProject())
-                .getDeclarationsFromProject(TargetPlatformDetector.getPlatform(jetFile));
-        return declarationsCache.getBindingContext();
+        return getDeclarationsFromProject(element).getBindingContext();
     }
 }
@@ -161,11 +161,10 @@ public class CompletionSession {
 
         JetShortNamesCache namesCache = JetShortNamesCache.getKotlinInstance(project);
         GlobalSearchScope scope = GlobalSearchScope.allScope(project);
-        Collection<String> functionNames = namesCache.getAllTopLevelFunctionNames();
+        Collection<String> functionNames = namesCache.getTopLevelFunctionNamesCandidates(actualPrefix);
 
-        // TODO: Fix complete extension not only on contains
         for (String name : functionNames) {
-            if (name.contains(actualPrefix)) {
+            if (name.contains(actualPrefix) || jetResult.getResult().getPrefixMatcher().prefixMatches(name)) {
                 jetResult.addAllElements(namesCache.getTopLevelFunctionDescriptorsByName(
                         name, jetReference.getExpression(), getResolveSession(), scope));
             }
@@ -176,7 +175,7 @@ public class CompletionSession {
         Project project = getPosition().getProject();
         JetShortNamesCache namesCache = JetShortNamesCache.getKotlinInstance(project);
         GlobalSearchScope scope = GlobalSearchScope.allScope(project);
-        Collection<String> objectNames = namesCache.getAllTopLevelObjectNames();
+        Collection<String> objectNames = namesCache.getTopLevelObjectNamesCandidates(jetResult.getResult().getPrefixMatcher().getPrefix());
 
         for (String name : objectNames) {
             if (jetResult.getResult().getPrefixMatcher().prefixMatches(name)) {
@@ -26,6 +26,8 @@ import com.intellij.ide.util.PropertiesComponent;
 import com.intellij.openapi.actionSystem.ActionGroup;
 import com.intellij.openapi.actionSystem.DefaultActionGroup;
 import com.intellij.openapi.editor.markup.GutterIconRenderer;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.*;
@@ -83,7 +85,7 @@ public class KotlinSignatureInJavaMarkerProvider implements LineMarkerProvider {
             return;
         }
 
-        InjectorForJavaDescriptorResolver injector = createInjector(project);
+        InjectorForJavaDescriptorResolver injector = createInjector(project, ModuleUtilCore.findModuleForPsiElement(elements.get(0)));
 
         JavaDescriptorResolver javaDescriptorResolver = injector.getJavaDescriptorResolver();
         BindingTrace trace = injector.getBindingTrace();
@@ -111,8 +113,8 @@ public class KotlinSignatureInJavaMarkerProvider implements LineMarkerProvider {
         }
     }
 
-    static InjectorForJavaDescriptorResolver createInjector(Project project) {
-        KotlinDeclarationsCache declarationsCache = KotlinCacheManager.getInstance(project).getDeclarationsFromProject(TargetPlatform.JVM);
+    static InjectorForJavaDescriptorResolver createInjector(Project project, @Nullable Module module) {
+        KotlinDeclarationsCache declarationsCache = KotlinCacheManager.getInstance(project).getDeclarationsFromModule(TargetPlatform.JVM, module);
         BindingContext bindingContext = declarationsCache.getBindingContext();
         DelegatingBindingTrace delegatingTrace = new DelegatingBindingTrace(bindingContext, "wrapped context of declarations cache");
 
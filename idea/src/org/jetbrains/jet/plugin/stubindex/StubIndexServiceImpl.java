@@ -24,6 +24,7 @@ import org.jetbrains.jet.lang.psi.stubs.elements.StubIndexService;
 import org.jetbrains.jet.lang.resolve.java.JvmAbi;
 import org.jetbrains.jet.lang.resolve.name.FqName;
 import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.plugin.caches.CompletionNameIndex;
 
 public class StubIndexServiceImpl implements StubIndexService {
 
@@ -84,6 +85,9 @@ public class StubIndexServiceImpl implements StubIndexService {
 
         if (stub.isTopLevel()) {
             sink.occurrence(JetTopLevelShortObjectNameIndex.getInstance().getKey(), name);
+            for (String key : CompletionNameIndex.getIndexKeys(name)) {
+                sink.occurrence(JetTopLevelObjectNameKeyIndex.getInstance().getKey(), key);
+            }
         }
 
         if (fqName != null) {
@@ -112,6 +116,9 @@ public class StubIndexServiceImpl implements StubIndexService {
                 // Collection only top level functions as only they are expected in completion without explicit import
                 if (!stub.isExtension()) {
                     sink.occurrence(JetShortFunctionNameIndex.getInstance().getKey(), name);
+                    for (String key : CompletionNameIndex.getIndexKeys(name)) {
+                        sink.occurrence(JetTopLevelFunctionNameKeyIndex.getInstance().getKey(), key);
+                    }
                 }
                 else {
                     sink.occurrence(JetExtensionFunctionNameIndex.getInstance().getKey(), name);
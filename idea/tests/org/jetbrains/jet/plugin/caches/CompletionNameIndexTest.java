@@ -0,0 +1,65 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.plugin.caches;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+
+public class CompletionNameIndexTest extends TestCase {
+    private final CompletionNameIndex index = new CompletionNameIndex(Arrays.asList(
+            "println", "print", "arrayList", "hashMapOf", "linkedListOf", "sortBy", "toString", "max2"
+    ));
+
+    public void testPrefix() {
+        assertCandidates("pri", "println", "print");
+    }
+
+    public void testSubstring() {
+        assertCandidates("List", "arrayList", "linkedListOf");
+    }
+
+    public void testCamelHumps() {
+        Collection<String> candidates = index.getCandidates("hMO");
+        assertTrue(candidates.contains("hashMapOf"));
+        assertFalse(candidates.contains("println"));
+    }
+
+    public void testDigits() {
+        assertTrue(index.getCandidates("2").contains("max2"));
+    }
+
+    public void testEmptyPrefix() {
+        assertEquals(8, index.getCandidates("").size());
+    }
+
+    public void testIndexKeys() {
+        assertEquals(new HashSet<String>(Arrays.asList("^m", "m", "ma", "a", "ax", "x", "x2", "^2", "2")),
+                     CompletionNameIndex.getIndexKeys("max2"));
+        assertTrue(CompletionNameIndex.getIndexKeys("hashMapOf").containsAll(
+                Arrays.asList(CompletionNameIndex.getWordStartKey("map"), CompletionNameIndex.getWordStartKey("O"))));
+        assertEquals(Arrays.asList("ma", "ap"), CompletionNameIndex.getContainedKeys("Map"));
+        assertEquals(Arrays.asList("m"), CompletionNameIndex.getContainedKeys("M"));
+    }
+
+    private void assertCandidates(String prefix, String... expected) {
+        assertEquals(new HashSet<String>(Arrays.asList(expected)), new HashSet<String>(index.getCandidates(prefix)));
+    }
+}
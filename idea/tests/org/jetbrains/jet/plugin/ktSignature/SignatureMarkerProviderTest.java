@@ -16,6 +16,7 @@
 
 package org.jetbrains.jet.plugin.ktSignature;
 
+import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.JavaPsiFacade;
 import com.intellij.psi.PsiClass;
@@ -49,10 +50,11 @@ public class SignatureMarkerProviderTest extends LightCodeInsightFixtureTestCase
         myFixture.configureByText(JetFileType.INSTANCE, "val t: Thread? = null");
 
         PsiClass psiClass = JavaPsiFacade.getInstance(project).findClass("java.lang.Thread", GlobalSearchScope.allScope(project));
-        BindingContext context = KotlinCacheManager.getInstance(project).getDeclarationsFromProject(TargetPlatform.JVM).getBindingContext();
+        Module module = myFixture.getModule();
+        BindingContext context = KotlinCacheManager.getInstance(project).getDeclarationsFromModule(TargetPlatform.JVM, module).getBindingContext();
         ClassDescriptor preResolvedClass = context.get(BindingContext.CLASS, psiClass);
 
-        InjectorForJavaDescriptorResolver injector = KotlinSignatureInJavaMarkerProvider.createInjector(project);
+        InjectorForJavaDescriptorResolver injector = KotlinSignatureInJavaMarkerProvider.createInjector(project, module);
         ClassDescriptor reResolvedClass = injector.getJavaDescriptorResolver().resolveClass(new FqName("java.lang.Thread"));
 
         assertSame(preResolvedClass, reResolvedClass);
@@ -48,7 +48,8 @@ public class ConstructorCall implements Expression {
         StringBuilder builder = new StringBuilder("new " + constructor.getDeclaringClass().getSimpleName() + "(");
         for (Iterator<Field> iterator = constructorArguments.iterator(); iterator.hasNext(); ) {
             Field argument = iterator.next();
-            if (argument.isPublic()) {
+            // Lazy components are read from fields: getters would try to initialize them once more
+            if (argument.isPublic() && !argument.isLazy()) {
                 builder.append(argument.getGetterName()).append("()");
             }
             else {
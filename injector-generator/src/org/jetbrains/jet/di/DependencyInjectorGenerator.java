@@ -20,6 +20,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.utils.Printer;
@@ -39,6 +40,10 @@ public class DependencyInjectorGenerator {
     private final Set<FactoryMethod> factoryMethods = Sets.newLinkedHashSet();
     private final List<Class<?>> implementsList = Lists.newArrayList();
 
+    private final Set<Field> lazyFields = Sets.newLinkedHashSet();
+    // Lazy component or a component created only for lazy ones -> lazy component whose group it is created with
+    private final Map<Field, Field> lazyGroups = Maps.newLinkedHashMap();
+
     private final Dependencies dependencies = new Dependencies();
 
     private final ImportManager importManager = new ImportManager();
@@ -52,8 +57,10 @@ public class DependencyInjectorGenerator {
 
         File file = new File(outputFileName);
 
+        Set<Field> declaredFields = Sets.newLinkedHashSet(fields);
         fields.addAll(dependencies.satisfyDependencies());
         reportUnusedParameters(injectorPackageName, injectorClassName);
+        computeLazyGroups(declaredFields);
 
         StringBuilder preamble = new StringBuilder();
         generatePreamble(injectorPackageName, new Printer(preamble));
@@ -73,6 +80,7 @@ public class DependencyInjectorGenerator {
         p.println();
         generateConstructor(injectorClassName, p);
         p.println();
+        generateLazyInitializers(p);
         generateDestroy(injectorClassName, p);
         p.println();
         generateGetters(p);
@@ -101,6 +109,96 @@ public class DependencyInjectorGenerator {
         }
     }
 
+    /**
+     * Lazy components are created on the first call to their getters, together with all the components that nothing else needs.
+     * Components needed by several lazy ones are created with all of them at once, so each such group has one initializer.
+     */
+    private void computeLazyGroups(@NotNull Set<Field> declaredFields) {
+        if (lazyFields.isEmpty()) return;
+
+        Set<Field> eagerRoots = Sets.newLinkedHashSet(declaredFields);
+        eagerRoots.removeAll(lazyFields);
+        Map<Field, Field> neededFor = Maps.newHashMap();
+        Set<Field> eagerFields = collectWithDependencies(eagerRoots, Collections.<Field>emptySet(), neededFor);
+        for (Field lazyField : lazyFields) {
+            if (eagerFields.contains(lazyField)) {
+                throw new IllegalArgumentException("Lazy component " + lazyField + " is needed for " + neededFor.get(lazyField) +
+                                                   " which is created eagerly");
+            }
+        }
+
+        for (Field lazyField : lazyFields) {
+            Set<Field> group = collectWithDependencies(Collections.singleton(lazyField), eagerFields, Maps.<Field, Field>newHashMap());
+
+            Set<Field> sharedWith = Sets.newLinkedHashSet();
+            for (Field field : group) {
+                Field otherGroup = lazyGroups.get(field);
+                if (otherGroup != null) {
+                    sharedWith.add(otherGroup);
+                }
+            }
+            Field groupName = sharedWith.isEmpty() ? lazyField : sharedWith.iterator().next();
+            for (Map.Entry<Field, Field> entry : lazyGroups.entrySet()) {
+                if (sharedWith.contains(entry.getValue())) {
+                    entry.setValue(groupName);
+                }
+            }
+            for (Field field : group) {
+                lazyGroups.put(field, groupName);
+            }
+        }
+    }
+
+    @NotNull
+    private static Set<Field> collectWithDependencies(
+            @NotNull Collection<Field> roots,
+            @NotNull Set<Field> excluded,
+            @NotNull Map<Field, Field> neededFor
+    ) {
+        Set<Field> result = Sets.newLinkedHashSet();
+        Deque<Field> queue = new ArrayDeque<Field>(roots);
+        while (!queue.isEmpty()) {
+            Field field = queue.poll();
+            if (excluded.contains(field) || !result.add(field)) continue;
+
+            List<Field> fieldDependencies = Lists.newArrayList();
+            if (field.getInitialization() instanceof ConstructorCall) {
+                fieldDependencies.addAll(((ConstructorCall) field.getInitialization()).getConstructorArguments());
+            }
+            for (SetterDependency dependency : field.getDependencies()) {
+                fieldDependencies.add(dependency.getDependency());
+            }
+            for (Field dependency : fieldDependencies) {
+                if (!neededFor.containsKey(dependency)) {
+                    neededFor.put(dependency, field);
+                }
+                queue.add(dependency);
+            }
+        }
+        return result;
+    }
+
+    @NotNull
+    private List<Field> getGroupFields(@NotNull Field groupName) {
+        List<Field> result = Lists.newArrayList();
+        for (Field field : fields) {
+            if (groupName.equals(lazyGroups.get(field))) {
+                result.add(field);
+            }
+        }
+        return result;
+    }
+
+    @NotNull
+    private static String initializedFlagName(@NotNull Field groupName) {
+        return groupName.getName() + "Initialized";
+    }
+
+    @NotNull
+    private static String initializerName(@NotNull Field groupName) {
+        return "initialize" + StringUtil.capitalize(groupName.getName());
+    }
+
     private void generatePreamble(String injectorPackageName, Printer p) throws IOException {
         String copyright = "injector-generator/copyright.txt";
         p.println(FileUtil.loadFile(new File(copyright)));
@@ -177,6 +275,17 @@ public class DependencyInjectorGenerator {
         return addField(true, type, null, null);
     }
 
+    public Field addLazyPublicField(Class<?> type) {
+        return addLazyPublicField(new DiType(type));
+    }
+
+    public Field addLazyPublicField(DiType type) {
+        Field field = addPublicField(type);
+        field.setLazy(true);
+        lazyFields.add(field);
+        return field;
+    }
+
     public Field addField(Class<?> type) {
         return addField(new DiType(type));
     }
@@ -238,6 +347,9 @@ public class DependencyInjectorGenerator {
             String _final = backsParameter.contains(field) ? "final " : "";
             out.println("private " + _final + type(InjectorGeneratorUtil.getEffectiveFieldType(field)) + " " + field.getName() + ";");
         }
+        for (Field groupName : Sets.newLinkedHashSet(lazyGroups.values())) {
+            out.println("private volatile boolean " + initializedFlagName(groupName) + ";");
+        }
     }
 
     private void generateConstructor(String injectorClassName, Printer p) {
@@ -252,12 +364,28 @@ public class DependencyInjectorGenerator {
 
         p.pushIndent();
 
-        InjectionLogicGenerator.generateForFields(p, fields);
+        InjectionLogicGenerator.generateForFields(p, Sets.difference(fields, lazyGroups.keySet()));
 
         p.popIndent();
         p.println("}");
     }
 
+    private void generateLazyInitializers(@NotNull Printer p) {
+        for (Field groupName : Sets.newLinkedHashSet(lazyGroups.values())) {
+            p.println("private synchronized void ", initializerName(groupName), "() {");
+            p.pushIndent();
+            p.println("if (", initializedFlagName(groupName), ") return;");
+            p.println();
+
+            InjectionLogicGenerator.generateForFields(p, getGroupFields(groupName));
+
+            p.println(initializedFlagName(groupName), " = true;");
+            p.popIndent();
+            p.println("}");
+            p.println();
+        }
+    }
+
     private void generateParameterList(Printer p, Collection<Parameter> parameters) {
         p.printlnWithNoIndent("(");
         p.pushIndent();
@@ -285,12 +413,21 @@ public class DependencyInjectorGenerator {
             // TODO: type of field may be different from type of object
             List<Method> preDestroyMethods = InjectorGeneratorUtil
                     .getPreDestroyMethods(InjectorGeneratorUtil.getEffectiveFieldType(field).getClazz());
+            if (preDestroyMethods.isEmpty()) continue;
+
+            Field groupName = lazyGroups.get(field);
+            if (groupName != null) {
+                out.println("if (" + initializedFlagName(groupName) + ") {");
+                out.pushIndent();
+            }
             for (Method preDestroy : preDestroyMethods) {
                 out.println(field.getName() + "." + preDestroy.getName() + "();");
             }
-            if (preDestroyMethods.size() > 0) {
-                out.println();
+            if (groupName != null) {
+                out.popIndent();
+                out.println("}");
             }
+            out.println();
         }
         out.popIndent();
         out.println("}");
@@ -303,6 +440,14 @@ public class DependencyInjectorGenerator {
             out.println(visibility + " " + type(field.getType()) + " " + field.getGetterName() + "() {");
             out.pushIndent();
 
+            Field groupName = lazyGroups.get(field);
+            if (groupName != null) {
+                out.println("if (!" + initializedFlagName(groupName) + ") {");
+                out.pushIndent();
+                out.println(initializerName(groupName) + "();");
+                out.popIndent();
+                out.println("}");
+            }
             out.println("return this." + field.getName() + ";");
 
             out.popIndent();
@@ -353,6 +498,7 @@ public class DependencyInjectorGenerator {
 
         p.pushIndent();
 
+        generateLazyInitializerCalls(p, fields);
         InjectionLogicGenerator.generateForLocalVariables(importManager, p, fields);
 
         p.println("return ", resultField.getName(), ";");
@@ -361,6 +507,21 @@ public class DependencyInjectorGenerator {
         p.println("}");
     }
 
+    // Lazy components may be read from fields by the code created for local variables
+    private void generateLazyInitializerCalls(@NotNull Printer p, @NotNull Collection<Field> localFields) {
+        Set<Field> groupNames = Sets.newLinkedHashSet();
+        Set<Field> dependencies = collectWithDependencies(localFields, Collections.<Field>emptySet(), Maps.<Field, Field>newHashMap());
+        for (Field dependency : dependencies) {
+            Field groupName = lazyGroups.get(dependency);
+            if (groupName != null) {
+                groupNames.add(groupName);
+            }
+        }
+        for (Field groupName : groupNames) {
+            p.println(initializerName(groupName), "();");
+        }
+    }
+
     private CharSequence type(DiType type) {
         return importManager.render(type);
     }
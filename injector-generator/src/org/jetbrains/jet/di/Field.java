@@ -36,6 +36,7 @@ class Field {
     private final DiType type;
     private final String name;
     private final boolean isPublic;
+    private boolean isLazy;
 
     @NotNull
     private Expression initialization;
@@ -89,6 +90,14 @@ class Field {
         return isPublic;
     }
 
+    public boolean isLazy() {
+        return isLazy;
+    }
+
+    public void setLazy(boolean isLazy) {
+        this.isLazy = isLazy;
+    }
+
     @Override
     public String toString() {
         return getTypeName() + " " + getName();
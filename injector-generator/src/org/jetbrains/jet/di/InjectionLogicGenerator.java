@@ -83,6 +83,8 @@ public abstract class InjectionLogicGenerator {
             }
         });
         Collections.reverse(topOrder);
+        // Dependencies outside of the given fields are initialized elsewhere
+        topOrder.retainAll(fields);
 
         // Initialize fields
         for (Field field : topOrder) {
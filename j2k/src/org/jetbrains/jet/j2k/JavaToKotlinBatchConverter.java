@@ -0,0 +1,144 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.j2k;
+
+import com.intellij.lang.java.JavaLanguage;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileFactory;
+import com.intellij.psi.PsiJavaFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Converts all Java files of a source tree in one environment, on a pool of worker threads.
+ * Every file is written to disk as soon as it's converted.
+ */
+public class JavaToKotlinBatchConverter {
+    private static final String JAVA_EXTENSION = ".java";
+
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+        @Override
+        public Thread newThread(@NotNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "Java to Kotlin converter");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    @NotNull
+    private final Project project;
+    @NotNull
+    private final Set<J2KConverterFlags> flags;
+    private final int threadCount;
+
+    public JavaToKotlinBatchConverter(@NotNull Project project, @NotNull Set<J2KConverterFlags> flags, int threadCount) {
+        this.project = project;
+        this.flags = EnumSet.noneOf(J2KConverterFlags.class);
+        this.flags.addAll(flags);
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * Converts every .java file under javaRoot to a .kt file at the same relative path under kotlinRoot.
+     *
+     * @return files which couldn't be converted, with the reasons, in the order of conversion
+     */
+    @NotNull
+    public Map<File, Throwable> convertSourceTree(@NotNull File javaRoot, @NotNull File kotlinRoot) throws InterruptedException {
+        List<File> javaFiles = new ArrayList<File>();
+        collectJavaFiles(javaRoot, javaFiles);
+
+        Map<File, Throwable> failures = new LinkedHashMap<File, Throwable>();
+        if (javaFiles.isEmpty()) {
+            return failures;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, javaFiles.size()), THREAD_FACTORY);
+        try {
+            Map<File, Future<?>> conversions = new LinkedHashMap<File, Future<?>>();
+            for (final File javaFile : javaFiles) {
+                final File kotlinFile = new File(kotlinRoot, getKotlinPath(javaRoot, javaFile));
+                conversions.put(javaFile, executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        convertFile(javaFile, kotlinFile);
+                        return null;
+                    }
+                }));
+            }
+
+            for (Map.Entry<File, Future<?>> conversion : conversions.entrySet()) {
+                try {
+                    conversion.getValue().get();
+                }
+                catch (ExecutionException e) {
+                    failures.put(conversion.getKey(), e.getCause());
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        return failures;
+    }
+
+    private void convertFile(@NotNull File javaFile, @NotNull File kotlinFile) throws IOException {
+        String javaCode = FileUtil.loadFile(javaFile);
+        PsiFile psiFile = PsiFileFactory.getInstance(project).createFileFromText(javaFile.getName(), JavaLanguage.INSTANCE, javaCode);
+        if (!(psiFile instanceof PsiJavaFile)) {
+            throw new IllegalStateException("Not a Java file: " + javaFile);
+        }
+
+        // Converters keep the state of the file being converted, so each file gets its own one
+        Converter converter = new Converter(project);
+        for (J2KConverterFlags flag : flags) {
+            converter.addFlag(flag);
+        }
+        JavaToKotlinTranslator.setClassIdentifiers(converter, psiFile);
+        String kotlinCode = JavaToKotlinTranslator.prettify(converter.fileToFile((PsiJavaFile) psiFile));
+
+        FileUtil.writeToFile(kotlinFile, kotlinCode);
+    }
+
+    @NotNull
+    private static String getKotlinPath(@NotNull File javaRoot, @NotNull File javaFile) {
+        String relativePath = javaRoot.isFile() ? javaFile.getName() : FileUtil.getRelativePath(javaRoot, javaFile);
+        assert relativePath != null : javaFile + " is not under " + javaRoot;
+        return relativePath.substring(0, relativePath.length() - JAVA_EXTENSION.length()) + ".kt";
+    }
+
+    private static void collectJavaFiles(@NotNull File file, @NotNull List<File> result) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    collectJavaFiles(child, result);
+                }
+            }
+        }
+        else if (file.getName().endsWith(JAVA_EXTENSION)) {
+            result.add(file);
+        }
+    }
+}
@@ -26,6 +26,7 @@ import com.intellij.psi.PsiFileFactory;
 import com.intellij.psi.PsiJavaFile;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.j2k.ast.CodeBuilder;
 import org.jetbrains.jet.j2k.visitors.ClassVisitor;
 import org.jetbrains.jet.utils.PathUtil;
 
@@ -46,12 +47,12 @@ public class JavaToKotlinTranslator {
     private JavaToKotlinTranslator() {
     }
 
+    @Nullable
+    private static JavaCoreProjectEnvironment sharedEnvironment = null;
+
     @Nullable
     private static PsiFile createFile(@NotNull String text) {
-        JavaCoreProjectEnvironment javaCoreEnvironment = setUpJavaCoreEnvironment();
-        return PsiFileFactory.getInstance(javaCoreEnvironment.getProject()).createFileFromText(
-                "test.java", JavaLanguage.INSTANCE, text
-        );
+        return createFile(getSharedEnvironment().getProject(), text);
     }
 
     @Nullable
@@ -61,6 +62,15 @@ public class JavaToKotlinTranslator {
         );
     }
 
+    // Setting up the environment (and indexing rt.jar) is expensive, so all snippets are converted in the same one
+    @NotNull
+    static synchronized JavaCoreProjectEnvironment getSharedEnvironment() {
+        if (sharedEnvironment == null) {
+            sharedEnvironment = setUpJavaCoreEnvironment();
+        }
+        return sharedEnvironment;
+    }
+
     @NotNull
     static JavaCoreProjectEnvironment setUpJavaCoreEnvironment() {
         JavaCoreApplicationEnvironment applicationEnvironment = new JavaCoreApplicationEnvironment(DISPOSABLE);
@@ -79,15 +89,14 @@ public class JavaToKotlinTranslator {
         if (code == null) {
             return "";
         }
-        return code
-                .trim()
-                .replaceAll("\r\n", "\n")
-                .replaceAll(" \n", "\n")
-                .replaceAll("\n ", "\n")
-                .replaceAll("\n+", "\n")
-                .replaceAll(" +", " ")
-                .trim()
-                ;
+        return CodeBuilder.normalizeWhitespace(code);
+    }
+
+    @NotNull
+    static String prettify(@NotNull org.jetbrains.jet.j2k.ast.File file) {
+        CodeBuilder builder = new CodeBuilder(true);
+        builder.append(file);
+        return builder.toString();
     }
 
     @Nullable
@@ -119,7 +128,7 @@ public class JavaToKotlinTranslator {
         if (file != null && file instanceof PsiJavaFile) {
             Converter converter = new Converter(file.getProject());
             setClassIdentifiers(converter, file);
-            return prettify(converter.fileToFile((PsiJavaFile) file).toKotlin());
+            return prettify(converter.fileToFile((PsiJavaFile) file));
         }
         return "";
     }
@@ -130,7 +139,7 @@ public class JavaToKotlinTranslator {
         if (file != null && file instanceof PsiJavaFile) {
             Converter converter = new Converter(file.getProject());
             setClassIdentifiers(converter, file);
-            return prettify(converter.fileToFileWithCompatibilityImport((PsiJavaFile) file).toKotlin());
+            return prettify(converter.fileToFileWithCompatibilityImport((PsiJavaFile) file));
         }
         return "";
     }
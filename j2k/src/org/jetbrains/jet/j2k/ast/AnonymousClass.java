@@ -35,9 +35,8 @@ public class AnonymousClass extends Class {
         );
     }
 
-    @NotNull
     @Override
-    public String toKotlin() {
-        return bodyToKotlin();
+    public void emit(@NotNull CodeBuilder builder) {
+        emitBody(builder);
     }
 }
@@ -17,7 +17,6 @@
 package org.jetbrains.jet.j2k.ast;
 
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.jet.j2k.util.AstUtil;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -55,11 +54,15 @@ public class Block extends Statement {
     @NotNull
     @Override
     public String toKotlin() {
+        return emitToString();
+    }
+
+    @Override
+    public void emit(@NotNull CodeBuilder builder) {
         if (!isEmpty()) {
-            return "{" + N +
-                   AstUtil.joinNodes(myStatements, N) + N +
-                   "}";
+            builder.append("{").append(N)
+                    .append(myStatements, N).append(N)
+                    .append("}");
         }
-        return EMPTY;
     }
 }
@@ -30,6 +30,11 @@ public class CatchStatement extends Statement {
     @NotNull
     @Override
     public String toKotlin() {
-        return "catch" + SPACE + "(" + myVariable.toKotlin() + ")" + SPACE + myBlock.toKotlin();
+        return emitToString();
+    }
+
+    @Override
+    public void emit(@NotNull CodeBuilder builder) {
+        builder.append("catch").append(SPACE).append("(").append(myVariable).append(")").append(SPACE).append(myBlock);
     }
 }
@@ -214,13 +214,12 @@ public class Class extends Member {
         return isAbstract();
     }
 
-    @NotNull
-    String bodyToKotlin() {
-        return SPACE + "{" + N +
-               AstUtil.joinNodes(getNonStatic(membersExceptConstructors()), N) + N +
-               primaryConstructorBodyToKotlin() + N +
-               classObjectToKotlin() + N +
-               "}";
+    void emitBody(@NotNull CodeBuilder builder) {
+        builder.append(SPACE).append("{").append(N)
+                .append(getNonStatic(membersExceptConstructors()), N).append(N)
+                .append(primaryConstructorBodyToKotlin()).append(N);
+        emitClassObject(builder);
+        builder.append(N).append("}");
     }
 
     @NotNull
@@ -243,24 +242,28 @@ public class Class extends Member {
         return result;
     }
 
-    @NotNull
-    private String classObjectToKotlin() {
+    private void emitClassObject(@NotNull CodeBuilder builder) {
         List<Member> staticMembers = new LinkedList<Member>(secondaryConstructorsAsStaticInitFunction());
         staticMembers.addAll(getStatic(membersExceptConstructors()));
         if (staticMembers.size() > 0) {
-            return "class" + SPACE + "object" + SPACE + "{" + N +
-                   AstUtil.joinNodes(staticMembers, N) + N +
-                   "}";
+            builder.append("class").append(SPACE).append("object").append(SPACE).append("{").append(N)
+                    .append(staticMembers, N).append(N)
+                    .append("}");
         }
-        return EMPTY;
     }
 
     @NotNull
     @Override
     public String toKotlin() {
-        return modifiersToKotlin() + TYPE + SPACE + myName.toKotlin() + typeParametersToKotlin() + primaryConstructorSignatureToKotlin() +
-               implementTypesToKotlin() +
-               typeParameterWhereToKotlin() +
-               bodyToKotlin();
+        return emitToString();
+    }
+
+    @Override
+    public void emit(@NotNull CodeBuilder builder) {
+        builder.append(modifiersToKotlin()).append(TYPE).append(SPACE).append(myName).append(typeParametersToKotlin())
+                .append(primaryConstructorSignatureToKotlin())
+                .append(implementTypesToKotlin())
+                .append(typeParameterWhereToKotlin());
+        emitBody(builder);
     }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.j2k.ast;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Buffer which nodes write their Kotlin code to.
+ *
+ * When whitespace normalization is on, leading and trailing whitespace is trimmed, spaces around line breaks are dropped, empty lines
+ * are removed and runs of spaces are collapsed. It's done in one pass: every run of whitespace is normalized on its own
+ * when the next non-whitespace character comes.
+ */
+public final class CodeBuilder implements Appendable {
+    private final StringBuilder builder = new StringBuilder();
+    private final boolean normalizeWhitespace;
+
+    // Whitespace written after the last non-whitespace character
+    private final StringBuilder pendingWhitespace = new StringBuilder();
+
+    public CodeBuilder(boolean normalizeWhitespace) {
+        this.normalizeWhitespace = normalizeWhitespace;
+    }
+
+    @NotNull
+    public static String normalizeWhitespace(@NotNull String code) {
+        return new CodeBuilder(true).append(code).toString();
+    }
+
+    @NotNull
+    public CodeBuilder append(@NotNull INode node) {
+        if (node instanceof Node) {
+            ((Node) node).emit(this);
+        }
+        else {
+            append(node.toKotlin());
+        }
+        return this;
+    }
+
+    @NotNull
+    public CodeBuilder append(@NotNull List<? extends INode> nodes, @NotNull String delimiter) {
+        boolean first = true;
+        for (INode node : nodes) {
+            if (!first) {
+                append(delimiter);
+            }
+            append(node);
+            first = false;
+        }
+        return this;
+    }
+
+    @NotNull
+    @Override
+    public CodeBuilder append(@Nullable CharSequence csq) {
+        if (csq == null) {
+            return append("null");
+        }
+        return append(csq, 0, csq.length());
+    }
+
+    @NotNull
+    @Override
+    public CodeBuilder append(@Nullable CharSequence csq, int start, int end) {
+        if (csq == null) {
+            return append("null", start, end);
+        }
+        if (!normalizeWhitespace) {
+            builder.append(csq, start, end);
+            return this;
+        }
+        for (int i = start; i < end; i++) {
+            append(csq.charAt(i));
+        }
+        return this;
+    }
+
+    @NotNull
+    @Override
+    public CodeBuilder append(char c) {
+        if (!normalizeWhitespace) {
+            builder.append(c);
+        }
+        else if (c <= ' ') {
+            pendingWhitespace.append(c);
+        }
+        else {
+            if (pendingWhitespace.length() > 0) {
+                // Leading whitespace is trimmed
+                if (builder.length() > 0) {
+                    builder.append(normalizeWhitespaceRun(pendingWhitespace.toString()));
+                }
+                pendingWhitespace.setLength(0);
+            }
+            builder.append(c);
+        }
+        return this;
+    }
+
+    /**
+     * Does in one pass over the run what these replacements, applied one after another, would do:
+     * "\r\n" -> "\n", " \n" -> "\n", "\n " -> "\n", "\n+" -> "\n", " +" -> " ".
+     * None of them crosses a non-whitespace character, so applying them run by run equals applying them to the whole text.
+     */
+    @NotNull
+    private static String normalizeWhitespaceRun(@NotNull String whitespace) {
+        if (whitespace.equals(Node.SPACE) || whitespace.equals(Node.N)) {
+            return whitespace;
+        }
+        int length = whitespace.length();
+        StringBuilder result = new StringBuilder(length);
+        // The last character that is left after the first two replacements
+        char previous = 0;
+        for (int i = 0; i < length; i++) {
+            char c = whitespace.charAt(i);
+            if (c == '\r' && charAt(whitespace, i + 1) == '\n') {
+                continue;
+            }
+            if (c == ' ' && isLineBreakAt(whitespace, i + 1)) {
+                continue;
+            }
+            boolean afterLineBreak = previous == '\n';
+            previous = c;
+            if (c == ' ' && afterLineBreak) {
+                continue;
+            }
+            if ((c == ' ' || c == '\n') && result.length() > 0 && result.charAt(result.length() - 1) == c) {
+                continue;
+            }
+            result.append(c);
+        }
+        return result.toString();
+    }
+
+    // Whether "\n" comes at this index once "\r\n" is replaced
+    private static boolean isLineBreakAt(@NotNull String whitespace, int index) {
+        char c = charAt(whitespace, index);
+        return c == '\n' || (c == '\r' && charAt(whitespace, index + 1) == '\n');
+    }
+
+    private static char charAt(@NotNull String string, int index) {
+        return index < string.length() ? string.charAt(index) : 0;
+    }
+
+    /**
+     * @return the code written so far, trailing whitespace is trimmed when whitespace is normalized
+     */
+    @NotNull
+    @Override
+    public String toString() {
+        return builder.toString();
+    }
+}
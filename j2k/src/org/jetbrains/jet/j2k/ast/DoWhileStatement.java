@@ -23,11 +23,10 @@ public class DoWhileStatement extends WhileStatement {
         super(condition, statement);
     }
 
-    @NotNull
     @Override
-    public String toKotlin() {
-        return "do" + N +
-               myStatement.toKotlin() + N +
-               "while" + SPACE + "(" + myCondition.toKotlin() + ")";
+    public void emit(@NotNull CodeBuilder builder) {
+        builder.append("do").append(N)
+                .append(myStatement).append(N)
+                .append("while").append(SPACE).append("(").append(myCondition).append(")");
     }
 }
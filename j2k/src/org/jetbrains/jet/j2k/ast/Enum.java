@@ -18,7 +18,6 @@ package org.jetbrains.jet.j2k.ast;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jet.j2k.Converter;
-import org.jetbrains.jet.j2k.util.AstUtil;
 
 import java.util.List;
 import java.util.Set;
@@ -39,14 +38,15 @@ public class Enum extends Class {
         return false;
     }
 
-    @NotNull
     @Override
-    public String toKotlin() {
+    public void emit(@NotNull CodeBuilder builder) {
         String primaryConstructorBody = primaryConstructorBodyToKotlin();
-        return modifiersToKotlin() + "enum class" + SPACE + myName.toKotlin() + primaryConstructorSignatureToKotlin() +
-               typeParametersToKotlin() + implementTypesToKotlin() + SPACE + "{" + N +
-               AstUtil.joinNodes(membersExceptConstructors(), N) + N +
-               (primaryConstructorBody.isEmpty() ? EMPTY : primaryConstructorBody + N) +
-               "}";
+        builder.append(modifiersToKotlin()).append("enum class").append(SPACE).append(myName).append(primaryConstructorSignatureToKotlin())
+                .append(typeParametersToKotlin()).append(implementTypesToKotlin()).append(SPACE).append("{").append(N)
+                .append(membersExceptConstructors(), N).append(N);
+        if (!primaryConstructorBody.isEmpty()) {
+            builder.append(primaryConstructorBody).append(N);
+        }
+        builder.append("}");
     }
 }
@@ -17,7 +17,6 @@
 package org.jetbrains.jet.j2k.ast;
 
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.jet.j2k.util.AstUtil;
 
 import java.util.List;
 
@@ -37,11 +36,14 @@ public class File extends Node {
     @NotNull
     @Override
     public String toKotlin() {
-        String common = AstUtil.joinNodes(myImports, N) + N2 + AstUtil.joinNodes(myClasses, N) + N + myMainFunction;
-        if (myPackageName.isEmpty()) {
-            return common;
+        return emitToString();
+    }
+
+    @Override
+    public void emit(@NotNull CodeBuilder builder) {
+        if (!myPackageName.isEmpty()) {
+            builder.append("package").append(SPACE).append(myPackageName).append(N);
         }
-        return "package" + SPACE + myPackageName + N +
-               common;
+        builder.append(myImports, N).append(N2).append(myClasses, N).append(N).append(myMainFunction);
     }
 }
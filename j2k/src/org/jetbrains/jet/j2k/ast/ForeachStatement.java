@@ -32,7 +32,13 @@ public class ForeachStatement extends Statement {
     @NotNull
     @Override
     public String toKotlin() {
-        return "for" + SPACE + "(" + myVariable.toKotlin() + SPACE + IN + SPACE + myExpression.toKotlin() + ")" + N +
-               myStatement.toKotlin();
+        return emitToString();
+    }
+
+    @Override
+    public void emit(@NotNull CodeBuilder builder) {
+        builder.append("for").append(SPACE).append("(").append(myVariable).append(SPACE).append(IN).append(SPACE).append(myExpression)
+                .append(")").append(N)
+                .append(myStatement);
     }
 }
@@ -34,9 +34,14 @@ public class ForeachWithRangeStatement extends Statement {
     @NotNull
     @Override
     public String toKotlin() {
-        return "for" + SPACE + "(" +
-               myIdentifier.toKotlin() + SPACE + "in" + SPACE + myStart.toKotlin() + ".." + myEnd.toKotlin() +
-               ")" + SPACE +
-               myBody.toKotlin();
+        return emitToString();
+    }
+
+    @Override
+    public void emit(@NotNull CodeBuilder builder) {
+        builder.append("for").append(SPACE).append("(")
+                .append(myIdentifier).append(SPACE).append("in").append(SPACE).append(myStart).append("..").append(myEnd)
+                .append(")").append(SPACE)
+                .append(myBody);
     }
 }
@@ -116,9 +116,14 @@ public class Function extends Member {
     @NotNull
     @Override
     public String toKotlin() {
-        return modifiersToKotlin() + "fun" + SPACE + myName.toKotlin() + typeParametersToKotlin() + "(" + myParams.toKotlin() + ")" + SPACE + COLON +
-               SPACE + myType.toKotlin() + SPACE +
-               typeParameterWhereToKotlin() +
-               myBlock.toKotlin();
+        return emitToString();
+    }
+
+    @Override
+    public void emit(@NotNull CodeBuilder builder) {
+        builder.append(modifiersToKotlin()).append("fun").append(SPACE).append(myName).append(typeParametersToKotlin())
+                .append("(").append(myParams).append(")").append(SPACE).append(COLON).append(SPACE).append(myType).append(SPACE)
+                .append(typeParameterWhereToKotlin())
+                .append(myBlock);
     }
 }
@@ -32,14 +32,15 @@ public class IfStatement extends Expression {
     @NotNull
     @Override
     public String toKotlin() {
-        String result = "if" + SPACE + "(" + myCondition.toKotlin() + ")" + N + myThenStatement.toKotlin() + N;
+        return emitToString();
+    }
+
+    @Override
+    public void emit(@NotNull CodeBuilder builder) {
+        builder.append("if").append(SPACE).append("(").append(myCondition).append(")").append(N).append(myThenStatement).append(N);
 
         if (myElseStatement != Statement.EMPTY_STATEMENT) {
-            return result +
-                   "else" + N +
-                   myElseStatement.toKotlin();
+            builder.append("else").append(N).append(myElseStatement);
         }
-
-        return result;
     }
 }
@@ -30,6 +30,11 @@ public class LabelStatement extends Statement {
     @NotNull
     @Override
     public String toKotlin() {
-        return AT + myName.toKotlin() + SPACE + myStatement.toKotlin();
+        return emitToString();
+    }
+
+    @Override
+    public void emit(@NotNull CodeBuilder builder) {
+        builder.append(AT).append(myName).append(SPACE).append(myStatement);
     }
 }
@@ -23,6 +23,20 @@ import java.util.HashSet;
 import java.util.Set;
 
 public abstract class Node implements INode {
+    /**
+     * Writes the same code as {@link #toKotlin()} returns. Nodes with many children override it to write them right to the builder.
+     */
+    public void emit(@NotNull CodeBuilder builder) {
+        builder.append(toKotlin());
+    }
+
+    @NotNull
+    protected final String emitToString() {
+        CodeBuilder builder = new CodeBuilder(false);
+        emit(builder);
+        return builder.toString();
+    }
+
     @NotNull
     @Override
     public Kind getKind() {
@@ -30,6 +30,11 @@ public class SynchronizedStatement extends Statement {
     @NotNull
     @Override
     public String toKotlin() {
-        return "synchronized" + SPACE + "(" + myExpression.toKotlin() + ")" + SPACE + myBlock.toKotlin();
+        return emitToString();
+    }
+
+    @Override
+    public void emit(@NotNull CodeBuilder builder) {
+        builder.append("synchronized").append(SPACE).append("(").append(myExpression).append(")").append(SPACE).append(myBlock);
     }
 }
@@ -17,7 +17,6 @@
 package org.jetbrains.jet.j2k.ast;
 
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.jet.j2k.util.AstUtil;
 
 import java.util.List;
 
@@ -35,9 +34,16 @@ public class TryStatement extends Statement {
     @NotNull
     @Override
     public String toKotlin() {
-        return "try" + N +
-               myBlock.toKotlin() + N +
-               AstUtil.joinNodes(myCatches, N) + N +
-               (myFinallyBlock.isEmpty() ? EMPTY : "finally" + N + myFinallyBlock.toKotlin());
+        return emitToString();
+    }
+
+    @Override
+    public void emit(@NotNull CodeBuilder builder) {
+        builder.append("try").append(N)
+                .append(myBlock).append(N)
+                .append(myCatches, N).append(N);
+        if (!myFinallyBlock.isEmpty()) {
+            builder.append("finally").append(N).append(myFinallyBlock);
+        }
     }
 }
@@ -30,7 +30,12 @@ public class WhileStatement extends Statement {
     @NotNull
     @Override
     public String toKotlin() {
-        return "while" + SPACE + "(" + myCondition.toKotlin() + ")" + N +
-               myStatement.toKotlin();
+        return emitToString();
+    }
+
+    @Override
+    public void emit(@NotNull CodeBuilder builder) {
+        builder.append("while").append(SPACE).append("(").append(myCondition).append(")").append(N)
+                .append(myStatement);
     }
 }
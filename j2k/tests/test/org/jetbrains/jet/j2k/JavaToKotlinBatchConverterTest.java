@@ -0,0 +1,71 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.j2k;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.UsefulTestCase;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.JetTestUtils;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.jetbrains.jet.JetTestUtils.createEnvironmentWithMockJdkAndIdeaAnnotations;
+
+public class JavaToKotlinBatchConverterTest extends UsefulTestCase {
+    private static final String TEST_DATA_DIR = "j2k/tests/testData/ast/file/file";
+
+    public void testSourceTree() throws Exception {
+        JetCoreEnvironment environment = createEnvironmentWithMockJdkAndIdeaAnnotations(getTestRootDisposable(), ConfigurationKind.JDK_ONLY);
+
+        File tmpDir = JetTestUtils.tmpDirForTest(this);
+        File javaRoot = new File(tmpDir, "java");
+        File kotlinRoot = new File(tmpDir, "kotlin");
+
+        File[] testFiles = new File(TEST_DATA_DIR).listFiles();
+        assertNotNull(testFiles);
+        int javaFileCount = 0;
+        for (File testFile : testFiles) {
+            if (testFile.getName().endsWith(".jav")) {
+                String name = FileUtil.getNameWithoutExtension(testFile);
+                FileUtil.copy(testFile, new File(javaRoot, "dir" + (javaFileCount % 2) + "/" + name + ".java"));
+                javaFileCount++;
+            }
+        }
+        assertTrue(javaFileCount > 1);
+
+        JavaToKotlinBatchConverter converter = new JavaToKotlinBatchConverter(
+                environment.getProject(), Collections.<J2KConverterFlags>emptySet(), 4);
+        Map<File, Throwable> failures = converter.convertSourceTree(javaRoot, kotlinRoot);
+        assertEmpty(failures.keySet());
+
+        javaFileCount = 0;
+        for (File testFile : testFiles) {
+            if (testFile.getName().endsWith(".jav")) {
+                String name = FileUtil.getNameWithoutExtension(testFile);
+                File expected = new File(TEST_DATA_DIR, name + ".kt");
+                File actual = new File(kotlinRoot, "dir" + (javaFileCount % 2) + "/" + name + ".kt");
+                assertTrue("Not converted: " + actual, actual.isFile());
+                assertEquals(name, FileUtil.loadFile(expected, true), FileUtil.loadFile(actual, true));
+                javaFileCount++;
+            }
+        }
+    }
+}
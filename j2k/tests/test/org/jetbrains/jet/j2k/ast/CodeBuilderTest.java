@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.j2k.ast;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+public class CodeBuilderTest extends TestCase {
+    private static String regexPrettify(String code) {
+        return code
+                .trim()
+                .replaceAll("\r\n", "\n")
+                .replaceAll(" \n", "\n")
+                .replaceAll("\n ", "\n")
+                .replaceAll("\n+", "\n")
+                .replaceAll(" +", " ")
+                .trim();
+    }
+
+    public void testSameAsRegexPrettify() {
+        for (String code : Arrays.asList(
+                "",
+                "  \n ",
+                "class A {\n\n  fun foo() : Unit {\n}\n}\n",
+                "  package a\r\n\r\nimport b\n \n \t x  =  1 \n",
+                "a \t\n\n  b   c\r\n\r\n  d  "
+        )) {
+            assertEquals(code, regexPrettify(code), CodeBuilder.normalizeWhitespace(code));
+        }
+    }
+
+    public void testAllShortWhitespaceRuns() {
+        char[] whitespace = {' ', '\n', '\r', '\t'};
+        for (int length = 1; length <= 6; length++) {
+            int count = 1 << (2 * length);
+            for (int runIndex = 0; runIndex < count; runIndex++) {
+                StringBuilder code = new StringBuilder("a");
+                for (int i = 0, rest = runIndex; i < length; i++, rest >>= 2) {
+                    code.append(whitespace[rest & 3]);
+                }
+                code.append("b");
+                assertEquals(regexPrettify(code.toString()), CodeBuilder.normalizeWhitespace(code.toString()));
+            }
+        }
+    }
+
+    public void testNodesAreWrittenInPlace() {
+        Block block = new Block(Arrays.<Statement>asList(new DummyStringExpression("foo()"), new DummyStringExpression("bar()")));
+        CodeBuilder builder = new CodeBuilder(true);
+        builder.append("  ").append(block).append("\n\n");
+        assertEquals("{\nfoo()\nbar()\n}", builder.toString());
+        assertEquals("{\nfoo()\nbar()\n}", block.toKotlin());
+    }
+}
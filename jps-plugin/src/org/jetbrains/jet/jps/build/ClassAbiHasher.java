@@ -0,0 +1,175 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.jps.build;
+
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.asm4.*;
+
+import java.lang.reflect.Array;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Computes a hash of the part of a class file which is visible to other classes: the class header and
+ * all non-private fields and methods together with their annotations. Method bodies, debug information and private
+ * members do not contribute to the hash, so changes which are local to function bodies keep it intact.
+ */
+public class ClassAbiHasher {
+    private ClassAbiHasher() {
+    }
+
+    @NotNull
+    public static String computeAbiHash(@NotNull byte[] classBytes) {
+        final StringBuilder header = new StringBuilder();
+        final List<String> members = ContainerUtil.newArrayList();
+
+        new ClassReader(classBytes).accept(new ClassVisitor(Opcodes.ASM4) {
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                header.append(access).append(' ').append(name).append(' ').append(signature).append(' ').append(superName);
+                if (interfaces != null) {
+                    header.append(' ').append(StringUtil.join(interfaces, ","));
+                }
+            }
+
+            @Override
+            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                return new AnnotationHasher(header.append(" @").append(desc));
+            }
+
+            @Override
+            public void visitInnerClass(String name, String outerName, String innerName, int access) {
+                if ((access & Opcodes.ACC_PRIVATE) != 0) return;
+                members.add("inner " + access + " " + name + " " + outerName + " " + innerName);
+            }
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+                if ((access & Opcodes.ACC_PRIVATE) != 0) return null;
+                final StringBuilder member = new StringBuilder();
+                member.append("field ").append(access).append(' ').append(name).append(' ').append(desc).append(' ')
+                        .append(signature).append(' ').append(value);
+                return new FieldVisitor(Opcodes.ASM4) {
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                        return new AnnotationHasher(member.append(" @").append(desc));
+                    }
+
+                    @Override
+                    public void visitEnd() {
+                        members.add(member.toString());
+                    }
+                };
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                if ((access & Opcodes.ACC_PRIVATE) != 0) return null;
+                final StringBuilder member = new StringBuilder();
+                member.append("method ").append(access).append(' ').append(name).append(' ').append(desc).append(' ')
+                        .append(signature);
+                if (exceptions != null) {
+                    member.append(' ').append(StringUtil.join(exceptions, ","));
+                }
+                return new MethodVisitor(Opcodes.ASM4) {
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                        return new AnnotationHasher(member.append(" @").append(desc));
+                    }
+
+                    @Override
+                    public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
+                        return new AnnotationHasher(member.append(" @").append(parameter).append(desc));
+                    }
+
+                    @Override
+                    public AnnotationVisitor visitAnnotationDefault() {
+                        return new AnnotationHasher(member.append(" default"));
+                    }
+
+                    @Override
+                    public void visitEnd() {
+                        members.add(member.toString());
+                    }
+                };
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+        // Order of members in a class file is not significant
+        Collections.sort(members);
+
+        MessageDigest digest = createDigest();
+        digest.update(header.toString().getBytes());
+        for (String member : members) {
+            digest.update(member.getBytes());
+        }
+        return StringUtil.toHexString(digest.digest());
+    }
+
+    @NotNull
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class AnnotationHasher extends AnnotationVisitor {
+        private final StringBuilder builder;
+
+        public AnnotationHasher(@NotNull StringBuilder builder) {
+            super(Opcodes.ASM4);
+            this.builder = builder;
+        }
+
+        @Override
+        public void visit(String name, Object value) {
+            builder.append(' ').append(name).append('=');
+            if (value.getClass().isArray()) {
+                // Arrays of primitives are reported as a single value
+                for (int i = 0; i < Array.getLength(value); i++) {
+                    builder.append(Array.get(value, i)).append(',');
+                }
+            }
+            else {
+                builder.append(value);
+            }
+        }
+
+        @Override
+        public void visitEnum(String name, String desc, String value) {
+            builder.append(' ').append(name).append('=').append(desc).append('.').append(value);
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String name, String desc) {
+            return new AnnotationHasher(builder.append(' ').append(name).append("=@").append(desc));
+        }
+
+        @Override
+        public AnnotationVisitor visitArray(String name) {
+            return new AnnotationHasher(builder.append(' ').append(name).append("=[]"));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.jps.build;
+
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.*;
+
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Collects the internal names of the classes a class file refers to: the ones in its constant pool, which covers
+ * the code, and the ones in the signatures and annotations of the class and its members. When the ABI of a class
+ * changes, the sources of the classes referring to it have to be recompiled.
+ * Anything looking like a type in signatures and annotation values is taken, so the result may contain extra names.
+ */
+public class ClassReferencesCollector {
+    private static final Pattern CLASS_IN_SIGNATURE = Pattern.compile("L([^;<]+)[;<]");
+
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+
+    private ClassReferencesCollector() {
+    }
+
+    @NotNull
+    public static Set<String> getReferencedClasses(@NotNull byte[] classBytes) {
+        final Set<String> result = ContainerUtil.newHashSet();
+
+        ClassReader reader = new ClassReader(classBytes);
+        char[] buffer = new char[reader.getMaxStringLength()];
+        for (int i = 1; i < reader.getItemCount(); i++) {
+            int offset = reader.getItem(i);
+            if (offset == 0) continue;
+            switch (reader.b[offset - 1]) {
+                case CONSTANT_CLASS:
+                    String name = reader.readUTF8(offset, buffer);
+                    if (name.startsWith("[")) {
+                        addClassesFromSignature(result, name);
+                    }
+                    else {
+                        result.add(name);
+                    }
+                    break;
+                case CONSTANT_NAME_AND_TYPE:
+                    addClassesFromSignature(result, reader.readUTF8(offset + 2, buffer));
+                    break;
+                case CONSTANT_METHOD_TYPE:
+                    addClassesFromSignature(result, reader.readUTF8(offset, buffer));
+                    break;
+            }
+        }
+
+        reader.accept(new ClassVisitor(Opcodes.ASM4) {
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                addClassesFromSignature(result, signature);
+            }
+
+            @Override
+            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                addClassesFromSignature(result, desc);
+                return new AnnotationReferencesCollector(result);
+            }
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+                addClassesFromSignature(result, desc);
+                addClassesFromSignature(result, signature);
+                return new FieldVisitor(Opcodes.ASM4) {
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                        addClassesFromSignature(result, desc);
+                        return new AnnotationReferencesCollector(result);
+                    }
+                };
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                addClassesFromSignature(result, desc);
+                addClassesFromSignature(result, signature);
+                return new MethodVisitor(Opcodes.ASM4) {
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                        addClassesFromSignature(result, desc);
+                        return new AnnotationReferencesCollector(result);
+                    }
+
+                    @Override
+                    public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
+                        addClassesFromSignature(result, desc);
+                        return new AnnotationReferencesCollector(result);
+                    }
+
+                    @Override
+                    public AnnotationVisitor visitAnnotationDefault() {
+                        return new AnnotationReferencesCollector(result);
+                    }
+                };
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+        result.remove(reader.getClassName());
+        return result;
+    }
+
+    private static void addClassesFromSignature(@NotNull Set<String> result, @Nullable String signature) {
+        if (signature == null) return;
+        Matcher matcher = CLASS_IN_SIGNATURE.matcher(signature);
+        while (matcher.find()) {
+            result.add(matcher.group(1));
+        }
+    }
+
+    private static class AnnotationReferencesCollector extends AnnotationVisitor {
+        private final Set<String> result;
+
+        public AnnotationReferencesCollector(@NotNull Set<String> result) {
+            super(Opcodes.ASM4);
+            this.result = result;
+        }
+
+        @Override
+        public void visit(String name, Object value) {
+            if (value instanceof Type) {
+                addClassesFromSignature(result, ((Type) value).getDescriptor());
+            }
+            else if (value instanceof String) {
+                // Kotlin annotations keep types of declarations in strings
+                addClassesFromSignature(result, (String) value);
+            }
+        }
+
+        @Override
+        public void visitEnum(String name, String desc, String value) {
+            addClassesFromSignature(result, desc);
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String name, String desc) {
+            addClassesFromSignature(result, desc);
+            return this;
+        }
+
+        @Override
+        public AnnotationVisitor visitArray(String name) {
+            return this;
+        }
+    }
+}
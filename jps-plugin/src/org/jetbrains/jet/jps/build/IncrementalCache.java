@@ -0,0 +1,180 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.jet.jps.build;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers for each Kotlin source file of a build target its package, the class files produced from it together with
+ * the ABI hashes of these classes (see {@link ClassAbiHasher}), and the classes they refer to (see {@link ClassReferencesCollector}).
+ * The data is kept in the target's data directory, so it is dropped together with the rest of the build caches on rebuild.
+ */
+public class IncrementalCache {
+    private static final String CACHE_FILE_NAME = "kotlin-incremental-cache.dat";
+    private static final int VERSION = 2;
+
+    private final File file;
+    private final Map<String, SourceInfo> infoBySource = ContainerUtil.newHashMap();
+
+    private IncrementalCache(@NotNull File file) {
+        this.file = file;
+    }
+
+    @NotNull
+    public static IncrementalCache load(@NotNull File dataRoot) {
+        IncrementalCache cache = new IncrementalCache(new File(dataRoot, CACHE_FILE_NAME));
+        if (!cache.file.isFile()) {
+            return cache;
+        }
+
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(cache.file)));
+            if (input.readInt() != VERSION) {
+                return cache;
+            }
+            int sourceCount = input.readInt();
+            for (int i = 0; i < sourceCount; i++) {
+                String source = input.readUTF();
+                String packageName = input.readUTF();
+                int outputCount = input.readInt();
+                Map<String, String> outputs = ContainerUtil.newHashMap();
+                for (int j = 0; j < outputCount; j++) {
+                    String output = input.readUTF();
+                    outputs.put(output, input.readUTF());
+                }
+                int referenceCount = input.readInt();
+                Set<String> references = ContainerUtil.newHashSet();
+                for (int j = 0; j < referenceCount; j++) {
+                    references.add(input.readUTF());
+                }
+                cache.infoBySource.put(source, new SourceInfo(packageName, outputs, references));
+            }
+        }
+        catch (IOException e) {
+            // A broken cache only means that the next build is not incremental
+            cache.infoBySource.clear();
+        }
+        finally {
+            if (input != null) {
+                closeQuietly(input);
+            }
+        }
+        return cache;
+    }
+
+    public void save() throws IOException {
+        FileUtil.createParentDirs(file);
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            output.writeInt(VERSION);
+            output.writeInt(infoBySource.size());
+            for (Map.Entry<String, SourceInfo> entry : infoBySource.entrySet()) {
+                SourceInfo info = entry.getValue();
+                output.writeUTF(entry.getKey());
+                output.writeUTF(info.packageName);
+                output.writeInt(info.outputs.size());
+                for (Map.Entry<String, String> outputEntry : info.outputs.entrySet()) {
+                    output.writeUTF(outputEntry.getKey());
+                    output.writeUTF(outputEntry.getValue());
+                }
+                output.writeInt(info.referencedClasses.size());
+                for (String referencedClass : info.referencedClasses) {
+                    output.writeUTF(referencedClass);
+                }
+            }
+        }
+        finally {
+            output.close();
+        }
+    }
+
+    public boolean isEmpty() {
+        return infoBySource.isEmpty();
+    }
+
+    @NotNull
+    public Collection<String> getSources() {
+        return Collections.unmodifiableSet(infoBySource.keySet());
+    }
+
+    @Nullable
+    public String getPackageName(@NotNull String sourcePath) {
+        SourceInfo info = infoBySource.get(sourcePath);
+        return info != null ? info.packageName : null;
+    }
+
+    /**
+     * @return output path -> ABI hash
+     */
+    @NotNull
+    public Map<String, String> getOutputs(@NotNull String sourcePath) {
+        SourceInfo info = infoBySource.get(sourcePath);
+        return info != null ? info.outputs : Collections.<String, String>emptyMap();
+    }
+
+    @NotNull
+    public Set<String> getReferencedClasses(@NotNull String sourcePath) {
+        SourceInfo info = infoBySource.get(sourcePath);
+        return info != null ? info.referencedClasses : Collections.<String>emptySet();
+    }
+
+    public void putSource(
+            @NotNull String sourcePath,
+            @NotNull String packageName,
+            @NotNull Map<String, String> outputs,
+            @NotNull Set<String> referencedClasses
+    ) {
+        infoBySource.put(sourcePath, new SourceInfo(packageName, outputs, referencedClasses));
+    }
+
+    public void clear() {
+        infoBySource.clear();
+    }
+
+    private static class SourceInfo {
+        private final String packageName;
+        private final Map<String, String> outputs;
+        private final Set<String> referencedClasses;
+
+        private SourceInfo(@NotNull String packageName, @NotNull Map<String, String> outputs, @NotNull Set<String> referencedClasses) {
+            this.packageName = packageName;
+            this.outputs = Collections.unmodifiableMap(new HashMap<String, String>(outputs));
+            this.referencedClasses = Collections.unmodifiableSet(new HashSet<String>(referencedClasses));
+        }
+    }
+
+    private static void closeQuietly(@NotNull Closeable closeable) {
+        try {
+            closeable.close();
+        }
+        catch (IOException ignored) {
+        }
+    }
+}
@@ -16,10 +16,12 @@
 
 package org.jetbrains.jet.jps.build;
 
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.Function;
 import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.cli.common.KotlinVersion;
 import org.jetbrains.jet.cli.common.messages.CompilerMessageLocation;
 import org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity;
@@ -36,12 +38,15 @@ import org.jetbrains.jps.model.module.JpsModule;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity.EXCEPTION;
 import static org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity.INFO;
-import static org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity.WARNING;
 
 public class KotlinBuilder extends ModuleLevelBuilder {
 
@@ -75,32 +80,242 @@ public class KotlinBuilder extends ModuleLevelBuilder {
 
         messageCollector.report(INFO, "Kotlin JPS plugin version " + KotlinVersion.VERSION, CompilerMessageLocation.NO_LOCATION);
 
+        if (!KotlinSourceFileCollector.hasDirtyFiles(dirtyFilesHolder)) {
+            return ExitCode.NOTHING_DONE;
+        }
+
         if (chunk.getModules().size() > 1) {
-            // We do not support circular dependencies, but if they are present, we should not break the build,
-            // so we simply yield a warning and report NOTHING_DONE
             messageCollector.report(
-                    WARNING, "Circular dependencies are not supported. " +
-                             "The following modules depend on each other: " + StringUtil.join(chunk.getModules(), MODULE_NAME, ", ") + ". " +
-                             "Kotlin is not compiled for these modules",
+                    INFO, "Compiling modules which depend on each other together: " + StringUtil.join(chunk.getModules(), MODULE_NAME, ", "),
                     CompilerMessageLocation.NO_LOCATION);
-            return ExitCode.NOTHING_DONE;
+            return buildChunk(context, chunk, messageCollector, outputConsumer);
         }
 
         ModuleBuildTarget representativeTarget = chunk.representativeTarget();
+        List<File> allSourceFiles = KotlinSourceFileCollector.getAllKotlinSourceFiles(representativeTarget);
 
-        // For non-incremental build: take all sources
-        if (!KotlinSourceFileCollector.hasDirtyFiles(dirtyFilesHolder)) {
+        if (allSourceFiles.isEmpty()) {
             return ExitCode.NOTHING_DONE;
         }
-        List<File> sourceFiles = KotlinSourceFileCollector.getAllKotlinSourceFiles(representativeTarget);
-        //List<File> sourceFiles = KotlinSourceFileCollector.getDirtySourceFiles(dirtyFilesHolder);
+
+        File outputDir = representativeTarget.getOutputDir();
+
+        CompilerEnvironment environment = CompilerEnvironment.getEnvironmentFor(PathUtil.getKotlinPathsForJpsPluginOrJpsTests(), outputDir);
+        if (!environment.success()) {
+            environment.reportErrorsTo(messageCollector);
+            return ExitCode.ABORT;
+        }
+
+        assert outputDir != null : "CompilerEnvironment must have checked for outputDir to be not null, but it didn't";
+
+        IncrementalCache cache = loadIncrementalCache(context, representativeTarget);
+
+        // Removed files leave their packages incomplete, so in this case the whole target is recompiled
+        if (!cache.isEmpty() && !KotlinSourceFileCollector.hasRemovedKotlinFiles(dirtyFilesHolder, representativeTarget)) {
+            buildIncrementally(context, representativeTarget, environment, messageCollector, cache, dirtyFilesHolder, allSourceFiles,
+                               outputConsumer);
+            return ExitCode.OK;
+        }
+
+        Map<File, CompiledSource> compiledSources = compile(
+                context, representativeTarget, environment, messageCollector, cache, allSourceFiles, false, outputConsumer);
+        if (compiledSources != null) {
+            cache.clear();
+            updateCache(cache, compiledSources);
+        }
+
+        return ExitCode.OK;
+    }
+
+    /**
+     * Compiles the packages of the dirty Kotlin files and the Kotlin files referring to classes of the dirty Java files,
+     * then, as long as the ABI of some of the compiled classes changes, the packages of the files referring to these classes.
+     * The classes of the other files are taken from the output directory.
+     */
+    private static void buildIncrementally(
+            @NotNull CompileContext context,
+            @NotNull ModuleBuildTarget target,
+            @NotNull CompilerEnvironment environment,
+            @NotNull MessageCollector messageCollector,
+            @NotNull IncrementalCache cache,
+            @NotNull DirtyFilesHolder<JavaSourceRootDescriptor, ModuleBuildTarget> dirtyFilesHolder,
+            @NotNull List<File> allSourceFiles,
+            @NotNull OutputConsumer outputConsumer
+    ) throws IOException {
+        Map<File, String> packageBySource = ContainerUtil.newHashMap();
+        Set<String> packagesToCompile = ContainerUtil.newHashSet();
+        for (File dirtyFile : KotlinSourceFileCollector.getDirtySourceFiles(dirtyFilesHolder)) {
+            String packageName = KotlinSourceFileCollector.getPackageName(dirtyFile);
+            packageBySource.put(dirtyFile, packageName);
+            packagesToCompile.add(packageName);
+
+            // The old package loses the declarations of a file moved to another one
+            ContainerUtil.addIfNotNull(cache.getPackageName(dirtyFile.getPath()), packagesToCompile);
+        }
+        for (File dependentFile : getDependentFiles(cache, allSourceFiles, KotlinSourceFileCollector.getDirtyJavaClassNames(dirtyFilesHolder))) {
+            packagesToCompile.add(getPackageName(cache, packageBySource, dependentFile));
+        }
+
+        Set<File> filesToCompile = getFilesInPackages(cache, packageBySource, allSourceFiles, packagesToCompile);
+        Set<File> compiledFiles = ContainerUtil.newHashSet();
+        while (!filesToCompile.isEmpty()) {
+            List<File> sourceFiles = new ArrayList<File>(filesToCompile);
+            Map<String, String> oldAbi = getAbi(cache, sourceFiles);
+
+            messageCollector.report(INFO, "Compiling " + sourceFiles.size() + " of " + allSourceFiles.size() +
+                                          " Kotlin files incrementally", CompilerMessageLocation.NO_LOCATION);
+
+            Map<File, CompiledSource> compiledSources = compile(
+                    context, target, environment, messageCollector, cache, sourceFiles, true, outputConsumer);
+            if (compiledSources == null) {
+                return;
+            }
+            updateCache(cache, compiledSources);
+            compiledFiles.addAll(filesToCompile);
+
+            Set<String> changedClasses = getChangedClasses(target.getOutputDir(), oldAbi, getAbi(compiledSources));
+            Set<String> dependentPackages = ContainerUtil.newHashSet();
+            for (File dependentFile : getDependentFiles(cache, allSourceFiles, changedClasses)) {
+                if (!filesToCompile.contains(dependentFile)) {
+                    dependentPackages.add(getPackageName(cache, packageBySource, dependentFile));
+                }
+            }
+            Set<File> dependentFiles = getFilesInPackages(cache, packageBySource, allSourceFiles, dependentPackages);
+            dependentFiles.removeAll(filesToCompile);
+
+            // Files compiled earlier against the old ABI are compiled again, together with all the others compiled so far,
+            // so that the set of files grows with every round and the process stops
+            if (!Collections.disjoint(dependentFiles, compiledFiles)) {
+                dependentFiles.addAll(compiledFiles);
+            }
+            filesToCompile = dependentFiles;
+        }
+    }
+
+    @NotNull
+    private static String getPackageName(@NotNull IncrementalCache cache, @NotNull Map<File, String> packageBySource, @NotNull File file)
+            throws IOException {
+        String packageName = packageBySource.get(file);
+        if (packageName == null) {
+            packageName = cache.getPackageName(file.getPath());
+            if (packageName == null) {
+                packageName = KotlinSourceFileCollector.getPackageName(file);
+            }
+            packageBySource.put(file, packageName);
+        }
+        return packageName;
+    }
+
+    @NotNull
+    private static Set<File> getFilesInPackages(
+            @NotNull IncrementalCache cache,
+            @NotNull Map<File, String> packageBySource,
+            @NotNull List<File> allSourceFiles,
+            @NotNull Set<String> packages
+    ) throws IOException {
+        Set<File> result = ContainerUtil.newLinkedHashSet();
+        if (packages.isEmpty()) {
+            return result;
+        }
+        for (File file : allSourceFiles) {
+            if (packages.contains(getPackageName(cache, packageBySource, file))) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the files with outputs referring to any of the given classes or to their inner classes
+     */
+    @NotNull
+    private static List<File> getDependentFiles(
+            @NotNull IncrementalCache cache,
+            @NotNull List<File> allSourceFiles,
+            @NotNull Set<String> classNames
+    ) {
+        List<File> result = ContainerUtil.newArrayList();
+        if (classNames.isEmpty()) {
+            return result;
+        }
+        for (File file : allSourceFiles) {
+            for (String referencedClass : cache.getReferencedClasses(file.getPath())) {
+                int innerClassSeparator = referencedClass.indexOf('$');
+                if (classNames.contains(referencedClass) ||
+                    innerClassSeparator > 0 && classNames.contains(referencedClass.substring(0, innerClassSeparator))) {
+                    result.add(file);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return internal names of the classes which appeared, disappeared or have another ABI
+     */
+    @NotNull
+    private static Set<String> getChangedClasses(
+            @NotNull File outputDir,
+            @NotNull Map<String, String> oldAbi,
+            @NotNull Map<String, String> newAbi
+    ) {
+        Set<String> changedOutputs = ContainerUtil.newHashSet();
+        for (Map.Entry<String, String> entry : oldAbi.entrySet()) {
+            if (!entry.getValue().equals(newAbi.get(entry.getKey()))) {
+                changedOutputs.add(entry.getKey());
+            }
+        }
+        for (String output : newAbi.keySet()) {
+            if (!oldAbi.containsKey(output)) {
+                changedOutputs.add(output);
+            }
+        }
+
+        Set<String> result = ContainerUtil.newHashSet();
+        for (String output : changedOutputs) {
+            String relativePath = FileUtil.getRelativePath(outputDir, new File(output));
+            if (relativePath != null && relativePath.endsWith(".class")) {
+                result.add(StringUtil.trimEnd(FileUtil.toSystemIndependentName(relativePath), ".class"));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * All the targets of a chunk are compiled in one compiler invocation, as a single module. Then the classes are distributed
+     * to the output directories of the targets the corresponding sources belong to.
+     */
+    @NotNull
+    private static ExitCode buildChunk(
+            @NotNull CompileContext context,
+            @NotNull ModuleChunk chunk,
+            @NotNull MessageCollector messageCollector,
+            @NotNull OutputConsumer outputConsumer
+    ) throws IOException {
+        List<File> sourceFiles = ContainerUtil.newArrayList();
+        Map<File, ModuleBuildTarget> targetBySource = ContainerUtil.newHashMap();
+        for (ModuleBuildTarget target : chunk.getTargets()) {
+            for (File sourceFile : KotlinSourceFileCollector.getAllKotlinSourceFiles(target)) {
+                sourceFiles.add(sourceFile);
+                targetBySource.put(sourceFile, target);
+            }
+
+            // Outputs of chunks are not tracked, so the data collected earlier for the target is not valid anymore,
+            // and the classes compiled back then must not stay in the output together with the new ones
+            IncrementalCache cache = loadIncrementalCache(context, target);
+            if (!cache.isEmpty()) {
+                deleteOutputs(cache, cache.getSources());
+                cache.clear();
+                cache.save();
+            }
+        }
 
         if (sourceFiles.isEmpty()) {
             return ExitCode.NOTHING_DONE;
         }
 
-        File moduleFile = KotlinBuilderModuleScriptGenerator.generateModuleDescription(context, representativeTarget, sourceFiles);
-
+        ModuleBuildTarget representativeTarget = chunk.representativeTarget();
         File outputDir = representativeTarget.getOutputDir();
 
         CompilerEnvironment environment = CompilerEnvironment.getEnvironmentFor(PathUtil.getKotlinPathsForJpsPluginOrJpsTests(), outputDir);
@@ -111,23 +326,169 @@ public class KotlinBuilder extends ModuleLevelBuilder {
 
         assert outputDir != null : "CompilerEnvironment must have checked for outputDir to be not null, but it didn't";
 
+        File moduleFile = KotlinBuilderModuleScriptGenerator.generateChunkDescription(context, chunk, sourceFiles);
+
         OutputItemsCollectorImpl outputItemCollector = new OutputItemsCollectorImpl(outputDir);
+        ErrorTrackingMessageCollector errorTrackingCollector = new ErrorTrackingMessageCollector(messageCollector);
 
         KotlinCompilerRunner.runCompiler(
-                messageCollector,
+                errorTrackingCollector,
                 environment,
                 moduleFile,
                 outputItemCollector,
                 /*runOutOfProcess = */false);
 
+        // The errors are already reported, and what's left of a failed compilation is not worth distributing
+        if (errorTrackingCollector.hasErrors()) {
+            return ExitCode.OK;
+        }
+
         for (SimpleOutputItem outputItem : outputItemCollector.getOutputs()) {
+            File outputFile = outputItem.getOutputFile();
+            ModuleBuildTarget target = getOutputTarget(chunk, targetBySource, outputItem.getSourceFiles());
+
+            // A package class may be compiled from the sources of several targets. The targets of a chunk depend on each other,
+            // so it's enough to put it to one of them: copies in several output directories would clash on the class path
+            File targetOutputFile = outputFile;
+            if (target != representativeTarget) {
+                String relativePath = FileUtil.getRelativePath(outputDir, outputFile);
+                assert relativePath != null : "Output file " + outputFile + " is not under the output directory " + outputDir;
+                targetOutputFile = new File(target.getOutputDir(), relativePath);
+                FileUtil.copy(outputFile, targetOutputFile);
+                FileUtil.delete(outputFile);
+            }
+            outputConsumer.registerOutputFile(target, targetOutputFile, paths(outputItem.getSourceFiles()));
+        }
+
+        return ExitCode.OK;
+    }
+
+    /**
+     * @return the representative target if some of the sources belong to it, otherwise the first of the chunk targets they belong to
+     */
+    @NotNull
+    private static ModuleBuildTarget getOutputTarget(
+            @NotNull ModuleChunk chunk,
+            @NotNull Map<File, ModuleBuildTarget> targetBySource,
+            @NotNull Collection<File> sourceFiles
+    ) {
+        Set<ModuleBuildTarget> targets = ContainerUtil.newHashSet();
+        for (File sourceFile : sourceFiles) {
+            ContainerUtil.addIfNotNull(targetBySource.get(sourceFile), targets);
+        }
+
+        ModuleBuildTarget representativeTarget = chunk.representativeTarget();
+        if (targets.isEmpty() || targets.contains(representativeTarget)) {
+            return representativeTarget;
+        }
+        for (ModuleBuildTarget target : chunk.getTargets()) {
+            if (targets.contains(target)) {
+                return target;
+            }
+        }
+        return representativeTarget;
+    }
+
+    private static void deleteOutputs(@NotNull IncrementalCache cache, @NotNull Collection<String> sourcePaths) {
+        for (String sourcePath : sourcePaths) {
+            for (String outputPath : cache.getOutputs(sourcePath).keySet()) {
+                FileUtil.delete(new File(outputPath));
+            }
+        }
+    }
+
+    @NotNull
+    private static IncrementalCache loadIncrementalCache(@NotNull CompileContext context, @NotNull ModuleBuildTarget target) {
+        return IncrementalCache.load(context.getProjectDescriptor().dataManager.getDataPaths().getTargetDataRoot(target));
+    }
+
+    /**
+     * @return outputs produced from each of the source files together with their ABI hashes and the classes they refer to,
+     *         or null if the compilation has failed
+     */
+    @Nullable
+    private static Map<File, CompiledSource> compile(
+            @NotNull CompileContext context,
+            @NotNull ModuleBuildTarget target,
+            @NotNull CompilerEnvironment environment,
+            @NotNull MessageCollector messageCollector,
+            @NotNull IncrementalCache cache,
+            @NotNull List<File> sourceFiles,
+            boolean incremental,
+            @NotNull OutputConsumer outputConsumer
+    ) throws IOException {
+        // Classes of the files being compiled must not be visible on the class path together with their sources,
+        // and the outputs of the files which do not exist anymore must not stay in the output directory
+        deleteOutputs(cache, incremental ? paths(sourceFiles) : cache.getSources());
+
+        File moduleFile = KotlinBuilderModuleScriptGenerator.generateModuleDescription(context, target, sourceFiles, incremental);
+
+        OutputItemsCollectorImpl outputItemCollector = new OutputItemsCollectorImpl(target.getOutputDir());
+        ErrorTrackingMessageCollector errorTrackingCollector = new ErrorTrackingMessageCollector(messageCollector);
+
+        KotlinCompilerRunner.runCompiler(
+                errorTrackingCollector,
+                environment,
+                moduleFile,
+                outputItemCollector,
+                /*runOutOfProcess = */false);
+
+        Map<File, CompiledSource> compiledSources = ContainerUtil.newHashMap();
+        for (SimpleOutputItem outputItem : outputItemCollector.getOutputs()) {
+            File outputFile = outputItem.getOutputFile();
             outputConsumer.registerOutputFile(
-                    representativeTarget,
-                    outputItem.getOutputFile(),
+                    target,
+                    outputFile,
                     paths(outputItem.getSourceFiles()));
+
+            String abi = "";
+            Set<String> referencedClasses = Collections.emptySet();
+            if (outputFile.getName().endsWith(".class")) {
+                byte[] classBytes = FileUtil.loadFileBytes(outputFile);
+                abi = ClassAbiHasher.computeAbiHash(classBytes);
+                referencedClasses = ClassReferencesCollector.getReferencedClasses(classBytes);
+            }
+            for (File sourceFile : outputItem.getSourceFiles()) {
+                CompiledSource compiledSource = compiledSources.get(sourceFile);
+                if (compiledSource == null) {
+                    compiledSource = new CompiledSource();
+                    compiledSources.put(sourceFile, compiledSource);
+                }
+                compiledSource.outputs.put(outputFile.getPath(), abi);
+                compiledSource.referencedClasses.addAll(referencedClasses);
+            }
         }
 
-        return ExitCode.OK;
+        return errorTrackingCollector.hasErrors() ? null : compiledSources;
+    }
+
+    @NotNull
+    private static Map<String, String> getAbi(@NotNull IncrementalCache cache, @NotNull List<File> sourceFiles) {
+        Map<String, String> result = ContainerUtil.newHashMap();
+        for (File sourceFile : sourceFiles) {
+            result.putAll(cache.getOutputs(sourceFile.getPath()));
+        }
+        return result;
+    }
+
+    @NotNull
+    private static Map<String, String> getAbi(@NotNull Map<File, CompiledSource> compiledSources) {
+        Map<String, String> result = ContainerUtil.newHashMap();
+        for (CompiledSource compiledSource : compiledSources.values()) {
+            result.putAll(compiledSource.outputs);
+        }
+        return result;
+    }
+
+    private static void updateCache(@NotNull IncrementalCache cache, @NotNull Map<File, CompiledSource> compiledSources)
+            throws IOException {
+        for (Map.Entry<File, CompiledSource> entry : compiledSources.entrySet()) {
+            File sourceFile = entry.getKey();
+            CompiledSource compiledSource = entry.getValue();
+            cache.putSource(sourceFile.getPath(), KotlinSourceFileCollector.getPackageName(sourceFile),
+                            compiledSource.outputs, compiledSource.referencedClasses);
+        }
+        cache.save();
     }
 
     private static Collection<String> paths(Collection<File> files) {
@@ -138,6 +499,37 @@ public class KotlinBuilder extends ModuleLevelBuilder {
         return result;
     }
 
+    private static class CompiledSource {
+        // output path -> ABI hash
+        private final Map<String, String> outputs = ContainerUtil.newHashMap();
+        private final Set<String> referencedClasses = ContainerUtil.newHashSet();
+    }
+
+    private static class ErrorTrackingMessageCollector implements MessageCollector {
+        private final MessageCollector delegate;
+        private boolean hasErrors = false;
+
+        public ErrorTrackingMessageCollector(@NotNull MessageCollector delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void report(
+                @NotNull CompilerMessageSeverity severity,
+                @NotNull String message,
+                @NotNull CompilerMessageLocation location
+        ) {
+            if (CompilerMessageSeverity.ERRORS.contains(severity)) {
+                hasErrors = true;
+            }
+            delegate.report(severity, message, location);
+        }
+
+        public boolean hasErrors() {
+            return hasErrors;
+        }
+    }
+
     public static class MessageCollectorAdapter implements MessageCollector {
 
         private final CompileContext context;
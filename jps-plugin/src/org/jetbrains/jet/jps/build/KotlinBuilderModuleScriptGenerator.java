@@ -22,6 +22,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.compiler.runner.KotlinModuleDescriptionGenerator;
 import org.jetbrains.jet.compiler.runner.KotlinModuleXmlGenerator;
+import org.jetbrains.jps.ModuleChunk;
 import org.jetbrains.jps.builders.java.JavaSourceRootDescriptor;
 import org.jetbrains.jps.incremental.CompileContext;
 import org.jetbrains.jps.incremental.ModuleBuildTarget;
@@ -44,6 +45,7 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import static org.jetbrains.jet.compiler.runner.KotlinModuleDescriptionGenerator.DependencyProvider;
 
@@ -51,18 +53,53 @@ public class KotlinBuilderModuleScriptGenerator {
 
     public static final KotlinModuleDescriptionGenerator GENERATOR = KotlinModuleXmlGenerator.INSTANCE;
 
-    public static File generateModuleDescription(CompileContext context, ModuleBuildTarget target, List<File> sourceFiles)
-            throws IOException
+    public static File generateModuleDescription(
+            CompileContext context,
+            ModuleBuildTarget target,
+            List<File> sourceFiles,
+            boolean incremental
+    ) throws IOException
     {
         CharSequence moduleScriptText = GENERATOR.generateModuleScript(
                 target.getId(),
-                getKotlinModuleDependencies(context, target),
+                getKotlinModuleDependencies(context, Collections.singleton(target)),
                 sourceFiles,
                 target.isTests(),
-                // this excludes the output directory from the class path, to be removed for true incremental compilation
-                Collections.singleton(target.getOutputDir())
+                // on incremental compilation classes of the files which are not recompiled are taken from the output directory,
+                // otherwise it is excluded from the class path
+                incremental ? Collections.<File>emptySet() : Collections.singleton(target.getOutputDir())
         );
 
+        return writeScript(context, target, moduleScriptText);
+    }
+
+    /**
+     * Describes all the targets of a chunk of mutually dependent modules as a single Kotlin module
+     */
+    public static File generateChunkDescription(
+            CompileContext context,
+            ModuleChunk chunk,
+            List<File> sourceFiles
+    ) throws IOException
+    {
+        Set<File> outputDirs = ContainerUtil.newHashSet();
+        for (ModuleBuildTarget target : chunk.getTargets()) {
+            outputDirs.add(target.getOutputDir());
+        }
+
+        ModuleBuildTarget representativeTarget = chunk.representativeTarget();
+        CharSequence moduleScriptText = GENERATOR.generateModuleScript(
+                representativeTarget.getId(),
+                getKotlinModuleDependencies(context, chunk.getTargets()),
+                sourceFiles,
+                representativeTarget.isTests(),
+                outputDirs
+        );
+
+        return writeScript(context, representativeTarget, moduleScriptText);
+    }
+
+    private static File writeScript(CompileContext context, ModuleBuildTarget target, CharSequence moduleScriptText) throws IOException {
         File scriptFile = new File(target.getOutputDir(), "script." + GENERATOR.getFileExtension());
 
         writeScriptToFile(context, moduleScriptText, scriptFile);
@@ -70,13 +107,25 @@ public class KotlinBuilderModuleScriptGenerator {
         return scriptFile;
     }
 
-    private static DependencyProvider getKotlinModuleDependencies(final CompileContext context, final ModuleBuildTarget target) {
+    private static DependencyProvider getKotlinModuleDependencies(
+            final CompileContext context,
+            final Collection<ModuleBuildTarget> targets
+    ) {
         return new DependencyProvider() {
             @Override
             public void processClassPath(@NotNull KotlinModuleDescriptionGenerator.DependencyProcessor processor) {
-                processor.processClassPathSection("Classpath", findClassPathRoots(target));
-                processor.processClassPathSection("Java Source Roots", findSourceRoots(context, target));
-                processor.processAnnotationRoots(findAnnotationRoots(target));
+                // Modules of one chunk share most of their dependencies
+                Set<File> classPathRoots = ContainerUtil.newLinkedHashSet();
+                Set<File> sourceRoots = ContainerUtil.newLinkedHashSet();
+                Set<File> annotationRoots = ContainerUtil.newLinkedHashSet();
+                for (ModuleBuildTarget target : targets) {
+                    classPathRoots.addAll(findClassPathRoots(target));
+                    sourceRoots.addAll(findSourceRoots(context, target));
+                    annotationRoots.addAll(findAnnotationRoots(target));
+                }
+                processor.processClassPathSection("Classpath", classPathRoots);
+                processor.processClassPathSection("Java Source Roots", sourceRoots);
+                processor.processAnnotationRoots(ContainerUtil.newArrayList(annotationRoots));
             }
         };
     }
@@ -18,6 +18,7 @@ package org.jetbrains.jet.jps.build;
 
 import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.Processor;
 import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
@@ -28,9 +29,9 @@ import org.jetbrains.jps.incremental.ModuleBuildTarget;
 import org.jetbrains.jps.model.java.JavaSourceRootType;
 import org.jetbrains.jps.model.module.JpsModuleSourceRoot;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
 import java.util.List;
+import java.util.Set;
 
 public class KotlinSourceFileCollector {
     // For incremental compilation
@@ -66,6 +67,61 @@ public class KotlinSourceFileCollector {
         return result.get();
     }
 
+    /**
+     * For incremental compilation. Internal names of the classes declared in dirty Java files,
+     * provided that each file is named after its top-level class, as usual
+     */
+    @NotNull
+    public static Set<String> getDirtyJavaClassNames(DirtyFilesHolder<JavaSourceRootDescriptor, ModuleBuildTarget> dirtyFilesHolder)
+            throws IOException {
+        final Set<String> result = ContainerUtil.newHashSet();
+
+        dirtyFilesHolder.processDirtyFiles(new FileProcessor<JavaSourceRootDescriptor, ModuleBuildTarget>() {
+            @Override
+            public boolean apply(ModuleBuildTarget target, File file, JavaSourceRootDescriptor root) throws IOException {
+                if (!file.getPath().endsWith(".java")) {
+                    return true;
+                }
+                String relativePath = FileUtil.getRelativePath(root.getRootFile(), file);
+                if (relativePath != null) {
+                    String name = StringUtil.trimEnd(FileUtil.toSystemIndependentName(relativePath), ".java");
+                    String packagePrefix = root.getPackagePrefix();
+                    result.add(packagePrefix.isEmpty() ? name : packagePrefix.replace('.', '/') + "/" + name);
+                }
+                return true;
+            }
+        });
+        return result;
+    }
+
+    // For incremental compilation
+    public static boolean hasRemovedKotlinFiles(
+            DirtyFilesHolder<JavaSourceRootDescriptor, ModuleBuildTarget> dirtyFilesHolder,
+            ModuleBuildTarget target
+    ) {
+        for (String path : dirtyFilesHolder.getRemovedFiles(target)) {
+            if (isKotlinSourceFile(new File(path))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the package of a Kotlin file reading the file only up to its package directive. All files of one package
+     * are compiled into a single package class, so they can only be recompiled together
+     */
+    @NotNull
+    public static String getPackageName(@NotNull File file) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            return PackageDirectiveReader.readPackageName(reader);
+        }
+        finally {
+            reader.close();
+        }
+    }
+
     @NotNull
     public static List<File> getAllKotlinSourceFiles(@NotNull ModuleBuildTarget target) {
         final List<File> result = ContainerUtil.newArrayList();
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.jps.build;
+
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Set;
+
+/**
+ * Reads the package directive of a Kotlin file, stopping right after it.
+ * The compiler is not available to the JPS plugin, so this is a tokenizer for the beginning of a file only:
+ * comments, modifiers and annotations which may precede the directive. Comments and string literals are skipped,
+ * so a "package" inside of them is not taken for the directive.
+ */
+public class PackageDirectiveReader {
+    private static final int EOF = -1;
+    private static final int NONE = -2;
+
+    private static final Set<String> DECLARATION_KEYWORDS = ContainerUtil.newHashSet(
+            "import", "class", "trait", "object", "fun", "val", "var", "type");
+
+    private enum TokenType {
+        KEYWORD_OR_IDENTIFIER,
+        QUOTED_IDENTIFIER,
+        SYMBOL,
+        END
+    }
+
+    private final Reader reader;
+    private int lookAhead = NONE;
+    private String tokenText = "";
+
+    private PackageDirectiveReader(@NotNull Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return the package name with backticks removed, or an empty string for the root package
+     */
+    @NotNull
+    public static String readPackageName(@NotNull Reader reader) throws IOException {
+        return new PackageDirectiveReader(reader).readPackageName();
+    }
+
+    @NotNull
+    private String readPackageName() throws IOException {
+        int depth = 0;
+        while (true) {
+            TokenType type = nextToken();
+            switch (type) {
+                case END:
+                    return "";
+                case SYMBOL:
+                    if (tokenText.equals("(") || tokenText.equals("[")) {
+                        depth++;
+                    }
+                    else if (tokenText.equals(")") || tokenText.equals("]")) {
+                        depth--;
+                    }
+                    else if (depth == 0 && !tokenText.equals(".")) {
+                        // Modifiers and annotations may contain nothing else
+                        return "";
+                    }
+                    break;
+                case KEYWORD_OR_IDENTIFIER:
+                    if (depth > 0) break;
+                    if (tokenText.equals("package")) {
+                        return readQualifiedName();
+                    }
+                    if (DECLARATION_KEYWORDS.contains(tokenText)) {
+                        return "";
+                    }
+                    break;
+                case QUOTED_IDENTIFIER:
+                    break;
+            }
+        }
+    }
+
+    @NotNull
+    private String readQualifiedName() throws IOException {
+        StringBuilder name = new StringBuilder();
+        while (true) {
+            TokenType type = nextToken();
+            if (type != TokenType.KEYWORD_OR_IDENTIFIER && type != TokenType.QUOTED_IDENTIFIER) {
+                return "";
+            }
+            name.append(tokenText);
+
+            type = nextToken();
+            if (type == TokenType.SYMBOL && tokenText.equals(".")) {
+                name.append('.');
+            }
+            else if (type == TokenType.SYMBOL && tokenText.equals("{")) {
+                // "package a { ... }" is a declaration, the file itself is in the root package
+                return "";
+            }
+            else {
+                return name.toString();
+            }
+        }
+    }
+
+    @NotNull
+    private TokenType nextToken() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == EOF) {
+                return TokenType.END;
+            }
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            if (c == '/' && peek() == '/' || c == '#' && peek() == '!') {
+                skipLine();
+                continue;
+            }
+            if (c == '/' && peek() == '*') {
+                read();
+                skipBlockComment();
+                continue;
+            }
+            if (c == '"') {
+                skipString();
+                tokenText = "\"";
+                return TokenType.SYMBOL;
+            }
+            if (c == '\'') {
+                skipUntil('\'');
+                tokenText = "'";
+                return TokenType.SYMBOL;
+            }
+            if (c == '`') {
+                StringBuilder name = new StringBuilder();
+                for (c = read(); c != '`' && c != '\n' && c != EOF; c = read()) {
+                    name.append((char) c);
+                }
+                tokenText = name.toString();
+                return TokenType.QUOTED_IDENTIFIER;
+            }
+            if (Character.isJavaIdentifierStart(c)) {
+                StringBuilder name = new StringBuilder().append((char) c);
+                while (peek() != EOF && Character.isJavaIdentifierPart(peek())) {
+                    name.append((char) read());
+                }
+                tokenText = name.toString();
+                return TokenType.KEYWORD_OR_IDENTIFIER;
+            }
+            tokenText = String.valueOf((char) c);
+            return TokenType.SYMBOL;
+        }
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        do {
+            c = read();
+        }
+        while (c != '\n' && c != EOF);
+    }
+
+    private void skipBlockComment() throws IOException {
+        // Block comments are nested in Kotlin
+        int depth = 1;
+        while (depth > 0) {
+            int c = read();
+            if (c == EOF) {
+                return;
+            }
+            if (c == '/' && peek() == '*') {
+                read();
+                depth++;
+            }
+            else if (c == '*' && peek() == '/') {
+                read();
+                depth--;
+            }
+        }
+    }
+
+    private void skipString() throws IOException {
+        if (peek() != '"') {
+            skipUntil('"');
+            return;
+        }
+        read();
+        if (peek() != '"') {
+            // empty string
+            return;
+        }
+        read();
+
+        // raw string
+        int quotes = 0;
+        while (quotes < 3) {
+            int c = read();
+            if (c == EOF) {
+                return;
+            }
+            quotes = c == '"' ? quotes + 1 : 0;
+        }
+    }
+
+    private void skipUntil(char quote) throws IOException {
+        while (true) {
+            int c = read();
+            if (c == EOF || c == quote || c == '\n') {
+                return;
+            }
+            if (c == '\\') {
+                read();
+            }
+        }
+    }
+
+    private int peek() throws IOException {
+        if (lookAhead == NONE) {
+            lookAhead = reader.read();
+        }
+        return lookAhead;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        lookAhead = NONE;
+        return c;
+    }
+}
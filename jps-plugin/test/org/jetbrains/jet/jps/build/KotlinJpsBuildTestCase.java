@@ -17,13 +17,20 @@
 package org.jetbrains.jet.jps.build;
 
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.Processor;
 import org.jetbrains.jps.model.java.*;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class KotlinJpsBuildTestCase extends AbstractKotlinJpsBuildTestCase {
     private static final String PROJECT_NAME = "kotlinProject";
     private static final String JDK_NAME = "IDEA_JDK";
+    private static final long OLD_OUTPUT_TIMESTAMP = 1000000000000L;
 
     @Override
     public void setUp() throws Exception {
@@ -58,6 +65,57 @@ public class KotlinJpsBuildTestCase extends AbstractKotlinJpsBuildTestCase {
         doTest();
     }
 
+    public void testIncrementalKotlinProject() {
+        initProject();
+        makeAll().assertSuccessful();
+
+        // Only the body changes, so the other package is not recompiled
+        change(workDir + "/src/a.kt", "package a\n\nfun a(): String = \"changed\"");
+        makeAndAssertUpdatedPackages("a");
+
+        // New declarations change the ABI, and the files referring to the package class are recompiled
+        change(workDir + "/src/a.kt", "package a\n\nfun a(): String = \"changed\"\n\nfun c(): String = \"c\"");
+        makeAndAssertUpdatedPackages("a", "b");
+
+        change(workDir + "/src/b.kt", "package b\n\nimport a.*\n\nfun b(): String = a() + c()");
+        makeAndAssertUpdatedPackages("b");
+    }
+
+    /**
+     * Outputs of the recompiled files are written anew, so they are told apart from the others by their timestamps
+     */
+    private void makeAndAssertUpdatedPackages(String... expectedPackages) {
+        File outputDir = new File(workDir, "out/production/" + PROJECT_NAME);
+        for (File classFile : getClassFiles(outputDir)) {
+            assertTrue(classFile.setLastModified(OLD_OUTPUT_TIMESTAMP));
+        }
+
+        makeAll().assertSuccessful();
+
+        Set<String> updatedPackages = new TreeSet<String>();
+        for (File classFile : getClassFiles(outputDir)) {
+            if (classFile.lastModified() != OLD_OUTPUT_TIMESTAMP) {
+                String relativePath = FileUtil.toSystemIndependentName(FileUtil.getRelativePath(outputDir, classFile));
+                updatedPackages.add(relativePath.substring(0, relativePath.lastIndexOf('/')));
+            }
+        }
+        assertEquals(new TreeSet<String>(Arrays.asList(expectedPackages)), updatedPackages);
+    }
+
+    private static List<File> getClassFiles(File dir) {
+        final List<File> result = new ArrayList<File>();
+        FileUtil.processFilesRecursively(dir, new Processor<File>() {
+            @Override
+            public boolean process(File file) {
+                if (file.isFile() && file.getName().endsWith(".class")) {
+                    result.add(file);
+                }
+                return true;
+            }
+        });
+        return result;
+    }
+
     public void testKotlinJavaProject() {
         doTest();
     }
@@ -86,6 +144,13 @@ public class KotlinJpsBuildTestCase extends AbstractKotlinJpsBuildTestCase {
         doTest();
     }
 
+    public void testCircularDependenciesKotlin() {
+        doTest();
+        assertTrue(new File(workDir, "out/production/kotlinProject/first").isDirectory());
+        assertTrue(new File(workDir, "out/production/module2/second").isDirectory());
+        assertFalse(new File(workDir, "out/production/kotlinProject/second").exists());
+    }
+
     public void testTestDependencyLibrary() throws Throwable {
         initProject();
         addKotlinRuntimeDependency(JpsJavaDependencyScope.TEST);
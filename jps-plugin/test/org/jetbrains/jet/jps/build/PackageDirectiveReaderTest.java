@@ -0,0 +1,61 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.jps.build;
+
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+public class PackageDirectiveReaderTest extends TestCase {
+    public void testSimple() throws IOException {
+        doTest("a.b", "package a.b\n\nfun f() {}");
+    }
+
+    public void testNoDirective() throws IOException {
+        doTest("", "import a.*\n\nfun f() = \"package x\"");
+    }
+
+    public void testEmptyFile() throws IOException {
+        doTest("", "");
+    }
+
+    public void testComments() throws IOException {
+        doTest("a", "// package x\n/* package y /* nested */ package z */\npackage a");
+    }
+
+    public void testShebangAndQuotedName() throws IOException {
+        doTest("a.b", "#!/usr/bin/kotlin\npackage `a`.b;");
+    }
+
+    public void testAnnotations() throws IOException {
+        doTest("a.c", "[suppress(\"package x\")] public package a.c");
+    }
+
+    public void testStrings() throws IOException {
+        doTest("", "val s = \"\"\"\npackage x\n\"\"\"");
+    }
+
+    public void testNamespaceBlock() throws IOException {
+        doTest("", "package a { fun f() {} }");
+    }
+
+    private static void doTest(@NotNull String expected, @NotNull String text) throws IOException {
+        assertEquals(expected, PackageDirectiveReader.readPackageName(new StringReader(text)));
+    }
+}
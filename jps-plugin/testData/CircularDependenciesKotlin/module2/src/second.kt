@@ -0,0 +1,3 @@
+package second
+
+fun second(n: Int): String = if (n > 0) first.first() else "second"
@@ -0,0 +1,3 @@
+package first
+
+fun first(): String = second.second(1)
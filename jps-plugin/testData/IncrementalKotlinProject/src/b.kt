@@ -0,0 +1,5 @@
+package b
+
+import a.*
+
+fun b(): String = a() + "b"
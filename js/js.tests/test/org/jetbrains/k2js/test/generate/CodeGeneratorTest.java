@@ -0,0 +1,108 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.k2js.test.generate;
+
+import com.google.dart.compiler.backend.js.JsSourceGenerationVisitor;
+import com.google.dart.compiler.backend.js.ast.*;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.k2js.generate.CodeGenerator;
+import org.jetbrains.k2js.generate.SourceMapBuilder;
+import org.jetbrains.k2js.generate.StreamingTextOutput;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+public final class CodeGeneratorTest extends TestCase {
+
+    public void testStreamingOutputMatchesStringOutput() throws IOException {
+        JsProgram program = createProgram(100);
+
+        StringWriter writer = new StringWriter();
+        // a tiny chunk makes every print cross chunk boundaries
+        StreamingTextOutput output = new StreamingTextOutput(writer, false, 7);
+        program.traverse(new JsSourceGenerationVisitor(output), null);
+        output.flush();
+
+        String expected = CodeGenerator.generateProgramToString(program);
+        assertEquals(expected, writer.toString());
+        assertEquals(expected.length(), output.getPosition());
+    }
+
+    public void testEmptySourceMap() {
+        assertEquals("{\"version\":3,\"file\":\"out.js\",\"sources\":[],\"names\":[],\"mappings\":\"\"}",
+                     new SourceMapBuilder("out.js").build());
+    }
+
+    public void testMappingsAreRelative() {
+        SourceMapBuilder builder = new SourceMapBuilder("out.js");
+        builder.addMapping(0, 0, "a.kt", 0, 0);
+        builder.addMapping(0, 16, "a.kt", 1, 4);
+        builder.addMapping(2, 3, "b.kt", 0, 0);
+        builder.addMapping(2, 1000, "a.kt", 100, 2);
+        assertEquals("{\"version\":3,\"file\":\"out.js\",\"sources\":[\"a.kt\",\"b.kt\"],\"names\":[]," +
+                     "\"mappings\":\"AAAA,gBACI;;GCDJ,q+BDoGE\"}", builder.build());
+    }
+
+    public void testSecondMappingForSamePositionIsIgnored() {
+        SourceMapBuilder builder = new SourceMapBuilder("out.js");
+        builder.addMapping(1, 2, "a.kt", 3, 4);
+        builder.addMapping(1, 2, "a.kt", 5, 6);
+        assertEquals("{\"version\":3,\"file\":\"out.js\",\"sources\":[\"a.kt\"],\"names\":[],\"mappings\":\";EAGI\"}",
+                     builder.build());
+    }
+
+    public void testSourceNamesAreEscaped() {
+        SourceMapBuilder builder = new SourceMapBuilder("out\".js");
+        builder.addMapping(0, 0, "dir\\a.kt", 0, 0);
+        assertEquals("{\"version\":3,\"file\":\"out\\\".js\",\"sources\":[\"dir\\\\a.kt\"],\"names\":[],\"mappings\":\"AAAA\"}",
+                     builder.build());
+    }
+
+    public void testShiftMappings() {
+        SourceMapBuilder builder = new SourceMapBuilder("out.js");
+        builder.addMapping(0, 4, "a.kt", 1, 0);
+        builder.addMapping(1, 0, "a.kt", 2, 0);
+        assertEquals("{\"version\":3,\"file\":\"out.js\",\"sources\":[\"a.kt\"],\"names\":[],\"mappings\":\";;;IACA;AACA\"}",
+                     SourceMapBuilder.shiftMappings(builder.build(), 3));
+    }
+
+    public void testNextColumnIncludesPendingIndent() throws IOException {
+        StreamingTextOutput output = new StreamingTextOutput(new StringWriter());
+        output.indentIn();
+        output.print("{");
+        output.newline();
+        assertEquals(0, output.getColumn());
+        assertEquals(2, output.getNextColumn());
+        output.print("x");
+        assertEquals(3, output.getNextColumn());
+    }
+
+    @NotNull
+    private static JsProgram createProgram(int functionCount) {
+        JsProgram program = new JsProgram("main");
+        for (int i = 0; i < functionCount; i++) {
+            JsFunction function = new JsFunction(program.getScope());
+            JsBlock body = new JsBlock();
+            body.getStatements().add(new JsReturn(
+                    new JsBinaryOperation(JsBinaryOperator.ADD, program.getNumberLiteral(i), program.getStringLiteral("value" + i))));
+            function.setBody(body);
+            program.getGlobalBlock().getStatements().add(new JsVars(new JsVars.JsVar(program.getScope().declareName("f" + i), function)));
+        }
+        return program;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.k2js.test.generate;
+
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.config.CompilerConfiguration;
+import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.resolve.lazy.KotlinTestWithEnvironment;
+import org.jetbrains.k2js.config.EcmaVersion;
+import org.jetbrains.k2js.facade.K2JSTranslator;
+import org.jetbrains.k2js.facade.MainCallParameters;
+import org.jetbrains.k2js.test.config.TestConfig;
+import org.jetbrains.k2js.test.utils.TranslationUtils;
+import org.jetbrains.k2js.utils.JetFileUtils;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Translates a small Kotlin file with a source map and checks where the generated code points to.
+ */
+public final class SourceMapTest extends KotlinTestWithEnvironment {
+    private static final String BASE64_DIGITS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+    private static final String SOURCE = "package foo\n" +
+                                         "\n" +
+                                         "fun twice(x: Int): Int {\n" +
+                                         "    val y = x * 2\n" +
+                                         "    return y\n" +
+                                         "}\n";
+
+    @Override
+    protected JetCoreEnvironment createEnvironment() {
+        return new JetCoreEnvironment(getTestRootDisposable(), new CompilerConfiguration());
+    }
+
+    public void testFunctionAndStatementsAreMapped() throws Exception {
+        File outputDir = FileUtil.createTempDirectory("sourceMap", null);
+        try {
+            File outputFile = new File(outputDir, "out.js");
+            JetFile file = JetFileUtils.createPsiFile("twice.kt", SOURCE, getProject());
+            K2JSTranslator.translateWithMainCallParametersAndSaveToFile(
+                    MainCallParameters.noCall(), Collections.singletonList(file), outputFile.getPath(),
+                    TranslationUtils.getConfig(getProject(), EcmaVersion.v3, TestConfig.FACTORY), true);
+
+            String code = FileUtil.loadFile(outputFile);
+            String sourceMap = FileUtil.loadFile(new File(outputFile.getPath() + K2JSTranslator.SOURCE_MAP_EXTENSION));
+            assertTrue(code, code.endsWith("//@ sourceMappingURL=out.js.map\n"));
+            assertTrue(sourceMap, sourceMap.contains("\"sources\":[\"twice.kt\"]"));
+
+            Map<String, String> mappings = decodeMappings(sourceMap);
+            // the function starts at "fun", the statements at their first token, not at the indent
+            assertEquals("2:0", mappings.get(findPosition(code, code.indexOf("function", code.indexOf("twice")))));
+            assertEquals("3:4", mappings.get(findPosition(code, code.indexOf("var y"))));
+            assertEquals("4:4", mappings.get(findPosition(code, code.indexOf("return y"))));
+        }
+        finally {
+            FileUtil.delete(outputDir);
+        }
+    }
+
+    @NotNull
+    private static String findPosition(@NotNull String code, int offset) {
+        assertTrue("Not found in:\n" + code, offset >= 0);
+        int lineStart = code.lastIndexOf('\n', offset) + 1;
+        int line = 0;
+        for (int i = 0; i < lineStart; i++) {
+            if (code.charAt(i) == '\n') {
+                line++;
+            }
+        }
+        return line + ":" + (offset - lineStart);
+    }
+
+    /**
+     * Returns "sourceLine:sourceColumn" by "generatedLine:generatedColumn"
+     */
+    @NotNull
+    private static Map<String, String> decodeMappings(@NotNull String sourceMap) {
+        String key = "\"mappings\":\"";
+        int start = sourceMap.indexOf(key) + key.length();
+        String mappings = sourceMap.substring(start, sourceMap.indexOf('"', start));
+
+        Map<String, String> result = new HashMap<String, String>();
+        int[] values = new int[4];
+        String[] lines = mappings.split(";", -1);
+        for (int line = 0; line < lines.length; line++) {
+            values[0] = 0;
+            if (lines[line].isEmpty()) {
+                continue;
+            }
+            for (String segment : lines[line].split(",")) {
+                int index = 0;
+                int field = 0;
+                while (index < segment.length()) {
+                    int value = 0;
+                    int shift = 0;
+                    int digit;
+                    do {
+                        digit = BASE64_DIGITS.indexOf(segment.charAt(index++));
+                        value |= (digit & 31) << shift;
+                        shift += 5;
+                    }
+                    while ((digit & 32) != 0);
+                    values[field++] += (value & 1) != 0 ? -(value >>> 1) : value >>> 1;
+                }
+                result.put(line + ":" + values[0], values[2] + ":" + values[3]);
+            }
+        }
+        return result;
+    }
+}
@@ -18,13 +18,14 @@ package org.jetbrains.k2js.facade;
 
 import com.google.dart.compiler.backend.js.ast.JsProgram;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.io.FileUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.lang.psi.JetFile;
 import org.jetbrains.jet.lang.resolve.BindingContext;
 import org.jetbrains.k2js.analyze.AnalyzerFacadeForJS;
 import org.jetbrains.k2js.config.Config;
 import org.jetbrains.k2js.facade.exceptions.TranslationException;
+import org.jetbrains.k2js.generate.SourceLocations;
 import org.jetbrains.k2js.translate.general.Translation;
 import org.jetbrains.k2js.utils.JetFileUtils;
 
@@ -34,6 +35,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import static org.jetbrains.k2js.facade.FacadeUtils.parseString;
+import static org.jetbrains.k2js.generate.CodeGenerator.generateProgramToFile;
 import static org.jetbrains.k2js.generate.CodeGenerator.generateProgramToString;
 
 /**
@@ -43,14 +45,28 @@ public final class K2JSTranslator {
 
     public static final String FLUSH_SYSTEM_OUT = "Kotlin.System.flush();\n";
     public static final String GET_SYSTEM_OUT = "Kotlin.System.output();\n";
+    public static final String SOURCE_MAP_EXTENSION = ".map";
 
     public static void translateWithMainCallParametersAndSaveToFile(@NotNull MainCallParameters mainCall,
             @NotNull List<JetFile> files,
             @NotNull String outputPath,
             @NotNull Config config) throws TranslationException, IOException {
+        translateWithMainCallParametersAndSaveToFile(mainCall, files, outputPath, config, false);
+    }
+
+    /**
+     * Streams the generated program to outputPath. The source map, if requested, is written to outputPath + ".map".
+     */
+    public static void translateWithMainCallParametersAndSaveToFile(@NotNull MainCallParameters mainCall,
+            @NotNull List<JetFile> files,
+            @NotNull String outputPath,
+            @NotNull Config config,
+            boolean generateSourceMap) throws TranslationException, IOException {
         K2JSTranslator translator = new K2JSTranslator(config);
-        String programCode = translator.generateProgramCode(files, mainCall);
-        FileUtil.writeToFile(new File(outputPath), programCode);
+        SourceLocations sourceLocations = generateSourceMap ? new SourceLocations() : null;
+        JsProgram program = translator.generateProgram(files, mainCall, sourceLocations);
+        File sourceMapFile = generateSourceMap ? new File(outputPath + SOURCE_MAP_EXTENSION) : null;
+        generateProgramToFile(program, new File(outputPath), sourceMapFile, sourceLocations);
     }
 
     @NotNull
@@ -87,8 +103,16 @@ public final class K2JSTranslator {
     public JsProgram generateProgram(@NotNull List<JetFile> filesToTranslate,
             @NotNull MainCallParameters mainCallParameters)
             throws TranslationException {
+        return generateProgram(filesToTranslate, mainCallParameters, null);
+    }
+
+    @NotNull
+    public JsProgram generateProgram(@NotNull List<JetFile> filesToTranslate,
+            @NotNull MainCallParameters mainCallParameters,
+            @Nullable SourceLocations sourceLocations)
+            throws TranslationException {
         BindingContext bindingContext = AnalyzerFacadeForJS.analyzeFilesAndCheckErrors(filesToTranslate, config);
-        return Translation.generateAst(bindingContext, filesToTranslate, mainCallParameters, config);
+        return Translation.generateAst(bindingContext, filesToTranslate, mainCallParameters, config, sourceLocations);
     }
 
     @NotNull
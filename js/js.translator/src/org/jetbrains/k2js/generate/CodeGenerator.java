@@ -18,10 +18,17 @@ package org.jetbrains.k2js.generate;
 
 import com.google.dart.compiler.backend.js.JsSourceGenerationVisitor;
 import com.google.dart.compiler.backend.js.ast.JsProgram;
+import com.google.dart.compiler.util.TextOutput;
 import com.google.dart.compiler.util.TextOutputImpl;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.channels.Channels;
 
 public final class CodeGenerator {
+    private static final String CHARSET = "UTF-8";
+
     private CodeGenerator() {
     }
 
@@ -32,4 +39,50 @@ public final class CodeGenerator {
         program.traverse(sourceGenerator, null);
         return output.toString();
     }
+
+    /**
+     * Streams the program to the output file. When sourceMapFile and locations are given,
+     * a source map is written there and referenced from the end of the program.
+     */
+    public static void generateProgramToFile(@NotNull JsProgram program, @NotNull File outputFile,
+            @Nullable File sourceMapFile, @Nullable SourceLocations locations) throws IOException {
+        SourceMapBuilder sourceMapBuilder = null;
+        FileOutputStream stream = new FileOutputStream(outputFile);
+        try {
+            Writer writer = Channels.newWriter(stream.getChannel(), CHARSET);
+            StreamingTextOutput output = new StreamingTextOutput(writer);
+            if (sourceMapFile != null && locations != null) {
+                sourceMapBuilder = new SourceMapBuilder(outputFile.getName());
+                program.traverse(new SourceMapGenerationVisitor(output, locations, sourceMapBuilder, sourceMapFile.getParentFile()), null);
+                appendSourceMappingUrl(output, sourceMapFile);
+            }
+            else {
+                program.traverse(new JsSourceGenerationVisitor(output), null);
+            }
+            output.flush();
+        }
+        finally {
+            stream.close();
+        }
+
+        if (sourceMapBuilder != null) {
+            assert sourceMapFile != null;
+            Writer writer = new OutputStreamWriter(new FileOutputStream(sourceMapFile), CHARSET);
+            try {
+                sourceMapBuilder.write(writer);
+            }
+            finally {
+                writer.close();
+            }
+        }
+    }
+
+    private static void appendSourceMappingUrl(@NotNull TextOutput output, @NotNull File sourceMapFile) {
+        if (output.getColumn() != 0) {
+            output.newline();
+        }
+        output.print("//@ sourceMappingURL=");
+        output.print(sourceMapFile.getName());
+        output.newline();
+    }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.k2js.generate;
+
+import com.google.dart.compiler.backend.js.ast.JsLiteral;
+import com.google.dart.compiler.backend.js.ast.JsNode;
+import com.google.dart.compiler.backend.js.ast.JsValueLiteral;
+import com.intellij.psi.PsiElement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Remembers which Kotlin element every generated JavaScript node was translated from.
+ * Nodes are compared by identity, since equal nodes may come from different places.
+ */
+public final class SourceLocations {
+    @NotNull
+    private final Map<JsNode, PsiElement> elements = new IdentityHashMap<JsNode, PsiElement>();
+
+    // The innermost element is recorded first, and it is the most precise one
+    public void record(@NotNull JsNode node, @NotNull PsiElement element) {
+        // Value literals and undefined are shared by the whole program, so they can't point to one place
+        if (node instanceof JsValueLiteral || node == JsLiteral.UNDEFINED) {
+            return;
+        }
+        if (!elements.containsKey(node)) {
+            elements.put(node, element);
+        }
+    }
+
+    @Nullable
+    public PsiElement get(@NotNull Object node) {
+        return elements.get(node);
+    }
+}
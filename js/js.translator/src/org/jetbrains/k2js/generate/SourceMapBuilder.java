@@ -0,0 +1,198 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.k2js.generate;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a source map in the revision 3 format.
+ * Mappings have to be added in the order of generated positions, they are encoded right away,
+ * so the cost is linear in the number of mappings.
+ */
+public final class SourceMapBuilder {
+    private static final char[] BASE64_DIGITS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final int VLQ_BASE_SHIFT = 5;
+    private static final int VLQ_BASE_MASK = (1 << VLQ_BASE_SHIFT) - 1;
+    private static final int VLQ_CONTINUATION_BIT = 1 << VLQ_BASE_SHIFT;
+    private static final String MAPPINGS_KEY = "\"mappings\":\"";
+
+    @NotNull
+    private final String generatedFileName;
+    @NotNull
+    private final List<String> sources = new ArrayList<String>();
+    @NotNull
+    private final Map<String, Integer> sourceIndices = new HashMap<String, Integer>();
+    @NotNull
+    private final StringBuilder mappings = new StringBuilder();
+
+    private int generatedLine = 0;
+    private boolean lineHasMappings = false;
+    private int previousGeneratedColumn = 0;
+    private int previousSourceIndex = 0;
+    private int previousSourceLine = 0;
+    private int previousSourceColumn = 0;
+
+    public SourceMapBuilder(@NotNull String generatedFileName) {
+        this.generatedFileName = generatedFileName;
+    }
+
+    /**
+     * All positions are zero-based. A mapping for an already mapped generated position is ignored.
+     */
+    public void addMapping(int generatedLine, int generatedColumn, @NotNull String source, int sourceLine, int sourceColumn) {
+        assert generatedLine >= this.generatedLine : "Mappings must be added in the order of generated lines";
+        while (this.generatedLine < generatedLine) {
+            mappings.append(';');
+            this.generatedLine++;
+            lineHasMappings = false;
+            previousGeneratedColumn = 0;
+        }
+
+        if (lineHasMappings) {
+            assert generatedColumn >= previousGeneratedColumn : "Mappings must be added in the order of generated columns";
+            if (generatedColumn == previousGeneratedColumn) {
+                return;
+            }
+            mappings.append(',');
+        }
+
+        int sourceIndex = getSourceIndex(source);
+        appendVlq(generatedColumn - previousGeneratedColumn);
+        appendVlq(sourceIndex - previousSourceIndex);
+        appendVlq(sourceLine - previousSourceLine);
+        appendVlq(sourceColumn - previousSourceColumn);
+
+        lineHasMappings = true;
+        previousGeneratedColumn = generatedColumn;
+        previousSourceIndex = sourceIndex;
+        previousSourceLine = sourceLine;
+        previousSourceColumn = sourceColumn;
+    }
+
+    private int getSourceIndex(@NotNull String source) {
+        Integer index = sourceIndices.get(source);
+        if (index == null) {
+            index = sources.size();
+            sources.add(source);
+            sourceIndices.put(source, index);
+        }
+        return index;
+    }
+
+    private void appendVlq(int value) {
+        int vlq = value < 0 ? ((-value) << 1) | 1 : value << 1;
+        do {
+            int digit = vlq & VLQ_BASE_MASK;
+            vlq >>>= VLQ_BASE_SHIFT;
+            if (vlq != 0) {
+                digit |= VLQ_CONTINUATION_BIT;
+            }
+            mappings.append(BASE64_DIGITS[digit]);
+        }
+        while (vlq != 0);
+    }
+
+    public void write(@NotNull Writer out) throws IOException {
+        out.write("{\"version\":3,\"file\":");
+        writeString(out, generatedFileName);
+        out.write(",\"sources\":[");
+        for (int i = 0; i < sources.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeString(out, sources.get(i));
+        }
+        out.write("],\"names\":[],");
+        out.write(MAPPINGS_KEY);
+        out.append(mappings);
+        out.write("\"}");
+    }
+
+    private static void writeString(@NotNull Writer out, @NotNull String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < ' ') {
+                        out.write(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+
+    /**
+     * Moves all the mappings of a source map written by this class lineCount lines down,
+     * for the case when some text is put in front of the generated file.
+     * Every generated line starts a new group of relative positions, so adding empty lines is enough.
+     */
+    @NotNull
+    public static String shiftMappings(@NotNull String sourceMap, int lineCount) {
+        int mappingsStart = sourceMap.indexOf(MAPPINGS_KEY);
+        if (mappingsStart < 0) {
+            throw new IllegalArgumentException("Not a source map: " + sourceMap);
+        }
+        mappingsStart += MAPPINGS_KEY.length();
+
+        StringBuilder result = new StringBuilder(sourceMap.length() + lineCount);
+        result.append(sourceMap, 0, mappingsStart);
+        for (int i = 0; i < lineCount; i++) {
+            result.append(';');
+        }
+        result.append(sourceMap, mappingsStart, sourceMap.length());
+        return result.toString();
+    }
+
+    @NotNull
+    public String build() {
+        StringWriter writer = new StringWriter();
+        try {
+            write(writer);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+}
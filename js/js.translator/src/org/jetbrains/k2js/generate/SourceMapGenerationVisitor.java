@@ -0,0 +1,130 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.k2js.generate;
+
+import com.google.dart.compiler.backend.js.JsSourceGenerationVisitor;
+import com.google.dart.compiler.backend.js.ast.JsContext;
+import com.google.dart.compiler.backend.js.ast.JsVisitable;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import gnu.trove.TIntArrayList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Generates JavaScript source and adds a source map entry for every node with a known Kotlin element,
+ * at the position in the output where the node starts.
+ */
+public final class SourceMapGenerationVisitor extends JsSourceGenerationVisitor {
+    @NotNull
+    private final StreamingTextOutput output;
+    @NotNull
+    private final SourceLocations locations;
+    @NotNull
+    private final SourceMapBuilder builder;
+    @Nullable
+    private final File sourceRoot;
+
+    @NotNull
+    private final Map<PsiFile, SourceFile> files = new HashMap<PsiFile, SourceFile>();
+
+    /**
+     * @param sourceRoot directory which source paths are made relative to, absolute paths are used when it's null
+     */
+    public SourceMapGenerationVisitor(@NotNull StreamingTextOutput output, @NotNull SourceLocations locations,
+            @NotNull SourceMapBuilder builder, @Nullable File sourceRoot) {
+        super(output);
+        this.output = output;
+        this.locations = locations;
+        this.builder = builder;
+        this.sourceRoot = sourceRoot;
+    }
+
+    @Override
+    protected void doTraverse(JsVisitable node, JsContext ctx) {
+        PsiElement element = locations.get(node);
+        if (element != null) {
+            addMapping(element);
+        }
+        super.doTraverse(node, ctx);
+    }
+
+    private void addMapping(@NotNull PsiElement element) {
+        PsiFile psiFile = element.getContainingFile();
+        if (psiFile == null) {
+            return;
+        }
+        SourceFile sourceFile = files.get(psiFile);
+        if (sourceFile == null) {
+            sourceFile = new SourceFile(getSourcePath(psiFile), psiFile.getText());
+            files.put(psiFile, sourceFile);
+        }
+
+        int offset = element.getTextRange().getStartOffset();
+        int line = sourceFile.getLine(offset);
+        // A node at the start of a line is mapped to its first token, not to the indent before it
+        builder.addMapping(output.getLine(), output.getNextColumn(), sourceFile.path, line, offset - sourceFile.lineStarts[line]);
+    }
+
+    @NotNull
+    private String getSourcePath(@NotNull PsiFile psiFile) {
+        VirtualFile virtualFile = psiFile.getVirtualFile();
+        if (virtualFile == null || !virtualFile.isInLocalFileSystem()) {
+            return psiFile.getName();
+        }
+        File file = new File(virtualFile.getPath());
+        if (sourceRoot != null) {
+            String relativePath = FileUtil.getRelativePath(sourceRoot, file);
+            if (relativePath != null) {
+                return FileUtil.toSystemIndependentName(relativePath);
+            }
+        }
+        return FileUtil.toSystemIndependentName(file.getPath());
+    }
+
+    private static final class SourceFile {
+        @NotNull
+        private final String path;
+        @NotNull
+        private final int[] lineStarts;
+
+        private SourceFile(@NotNull String path, @NotNull String text) {
+            this.path = path;
+
+            TIntArrayList starts = new TIntArrayList();
+            starts.add(0);
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == '\n') {
+                    starts.add(i + 1);
+                }
+            }
+            this.lineStarts = starts.toNativeArray();
+        }
+
+        private int getLine(int offset) {
+            int index = Arrays.binarySearch(lineStarts, offset);
+            return index >= 0 ? index : -index - 2;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.k2js.generate;
+
+import com.google.dart.compiler.util.TextOutput;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Produces the same text as TextOutputImpl, but writes it to a Writer in chunks
+ * instead of keeping the whole program in memory.
+ * TextOutput methods can't throw IOException, so the first failure is remembered and rethrown by flush().
+ */
+public final class StreamingTextOutput implements TextOutput {
+    private static final int DEFAULT_CHUNK_SIZE = 8192;
+    private static final int INDENT_GRANULARITY = 2;
+
+    @NotNull
+    private final Writer writer;
+    @NotNull
+    private final char[] chunk;
+    private int chunkLength = 0;
+    @Nullable
+    private IOException failure = null;
+
+    private final boolean compact;
+    private int indentLevel = 0;
+    @NotNull
+    private char[][] indents = new char[][] {new char[0]};
+    private boolean justNewlined;
+    private int position = 0;
+    private int line = 0;
+    private int column = 0;
+
+    public StreamingTextOutput(@NotNull Writer writer) {
+        this(writer, false, DEFAULT_CHUNK_SIZE);
+    }
+
+    public StreamingTextOutput(@NotNull Writer writer, boolean compact, int chunkSize) {
+        assert chunkSize > 0 : "Chunk size must be positive: " + chunkSize;
+        this.writer = writer;
+        this.compact = compact;
+        this.chunk = new char[chunkSize];
+    }
+
+    /**
+     * Writes the buffered text to the underlying writer and flushes it.
+     */
+    public void flush() throws IOException {
+        writeChunk();
+        if (failure != null) {
+            throw failure;
+        }
+        writer.flush();
+    }
+
+    @Override
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public int getLine() {
+        return line;
+    }
+
+    @Override
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Returns the column where the next printed text starts. Right after a newline this includes the indent,
+     * which is written only together with the text.
+     */
+    public int getNextColumn() {
+        return justNewlined && !compact ? column + indents[indentLevel].length : column;
+    }
+
+    @Override
+    public void indentIn() {
+        ++indentLevel;
+        if (indentLevel >= indents.length) {
+            char[] newIndent = new char[indentLevel * INDENT_GRANULARITY];
+            Arrays.fill(newIndent, ' ');
+            char[][] newIndents = new char[indents.length + 1][];
+            System.arraycopy(indents, 0, newIndents, 0, indents.length);
+            newIndents[indentLevel] = newIndent;
+            indents = newIndents;
+        }
+    }
+
+    @Override
+    public void indentOut() {
+        --indentLevel;
+    }
+
+    @Override
+    public void newline() {
+        append('\n');
+        position++;
+        line++;
+        column = 0;
+        justNewlined = true;
+    }
+
+    @Override
+    public void newlineOpt() {
+        if (!compact) {
+            newline();
+        }
+    }
+
+    @Override
+    public void print(char c) {
+        maybeIndent();
+        append(c);
+        position++;
+        column++;
+        justNewlined = false;
+    }
+
+    @Override
+    public void print(int v) {
+        print(String.valueOf(v));
+    }
+
+    @Override
+    public void print(double v) {
+        print(String.valueOf(v));
+    }
+
+    @Override
+    public void print(char[] s) {
+        maybeIndent();
+        printAndCount(s);
+        justNewlined = false;
+    }
+
+    @Override
+    public void print(CharSequence s) {
+        maybeIndent();
+        printAndCount(s);
+        justNewlined = false;
+    }
+
+    @Override
+    public void printOpt(char c) {
+        if (!compact) {
+            maybeIndent();
+            append(c);
+            position++;
+            column++;
+        }
+    }
+
+    @Override
+    public void printOpt(char[] s) {
+        if (!compact) {
+            maybeIndent();
+            printAndCount(s);
+        }
+    }
+
+    @Override
+    public void printOpt(String s) {
+        if (!compact) {
+            maybeIndent();
+            printAndCount(s);
+        }
+    }
+
+    private void maybeIndent() {
+        if (justNewlined && !compact) {
+            printAndCount(indents[indentLevel]);
+            justNewlined = false;
+        }
+    }
+
+    private void printAndCount(@NotNull char[] chars) {
+        position += chars.length;
+        column += chars.length;
+        int offset = 0;
+        while (offset < chars.length) {
+            if (chunkLength == chunk.length) {
+                writeChunk();
+            }
+            int count = Math.min(chars.length - offset, chunk.length - chunkLength);
+            System.arraycopy(chars, offset, chunk, chunkLength, count);
+            chunkLength += count;
+            offset += count;
+        }
+    }
+
+    private void printAndCount(@NotNull CharSequence chars) {
+        int length = chars.length();
+        position += length;
+        column += length;
+        for (int i = 0; i < length; i++) {
+            append(chars.charAt(i));
+        }
+    }
+
+    private void append(char c) {
+        if (chunkLength == chunk.length) {
+            writeChunk();
+        }
+        chunk[chunkLength++] = c;
+    }
+
+    private void writeChunk() {
+        if (chunkLength == 0) {
+            return;
+        }
+        if (failure == null) {
+            try {
+                writer.write(chunk, 0, chunkLength);
+            }
+            catch (IOException e) {
+                failure = e;
+            }
+        }
+        chunkLength = 0;
+    }
+}
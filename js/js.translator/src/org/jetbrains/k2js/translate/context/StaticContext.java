@@ -28,6 +28,7 @@ import org.jetbrains.jet.lang.resolve.BindingContextUtils;
 import org.jetbrains.jet.lang.resolve.DescriptorUtils;
 import org.jetbrains.k2js.config.EcmaVersion;
 import org.jetbrains.k2js.config.LibrarySourcesConfig;
+import org.jetbrains.k2js.generate.SourceLocations;
 import org.jetbrains.k2js.translate.context.generator.Generator;
 import org.jetbrains.k2js.translate.context.generator.Rule;
 import org.jetbrains.k2js.translate.expression.LiteralFunctionTranslator;
@@ -49,11 +50,17 @@ import static org.jetbrains.k2js.translate.utils.JsDescriptorUtils.*;
 public final class StaticContext {
 
     public static StaticContext generateStaticContext(@NotNull BindingContext bindingContext, @NotNull EcmaVersion ecmaVersion) {
+        return generateStaticContext(bindingContext, ecmaVersion, null);
+    }
+
+    public static StaticContext generateStaticContext(@NotNull BindingContext bindingContext, @NotNull EcmaVersion ecmaVersion,
+            @Nullable SourceLocations sourceLocations) {
         JsProgram program = new JsProgram("main");
         Namer namer = Namer.newInstance(program.getRootScope());
         Intrinsics intrinsics = new Intrinsics();
         StandardClasses standardClasses = StandardClasses.bindImplementations(namer.getKotlinScope());
-        return new StaticContext(program, bindingContext, namer, intrinsics, standardClasses, program.getRootScope(), ecmaVersion);
+        return new StaticContext(program, bindingContext, namer, intrinsics, standardClasses, program.getRootScope(), ecmaVersion,
+                                 sourceLocations);
     }
 
     @NotNull
@@ -91,10 +98,14 @@ public final class StaticContext {
     @NotNull
     private final LiteralFunctionTranslator literalFunctionTranslator = new LiteralFunctionTranslator();
 
+    @Nullable
+    private final SourceLocations sourceLocations;
+
     //TODO: too many parameters in constructor
     private StaticContext(@NotNull JsProgram program, @NotNull BindingContext bindingContext,
             @NotNull Namer namer, @NotNull Intrinsics intrinsics,
-            @NotNull StandardClasses standardClasses, @NotNull JsScope rootScope, @NotNull EcmaVersion ecmaVersion) {
+            @NotNull StandardClasses standardClasses, @NotNull JsScope rootScope, @NotNull EcmaVersion ecmaVersion,
+            @Nullable SourceLocations sourceLocations) {
         this.program = program;
         this.bindingContext = bindingContext;
         this.namer = namer;
@@ -102,6 +113,7 @@ public final class StaticContext {
         this.rootScope = rootScope;
         this.standardClasses = standardClasses;
         this.ecmaVersion = ecmaVersion;
+        this.sourceLocations = sourceLocations;
     }
 
     @NotNull
@@ -118,6 +130,11 @@ public final class StaticContext {
         return ecmaVersion;
     }
 
+    @Nullable
+    public SourceLocations getSourceLocations() {
+        return sourceLocations;
+    }
+
     @NotNull
     public JsProgram getProgram() {
         return program;
@@ -25,6 +25,7 @@ import org.jetbrains.jet.lang.descriptors.DeclarationDescriptor;
 import org.jetbrains.jet.lang.descriptors.Named;
 import org.jetbrains.jet.lang.psi.JetExpression;
 import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.k2js.generate.SourceLocations;
 import org.jetbrains.k2js.translate.expression.LiteralFunctionTranslator;
 import org.jetbrains.k2js.translate.intrinsic.Intrinsics;
 
@@ -231,6 +232,13 @@ public class TranslationContext {
         return staticContext.getFunctionWithScope(descriptor);
     }
 
+    public void recordSourceLocation(@NotNull JsNode node, @NotNull PsiElement element) {
+        SourceLocations sourceLocations = staticContext.getSourceLocations();
+        if (sourceLocations != null) {
+            sourceLocations.record(node, element);
+        }
+    }
+
     public void addStatementToCurrentBlock(@NotNull JsStatement statement) {
         dynamicContext.jsBlock().getStatements().add(statement);
     }
@@ -96,7 +96,9 @@ public final class ExpressionVisitor extends TranslatorVisitor<JsNode> {
                                                         "should be of type JetExpression";
             JsNode jsNode = statement.accept(this, blockContext);
             if (jsNode != null) {
-                jsBlock.getStatements().add(convertToStatement(jsNode));
+                JsStatement jsStatement = convertToStatement(jsNode);
+                blockContext.recordSourceLocation(jsStatement, statement);
+                jsBlock.getStatements().add(jsStatement);
             }
         }
         return jsBlock;
@@ -110,6 +110,7 @@ public final class FunctionTranslator extends AbstractTranslator {
     }
 
     private void generateFunctionObject() {
+        context().recordSourceLocation(functionObject, functionDeclaration);
         setParameters(functionObject, translateParameters());
         translateBody();
     }
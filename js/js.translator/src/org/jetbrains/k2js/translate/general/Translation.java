@@ -28,6 +28,7 @@ import org.jetbrains.k2js.facade.exceptions.MainFunctionNotFoundException;
 import org.jetbrains.k2js.facade.exceptions.TranslationException;
 import org.jetbrains.k2js.facade.exceptions.TranslationInternalException;
 import org.jetbrains.k2js.facade.exceptions.UnsupportedFeatureException;
+import org.jetbrains.k2js.generate.SourceLocations;
 import org.jetbrains.k2js.translate.context.Namer;
 import org.jetbrains.k2js.translate.context.StaticContext;
 import org.jetbrains.k2js.translate.context.TranslationContext;
@@ -84,10 +85,11 @@ public final class Translation {
             return aliasForExpression.makeRef();
         }
         DangerousData data = collect(expression, context);
-        if (data.shouldBeTranslated()) {
-            return DangerousTranslator.translate(data, context);
-        }
-        return doTranslateExpression(expression, context);
+        JsNode result = data.shouldBeTranslated()
+                        ? DangerousTranslator.translate(data, context)
+                        : doTranslateExpression(expression, context);
+        context.recordSourceLocation(result, expression);
+        return result;
     }
 
     //NOTE: use with care
@@ -119,8 +121,19 @@ public final class Translation {
             @NotNull Collection<JetFile> files, @NotNull MainCallParameters mainCallParameters,
             @NotNull Config config)
             throws TranslationException {
+        return generateAst(bindingContext, files, mainCallParameters, config, null);
+    }
+
+    /**
+     * @param sourceLocations if not null, receives the Kotlin elements the generated nodes come from
+     */
+    @NotNull
+    public static JsProgram generateAst(@NotNull BindingContext bindingContext,
+            @NotNull Collection<JetFile> files, @NotNull MainCallParameters mainCallParameters,
+            @NotNull Config config, @Nullable SourceLocations sourceLocations)
+            throws TranslationException {
         try {
-            return doGenerateAst(bindingContext, files, mainCallParameters, config);
+            return doGenerateAst(bindingContext, files, mainCallParameters, config, sourceLocations);
         }
         catch (UnsupportedOperationException e) {
             throw new UnsupportedFeatureException("Unsupported feature used.", e);
@@ -133,9 +146,9 @@ public final class Translation {
     @NotNull
     private static JsProgram doGenerateAst(@NotNull BindingContext bindingContext, @NotNull Collection<JetFile> files,
             @NotNull MainCallParameters mainCallParameters,
-            @NotNull Config config) throws MainFunctionNotFoundException {
+            @NotNull Config config, @Nullable SourceLocations sourceLocations) throws MainFunctionNotFoundException {
         //TODO: move some of the code somewhere
-        StaticContext staticContext = StaticContext.generateStaticContext(bindingContext, config.getTarget());
+        StaticContext staticContext = StaticContext.generateStaticContext(bindingContext, config.getTarget(), sourceLocations);
         JsProgram program = staticContext.getProgram();
         JsBlock block = program.getGlobalBlock();
 
@@ -155,16 +155,7 @@ public final class CallTranslator extends AbstractTranslator {
         if (AnnotationsUtils.isLibraryObject(classDescriptor) &&
             (classDescriptor.getName().asString().equals("HashMap") || (isSet = classDescriptor.getName().asString().equals("HashSet")))) {
             JetType keyType = resolvedCall.getTypeArguments().values().iterator().next();
-            Name keyTypeName = JsDescriptorUtils.getNameIfStandardType(keyType);
-            String collectionClassName;
-            if (keyTypeName != null && (NamePredicate.PRIMITIVE_NUMBERS.apply(keyTypeName) || keyTypeName.asString().equals("String"))) {
-                collectionClassName = isSet ? "PrimitiveHashSet" : "PrimitiveHashMap";
-            }
-            else {
-                collectionClassName = isSet ? "ComplexHashSet" : "ComplexHashMap";
-            }
-
-            constructorReference = context().namer().kotlin(collectionClassName);
+            constructorReference = context().namer().kotlin(getHashCollectionClassName(keyType, isSet));
         }
         else {
             constructorReference = translateAsFunctionWithNoThisObject(descriptor);
@@ -173,6 +164,23 @@ public final class CallTranslator extends AbstractTranslator {
         return createConstructorCallExpression(constructorReference);
     }
 
+    // Strings and numbers are stored as properties of a JS object, other keys are compared with hashCode() and equals()
+    @NotNull
+    private static String getHashCollectionClassName(@NotNull JetType keyType, boolean isSet) {
+        Name keyTypeName = JsDescriptorUtils.getNameIfStandardType(keyType);
+        if (keyTypeName == null) {
+            return isSet ? "ComplexHashSet" : "ComplexHashMap";
+        }
+        // Chars are translated to strings
+        if (keyTypeName.asString().equals("String") || keyTypeName.asString().equals("Char")) {
+            return isSet ? "PrimitiveHashSet" : "PrimitiveHashMap";
+        }
+        if (NamePredicate.PRIMITIVE_NUMBERS.apply(keyTypeName)) {
+            return isSet ? "PrimitiveNumberHashSet" : "PrimitiveNumberHashMap";
+        }
+        return isSet ? "ComplexHashSet" : "ComplexHashMap";
+    }
+
     @NotNull
     private JsExpression createConstructorCallExpression(@NotNull JsExpression constructorReference) {
         if (context().isEcma5() && !AnnotationsUtils.isNativeObject(resolvedCall.getCandidateDescriptor())) {
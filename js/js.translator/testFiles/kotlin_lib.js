@@ -140,7 +140,7 @@ var kotlin = {set:function (receiver, key, value) {
         },
         addAll: function (collection) {
             var it = collection.iterator();
-            var i = this.size();
+            var i = collection.size();
             while (i-- > 0) {
                 this.add(it.next());
             }
@@ -83,6 +83,16 @@
 
     var checkKey = createKeyValCheck("key"), checkValue = createKeyValCheck("value");
 
+    // Objects without a prototype don't confuse keys like "toString" or "__proto__" with inherited properties
+    var createStorage = (typeof Object.create == FUNCTION) ?
+                        function () {
+                            return Object.create(null);
+                        } :
+                        function () {
+                            return {};
+                        };
+    Kotlin.createStorage = createStorage;
+
     function Bucket(hash, firstKey, firstValue, equalityFunction) {
         this[0] = hash;
         this.entries = [];
@@ -177,17 +187,6 @@
 
     // Supporting functions for searching hashtable buckets
 
-    function searchBuckets(buckets, hash) {
-        var i = buckets.length, bucket;
-        while (i--) {
-            bucket = buckets[i];
-            if (hash === bucket[0]) {
-                return i;
-            }
-        }
-        return null;
-    }
-
     function getBucketForHash(bucketsByHash, hash) {
         var bucket = bucketsByHash[hash];
 
@@ -199,8 +198,8 @@
 
     var Hashtable = function (hashingFunctionParam, equalityFunctionParam) {
         var that = this;
-        var buckets = [];
-        var bucketsByHash = {};
+        var bucketsByHash = createStorage();
+        var size = 0;
 
         var hashingFunction = (typeof hashingFunctionParam == FUNCTION) ? hashingFunctionParam : hashObject;
         var equalityFunction = (typeof equalityFunctionParam == FUNCTION) ? equalityFunctionParam : null;
@@ -223,13 +222,13 @@
                 else {
                     // The bucket does not contain an entry for this key, so add one
                     bucket.addEntry(key, value);
+                    size++;
                 }
             }
             else {
                 // No bucket exists for the key, so create one and put our key/value mapping in
-                bucket = new Bucket(hash, key, value, equalityFunction);
-                buckets[buckets.length] = bucket;
-                bucketsByHash[hash] = bucket;
+                bucketsByHash[hash] = new Bucket(hash, key, value, equalityFunction);
+                size++;
             }
             return oldValue;
         };
@@ -264,9 +263,9 @@
 
         this.containsValue = function (value) {
             checkValue(value);
-            var i = buckets.length;
-            while (i--) {
-                if (buckets[i].containsValue(value)) {
+            for (var hash in bucketsByHash) {
+                var bucket = getBucketForHash(bucketsByHash, hash);
+                if (bucket && bucket.containsValue(value)) {
                     return true;
                 }
             }
@@ -274,19 +273,22 @@
         };
 
         this.clear = function () {
-            buckets.length = 0;
-            bucketsByHash = {};
+            bucketsByHash = createStorage();
+            size = 0;
         };
 
         this.isEmpty = function () {
-            return !buckets.length;
+            return size === 0;
         };
 
         var createBucketAggregator = function (bucketFuncName) {
             return function () {
-                var aggregated = [], i = buckets.length;
-                while (i--) {
-                    buckets[i][bucketFuncName](aggregated);
+                var aggregated = [];
+                for (var hash in bucketsByHash) {
+                    var bucket = getBucketForHash(bucketsByHash, hash);
+                    if (bucket) {
+                        bucket[bucketFuncName](aggregated);
+                    }
                 }
                 return aggregated;
             };
@@ -309,7 +311,7 @@
         this.remove = function (key) {
             checkKey(key);
 
-            var hash = hashingFunction(key), bucketIndex, oldValue = null;
+            var hash = hashingFunction(key), oldValue = null;
 
             // Check if a bucket exists for the bucket key
             var bucket = getBucketForHash(bucketsByHash, hash);
@@ -318,11 +320,9 @@
                 // Remove entry from this bucket for this key
                 oldValue = bucket.removeEntryForKey(key);
                 if (oldValue !== null) {
+                    size--;
                     // Entry was removed, so check if bucket is empty
                     if (!bucket.entries.length) {
-                        // Bucket is empty, so remove it from the bucket collections
-                        bucketIndex = searchBuckets(buckets, hash);
-                        arrayRemoveAt(buckets, bucketIndex);
                         delete bucketsByHash[hash];
                     }
                 }
@@ -331,11 +331,7 @@
         };
 
         this.size = function () {
-            var total = 0, i = buckets.length;
-            while (i--) {
-                total += buckets[i].entries.length;
-            }
-            return total;
+            return size;
         };
 
         this.each = function (callback) {
@@ -424,10 +420,11 @@ Kotlin.ComplexHashMap = Kotlin.HashMap;
         }
     });
 
+    // Keys are strings or numbers, so the map is a plain JS object without hashCode() and equals() calls
     Kotlin.PrimitiveHashMap = Kotlin.$createClass(Kotlin.Map, {
         initialize: function () {
             this.$size = 0;
-            this.map = {};
+            this.map = Kotlin.createStorage();
         },
         size: function () {
             return this.$size;
@@ -441,7 +438,7 @@ Kotlin.ComplexHashMap = Kotlin.HashMap;
         containsValue: function (value) {
             var map = this.map;
             for (var key in map) {
-                if (map.hasOwnProperty(key) && map[key] === value) {
+                if (map[key] === value) {
                     return true;
                 }
             }
@@ -469,24 +466,32 @@ Kotlin.ComplexHashMap = Kotlin.HashMap;
         },
         clear: function () {
             this.$size = 0;
-            this.map = {};
+            this.map = Kotlin.createStorage();
         },
         putAll: function (fromMap) {
-            var map = fromMap.map;
-            for (var key in map) {
-                if (map.hasOwnProperty(key)) {
-                    this.map[key] = map[key];
-                    this.$size++;
+            var key;
+            if (typeof fromMap.createKeySet == "function") {
+                var map = fromMap.map;
+                for (key in map) {
+                    this.put(key, map[key]);
                 }
             }
+            else {
+                var keys = fromMap.keySet().iterator();
+                while (keys.hasNext()) {
+                    key = keys.next();
+                    this.put(key, fromMap.get(key));
+                }
+            }
+        },
+        createKeySet: function () {
+            return Kotlin.$new(Kotlin.PrimitiveHashSet)();
         },
         keySet: function () {
-            var result = Kotlin.$new(Kotlin.PrimitiveHashSet)();
+            var result = this.createKeySet();
             var map = this.map;
             for (var key in map) {
-                if (map.hasOwnProperty(key)) {
-                    result.add(key);
-                }
+                result.add(key);
             }
 
             return result;
@@ -498,6 +503,17 @@ Kotlin.ComplexHashMap = Kotlin.HashMap;
             return this.map;
         }
     });
+
+    // Property names of JS objects are strings, so number keys are converted back when the keys are read
+    Kotlin.PrimitiveNumberHashMap = Kotlin.$createClass(Kotlin.PrimitiveHashMap, {
+        initialize: function () {
+            this.$size = 0;
+            this.map = Kotlin.createStorage();
+        },
+        createKeySet: function () {
+            return Kotlin.$new(Kotlin.PrimitiveNumberHashSet)();
+        }
+    });
 }());
 
 Kotlin.Set = Kotlin.$createClass(Kotlin.Collection);
@@ -505,7 +521,7 @@ Kotlin.Set = Kotlin.$createClass(Kotlin.Collection);
 Kotlin.PrimitiveHashSet = Kotlin.$createClass(Kotlin.AbstractCollection, {
     initialize: function () {
         this.$size = 0;
-        this.map = {};
+        this.map = Kotlin.createStorage();
     },
     contains: function (key) {
         return this.map[key] === true;
@@ -533,13 +549,27 @@ Kotlin.PrimitiveHashSet = Kotlin.$createClass(Kotlin.AbstractCollection, {
     },
     clear: function () {
         this.$size = 0;
-        this.map = {};
+        this.map = Kotlin.createStorage();
     },
     toArray: function () {
         return Kotlin.keys(this.map);
     }
 });
 
+Kotlin.PrimitiveNumberHashSet = Kotlin.$createClass(Kotlin.PrimitiveHashSet, {
+    initialize: function () {
+        this.$size = 0;
+        this.map = Kotlin.createStorage();
+    },
+    toArray: function () {
+        var keys = Kotlin.keys(this.map);
+        for (var i = 0, n = keys.length; i < n; i++) {
+            keys[i] = +keys[i];
+        }
+        return keys;
+    }
+});
+
 (function () {
     function HashSet(hashingFunction, equalityFunction) {
         var hashTable = new Kotlin.HashTable(hashingFunction, equalityFunction);
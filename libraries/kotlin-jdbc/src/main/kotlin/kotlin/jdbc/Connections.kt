@@ -69,6 +69,18 @@ fun <T> Connection.query(sql: String, block: (ResultSet) -> T): T {
     }
 }
 
+/**
+ * Perform a query on the connection and processes the result set with a function.
+ * The driver is asked to fetch [[fetchSize]] rows per round-trip rather than the whole result at once
+ */
+fun <T> Connection.query(sql: String, fetchSize: Int, block: (ResultSet) -> T): T {
+    return statement{
+        it.setFetchSize(fetchSize)
+        val rs = it.executeQuery(sql)
+        block(rs)
+    }
+}
+
 
 
 /**
@@ -80,6 +92,31 @@ fun <T> Connection.query(template : StringTemplate, resultBlock : (ResultSet) ->
     return preparedStatement.query(resultBlock)
 }
 
+/**
+ * Prepares the SQL once and executes it for each of the items in batches of [[batchSize]] rows,
+ * binding the parameters of an item with the given function. Returns the number of updated rows
+ */
+fun <T> Connection.batchUpdate(sql: String, items: Iterable<T>, batchSize: Int = DEFAULT_BATCH_SIZE, bind: (PreparedStatement, T) -> Unit): Int {
+    val preparedStatement = prepareStatement(sql)
+    if (preparedStatement != null) {
+        return preparedStatement.useSql{ it.executeBatch(items, batchSize, bind) }
+    } else {
+        throw IllegalStateException("No PreparedStatement returned from $this")
+    }
+}
+
+/**
+ * Executes the specified block with a [[PreparedStatementCache]] of this connection and closes the cached statements after this
+ */
+fun <T> Connection.useStatementCache(maxSize: Int = DEFAULT_STATEMENT_CACHE_SIZE, block: (PreparedStatementCache) -> T): T {
+    val cache = PreparedStatementCache(this, maxSize)
+    try {
+        return block(cache)
+    } finally {
+        cache.close()
+    }
+}
+
 /**
  * Creates a [[PreparedStatement]] from the [[StringTemplate]]
  */
@@ -89,7 +126,7 @@ fun Connection.prepare(template : StringTemplate) : PreparedStatement {
     return builder.statement
 }
 
-class PreparedStatementBuilder(val template : StringTemplate, val connection : Connection) {
+class PreparedStatementBuilder(val template : StringTemplate, val connection : Connection, val cache : PreparedStatementCache? = null) {
     private var parameterIndex = 0
 
     public val sql : String = createSql()
@@ -201,6 +238,10 @@ class PreparedStatementBuilder(val template : StringTemplate, val connection : C
      * Looks up the [[PreparedStatement]] in a cache or creates a new one
      */
     protected fun lookupOrCreateStatement(): PreparedStatement {
+        val statementCache = cache
+        if (statementCache != null) {
+            return statementCache.prepare(sql)
+        }
         val answer = connection.prepareStatement(sql)
         if (answer == null) {
             throw IllegalStateException("No PreparedStatement returned from $connection")
@@ -54,3 +54,17 @@ fun DataSource.update(template : StringTemplate) : Int {
 fun <T> DataSource.query(template : StringTemplate, resultBlock : (ResultSet) -> T) : T {
     return useDataSource{ it.query(template, resultBlock) }
 }
+
+/**
+ * Executes the SQL for each of the items in batches of [[batchSize]] rows, see [[Connection.batchUpdate]]
+ */
+fun <T> DataSource.batchUpdate(sql: String, items: Iterable<T>, batchSize: Int = DEFAULT_BATCH_SIZE, bind: (PreparedStatement, T) -> Unit): Int {
+    return useDataSource{ it.batchUpdate(sql, items, batchSize, bind) }
+}
+
+/**
+ * Perform a query on the connection and processes the result set with a function, fetching [[fetchSize]] rows per round-trip
+ */
+fun <T> DataSource.query(sql: String, fetchSize: Int, block: (ResultSet) -> T): T {
+    return useDataSource{ it.query(sql, fetchSize, block) }
+}
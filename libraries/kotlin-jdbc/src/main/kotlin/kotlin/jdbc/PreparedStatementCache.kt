@@ -0,0 +1,85 @@
+package kotlin.jdbc
+
+import java.sql.Connection
+import java.sql.PreparedStatement
+import java.sql.ResultSet
+import java.util.LinkedHashMap
+import kotlin.template.StringTemplate
+
+/**
+ * Default number of statements kept open by a [[PreparedStatementCache]]
+ */
+public val DEFAULT_STATEMENT_CACHE_SIZE: Int = 64
+
+/**
+ * Keeps the prepared statements of a connection open, so that the database parses the SQL of a statement only once.
+ * At most [[maxSize]] statements are kept, the least recently used one is closed when the limit is exceeded.
+ * Statements returned by the cache should not be closed by the caller: the extensions which close the statement,
+ * like [[PreparedStatement.query]] and [[PreparedStatement.update]], make the cache prepare it again on the next use
+ */
+public class PreparedStatementCache(public val connection: Connection, public val maxSize: Int = DEFAULT_STATEMENT_CACHE_SIZE) {
+    // Access order, so the first entry is the least recently used one
+    private val statements = LinkedHashMap<String, PreparedStatement>(16, 0.75.toFloat(), true)
+
+    /**
+     * Returns the cached statement for the SQL with its parameters cleared, or prepares a new one.
+     * A cached statement which has been closed by the caller, e.g. by [[PreparedStatement.query]], is prepared again
+     */
+    public fun prepare(sql: String): PreparedStatement {
+        val cached = statements[sql]
+        if (cached != null) {
+            if (!cached.isClosed()) {
+                cached.clearParameters()
+                return cached
+            }
+            statements.remove(sql)
+        }
+
+        val statement = connection.prepareStatement(sql)
+        if (statement == null) {
+            throw IllegalStateException("No PreparedStatement returned from $connection")
+        }
+        statements[sql] = statement
+        if (statements.size() > maxSize) {
+            val eldest = statements.keySet().iterator().next()
+            statements.remove(eldest)?.close()
+        }
+        return statement
+    }
+
+    /**
+     * Returns the cached statement for the SQL of the [[StringTemplate]] with the values of the template bound to it
+     */
+    public fun prepare(template: StringTemplate): PreparedStatement {
+        val builder = PreparedStatementBuilder(template, connection, this)
+        builder.bind()
+        return builder.statement
+    }
+
+    /**
+     * Performs the SQL update using the [[StringTemplate]]
+     */
+    public fun update(template: StringTemplate): Int = prepare(template).executeUpdate()
+
+    /**
+     * Perform a query using the [[StringTemplate]] to generate the SQL text and processes the result set with a function
+     */
+    public fun <T> query(template: StringTemplate, resultBlock: (ResultSet) -> T): T = prepare(template).executeQuery().use(resultBlock)
+
+    /**
+     * Executes the SQL for each of the items in batches of [[batchSize]] rows, see [[PreparedStatement.executeBatch]]
+     */
+    public fun <T> batchUpdate(sql: String, items: Iterable<T>, batchSize: Int = DEFAULT_BATCH_SIZE, bind: (PreparedStatement, T) -> Unit): Int {
+        return prepare(sql).executeBatch(items, batchSize, bind)
+    }
+
+    /**
+     * Closes all the cached statements
+     */
+    public fun close() {
+        for (statement in statements.values()) {
+            statement.close()
+        }
+        statements.clear()
+    }
+}
@@ -6,6 +6,9 @@ package kotlin.jdbc
 import java.sql.PreparedStatement
 import java.sql.ResultSet
 
+/**
+ * Executes the update and closes the statement, so it must not be used on statements of a [[PreparedStatementCache]]
+ */
 fun PreparedStatement.update(): Int {
     try {
         return this.executeUpdate()
@@ -14,6 +17,10 @@ fun PreparedStatement.update(): Int {
     }
 }
 
+/**
+ * Executes the query, processes the result set with a function and closes the statement,
+ * so it must not be used on statements of a [[PreparedStatementCache]], use [[PreparedStatementCache.query]] instead
+ */
 fun <T> PreparedStatement.query(block: (ResultSet) -> T): T {
     try {
         val resultSet = this.executeQuery()
@@ -21,4 +28,37 @@ fun <T> PreparedStatement.query(block: (ResultSet) -> T): T {
     } finally {
         close()
     }
-}
\ No newline at end of file
+}
+
+/**
+ * Executes the query, processes the result set with a function and closes the statement.
+ * The driver is asked to fetch [[fetchSize]] rows per round-trip rather than the whole result at once
+ */
+fun <T> PreparedStatement.query(fetchSize: Int, block: (ResultSet) -> T): T {
+    setFetchSize(fetchSize)
+    return query(block)
+}
+
+/**
+ * Binds the parameters of each of the items with the given function and executes the statement in batches of [[batchSize]] rows,
+ * so that every batch takes a single round-trip to the database. The statement is not closed.
+ * Returns the number of updated rows, not counting the rows the driver doesn't report
+ */
+fun <T> PreparedStatement.executeBatch(items: Iterable<T>, batchSize: Int = DEFAULT_BATCH_SIZE, bind: (PreparedStatement, T) -> Unit): Int {
+    require(batchSize > 0, "Batch size should be positive: $batchSize")
+
+    var count = 0
+    var pending = 0
+    for (item in items) {
+        bind(this, item)
+        addBatch()
+        if (++pending == batchSize) {
+            count += executeBatch().updateCount()
+            pending = 0
+        }
+    }
+    if (pending > 0) {
+        count += executeBatch().updateCount()
+    }
+    return count
+}
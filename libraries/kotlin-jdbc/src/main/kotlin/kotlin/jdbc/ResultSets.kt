@@ -17,29 +17,40 @@ public fun <R> ResultSet.use(block : (ResultSet) -> R) : R {
 /**
 * Creates an iterator through a [[ResultSet]]
 */
-fun ResultSet.iterator() : Iterator<ResultSet> {
-    val rs = this
-    return object : Iterator<ResultSet>{
-        public override fun hasNext() : Boolean = rs.next()
-
-        public override fun next() : ResultSet = rs
-    }
-}
+fun ResultSet.iterator() : Iterator<ResultSet> = ResultSetIterator(this, { it })
 
 /**
- * Returns iterable that calls to the specified mapper function for each row
+ * Returns iterable that calls to the specified mapper function for each row.
+ * Rows are read from the cursor as the iterable is traversed, so it can be traversed only once
  */
 fun <T> ResultSet.map(fn : (ResultSet) -> T) : jet.Iterable<T> {
-    val rs = this
+    val iterator = ResultSetIterator(this, fn)
 
-    val iterator = object : Iterator<T>{
-        public override fun hasNext() : Boolean = rs.next()
+    return object : jet.Iterable<T> {
+        public override fun iterator(): Iterator<T> = iterator
+    }
+}
 
-        public override fun next() : T = fn(rs)
+/**
+ * Moves the cursor to the next row only once per row, so [[hasNext]] may be called any number of times
+ */
+private class ResultSetIterator<T>(val rs : ResultSet, val fn : (ResultSet) -> T) : Iterator<T> {
+    // null when the cursor hasn't been moved since the last row was returned
+    private var hasRow : Boolean? = null
+
+    public override fun hasNext() : Boolean {
+        if (hasRow == null) {
+            hasRow = rs.next()
+        }
+        return hasRow!!
     }
 
-    return object : jet.Iterable<T> {
-        public override fun iterator(): Iterator<T> = iterator
+    public override fun next() : T {
+        if (!hasNext()) {
+            throw java.util.NoSuchElementException()
+        }
+        hasRow = null
+        return fn(rs)
     }
 }
 
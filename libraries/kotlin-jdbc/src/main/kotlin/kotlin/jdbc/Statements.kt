@@ -15,3 +15,43 @@ fun <T, S : Statement> S.useSql(block : (S) -> T) : T { // TODO rename to "use"
         close()
     }
 }
+
+/**
+ * Default number of rows sent to the database in one batch
+ */
+public val DEFAULT_BATCH_SIZE: Int = 1000
+
+/**
+ * Executes the SQL statements in batches of [[batchSize]] statements. The statement is not closed.
+ * Returns the number of updated rows, not counting the rows the driver doesn't report
+ */
+fun Statement.executeBatch(sqls: Iterable<String>, batchSize: Int = DEFAULT_BATCH_SIZE): Int {
+    require(batchSize > 0, "Batch size should be positive: $batchSize")
+
+    var count = 0
+    var pending = 0
+    for (sql in sqls) {
+        addBatch(sql)
+        if (++pending == batchSize) {
+            count += executeBatch().updateCount()
+            pending = 0
+        }
+    }
+    if (pending > 0) {
+        count += executeBatch().updateCount()
+    }
+    return count
+}
+
+// Sums the update counts of a batch, skipping Statement.SUCCESS_NO_INFO
+internal fun IntArray?.updateCount(): Int {
+    var count = 0
+    if (this != null) {
+        for (updated in this) {
+            if (updated > 0) {
+                count += updated
+            }
+        }
+    }
+    return count
+}
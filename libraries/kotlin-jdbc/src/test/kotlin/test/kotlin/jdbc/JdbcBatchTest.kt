@@ -0,0 +1,96 @@
+package test.kotlin.jdbc
+
+import kotlin.jdbc.*
+import kotlin.template.*
+import kotlin.test.*
+import org.junit.Before as before
+import org.junit.Test as test
+
+class JdbcBatchTest {
+    before fun createTable() {
+        dataSource.update("create table if not exists bar (id int primary key, name varchar(100))")
+        dataSource.update("delete from bar")
+    }
+
+    test fun batchUpdate() {
+        val ids = 1..2500
+        val updated = dataSource.batchUpdate("insert into bar (id, name) values (?, ?)", ids, 1000) { (statement, id) ->
+            statement.setInt(1, id)
+            statement.setString(2, "name$id")
+        }
+        assertEquals(2500, updated)
+
+        dataSource.query("select count(*) from bar") {
+            assertEquals(2500, it.singleInt())
+        }
+    }
+
+    test fun statementBatch() {
+        val sqls = (1..10).map { "insert into bar (id, name) values ($it, 'name$it')" }
+        val updated = dataSource.statement { it.executeBatch(sqls, 3) }
+        assertEquals(10, updated)
+    }
+
+    test fun queryWithFetchSize() {
+        dataSource.batchUpdate("insert into bar (id, name) values (?, ?)", 1..100) { (statement, id) ->
+            statement.setInt(1, id)
+            statement.setString(2, "name$id")
+        }
+
+        val ids = dataSource.query("select id from bar order by id", 10) {
+            var sum = 0
+            for (id in it.map { it.getInt(1) }) {
+                sum += id
+            }
+            sum
+        }
+        assertEquals(5050, ids)
+    }
+
+    test fun iteratorHasNextDoesNotSkipRows() {
+        dataSource.update("insert into bar (id, name) values (1, 'a')")
+        dataSource.update("insert into bar (id, name) values (2, 'b')")
+
+        dataSource.query("select id from bar order by id") {
+            val iterator = it.map { it.getInt(1) }.iterator()
+            assertTrue(iterator.hasNext())
+            assertTrue(iterator.hasNext())
+            assertEquals(1, iterator.next())
+            assertEquals(2, iterator.next())
+            assertFalse(iterator.hasNext())
+        }
+    }
+
+    test fun statementCache() {
+        dataSource.useDataSource {
+            it.useStatementCache(2) { cache ->
+                for (id in 1..5) {
+                    cache.update(StringTemplate(array("insert into bar (id, name) values (", id, ", ", "name", ")")))
+                }
+                val first = cache.prepare("select count(*) from bar")
+                assertTrue(first identityEquals cache.prepare("select count(*) from bar"))
+
+                val count = cache.query(StringTemplate(array("select count(*) from bar where id > ", 2))) { it.singleInt() }
+                assertEquals(3, count)
+
+                // Evicts the least recently used statements
+                cache.prepare("select 1")
+                assertTrue(first.isClosed())
+            }
+        }
+    }
+
+    test fun closedCachedStatementIsPreparedAgain() {
+        dataSource.useDataSource {
+            it.useStatementCache { cache ->
+                val first = cache.prepare("select count(*) from bar")
+                first.query { it.singleInt() }
+                assertTrue(first.isClosed())
+
+                val second = cache.prepare("select count(*) from bar")
+                assertFalse(first identityEquals second)
+                assertEquals(0, second.executeQuery().use { it.singleInt() })
+            }
+        }
+    }
+}
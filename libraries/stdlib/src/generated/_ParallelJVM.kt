@@ -0,0 +1,716 @@
+package kotlin
+
+//
+// NOTE THIS FILE IS AUTO-GENERATED by the GenerateStandardLib.kt
+// See: https://github.com/JetBrains/kotlin/tree/master/libraries/stdlib
+//
+
+import java.util.*
+
+/**
+ * Performs the given *operation* on each element, splitting the elements between several threads
+ */
+public fun <T> Array<out T>.parallelForEach(operation: (T) -> Unit) : Unit {
+    parallelChunks(size) { from, to ->
+        for (index in from..to - 1) operation(this[index])
+    }
+}
+
+/**
+ * Performs the given *operation* on each element, splitting the elements between several threads
+ */
+public fun BooleanArray.parallelForEach(operation: (Boolean) -> Unit) : Unit {
+    parallelChunks(size) { from, to ->
+        for (index in from..to - 1) operation(this[index])
+    }
+}
+
+/**
+ * Performs the given *operation* on each element, splitting the elements between several threads
+ */
+public fun ByteArray.parallelForEach(operation: (Byte) -> Unit) : Unit {
+    parallelChunks(size) { from, to ->
+        for (index in from..to - 1) operation(this[index])
+    }
+}
+
+/**
+ * Performs the given *operation* on each element, splitting the elements between several threads
+ */
+public fun CharArray.parallelForEach(operation: (Char) -> Unit) : Unit {
+    parallelChunks(size) { from, to ->
+        for (index in from..to - 1) operation(this[index])
+    }
+}
+
+/**
+ * Performs the given *operation* on each element, splitting the elements between several threads
+ */
+public fun ShortArray.parallelForEach(operation: (Short) -> Unit) : Unit {
+    parallelChunks(size) { from, to ->
+        for (index in from..to - 1) operation(this[index])
+    }
+}
+
+/**
+ * Performs the given *operation* on each element, splitting the elements between several threads
+ */
+public fun IntArray.parallelForEach(operation: (Int) -> Unit) : Unit {
+    parallelChunks(size) { from, to ->
+        for (index in from..to - 1) operation(this[index])
+    }
+}
+
+/**
+ * Performs the given *operation* on each element, splitting the elements between several threads
+ */
+public fun LongArray.parallelForEach(operation: (Long) -> Unit) : Unit {
+    parallelChunks(size) { from, to ->
+        for (index in from..to - 1) operation(this[index])
+    }
+}
+
+/**
+ * Performs the given *operation* on each element, splitting the elements between several threads
+ */
+public fun FloatArray.parallelForEach(operation: (Float) -> Unit) : Unit {
+    parallelChunks(size) { from, to ->
+        for (index in from..to - 1) operation(this[index])
+    }
+}
+
+/**
+ * Performs the given *operation* on each element, splitting the elements between several threads
+ */
+public fun DoubleArray.parallelForEach(operation: (Double) -> Unit) : Unit {
+    parallelChunks(size) { from, to ->
+        for (index in from..to - 1) operation(this[index])
+    }
+}
+
+/**
+ * Returns a list containing the results of applying the given *transform* function to each element,
+ * splitting the elements between several threads
+ */
+public fun <T, R> Array<out T>.parallelMap(transform: (T) -> R) : List<R> {
+    val chunks = parallelChunks(size) { from, to ->
+        val chunk = ArrayList<R>(to - from)
+        for (index in from..to - 1) chunk.add(transform(this[index]))
+        chunk
+    }
+    return concatenateChunks(chunks)
+}
+
+/**
+ * Returns a list containing the results of applying the given *transform* function to each element,
+ * splitting the elements between several threads
+ */
+public fun <R> BooleanArray.parallelMap(transform: (Boolean) -> R) : List<R> {
+    val chunks = parallelChunks(size) { from, to ->
+        val chunk = ArrayList<R>(to - from)
+        for (index in from..to - 1) chunk.add(transform(this[index]))
+        chunk
+    }
+    return concatenateChunks(chunks)
+}
+
+/**
+ * Returns a list containing the results of applying the given *transform* function to each element,
+ * splitting the elements between several threads
+ */
+public fun <R> ByteArray.parallelMap(transform: (Byte) -> R) : List<R> {
+    val chunks = parallelChunks(size) { from, to ->
+        val chunk = ArrayList<R>(to - from)
+        for (index in from..to - 1) chunk.add(transform(this[index]))
+        chunk
+    }
+    return concatenateChunks(chunks)
+}
+
+/**
+ * Returns a list containing the results of applying the given *transform* function to each element,
+ * splitting the elements between several threads
+ */
+public fun <R> CharArray.parallelMap(transform: (Char) -> R) : List<R> {
+    val chunks = parallelChunks(size) { from, to ->
+        val chunk = ArrayList<R>(to - from)
+        for (index in from..to - 1) chunk.add(transform(this[index]))
+        chunk
+    }
+    return concatenateChunks(chunks)
+}
+
+/**
+ * Returns a list containing the results of applying the given *transform* function to each element,
+ * splitting the elements between several threads
+ */
+public fun <R> ShortArray.parallelMap(transform: (Short) -> R) : List<R> {
+    val chunks = parallelChunks(size) { from, to ->
+        val chunk = ArrayList<R>(to - from)
+        for (index in from..to - 1) chunk.add(transform(this[index]))
+        chunk
+    }
+    return concatenateChunks(chunks)
+}
+
+/**
+ * Returns a list containing the results of applying the given *transform* function to each element,
+ * splitting the elements between several threads
+ */
+public fun <R> IntArray.parallelMap(transform: (Int) -> R) : List<R> {
+    val chunks = parallelChunks(size) { from, to ->
+        val chunk = ArrayList<R>(to - from)
+        for (index in from..to - 1) chunk.add(transform(this[index]))
+        chunk
+    }
+    return concatenateChunks(chunks)
+}
+
+/**
+ * Returns a list containing the results of applying the given *transform* function to each element,
+ * splitting the elements between several threads
+ */
+public fun <R> LongArray.parallelMap(transform: (Long) -> R) : List<R> {
+    val chunks = parallelChunks(size) { from, to ->
+        val chunk = ArrayList<R>(to - from)
+        for (index in from..to - 1) chunk.add(transform(this[index]))
+        chunk
+    }
+    return concatenateChunks(chunks)
+}
+
+/**
+ * Returns a list containing the results of applying the given *transform* function to each element,
+ * splitting the elements between several threads
+ */
+public fun <R> FloatArray.parallelMap(transform: (Float) -> R) : List<R> {
+    val chunks = parallelChunks(size) { from, to ->
+        val chunk = ArrayList<R>(to - from)
+        for (index in from..to - 1) chunk.add(transform(this[index]))
+        chunk
+    }
+    return concatenateChunks(chunks)
+}
+
+/**
+ * Returns a list containing the results of applying the given *transform* function to each element,
+ * splitting the elements between several threads
+ */
+public fun <R> DoubleArray.parallelMap(transform: (Double) -> R) : List<R> {
+    val chunks = parallelChunks(size) { from, to ->
+        val chunk = ArrayList<R>(to - from)
+        for (index in from..to - 1) chunk.add(transform(this[index]))
+        chunk
+    }
+    return concatenateChunks(chunks)
+}
+
+/**
+ * Returns a list containing all elements which match the given *predicate*, splitting the elements between several threads.
+ * Primitive arrays are filtered into an array of the same type, so that their elements are not boxed
+ */
+public fun <T> Array<out T>.parallelFilter(predicate: (T) -> Boolean) : List<T> {
+    val chunks = parallelChunks(size) { from, to ->
+        val chunk = ArrayList<T>()
+        for (index in from..to - 1) {
+            val element = this[index]
+            if (predicate(element)) chunk.add(element)
+        }
+        chunk
+    }
+    return concatenateChunks(chunks)
+}
+
+/**
+ * Returns a list containing all elements which match the given *predicate*, splitting the elements between several threads.
+ * Primitive arrays are filtered into an array of the same type, so that their elements are not boxed
+ */
+public fun BooleanArray.parallelFilter(predicate: (Boolean) -> Boolean) : BooleanArray {
+    val chunks = parallelChunks(size) { from, to ->
+        val chunk = BooleanArray(to - from)
+        var count = 0
+        for (index in from..to - 1) {
+            val element = this[index]
+            if (predicate(element)) chunk[count++] = element
+        }
+        if (count == chunk.size) chunk else chunk.copyOf(count)
+    }
+    if (chunks.size() == 1) {
+        return chunks[0]
+    }
+
+    var resultSize = 0
+    for (chunk in chunks) resultSize += chunk.size
+    val result = BooleanArray(resultSize)
+    var offset = 0
+    for (chunk in chunks) {
+        System.arraycopy(chunk, 0, result, offset, chunk.size)
+        offset += chunk.size
+    }
+    return result
+}
+
+/**
+ * Returns a list containing all elements which match the given *predicate*, splitting the elements between several threads.
+ * Primitive arrays are filtered into an array of the same type, so that their elements are not boxed
+ */
+public fun ByteArray.parallelFilter(predicate: (Byte) -> Boolean) : ByteArray {
+    val chunks = parallelChunks(size) { from, to ->
+        val chunk = ByteArray(to - from)
+        var count = 0
+        for (index in from..to - 1) {
+            val element = this[index]
+            if (predicate(element)) chunk[count++] = element
+        }
+        if (count == chunk.size) chunk else chunk.copyOf(count)
+    }
+    if (chunks.size() == 1) {
+        return chunks[0]
+    }
+
+    var resultSize = 0
+    for (chunk in chunks) resultSize += chunk.size
+    val result = ByteArray(resultSize)
+    var offset = 0
+    for (chunk in chunks) {
+        System.arraycopy(chunk, 0, result, offset, chunk.size)
+        offset += chunk.size
+    }
+    return result
+}
+
+/**
+ * Returns a list containing all elements which match the given *predicate*, splitting the elements between several threads.
+ * Primitive arrays are filtered into an array of the same type, so that their elements are not boxed
+ */
+public fun CharArray.parallelFilter(predicate: (Char) -> Boolean) : CharArray {
+    val chunks = parallelChunks(size) { from, to ->
+        val chunk = CharArray(to - from)
+        var count = 0
+        for (index in from..to - 1) {
+            val element = this[index]
+            if (predicate(element)) chunk[count++] = element
+        }
+        if (count == chunk.size) chunk else chunk.copyOf(count)
+    }
+    if (chunks.size() == 1) {
+        return chunks[0]
+    }
+
+    var resultSize = 0
+    for (chunk in chunks) resultSize += chunk.size
+    val result = CharArray(resultSize)
+    var offset = 0
+    for (chunk in chunks) {
+        System.arraycopy(chunk, 0, result, offset, chunk.size)
+        offset += chunk.size
+    }
+    return result
+}
+
+/**
+ * Returns a list containing all elements which match the given *predicate*, splitting the elements between several threads.
+ * Primitive arrays are filtered into an array of the same type, so that their elements are not boxed
+ */
+public fun ShortArray.parallelFilter(predicate: (Short) -> Boolean) : ShortArray {
+    val chunks = parallelChunks(size) { from, to ->
+        val chunk = ShortArray(to - from)
+        var count = 0
+        for (index in from..to - 1) {
+            val element = this[index]
+            if (predicate(element)) chunk[count++] = element
+        }
+        if (count == chunk.size) chunk else chunk.copyOf(count)
+    }
+    if (chunks.size() == 1) {
+        return chunks[0]
+    }
+
+    var resultSize = 0
+    for (chunk in chunks) resultSize += chunk.size
+    val result = ShortArray(resultSize)
+    var offset = 0
+    for (chunk in chunks) {
+        System.arraycopy(chunk, 0, result, offset, chunk.size)
+        offset += chunk.size
+    }
+    return result
+}
+
+/**
+ * Returns a list containing all elements which match the given *predicate*, splitting the elements between several threads.
+ * Primitive arrays are filtered into an array of the same type, so that their elements are not boxed
+ */
+public fun IntArray.parallelFilter(predicate: (Int) -> Boolean) : IntArray {
+    val chunks = parallelChunks(size) { from, to ->
+        val chunk = IntArray(to - from)
+        var count = 0
+        for (index in from..to - 1) {
+            val element = this[index]
+            if (predicate(element)) chunk[count++] = element
+        }
+        if (count == chunk.size) chunk else chunk.copyOf(count)
+    }
+    if (chunks.size() == 1) {
+        return chunks[0]
+    }
+
+    var resultSize = 0
+    for (chunk in chunks) resultSize += chunk.size
+    val result = IntArray(resultSize)
+    var offset = 0
+    for (chunk in chunks) {
+        System.arraycopy(chunk, 0, result, offset, chunk.size)
+        offset += chunk.size
+    }
+    return result
+}
+
+/**
+ * Returns a list containing all elements which match the given *predicate*, splitting the elements between several threads.
+ * Primitive arrays are filtered into an array of the same type, so that their elements are not boxed
+ */
+public fun LongArray.parallelFilter(predicate: (Long) -> Boolean) : LongArray {
+    val chunks = parallelChunks(size) { from, to ->
+        val chunk = LongArray(to - from)
+        var count = 0
+        for (index in from..to - 1) {
+            val element = this[index]
+            if (predicate(element)) chunk[count++] = element
+        }
+        if (count == chunk.size) chunk else chunk.copyOf(count)
+    }
+    if (chunks.size() == 1) {
+        return chunks[0]
+    }
+
+    var resultSize = 0
+    for (chunk in chunks) resultSize += chunk.size
+    val result = LongArray(resultSize)
+    var offset = 0
+    for (chunk in chunks) {
+        System.arraycopy(chunk, 0, result, offset, chunk.size)
+        offset += chunk.size
+    }
+    return result
+}
+
+/**
+ * Returns a list containing all elements which match the given *predicate*, splitting the elements between several threads.
+ * Primitive arrays are filtered into an array of the same type, so that their elements are not boxed
+ */
+public fun FloatArray.parallelFilter(predicate: (Float) -> Boolean) : FloatArray {
+    val chunks = parallelChunks(size) { from, to ->
+        val chunk = FloatArray(to - from)
+        var count = 0
+        for (index in from..to - 1) {
+            val element = this[index]
+            if (predicate(element)) chunk[count++] = element
+        }
+        if (count == chunk.size) chunk else chunk.copyOf(count)
+    }
+    if (chunks.size() == 1) {
+        return chunks[0]
+    }
+
+    var resultSize = 0
+    for (chunk in chunks) resultSize += chunk.size
+    val result = FloatArray(resultSize)
+    var offset = 0
+    for (chunk in chunks) {
+        System.arraycopy(chunk, 0, result, offset, chunk.size)
+        offset += chunk.size
+    }
+    return result
+}
+
+/**
+ * Returns a list containing all elements which match the given *predicate*, splitting the elements between several threads.
+ * Primitive arrays are filtered into an array of the same type, so that their elements are not boxed
+ */
+public fun DoubleArray.parallelFilter(predicate: (Double) -> Boolean) : DoubleArray {
+    val chunks = parallelChunks(size) { from, to ->
+        val chunk = DoubleArray(to - from)
+        var count = 0
+        for (index in from..to - 1) {
+            val element = this[index]
+            if (predicate(element)) chunk[count++] = element
+        }
+        if (count == chunk.size) chunk else chunk.copyOf(count)
+    }
+    if (chunks.size() == 1) {
+        return chunks[0]
+    }
+
+    var resultSize = 0
+    for (chunk in chunks) resultSize += chunk.size
+    val result = DoubleArray(resultSize)
+    var offset = 0
+    for (chunk in chunks) {
+        System.arraycopy(chunk, 0, result, offset, chunk.size)
+        offset += chunk.size
+    }
+    return result
+}
+
+/**
+ * Returns the number of elements which match the given *predicate*, splitting the elements between several threads
+ */
+public fun <T> Array<out T>.parallelCount(predicate: (T) -> Boolean) : Int {
+    val chunks = parallelChunks(size) { from, to ->
+        var count = 0
+        for (index in from..to - 1) if (predicate(this[index])) count++
+        count
+    }
+    return chunks.fold(0) { total, count -> total + count }
+}
+
+/**
+ * Returns the number of elements which match the given *predicate*, splitting the elements between several threads
+ */
+public fun BooleanArray.parallelCount(predicate: (Boolean) -> Boolean) : Int {
+    val chunks = parallelChunks(size) { from, to ->
+        var count = 0
+        for (index in from..to - 1) if (predicate(this[index])) count++
+        count
+    }
+    return chunks.fold(0) { total, count -> total + count }
+}
+
+/**
+ * Returns the number of elements which match the given *predicate*, splitting the elements between several threads
+ */
+public fun ByteArray.parallelCount(predicate: (Byte) -> Boolean) : Int {
+    val chunks = parallelChunks(size) { from, to ->
+        var count = 0
+        for (index in from..to - 1) if (predicate(this[index])) count++
+        count
+    }
+    return chunks.fold(0) { total, count -> total + count }
+}
+
+/**
+ * Returns the number of elements which match the given *predicate*, splitting the elements between several threads
+ */
+public fun CharArray.parallelCount(predicate: (Char) -> Boolean) : Int {
+    val chunks = parallelChunks(size) { from, to ->
+        var count = 0
+        for (index in from..to - 1) if (predicate(this[index])) count++
+        count
+    }
+    return chunks.fold(0) { total, count -> total + count }
+}
+
+/**
+ * Returns the number of elements which match the given *predicate*, splitting the elements between several threads
+ */
+public fun ShortArray.parallelCount(predicate: (Short) -> Boolean) : Int {
+    val chunks = parallelChunks(size) { from, to ->
+        var count = 0
+        for (index in from..to - 1) if (predicate(this[index])) count++
+        count
+    }
+    return chunks.fold(0) { total, count -> total + count }
+}
+
+/**
+ * Returns the number of elements which match the given *predicate*, splitting the elements between several threads
+ */
+public fun IntArray.parallelCount(predicate: (Int) -> Boolean) : Int {
+    val chunks = parallelChunks(size) { from, to ->
+        var count = 0
+        for (index in from..to - 1) if (predicate(this[index])) count++
+        count
+    }
+    return chunks.fold(0) { total, count -> total + count }
+}
+
+/**
+ * Returns the number of elements which match the given *predicate*, splitting the elements between several threads
+ */
+public fun LongArray.parallelCount(predicate: (Long) -> Boolean) : Int {
+    val chunks = parallelChunks(size) { from, to ->
+        var count = 0
+        for (index in from..to - 1) if (predicate(this[index])) count++
+        count
+    }
+    return chunks.fold(0) { total, count -> total + count }
+}
+
+/**
+ * Returns the number of elements which match the given *predicate*, splitting the elements between several threads
+ */
+public fun FloatArray.parallelCount(predicate: (Float) -> Boolean) : Int {
+    val chunks = parallelChunks(size) { from, to ->
+        var count = 0
+        for (index in from..to - 1) if (predicate(this[index])) count++
+        count
+    }
+    return chunks.fold(0) { total, count -> total + count }
+}
+
+/**
+ * Returns the number of elements which match the given *predicate*, splitting the elements between several threads
+ */
+public fun DoubleArray.parallelCount(predicate: (Double) -> Boolean) : Int {
+    val chunks = parallelChunks(size) { from, to ->
+        var count = 0
+        for (index in from..to - 1) if (predicate(this[index])) count++
+        count
+    }
+    return chunks.fold(0) { total, count -> total + count }
+}
+
+/**
+ * Applies the associative binary *operation* to all elements, splitting the elements between several threads.
+ * Chunks are reduced from left to right, then their results are reduced in the same order
+ */
+public fun <T> Array<out T>.parallelReduce(operation: (T, T) -> T) : T {
+    if (size == 0) {
+        throw UnsupportedOperationException("Empty iterable can't be reduced")
+    }
+    
+    val chunks = parallelChunks(size) { from, to ->
+        var result = this[from]
+        for (index in from + 1..to - 1) result = operation(result, this[index])
+        result
+    }
+    return chunks.reduce(operation)
+}
+
+/**
+ * Applies the associative binary *operation* to all elements, splitting the elements between several threads.
+ * Chunks are reduced from left to right, then their results are reduced in the same order
+ */
+public fun BooleanArray.parallelReduce(operation: (Boolean, Boolean) -> Boolean) : Boolean {
+    if (size == 0) {
+        throw UnsupportedOperationException("Empty iterable can't be reduced")
+    }
+    
+    val chunks = parallelChunks(size) { from, to ->
+        var result = this[from]
+        for (index in from + 1..to - 1) result = operation(result, this[index])
+        result
+    }
+    return chunks.reduce(operation)
+}
+
+/**
+ * Applies the associative binary *operation* to all elements, splitting the elements between several threads.
+ * Chunks are reduced from left to right, then their results are reduced in the same order
+ */
+public fun ByteArray.parallelReduce(operation: (Byte, Byte) -> Byte) : Byte {
+    if (size == 0) {
+        throw UnsupportedOperationException("Empty iterable can't be reduced")
+    }
+    
+    val chunks = parallelChunks(size) { from, to ->
+        var result = this[from]
+        for (index in from + 1..to - 1) result = operation(result, this[index])
+        result
+    }
+    return chunks.reduce(operation)
+}
+
+/**
+ * Applies the associative binary *operation* to all elements, splitting the elements between several threads.
+ * Chunks are reduced from left to right, then their results are reduced in the same order
+ */
+public fun CharArray.parallelReduce(operation: (Char, Char) -> Char) : Char {
+    if (size == 0) {
+        throw UnsupportedOperationException("Empty iterable can't be reduced")
+    }
+    
+    val chunks = parallelChunks(size) { from, to ->
+        var result = this[from]
+        for (index in from + 1..to - 1) result = operation(result, this[index])
+        result
+    }
+    return chunks.reduce(operation)
+}
+
+/**
+ * Applies the associative binary *operation* to all elements, splitting the elements between several threads.
+ * Chunks are reduced from left to right, then their results are reduced in the same order
+ */
+public fun ShortArray.parallelReduce(operation: (Short, Short) -> Short) : Short {
+    if (size == 0) {
+        throw UnsupportedOperationException("Empty iterable can't be reduced")
+    }
+    
+    val chunks = parallelChunks(size) { from, to ->
+        var result = this[from]
+        for (index in from + 1..to - 1) result = operation(result, this[index])
+        result
+    }
+    return chunks.reduce(operation)
+}
+
+/**
+ * Applies the associative binary *operation* to all elements, splitting the elements between several threads.
+ * Chunks are reduced from left to right, then their results are reduced in the same order
+ */
+public fun IntArray.parallelReduce(operation: (Int, Int) -> Int) : Int {
+    if (size == 0) {
+        throw UnsupportedOperationException("Empty iterable can't be reduced")
+    }
+    
+    val chunks = parallelChunks(size) { from, to ->
+        var result = this[from]
+        for (index in from + 1..to - 1) result = operation(result, this[index])
+        result
+    }
+    return chunks.reduce(operation)
+}
+
+/**
+ * Applies the associative binary *operation* to all elements, splitting the elements between several threads.
+ * Chunks are reduced from left to right, then their results are reduced in the same order
+ */
+public fun LongArray.parallelReduce(operation: (Long, Long) -> Long) : Long {
+    if (size == 0) {
+        throw UnsupportedOperationException("Empty iterable can't be reduced")
+    }
+    
+    val chunks = parallelChunks(size) { from, to ->
+        var result = this[from]
+        for (index in from + 1..to - 1) result = operation(result, this[index])
+        result
+    }
+    return chunks.reduce(operation)
+}
+
+/**
+ * Applies the associative binary *operation* to all elements, splitting the elements between several threads.
+ * Chunks are reduced from left to right, then their results are reduced in the same order
+ */
+public fun FloatArray.parallelReduce(operation: (Float, Float) -> Float) : Float {
+    if (size == 0) {
+        throw UnsupportedOperationException("Empty iterable can't be reduced")
+    }
+    
+    val chunks = parallelChunks(size) { from, to ->
+        var result = this[from]
+        for (index in from + 1..to - 1) result = operation(result, this[index])
+        result
+    }
+    return chunks.reduce(operation)
+}
+
+/**
+ * Applies the associative binary *operation* to all elements, splitting the elements between several threads.
+ * Chunks are reduced from left to right, then their results are reduced in the same order
+ */
+public fun DoubleArray.parallelReduce(operation: (Double, Double) -> Double) : Double {
+    if (size == 0) {
+        throw UnsupportedOperationException("Empty iterable can't be reduced")
+    }
+    
+    val chunks = parallelChunks(size) { from, to ->
+        var result = this[from]
+        for (index in from + 1..to - 1) result = operation(result, this[index])
+        result
+    }
+    return chunks.reduce(operation)
+}
+
@@ -0,0 +1,164 @@
+package kotlin
+
+import java.util.ArrayList
+import java.util.RandomAccess
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Inputs smaller than this are not split between threads: the cost of submitting a task is higher than processing them
+ */
+internal val MIN_PARALLEL_CHUNK_SIZE: Int = 1024
+
+private val PARALLELISM = Runtime.getRuntime().availableProcessors()
+
+private class ParallelWorkerThread(runnable: Runnable, index: Int) : Thread(runnable, "kotlin-parallel-$index")
+
+private object ParallelExecutor {
+    val executor: ExecutorService = Executors.newFixedThreadPool(PARALLELISM, object : ThreadFactory {
+        val count = AtomicInteger()
+
+        public override fun newThread(runnable: Runnable): Thread {
+            val thread = ParallelWorkerThread(runnable, count.incrementAndGet())
+            thread.setDaemon(true)
+            return thread
+        }
+    })!!
+}
+
+/**
+ * Splits indices from 0 until *size* into chunks and calls *task* for each chunk, the first one on the calling thread
+ * and the others on the shared pool of daemon threads. Returns the results of the chunks in the order of the chunks.
+ *
+ * Operations started on a pool thread are not split any further, so nested parallel operations can't wait for each other
+ */
+internal fun <R> parallelChunks(size: Int, task: (Int, Int) -> R): List<R> {
+    val chunkCount = if (Thread.currentThread() is ParallelWorkerThread) 1 else Math.min(PARALLELISM, size / MIN_PARALLEL_CHUNK_SIZE)
+    if (chunkCount <= 1) {
+        return arrayListOf(task(0, size))
+    }
+
+    val futures = ArrayList<Future<R>>(chunkCount - 1)
+    for (chunk in 1..chunkCount - 1) {
+        val from = chunkStart(size, chunkCount, chunk)
+        val to = chunkStart(size, chunkCount, chunk + 1)
+        futures.add(ParallelExecutor.executor.submit(object : Callable<R> {
+            public override fun call(): R = task(from, to)
+        })!!)
+    }
+
+    val result = ArrayList<R>(chunkCount)
+    try {
+        result.add(task(0, chunkStart(size, chunkCount, 1)))
+        for (future in futures) {
+            try {
+                result.add(future.get() as R)
+            }
+            catch (e: ExecutionException) {
+                throw e.getCause() ?: e
+            }
+        }
+    }
+    catch (e: Throwable) {
+        for (future in futures) {
+            future.cancel(false)
+        }
+        throw e
+    }
+    return result
+}
+
+private fun chunkStart(size: Int, chunkCount: Int, chunk: Int): Int = (size.toLong() * chunk / chunkCount).toInt()
+
+internal fun <T> concatenateChunks(chunks: List<List<T>>): List<T> {
+    if (chunks.size() == 1) {
+        return chunks[0]
+    }
+
+    var size = 0
+    for (chunk in chunks) size += chunk.size()
+    val result = ArrayList<T>(size)
+    for (chunk in chunks) result.addAll(chunk)
+    return result
+}
+
+/**
+ * Lists without fast access by index are copied before they are split into chunks
+ */
+private fun <T> List<T>.toRandomAccess(): List<T> = if (this is RandomAccess) this else ArrayList<T>(this)
+
+/**
+ * Performs the given *operation* on each element, splitting the elements between several threads
+ */
+public fun <T> List<T>.parallelForEach(operation: (T) -> Unit): Unit {
+    val list = toRandomAccess()
+    parallelChunks(list.size()) { from, to ->
+        for (index in from..to - 1) operation(list[index])
+    }
+}
+
+/**
+ * Returns a list containing the results of applying the given *transform* function to each element,
+ * splitting the elements between several threads
+ */
+public fun <T, R> List<T>.parallelMap(transform: (T) -> R): List<R> {
+    val list = toRandomAccess()
+    val chunks = parallelChunks(list.size()) { from, to ->
+        val chunk = ArrayList<R>(to - from)
+        for (index in from..to - 1) chunk.add(transform(list[index]))
+        chunk
+    }
+    return concatenateChunks(chunks)
+}
+
+/**
+ * Returns a list containing all elements which match the given *predicate*, splitting the elements between several threads
+ */
+public fun <T> List<T>.parallelFilter(predicate: (T) -> Boolean): List<T> {
+    val list = toRandomAccess()
+    val chunks = parallelChunks(list.size()) { from, to ->
+        val chunk = ArrayList<T>()
+        for (index in from..to - 1) {
+            val element = list[index]
+            if (predicate(element)) chunk.add(element)
+        }
+        chunk
+    }
+    return concatenateChunks(chunks)
+}
+
+/**
+ * Returns the number of elements which match the given *predicate*, splitting the elements between several threads
+ */
+public fun <T> List<T>.parallelCount(predicate: (T) -> Boolean): Int {
+    val list = toRandomAccess()
+    val chunks = parallelChunks(list.size()) { from, to ->
+        var count = 0
+        for (index in from..to - 1) if (predicate(list[index])) count++
+        count
+    }
+    return chunks.fold(0) { total, count -> total + count }
+}
+
+/**
+ * Applies the associative binary *operation* to all elements, splitting the elements between several threads.
+ * Chunks are reduced from left to right, then their results are reduced in the same order
+ */
+public fun <T> List<T>.parallelReduce(operation: (T, T) -> T): T {
+    if (isEmpty()) {
+        throw UnsupportedOperationException("Empty iterable can't be reduced")
+    }
+
+    val list = toRandomAccess()
+    val chunks = parallelChunks(list.size()) { from, to ->
+        var result = list[from]
+        for (index in from + 1..to - 1) result = operation(result, list[index])
+        result
+    }
+    return chunks.reduce(operation)
+}
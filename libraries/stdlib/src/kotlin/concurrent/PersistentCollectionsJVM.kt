@@ -0,0 +1,77 @@
+package kotlin.concurrent
+
+import jet.runtime.persistent.PersistentHashMap
+import jet.runtime.persistent.PersistentHashSet
+import jet.runtime.persistent.PersistentVector
+
+/**
+ * Returns a new persistent vector of the given elements
+ */
+public fun <T> persistentVectorOf(vararg values: T): PersistentVector<T> {
+    val builder = PersistentVector.empty<T>()!!.builder()!!
+    for (value in values) {
+        builder.add(value)
+    }
+    return builder.build()!!
+}
+
+/**
+ * Returns a persistent vector containing all the elements of this collection
+ */
+public fun <T> Iterable<T>.toPersistentVector(): PersistentVector<T> {
+    if (this is PersistentVector<T>) {
+        return this
+    }
+    val builder = PersistentVector.empty<T>()!!.builder()!!
+    for (element in this) {
+        builder.add(element)
+    }
+    return builder.build()!!
+}
+
+/**
+ * Returns a new persistent hash map with the specified contents given as a list of pairs
+ * where the first component is the key and the second is the value
+ */
+public fun <K, V> persistentHashMapOf(vararg values: Pair<K, V>): PersistentHashMap<K, V> {
+    val builder = PersistentHashMap.empty<K, V>()!!.builder()!!
+    for (value in values) {
+        builder.put(value.first, value.second)
+    }
+    return builder.build()!!
+}
+
+/**
+ * Returns a persistent hash map containing all the entries of this map
+ */
+public fun <K, V> Map<K, V>.toPersistentHashMap(): PersistentHashMap<K, V> {
+    if (this is PersistentHashMap<K, V>) {
+        return this
+    }
+    return PersistentHashMap.empty<K, V>()!!.builder()!!.putAll(this)!!.build()!!
+}
+
+/**
+ * Returns a new persistent hash set of the given elements
+ */
+public fun <T> persistentHashSetOf(vararg values: T): PersistentHashSet<T> {
+    val builder = PersistentHashSet.empty<T>()!!.builder()!!
+    for (value in values) {
+        builder.add(value)
+    }
+    return builder.build()!!
+}
+
+/**
+ * Returns a persistent hash set containing all the elements of this collection
+ */
+public fun <T> Iterable<T>.toPersistentHashSet(): PersistentHashSet<T> {
+    if (this is PersistentHashSet<T>) {
+        return this
+    }
+    val builder = PersistentHashSet.empty<T>()!!.builder()!!
+    for (element in this) {
+        builder.add(element)
+    }
+    return builder.build()!!
+}
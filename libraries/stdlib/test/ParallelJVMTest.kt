@@ -0,0 +1,64 @@
+package test.collections
+
+import kotlin.test.*
+import java.util.ArrayList
+import java.util.LinkedList
+import java.util.concurrent.atomic.AtomicInteger
+import org.junit.Test as test
+
+class ParallelJVMTest {
+    val size = 100000
+
+    fun intRange(): IntArray {
+        val array = IntArray(size)
+        for (index in 0..size - 1) array[index] = index
+        return array
+    }
+
+    test fun parallelMap() {
+        val array = intRange()
+        assertEquals(array.map { it * 2 }, array.parallelMap { it * 2 })
+        assertEquals(listOf("1", "2"), intArray(1, 2).parallelMap { it.toString() })
+    }
+
+    test fun parallelFilter() {
+        val array = intRange()
+        val filtered = array.parallelFilter { it % 3 == 0 }
+        assertEquals(array.filter { it % 3 == 0 }, filtered.toList())
+        assertEquals(0, intArray(1, 2).parallelFilter { it > 2 }.size)
+        assertEquals(array.filter { it % 3 == 0 }, array.toList().parallelFilter { it % 3 == 0 })
+    }
+
+    test fun parallelCount() {
+        assertEquals(size / 2, intRange().parallelCount { it % 2 == 0 })
+        assertEquals(size / 2, intRange().toCollection(LinkedList<Int>()).parallelCount { it % 2 == 0 })
+    }
+
+    test fun parallelReduce() {
+        val array = intRange()
+        assertEquals(array.fold(0L) { sum, value -> sum + value }, array.map { it.toLong() }.parallelReduce { a, b -> a + b })
+        assertEquals("abc", array("a", "b", "c").parallelReduce { a, b -> a + b })
+
+        fails {
+            ArrayList<Int>().parallelReduce { a, b -> a + b }
+        }
+    }
+
+    test fun parallelForEach() {
+        val count = AtomicInteger()
+        intRange().parallelForEach { count.incrementAndGet() }
+        assertEquals(size, count.get())
+    }
+
+    test fun nestedParallelOperations() {
+        val array = intRange().take(4096)
+        val counts = array.parallelMap { value -> array.parallelCount { it < value } }
+        assertEquals(array, counts)
+    }
+
+    test fun exceptionIsRethrown() {
+        fails {
+            intRange().parallelForEach { if (it == size - 1) throw IllegalStateException() }
+        }
+    }
+}
@@ -79,6 +79,61 @@ class MapJsTest {
     }
 
 
+    test fun hashMapPutAllOverlappingKeys() {
+        val map = createTestHashMap()
+        val newMap = HashMap<String, Int>()
+        newMap.put(KEYS[0], 100)
+        newMap.putAll(map)
+        assertEquals(KEYS.size, newMap.size)
+        assertEquals(VALUES[0], newMap.get(KEYS[0]))
+    }
+
+    test fun hashMapKeysNamedLikeObjectProperties() {
+        val map = HashMap<String, Int>()
+        assertFalse(map.containsKey("toString"))
+        assertEquals(null, map.get("constructor"))
+
+        map.put("toString", 1)
+        map.put("__proto__", 2)
+        assertEquals(2, map.size)
+        assertEquals(1, map.get("toString"))
+        assertEquals(2, map.get("__proto__"))
+    }
+
+    test fun hashMapNumberKeys() {
+        val map = HashMap<Int, String>()
+        map.put(1, "one")
+        map.put(2, "two")
+        assertEquals("one", map.get(1))
+
+        var sum = 0
+        for (key in map.keySet()) {
+            sum += key
+        }
+        assertEquals(3, sum)
+    }
+
+    test fun hashSetNumberElements() {
+        val set = HashSet<Int>()
+        set.add(1)
+        set.add(2)
+        set.add(1)
+        assertEquals(2, set.size)
+        assertEquals(arrayList(1, 2), set.toSortedList())
+    }
+
+    test fun hashMapComplexKeys() {
+        val map = HashMap<CollidingKey, Int>()
+        for (i in VALUES) {
+            map.put(CollidingKey(i), i)
+        }
+        map.remove(CollidingKey(0))
+        assertEquals(VALUES.size - 1, map.size)
+        assertEquals(1, map.get(CollidingKey(1)))
+        assertFalse(map.containsKey(CollidingKey(0)))
+        assertTrue(map.containsKey(CollidingKey(2)))
+    }
+
     fun createTestHashMap(): HashMap<String, Int> {
         val map = HashMap<String, Int>()
         for (i in KEYS.indices) {
@@ -233,3 +288,9 @@ class MapJsTest {
     */
 
 }
+
+class CollidingKey(val value: Int) {
+    override fun hashCode(): Int = value % 2
+
+    override fun equals(other: Any?): Boolean = other is CollidingKey && other.value == value
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.kotlin.maven;
+
+import com.google.common.io.Files;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Inputs of a compilation: compiler arguments, hashes of the source files and time stamps of the classpath entries.
+ * It's saved after a successful compilation, so the next build can skip the compilation if none of the inputs changed.
+ *
+ * Content hashes of sources are recomputed only for files whose time stamps changed, so touching a file doesn't cause
+ * a recompilation. Classpath entries are compared by time stamps only, except for the output directories
+ * of the module itself, which are rewritten by every build.
+ */
+public class CompilationState {
+    private static final String ARGUMENTS_KEY = "arguments";
+    private static final String SOURCE_PREFIX = "source:";
+    private static final String CLASSPATH_PREFIX = "classpath:";
+
+    private final String arguments;
+    // path -> "length lastModified hash"
+    private final Map<String, String> sources = new TreeMap<String, String>();
+    // path -> "length lastModified" for files, "fileCount length lastModified" for directories
+    private final Map<String, String> classpath = new TreeMap<String, String>();
+
+    private CompilationState(String arguments) {
+        this.arguments = arguments;
+    }
+
+    public static CompilationState compute(
+            String arguments,
+            List<String> sourceRoots,
+            List<String> classpathElements,
+            List<String> untrackedClasspathElements,
+            CompilationState previous
+    ) throws IOException {
+        CompilationState state = new CompilationState(arguments);
+        if (sourceRoots != null) {
+            for (String sourceRoot : sourceRoots) {
+                state.addSources(new File(sourceRoot), previous);
+            }
+        }
+        if (classpathElements != null) {
+            Set<File> untracked = new HashSet<File>();
+            if (untrackedClasspathElements != null) {
+                for (String element : untrackedClasspathElements) {
+                    if (element != null) {
+                        untracked.add(new File(element).getAbsoluteFile());
+                    }
+                }
+            }
+            for (String element : classpathElements) {
+                File file = new File(element);
+                if (file.exists() && !untracked.contains(file.getAbsoluteFile())) {
+                    state.classpath.put(file.getPath(), classpathStamp(file));
+                }
+            }
+        }
+        return state;
+    }
+
+    /**
+     * @return true if the compilation with this state would produce the same output as with the previous one
+     */
+    public boolean isUpToDate(CompilationState previous, Log log) {
+        if (previous == null) {
+            return false;
+        }
+        if (!arguments.equals(previous.arguments)) {
+            log.debug("Compiler arguments changed");
+            return false;
+        }
+        if (!classpath.equals(previous.classpath)) {
+            log.debug("Classpath changed");
+            return false;
+        }
+        if (!sources.keySet().equals(previous.sources.keySet())) {
+            log.debug("Source files were added or removed");
+            return false;
+        }
+        for (Map.Entry<String, String> entry : sources.entrySet()) {
+            if (!getHash(entry.getValue()).equals(getHash(previous.sources.get(entry.getKey())))) {
+                log.debug("Source file changed: " + entry.getKey());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static CompilationState load(File file, Log log) {
+        if (!file.exists()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try {
+            InputStream stream = new BufferedInputStream(new FileInputStream(file));
+            try {
+                properties.load(stream);
+            }
+            finally {
+                stream.close();
+            }
+        }
+        catch (IOException e) {
+            log.warn("Error reading compilation state from " + file, e);
+            return null;
+        }
+
+        String arguments = properties.getProperty(ARGUMENTS_KEY);
+        if (arguments == null) {
+            return null;
+        }
+        CompilationState state = new CompilationState(arguments);
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(SOURCE_PREFIX)) {
+                state.sources.put(key.substring(SOURCE_PREFIX.length()), properties.getProperty(key));
+            }
+            else if (key.startsWith(CLASSPATH_PREFIX)) {
+                state.classpath.put(key.substring(CLASSPATH_PREFIX.length()), properties.getProperty(key));
+            }
+        }
+        return state;
+    }
+
+    public void save(File file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(ARGUMENTS_KEY, arguments);
+        for (Map.Entry<String, String> entry : sources.entrySet()) {
+            properties.setProperty(SOURCE_PREFIX + entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, String> entry : classpath.entrySet()) {
+            properties.setProperty(CLASSPATH_PREFIX + entry.getKey(), entry.getValue());
+        }
+
+        Files.createParentDirs(file);
+        OutputStream stream = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            properties.store(stream, "Kotlin compilation state");
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    public static void delete(File file, Log log) {
+        if (file.exists() && !file.delete()) {
+            log.warn("Could not delete compilation state " + file);
+        }
+    }
+
+    private void addSources(File file, CompilationState previous) throws IOException {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    addSources(child, previous);
+                }
+            }
+        }
+        else if (file.isFile()) {
+            String path = file.getPath();
+            String stamp = file.length() + " " + file.lastModified();
+            String previousValue = previous != null ? previous.sources.get(path) : null;
+            if (previousValue != null && previousValue.startsWith(stamp + " ")) {
+                sources.put(path, previousValue);
+            }
+            else {
+                sources.put(path, stamp + " " + hash(file));
+            }
+        }
+    }
+
+    private static String getHash(String sourceValue) {
+        return sourceValue.substring(sourceValue.lastIndexOf(' ') + 1);
+    }
+
+    private static String classpathStamp(File file) {
+        if (!file.isDirectory()) {
+            return file.length() + " " + file.lastModified();
+        }
+        // Output directories of other modules: any changed, added or removed class file changes at least one of the numbers
+        long[] stamp = new long[3];
+        addDirectoryStamp(file, stamp);
+        return stamp[0] + " " + stamp[1] + " " + stamp[2];
+    }
+
+    private static void addDirectoryStamp(File directory, long[] stamp) {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                addDirectoryStamp(child, stamp);
+            }
+            else {
+                stamp[0]++;
+                stamp[1] += child.length();
+                stamp[2] = Math.max(stamp[2], child.lastModified());
+            }
+        }
+    }
+
+    private static String hash(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        byte[] buffer = new byte[8192];
+        InputStream stream = new FileInputStream(file);
+        try {
+            int read;
+            while ((read = stream.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        finally {
+            stream.close();
+        }
+
+        StringBuilder result = new StringBuilder();
+        for (byte b : digest.digest()) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+}
@@ -26,6 +26,8 @@ import org.jetbrains.jet.cli.js.K2JSCompiler;
 import org.jetbrains.jet.cli.js.K2JSCompilerArguments;
 import com.intellij.openapi.util.io.FileUtil;
 import org.jetbrains.k2js.config.MetaInfServices;
+import org.jetbrains.k2js.facade.K2JSTranslator;
+import org.jetbrains.k2js.generate.SourceMapBuilder;
 
 import java.io.*;
 import java.nio.charset.Charset;
@@ -78,10 +80,19 @@ public class K2JSCompilerMojo extends KotlinCompileMojo {
      */
     private Boolean appendLibraryJS;
 
+    /**
+     * Whether to generate a source map next to the output JS file
+     *
+     * @parameter default-value="false"
+     * @parameter expression="${kotlin.js.sourceMap}"
+     */
+    private boolean sourceMap;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
-        super.execute();
-        if (appendLibraryJS != null && appendLibraryJS.booleanValue()) {
+        boolean compiled = compileIfNeeded();
+        // the output of a skipped compilation already starts with the library
+        if (compiled && appendLibraryJS != null && appendLibraryJS.booleanValue()) {
             try {
                 Charset charset = Charset.defaultCharset();
                 File file = new File(outputFile);
@@ -91,8 +102,12 @@ public class K2JSCompilerMojo extends KotlinCompileMojo {
                 appendFile(KOTLIN_JS_LIB, builder);
                 appendFile(KOTLIN_JS_MAPS, builder);
                 builder.append("\n");
+                int libraryLineCount = countLines(builder);
                 builder.append(text);
                 Files.write(builder.toString(), file, charset);
+                if (sourceMap) {
+                    shiftSourceMap(new File(outputFile + K2JSTranslator.SOURCE_MAP_EXTENSION), libraryLineCount);
+                }
             } catch (IOException e) {
                 throw new MojoExecutionException(e.getMessage(), e);
             }
@@ -107,6 +122,28 @@ public class K2JSCompilerMojo extends KotlinCompileMojo {
         }
     }
 
+    private static int countLines(CharSequence text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The library is put in front of the generated code, so the source map has to point that many lines further
+     */
+    private static void shiftSourceMap(File sourceMapFile, int lineCount) throws IOException {
+        if (!sourceMapFile.exists()) {
+            return;
+        }
+        Charset charset = Charset.forName("UTF-8");
+        String sourceMap = Files.toString(sourceMapFile, charset);
+        Files.write(SourceMapBuilder.shiftMappings(sourceMap, lineCount), sourceMapFile, charset);
+    }
+
     protected void appendFile(String jsLib, StringBuilder builder) throws MojoExecutionException {
         // lets copy the kotlin library into the output directory
         try {
@@ -156,6 +193,7 @@ public class K2JSCompilerMojo extends KotlinCompileMojo {
         if (arguments instanceof K2JSCompilerArguments) {
             K2JSCompilerArguments k2jsArgs = (K2JSCompilerArguments)arguments;
             k2jsArgs.outputFile = outputFile;
+            k2jsArgs.sourcemap = sourceMap;
             if (getLog().isDebugEnabled()) {
                 k2jsArgs.verbose = true;
             }
@@ -167,6 +205,16 @@ public class K2JSCompilerMojo extends KotlinCompileMojo {
         }
     }
 
+    @Override
+    protected String getOutputPath() {
+        return outputFile;
+    }
+
+    @Override
+    protected String getCompilationStateFileName() {
+        return "js-compile.state";
+    }
+
     @Override
     protected CompilerArguments createCompilerArguments() {
         return new K2JSCompilerArguments();
@@ -44,14 +44,18 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import static com.intellij.openapi.util.text.StringUtil.join;
 
 public abstract class KotlinCompileMojoBase extends AbstractMojo {
-
+    // Classes of the plugin are loaded once per Maven session, so all modules of a reactor build share this cache.
+    // "path length lastModified" of a jar -> whether the jar contains annotations.xml files
+    private static final Map<String, Boolean> ANNOTATION_JARS = new ConcurrentHashMap<String, Boolean>();
 
     // TODO it would be nice to avoid using 2 injected fields for sources
     // but I've not figured out how to have a defaulted parameter value
@@ -150,8 +154,29 @@ public abstract class KotlinCompileMojoBase extends AbstractMojo {
      */
     public String testModule;
 
+    /**
+     * Skip the compilation if sources, classpath and compiler arguments haven't changed since the last successful one.
+     *
+     * @parameter expression="${kotlin.incremental}" default-value="true"
+     */
+    public boolean incremental;
+
+    /**
+     * The directory for the state of the last compilation, used to check if the output is up to date.
+     *
+     * @parameter default-value="${project.build.directory}/kotlin"
+     */
+    public String compilationStateDirectory;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
+        compileIfNeeded();
+    }
+
+    /**
+     * @return false if nothing was compiled, because there are no sources or the output is up to date
+     */
+    protected boolean compileIfNeeded() throws MojoExecutionException, MojoFailureException {
         getLog().info("Kotlin Compiler version " + KotlinVersion.VERSION);
 
         // Check sources
@@ -168,7 +193,7 @@ public abstract class KotlinCompileMojoBase extends AbstractMojo {
 
             if (!sourcesExists) {
                 getLog().warn( "No sources found skipping Kotlin compile" );
-                return;
+                return false;
             }
         }
 
@@ -179,6 +204,29 @@ public abstract class KotlinCompileMojoBase extends AbstractMojo {
         printCompilerArgumentsIfDebugEnabled(arguments, compiler);
 
         final Log log = getLog();
+
+        // Sources of a module script are known only to the compiler, so modules are always recompiled
+        File stateFile = incremental && getModule() == null ? new File(compilationStateDirectory, getCompilationStateFileName()) : null;
+        CompilationState state = null;
+        if (stateFile != null) {
+            CompilationState previousState = CompilationState.load(stateFile, log);
+            try {
+                String argumentsDescription = compiler.getClass().getName() + " " + KotlinVersion.VERSION + "\n" + describeArguments(arguments);
+                state = CompilationState.compute(argumentsDescription, sources, getClasspathElements(),
+                                                 getOutputDirectoriesNotTracked(), previousState);
+            }
+            catch (IOException e) {
+                throw new MojoExecutionException("Error reading sources: " + e.getMessage(), e);
+            }
+
+            if (new File(getOutputPath()).exists() && state.isUpToDate(previousState, log)) {
+                log.info("Nothing to compile - all Kotlin sources are up to date");
+                return false;
+            }
+            // A failed compilation must not leave the state of the previous one
+            CompilationState.delete(stateFile, log);
+        }
+
         MessageCollector messageCollector = new MessageCollector() {
             @Override
             public void report(@NotNull CompilerMessageSeverity severity, @NotNull String message, @NotNull CompilerMessageLocation location) {
@@ -208,6 +256,32 @@ public abstract class KotlinCompileMojoBase extends AbstractMojo {
             case INTERNAL_ERROR:
                 throw new MojoExecutionException("Internal compiler error. See log for more details");
         }
+
+        if (state != null) {
+            try {
+                state.save(stateFile);
+            }
+            catch (IOException e) {
+                log.warn("Error saving compilation state to " + stateFile, e);
+            }
+        }
+        return true;
+    }
+
+    private static String describeArguments(CompilerArguments arguments) {
+        StringBuilder result = new StringBuilder();
+        for (Field field : arguments.getClass().getFields()) {
+            try {
+                Object value = field.get(arguments);
+                result.append(field.getName()).append('=');
+                result.append(value instanceof Object[] ? Arrays.deepToString((Object[]) value) : String.valueOf(value));
+                result.append('\n');
+            }
+            catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return result.toString();
     }
 
     private void printCompilerArgumentsIfDebugEnabled(CompilerArguments arguments, CLICompiler compiler) {
@@ -239,6 +313,33 @@ public abstract class KotlinCompileMojoBase extends AbstractMojo {
         }
     }
 
+    /**
+     * The directory or file the compiler writes to
+     */
+    protected String getOutputPath() {
+        return output;
+    }
+
+    protected List<String> getClasspathElements() {
+        return classpath;
+    }
+
+    protected String getModule() {
+        return module;
+    }
+
+    /**
+     * Output directories of this module which are on the classpath, but are not inputs of the compilation:
+     * they are rewritten by every build, so their time stamps would never match the saved ones
+     */
+    protected List<String> getOutputDirectoriesNotTracked() {
+        return Arrays.asList(output, testOutput);
+    }
+
+    protected String getCompilationStateFileName() {
+        return "compile.state";
+    }
+
     protected CLICompiler createCompiler() {
         return new K2JVMCompiler();
     }
@@ -353,7 +454,16 @@ public abstract class KotlinCompileMojoBase extends AbstractMojo {
         final Set<Artifact> artifacts = project.getArtifacts();
         for (Artifact artifact : artifacts) {
             final File file = artifact.getFile();
-            if (containsAnnotations(file, log)) {
+            if (file == null) {
+                continue;
+            }
+            String key = file.getPath() + " " + file.length() + " " + file.lastModified();
+            Boolean hasAnnotations = ANNOTATION_JARS.get(key);
+            if (hasAnnotations == null) {
+                hasAnnotations = containsAnnotations(file, log);
+                ANNOTATION_JARS.put(key, hasAnnotations);
+            }
+            if (hasAnnotations) {
                 log.info("Discovered kotlin annotations in: " + file);
                 try {
                     annotations.add(file.getCanonicalPath());
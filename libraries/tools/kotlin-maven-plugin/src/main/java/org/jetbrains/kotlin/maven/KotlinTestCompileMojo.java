@@ -21,6 +21,7 @@ import org.apache.maven.plugin.MojoFailureException;
 import org.jetbrains.jet.cli.common.CompilerArguments;
 import org.jetbrains.jet.cli.jvm.K2JVMCompilerArguments;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -85,6 +86,32 @@ public class KotlinTestCompileMojo extends KotlinCompileMojoBase {
         }
     }
 
+    @Override
+    protected String getOutputPath() {
+        return testOutput;
+    }
+
+    @Override
+    protected List<String> getClasspathElements() {
+        return testClasspath;
+    }
+
+    // The main classes are an input of the tests: they are compiled before them and don't change unless their sources do
+    @Override
+    protected List<String> getOutputDirectoriesNotTracked() {
+        return Collections.singletonList(testOutput);
+    }
+
+    @Override
+    protected String getModule() {
+        return testModule;
+    }
+
+    @Override
+    protected String getCompilationStateFileName() {
+        return "test-compile.state";
+    }
+
     @Override
     protected void configureCompilerArguments(CompilerArguments arguments) throws MojoExecutionException {
         if (arguments instanceof K2JVMCompilerArguments) {
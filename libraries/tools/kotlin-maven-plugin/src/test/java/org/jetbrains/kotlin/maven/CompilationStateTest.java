@@ -0,0 +1,146 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.kotlin.maven;
+
+import com.google.common.io.Files;
+import com.intellij.openapi.util.io.FileUtil;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompilationStateTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Log log = new SystemStreamLog();
+
+    private File directory;
+    private File sources;
+    private File source;
+    private File library;
+    private File dependencyOutput;
+    private File output;
+    private File stateFile;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDir();
+        sources = new File(directory, "src");
+        source = new File(sources, "foo/Foo.kt");
+        Files.createParentDirs(source);
+        Files.write("class Foo", source, UTF_8);
+        library = new File(directory, "lib.jar");
+        Files.write("jar", library, UTF_8);
+        dependencyOutput = new File(directory, "dependency/classes");
+        Files.createParentDirs(new File(dependencyOutput, "Dependency.class"));
+        Files.write("class", new File(dependencyOutput, "Dependency.class"), UTF_8);
+        output = new File(directory, "classes");
+        assertTrue(output.mkdirs());
+        stateFile = new File(directory, "state/compile.state");
+    }
+
+    @After
+    public void tearDown() {
+        FileUtil.delete(directory);
+    }
+
+    private CompilationState compute(String arguments) throws IOException {
+        CompilationState previous = CompilationState.load(stateFile, log);
+        // Maven puts the output directory of the module itself on its classpath
+        List<String> classpath = Arrays.asList(library.getPath(), dependencyOutput.getPath(), output.getPath());
+        return CompilationState.compute(arguments, Collections.singletonList(sources.getPath()), classpath,
+                                        Collections.singletonList(output.getPath()), previous);
+    }
+
+    private boolean isUpToDate() throws IOException {
+        return compute("arguments").isUpToDate(CompilationState.load(stateFile, log), log);
+    }
+
+    @Test
+    public void noPreviousState() throws IOException {
+        assertFalse(isUpToDate());
+    }
+
+    @Test
+    public void unchanged() throws IOException {
+        compute("arguments").save(stateFile);
+        assertTrue(isUpToDate());
+    }
+
+    @Test
+    public void touchedSourceWithSameContent() throws IOException {
+        compute("arguments").save(stateFile);
+        assertTrue(source.setLastModified(source.lastModified() + 10000));
+        assertTrue(isUpToDate());
+    }
+
+    @Test
+    public void changedSource() throws IOException {
+        compute("arguments").save(stateFile);
+        Files.write("class Bar", source, UTF_8);
+        assertTrue(source.setLastModified(source.lastModified() + 10000));
+        assertFalse(isUpToDate());
+    }
+
+    @Test
+    public void addedSource() throws IOException {
+        compute("arguments").save(stateFile);
+        Files.write("class Bar", new File(sources, "foo/Bar.kt"), UTF_8);
+        assertFalse(isUpToDate());
+    }
+
+    @Test
+    public void changedClasspath() throws IOException {
+        compute("arguments").save(stateFile);
+        assertTrue(library.setLastModified(library.lastModified() + 10000));
+        assertFalse(isUpToDate());
+    }
+
+    @Test
+    public void changedArguments() throws IOException {
+        compute("other arguments").save(stateFile);
+        assertFalse(isUpToDate());
+    }
+
+    @Test
+    public void outputDirectoryChangedByCompilation() throws IOException {
+        compute("arguments").save(stateFile);
+        File compiled = new File(output, "foo/Foo.class");
+        Files.createParentDirs(compiled);
+        Files.write("class", compiled, UTF_8);
+        assertTrue(isUpToDate());
+    }
+
+    @Test
+    public void dependencyOutputChanged() throws IOException {
+        compute("arguments").save(stateFile);
+        Files.write("class", new File(dependencyOutput, "Other.class"), UTF_8);
+        assertFalse(isUpToDate());
+    }
+}
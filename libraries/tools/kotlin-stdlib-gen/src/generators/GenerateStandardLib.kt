@@ -61,6 +61,13 @@ fun main(args: Array<String>) {
         if (iteratorSignatures contains erasedSignature.flat()) buildFor(Collections, "") else ""
     }
 
+    templates.clear()
+
+    parallel()
+    templates.writeTo(File(outDir, "_ParallelJVM.kt")) {
+        buildFor(Arrays, "") + otherArrayNames.map { buildFor(PrimitiveArrays, it) }.makeString("")
+    }
+
     generateDownTos(File(outDir, "_DownTo.kt"), "package kotlin")
 }
 
@@ -0,0 +1,140 @@
+package templates
+
+import templates.Family.*
+
+/**
+ * Operations which split arrays into chunks and process the chunks on several threads.
+ * They are JVM-only and not inline, because the functions passed to them are called from other threads.
+ */
+fun parallel() {
+    f("parallelForEach(operation: (T) -> Unit)") {
+        doc = "Performs the given *operation* on each element, splitting the elements between several threads"
+        isInline = false
+        returns("Unit")
+        absentFor(Iterators, Iterables, Collections)
+
+        body {
+            """
+                parallelChunks(size) { from, to ->
+                    for (index in from..to - 1) operation(this[index])
+                }
+            """
+        }
+    }
+
+    f("parallelMap(transform: (T) -> R)") {
+        doc = """
+            Returns a list containing the results of applying the given *transform* function to each element,
+            splitting the elements between several threads
+        """
+        isInline = false
+        typeParam("R")
+        returns("List<R>")
+        absentFor(Iterators, Iterables, Collections)
+
+        body {
+            """
+                val chunks = parallelChunks(size) { from, to ->
+                    val chunk = ArrayList<R>(to - from)
+                    for (index in from..to - 1) chunk.add(transform(this[index]))
+                    chunk
+                }
+                return concatenateChunks(chunks)
+            """
+        }
+    }
+
+    f("parallelFilter(predicate: (T) -> Boolean)") {
+        doc = """
+            Returns a list containing all elements which match the given *predicate*, splitting the elements between several threads.
+            Primitive arrays are filtered into an array of the same type, so that their elements are not boxed
+        """
+        isInline = false
+        PrimitiveArrays.returns("SELF")
+        returns("List<T>")
+        absentFor(Iterators, Iterables, Collections)
+
+        PrimitiveArrays.body {
+            """
+                val chunks = parallelChunks(size) { from, to ->
+                    val chunk = SELF(to - from)
+                    var count = 0
+                    for (index in from..to - 1) {
+                        val element = this[index]
+                        if (predicate(element)) chunk[count++] = element
+                    }
+                    if (count == chunk.size) chunk else chunk.copyOf(count)
+                }
+                if (chunks.size() == 1) {
+                    return chunks[0]
+                }
+
+                var resultSize = 0
+                for (chunk in chunks) resultSize += chunk.size
+                val result = SELF(resultSize)
+                var offset = 0
+                for (chunk in chunks) {
+                    System.arraycopy(chunk, 0, result, offset, chunk.size)
+                    offset += chunk.size
+                }
+                return result
+            """
+        }
+        body {
+            """
+                val chunks = parallelChunks(size) { from, to ->
+                    val chunk = ArrayList<T>()
+                    for (index in from..to - 1) {
+                        val element = this[index]
+                        if (predicate(element)) chunk.add(element)
+                    }
+                    chunk
+                }
+                return concatenateChunks(chunks)
+            """
+        }
+    }
+
+    f("parallelCount(predicate: (T) -> Boolean)") {
+        doc = "Returns the number of elements which match the given *predicate*, splitting the elements between several threads"
+        isInline = false
+        returns("Int")
+        absentFor(Iterators, Iterables, Collections)
+
+        body {
+            """
+                val chunks = parallelChunks(size) { from, to ->
+                    var count = 0
+                    for (index in from..to - 1) if (predicate(this[index])) count++
+                    count
+                }
+                return chunks.fold(0) { total, count -> total + count }
+            """
+        }
+    }
+
+    f("parallelReduce(operation: (T, T) -> T)") {
+        doc = """
+            Applies the associative binary *operation* to all elements, splitting the elements between several threads.
+            Chunks are reduced from left to right, then their results are reduced in the same order
+        """
+        isInline = false
+        returns("T")
+        absentFor(Iterators, Iterables, Collections)
+
+        body {
+            """
+                if (size == 0) {
+                    throw UnsupportedOperationException("Empty iterable can't be reduced")
+                }
+
+                val chunks = parallelChunks(size) { from, to ->
+                    var result = this[from]
+                    for (index in from + 1..to - 1) result = operation(result, this[index])
+                    result
+                }
+                return chunks.reduce(operation)
+            """
+        }
+    }
+}
@@ -0,0 +1,538 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jet.runtime.persistent;
+
+import java.util.*;
+
+/**
+ * Immutable hash map which is updated by creating modified copies sharing most of the structure with the original.
+ *
+ * Entries are kept in a hash array mapped trie: every level of the trie takes 5 bits of the hash code and stores only
+ * the children which are present, so lookups and updates take O(log32(size)) time.
+ * Use {@link #builder()} to make many updates without creating an intermediate map after each of them.
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final Object NOT_FOUND = new Object();
+
+    @SuppressWarnings("unchecked")
+    private static final PersistentHashMap EMPTY = new PersistentHashMap(0, null, false, null);
+
+    private final int size;
+    // null for maps without non-null keys
+    private final Node root;
+    // null key is kept outside of the trie
+    private final boolean hasNull;
+    private final V nullValue;
+
+    private PersistentHashMap(int size, Node root, boolean hasNull, V nullValue) {
+        this.size = size;
+        this.root = root;
+        this.hasNull = hasNull;
+        this.nullValue = nullValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return EMPTY;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (key == null) {
+            return hasNull;
+        }
+        return root != null && root.find(0, hash(key), key, NOT_FOUND) != NOT_FOUND;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) {
+            return hasNull ? nullValue : null;
+        }
+        return root != null ? (V) root.find(0, hash(key), key, null) : null;
+    }
+
+    /**
+     * @return a map with the given key mapped to the given value
+     */
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        if (key == null) {
+            if (hasNull && nullValue == value) {
+                return this;
+            }
+            return new PersistentHashMap<K, V>(hasNull ? size : size + 1, root, true, value);
+        }
+
+        Box addedLeaf = new Box();
+        Node newRoot = (root != null ? root : BitmapIndexedNode.EMPTY).put(null, 0, hash(key), key, value, addedLeaf);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<K, V>(addedLeaf.value ? size + 1 : size, newRoot, hasNull, nullValue);
+    }
+
+    /**
+     * @return a map without the given key
+     */
+    public PersistentHashMap<K, V> minus(Object key) {
+        if (key == null) {
+            return hasNull ? new PersistentHashMap<K, V>(size - 1, root, false, null) : this;
+        }
+        if (root == null) {
+            return this;
+        }
+
+        Box removedLeaf = new Box();
+        Node newRoot = root.remove(null, 0, hash(key), key, removedLeaf);
+        if (!removedLeaf.value) {
+            return this;
+        }
+        return new PersistentHashMap<K, V>(size - 1, newRoot, hasNull, nullValue);
+    }
+
+    public Builder<K, V> builder() {
+        return new Builder<K, V>(this);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator<K, V>(root, hasNull, nullValue);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int bitPosition(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static final class Box {
+        boolean value;
+    }
+
+    /**
+     * Keys and values are stored in pairs in the array of a node. A pair with a null key holds a child node instead of a value.
+     */
+    private abstract static class Node {
+        // Builder which may modify this node in place, null for nodes of persistent maps
+        final Object edit;
+        Object[] array;
+
+        Node(Object edit, Object[] array) {
+            this.edit = edit;
+            this.array = array;
+        }
+
+        boolean isEditable(Object edit) {
+            return edit != null && this.edit == edit;
+        }
+
+        abstract Object find(int shift, int hash, Object key, Object notFound);
+
+        abstract Node put(Object edit, int shift, int hash, Object key, Object value, Box addedLeaf);
+
+        // Returns null when the last entry is removed from the node
+        abstract Node remove(Object edit, int shift, int hash, Object key, Box removedLeaf);
+
+        abstract Node copy(Object edit, Object[] newArray);
+
+        Node editAndSet(Object edit, int index, Object value) {
+            if (isEditable(edit)) {
+                array[index] = value;
+                return this;
+            }
+            Object[] newArray = array.clone();
+            newArray[index] = value;
+            return copy(edit, newArray);
+        }
+
+        Node editAndSet(Object edit, int index1, Object value1, int index2, Object value2) {
+            if (isEditable(edit)) {
+                array[index1] = value1;
+                array[index2] = value2;
+                return this;
+            }
+            Object[] newArray = array.clone();
+            newArray[index1] = value1;
+            newArray[index2] = value2;
+            return copy(edit, newArray);
+        }
+    }
+
+    private static final class BitmapIndexedNode extends Node {
+        static final BitmapIndexedNode EMPTY = new BitmapIndexedNode(null, 0, new Object[0]);
+
+        int bitmap;
+
+        BitmapIndexedNode(Object edit, int bitmap, Object[] array) {
+            super(edit, array);
+            this.bitmap = bitmap;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key, Object notFound) {
+            int bit = bitPosition(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return notFound;
+            }
+            int index = index(bit);
+            Object keyOrNull = array[2 * index];
+            Object valueOrNode = array[2 * index + 1];
+            if (keyOrNull == null) {
+                return ((Node) valueOrNode).find(shift + BITS, hash, key, notFound);
+            }
+            return key.equals(keyOrNull) ? valueOrNode : notFound;
+        }
+
+        @Override
+        Node put(Object edit, int shift, int hash, Object key, Object value, Box addedLeaf) {
+            int bit = bitPosition(hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) != 0) {
+                Object keyOrNull = array[2 * index];
+                Object valueOrNode = array[2 * index + 1];
+                if (keyOrNull == null) {
+                    Node newChild = ((Node) valueOrNode).put(edit, shift + BITS, hash, key, value, addedLeaf);
+                    return newChild == valueOrNode ? this : editAndSet(edit, 2 * index + 1, newChild);
+                }
+                if (key.equals(keyOrNull)) {
+                    return valueOrNode == value ? this : editAndSet(edit, 2 * index + 1, value);
+                }
+                addedLeaf.value = true;
+                Node newChild = createNode(edit, shift + BITS, keyOrNull, valueOrNode, hash, key, value);
+                return editAndSet(edit, 2 * index, null, 2 * index + 1, newChild);
+            }
+
+            addedLeaf.value = true;
+            int count = Integer.bitCount(bitmap);
+            Object[] newArray = new Object[2 * (count + 1)];
+            System.arraycopy(array, 0, newArray, 0, 2 * index);
+            newArray[2 * index] = key;
+            newArray[2 * index + 1] = value;
+            System.arraycopy(array, 2 * index, newArray, 2 * (index + 1), 2 * (count - index));
+            if (isEditable(edit)) {
+                array = newArray;
+                bitmap |= bit;
+                return this;
+            }
+            return new BitmapIndexedNode(edit, bitmap | bit, newArray);
+        }
+
+        @Override
+        Node remove(Object edit, int shift, int hash, Object key, Box removedLeaf) {
+            int bit = bitPosition(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object keyOrNull = array[2 * index];
+            Object valueOrNode = array[2 * index + 1];
+            if (keyOrNull == null) {
+                Node newChild = ((Node) valueOrNode).remove(edit, shift + BITS, hash, key, removedLeaf);
+                if (newChild == valueOrNode) {
+                    return this;
+                }
+                if (newChild != null) {
+                    return editAndSet(edit, 2 * index + 1, newChild);
+                }
+            }
+            else if (key.equals(keyOrNull)) {
+                removedLeaf.value = true;
+            }
+            else {
+                return this;
+            }
+
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, 2 * index);
+            System.arraycopy(array, 2 * (index + 1), newArray, 2 * index, newArray.length - 2 * index);
+            if (isEditable(edit)) {
+                array = newArray;
+                bitmap ^= bit;
+                return this;
+            }
+            return new BitmapIndexedNode(edit, bitmap ^ bit, newArray);
+        }
+
+        @Override
+        Node copy(Object edit, Object[] newArray) {
+            return new BitmapIndexedNode(edit, bitmap, newArray);
+        }
+    }
+
+    // Keys with the same hash code
+    private static final class CollisionNode extends Node {
+        final int hash;
+
+        CollisionNode(Object edit, int hash, Object[] array) {
+            super(edit, array);
+            this.hash = hash;
+        }
+
+        private int findIndex(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key, Object notFound) {
+            int index = findIndex(key);
+            return index >= 0 ? array[index + 1] : notFound;
+        }
+
+        @Override
+        Node put(Object edit, int shift, int hash, Object key, Object value, Box addedLeaf) {
+            if (hash != this.hash) {
+                // Different hash codes are split by the bits of the current level
+                return new BitmapIndexedNode(edit, bitPosition(this.hash, shift), new Object[] {null, this})
+                        .put(edit, shift, hash, key, value, addedLeaf);
+            }
+
+            int index = findIndex(key);
+            if (index >= 0) {
+                return array[index + 1] == value ? this : editAndSet(edit, index + 1, value);
+            }
+
+            addedLeaf.value = true;
+            Object[] newArray = Arrays.copyOf(array, array.length + 2);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            if (isEditable(edit)) {
+                array = newArray;
+                return this;
+            }
+            return new CollisionNode(edit, hash, newArray);
+        }
+
+        @Override
+        Node remove(Object edit, int shift, int hash, Object key, Box removedLeaf) {
+            int index = findIndex(key);
+            if (index < 0) {
+                return this;
+            }
+            removedLeaf.value = true;
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, newArray.length - index);
+            if (isEditable(edit)) {
+                array = newArray;
+                return this;
+            }
+            return new CollisionNode(edit, hash, newArray);
+        }
+
+        @Override
+        Node copy(Object edit, Object[] newArray) {
+            return new CollisionNode(edit, hash, newArray);
+        }
+    }
+
+    private static Node createNode(Object edit, int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+        int hash1 = hash(key1);
+        if (hash1 == hash2) {
+            return new CollisionNode(edit, hash1, new Object[] {key1, value1, key2, value2});
+        }
+        Box addedLeaf = new Box();
+        return BitmapIndexedNode.EMPTY
+                .put(edit, shift, hash1, key1, value1, addedLeaf)
+                .put(edit, shift, hash2, key2, value2, addedLeaf);
+    }
+
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+        // The trie has at most 7 levels of bitmap nodes and a level of collision nodes
+        private final Object[][] arrays = new Object[8][];
+        private final int[] indices = new int[8];
+        private int depth = -1;
+
+        private Entry<K, V> next;
+
+        EntryIterator(Node root, boolean hasNull, V nullValue) {
+            if (root != null) {
+                push(root.array);
+            }
+            if (hasNull) {
+                next = new SimpleImmutableEntry<K, V>(null, nullValue);
+            }
+            else {
+                advance();
+            }
+        }
+
+        private void push(Object[] array) {
+            depth++;
+            arrays[depth] = array;
+            indices[depth] = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            while (depth >= 0) {
+                Object[] array = arrays[depth];
+                int index = indices[depth];
+                if (index >= array.length) {
+                    arrays[depth] = null;
+                    depth--;
+                    continue;
+                }
+                indices[depth] = index + 2;
+                if (array[index] == null) {
+                    push(((Node) array[index + 1]).array);
+                }
+                else {
+                    next = new SimpleImmutableEntry<K, V>((K) array[index], (V) array[index + 1]);
+                    return;
+                }
+            }
+            next = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> result = next;
+            advance();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Collects updates of a map in place. Nodes created by a builder are not shared with any map until {@link #build()}
+     * is called, so they are modified without copying. A builder may be used after {@code build()}, but it is not thread-safe.
+     */
+    public static final class Builder<K, V> {
+        private Object edit = new Object();
+        private int size;
+        private Node root;
+        private boolean hasNull;
+        private V nullValue;
+
+        private Builder(PersistentHashMap<K, V> map) {
+            size = map.size;
+            root = map.root;
+            hasNull = map.hasNull;
+            nullValue = map.nullValue;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public Builder<K, V> put(K key, V value) {
+            if (key == null) {
+                if (!hasNull) {
+                    size++;
+                }
+                hasNull = true;
+                nullValue = value;
+                return this;
+            }
+
+            Box addedLeaf = new Box();
+            root = (root != null ? root : BitmapIndexedNode.EMPTY).put(edit, 0, hash(key), key, value, addedLeaf);
+            if (addedLeaf.value) {
+                size++;
+            }
+            return this;
+        }
+
+        public Builder<K, V> putAll(Map<? extends K, ? extends V> map) {
+            for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+            return this;
+        }
+
+        public Builder<K, V> remove(Object key) {
+            if (key == null) {
+                if (hasNull) {
+                    size--;
+                }
+                hasNull = false;
+                nullValue = null;
+                return this;
+            }
+            if (root == null) {
+                return this;
+            }
+
+            Box removedLeaf = new Box();
+            root = root.remove(edit, 0, hash(key), key, removedLeaf);
+            if (removedLeaf.value) {
+                size--;
+            }
+            return this;
+        }
+
+        public PersistentHashMap<K, V> build() {
+            if (size == 0) {
+                return empty();
+            }
+            PersistentHashMap<K, V> result = new PersistentHashMap<K, V>(size, root, hasNull, nullValue);
+            // Nodes are shared with the result now, further updates must copy them
+            edit = new Object();
+            return result;
+        }
+    }
+}
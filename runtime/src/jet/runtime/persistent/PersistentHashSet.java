@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jet.runtime.persistent;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Immutable hash set which is updated by creating modified copies sharing most of the structure with the original.
+ *
+ * @see PersistentHashMap
+ */
+public final class PersistentHashSet<E> extends AbstractSet<E> {
+    @SuppressWarnings("unchecked")
+    private static final PersistentHashSet EMPTY = new PersistentHashSet(PersistentHashMap.empty());
+
+    private final PersistentHashMap<E, Boolean> map;
+
+    private PersistentHashSet(PersistentHashMap<E, Boolean> map) {
+        this.map = map;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentHashSet<E> empty() {
+        return EMPTY;
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean contains(Object element) {
+        return map.containsKey(element);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return map.keySet().iterator();
+    }
+
+    /**
+     * @return a set which contains the given element
+     */
+    public PersistentHashSet<E> plus(E element) {
+        PersistentHashMap<E, Boolean> newMap = map.plus(element, Boolean.TRUE);
+        return newMap == map ? this : new PersistentHashSet<E>(newMap);
+    }
+
+    /**
+     * @return a set which doesn't contain the given element
+     */
+    public PersistentHashSet<E> minus(Object element) {
+        PersistentHashMap<E, Boolean> newMap = map.minus(element);
+        return newMap == map ? this : new PersistentHashSet<E>(newMap);
+    }
+
+    public Builder<E> builder() {
+        return new Builder<E>(map.builder());
+    }
+
+    /**
+     * Collects updates of a set in place, see {@link PersistentHashMap.Builder}.
+     */
+    public static final class Builder<E> {
+        private final PersistentHashMap.Builder<E, Boolean> mapBuilder;
+
+        private Builder(PersistentHashMap.Builder<E, Boolean> mapBuilder) {
+            this.mapBuilder = mapBuilder;
+        }
+
+        public int size() {
+            return mapBuilder.size();
+        }
+
+        public Builder<E> add(E element) {
+            mapBuilder.put(element, Boolean.TRUE);
+            return this;
+        }
+
+        public Builder<E> addAll(Collection<? extends E> elements) {
+            for (E element : elements) {
+                mapBuilder.put(element, Boolean.TRUE);
+            }
+            return this;
+        }
+
+        public Builder<E> remove(Object element) {
+            mapBuilder.remove(element);
+            return this;
+        }
+
+        public PersistentHashSet<E> build() {
+            return new PersistentHashSet<E>(mapBuilder.build());
+        }
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jet.runtime.persistent;
+
+import java.util.*;
+
+/**
+ * Immutable list which is updated by creating modified copies sharing most of the structure with the original.
+ *
+ * Elements are kept in a tree with 32 children per node plus a separate tail array for the last elements,
+ * so access by index and updates take O(log32(size)) time, and appending to the end is amortized O(1).
+ * Use {@link #builder()} to make many updates without creating an intermediate vector after each of them.
+ */
+public final class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final class Node {
+        // Builder which may modify this node in place, null for nodes of persistent vectors
+        final Object edit;
+        final Object[] array;
+
+        Node(Object edit, Object[] array) {
+            this.edit = edit;
+            this.array = array;
+        }
+
+        Node(Object edit) {
+            this(edit, new Object[WIDTH]);
+        }
+    }
+
+    private static final Node EMPTY_NODE = new Node(null);
+
+    @SuppressWarnings("unchecked")
+    private static final PersistentVector EMPTY = new PersistentVector(0, BITS, EMPTY_NODE, new Object[0]);
+
+    private final int size;
+    private final int shift;
+    private final Node root;
+    private final Object[] tail;
+
+    private PersistentVector(int size, int shift, Node root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return EMPTY;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkIndex(index, size);
+        return (E) arrayFor(index)[index & MASK];
+    }
+
+    /**
+     * @return a vector with the given element appended to the end
+     */
+    public PersistentVector<E> plus(E element) {
+        if (size - tailOffset(size) < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = element;
+            return new PersistentVector<E>(size + 1, shift, root, newTail);
+        }
+
+        Node tailNode = new Node(null, tail);
+        Node newRoot;
+        int newShift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            // Root is full
+            newRoot = new Node(null);
+            newRoot.array[0] = root;
+            newRoot.array[1] = newPath(null, shift, tailNode);
+            newShift += BITS;
+        }
+        else {
+            newRoot = pushTail(null, size, shift, root, tailNode);
+        }
+        return new PersistentVector<E>(size + 1, newShift, newRoot, new Object[] {element});
+    }
+
+    /**
+     * @return a vector with the element at the given index replaced
+     */
+    public PersistentVector<E> update(int index, E element) {
+        checkIndex(index, size);
+        if (index >= tailOffset(size)) {
+            Object[] newTail = tail.clone();
+            newTail[index & MASK] = element;
+            return new PersistentVector<E>(size, shift, root, newTail);
+        }
+        return new PersistentVector<E>(size, shift, doUpdate(null, shift, root, index, element), tail);
+    }
+
+    /**
+     * @return a vector without the last element
+     */
+    public PersistentVector<E> removeLast() {
+        if (size == 0) {
+            throw new IllegalStateException("Can't remove the last element of an empty vector");
+        }
+        if (size == 1) {
+            return empty();
+        }
+
+        if (size - tailOffset(size) > 1) {
+            return new PersistentVector<E>(size - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+        }
+
+        Object[] newTail = arrayFor(size - 2);
+        Node newRoot = popTail(shift, root);
+        int newShift = shift;
+        if (newRoot == null) {
+            newRoot = EMPTY_NODE;
+        }
+        if (shift > BITS && newRoot.array[1] == null) {
+            newRoot = (Node) newRoot.array[0];
+            newShift -= BITS;
+        }
+        return new PersistentVector<E>(size - 1, newShift, newRoot, newTail);
+    }
+
+    public Builder<E> builder() {
+        return new Builder<E>(this);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private int index = 0;
+            private Object[] array = size > 0 ? arrayFor(0) : null;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                if (index > 0 && (index & MASK) == 0) {
+                    array = arrayFor(index);
+                }
+                return (E) array[index++ & MASK];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private Object[] arrayFor(int index) {
+        if (index >= tailOffset(size)) {
+            return tail;
+        }
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Node) node.array[(index >>> level) & MASK];
+        }
+        return node.array;
+    }
+
+    private Node popTail(int level, Node node) {
+        int subIndex = ((size - 2) >>> level) & MASK;
+        if (level > BITS) {
+            Node newChild = popTail(level - BITS, (Node) node.array[subIndex]);
+            if (newChild == null && subIndex == 0) {
+                return null;
+            }
+            Node result = new Node(null, node.array.clone());
+            result.array[subIndex] = newChild;
+            return result;
+        }
+        if (subIndex == 0) {
+            return null;
+        }
+        Node result = new Node(null, node.array.clone());
+        result.array[subIndex] = null;
+        return result;
+    }
+
+    // Index of the first element stored in the tail
+    private static int tailOffset(int size) {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+
+    private static Node editableNode(Object edit, Node node) {
+        if (edit != null && node.edit == edit) {
+            return node;
+        }
+        return new Node(edit, node.array.clone());
+    }
+
+    private static Node newPath(Object edit, int level, Node node) {
+        if (level == 0) {
+            return node;
+        }
+        Node result = new Node(edit);
+        result.array[0] = newPath(edit, level - BITS, node);
+        return result;
+    }
+
+    // size is the size of the vector before the tail is pushed
+    private static Node pushTail(Object edit, int size, int level, Node parent, Node tailNode) {
+        int subIndex = ((size - 1) >>> level) & MASK;
+        Node result = editableNode(edit, parent);
+        Node nodeToInsert;
+        if (level == BITS) {
+            nodeToInsert = tailNode;
+        }
+        else {
+            Node child = (Node) parent.array[subIndex];
+            nodeToInsert = child != null
+                           ? pushTail(edit, size, level - BITS, child, tailNode)
+                           : newPath(edit, level - BITS, tailNode);
+        }
+        result.array[subIndex] = nodeToInsert;
+        return result;
+    }
+
+    private static Node doUpdate(Object edit, int level, Node node, int index, Object element) {
+        Node result = editableNode(edit, node);
+        if (level == 0) {
+            result.array[index & MASK] = element;
+        }
+        else {
+            int subIndex = (index >>> level) & MASK;
+            result.array[subIndex] = doUpdate(edit, level - BITS, (Node) node.array[subIndex], index, element);
+        }
+        return result;
+    }
+
+    /**
+     * Collects updates of a vector in place. Nodes created by a builder are not shared with any vector until {@link #build()}
+     * is called, so they are modified without copying. A builder may be used after {@code build()}, but it is not thread-safe.
+     */
+    public static final class Builder<E> {
+        private Object edit = new Object();
+        private int size;
+        private int shift;
+        private Node root;
+        // Always WIDTH long, only the first (size - tailOffset(size)) elements are used
+        private Object[] tail;
+
+        private Builder(PersistentVector<E> vector) {
+            size = vector.size;
+            shift = vector.shift;
+            root = vector.root;
+            tail = Arrays.copyOf(vector.tail, WIDTH);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            checkIndex(index, size);
+            if (index >= tailOffset(size)) {
+                return (E) tail[index & MASK];
+            }
+            Node node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                node = (Node) node.array[(index >>> level) & MASK];
+            }
+            return (E) node.array[index & MASK];
+        }
+
+        public Builder<E> add(E element) {
+            if (size - tailOffset(size) < WIDTH) {
+                tail[size & MASK] = element;
+                size++;
+                return this;
+            }
+
+            Node tailNode = new Node(edit, tail);
+            tail = new Object[WIDTH];
+            tail[0] = element;
+            if ((size >>> BITS) > (1 << shift)) {
+                Node newRoot = new Node(edit);
+                newRoot.array[0] = root;
+                newRoot.array[1] = newPath(edit, shift, tailNode);
+                root = newRoot;
+                shift += BITS;
+            }
+            else {
+                root = pushTail(edit, size, shift, root, tailNode);
+            }
+            size++;
+            return this;
+        }
+
+        public Builder<E> addAll(Iterable<? extends E> elements) {
+            for (E element : elements) {
+                add(element);
+            }
+            return this;
+        }
+
+        public Builder<E> set(int index, E element) {
+            checkIndex(index, size);
+            if (index >= tailOffset(size)) {
+                tail[index & MASK] = element;
+            }
+            else {
+                root = doUpdate(edit, shift, root, index, element);
+            }
+            return this;
+        }
+
+        public PersistentVector<E> build() {
+            if (size == 0) {
+                return empty();
+            }
+            PersistentVector<E> result = new PersistentVector<E>(size, shift, root, Arrays.copyOf(tail, size - tailOffset(size)));
+            // Nodes are shared with the result now, further updates must copy them
+            edit = new Object();
+            return result;
+        }
+    }
+}